@@ -0,0 +1,108 @@
+package org.maox.arkablock.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.maox.arkablock.collision.UniformGrid;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Coste de la fase amplia de colisiones: rejilla uniforme frente al bucle de
+ * todos contra todos, para N objetos del tamaño de un ladrillo repartidos por
+ * el area de juego. Además del tiempo se informa de las comparaciones de
+ * pares por ciclo (pairTests), que pasan de O(n²) a casi O(n).
+ * 
+ * @author Alex
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadphaseBenchmark {
+	/** Dimensiones del area de juego */
+	private static final float WIDTH = 800, HEIGHT = 600;
+
+	/** Número de objetos */
+	@Param({ "16", "128", "512", "2048" })
+	public int objects;
+
+	/** Tamaño de los objetos en pixels */
+	@Param({ "14", "50" })
+	public float size;
+
+	private float[] minX, minY, maxX, maxY;
+	private UniformGrid grid;
+
+	/**
+	 * Comparaciones de pares por operación
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Counters {
+		public long pairTests;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			pairTests = 0;
+		}
+	}
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		minX = new float[objects];
+		minY = new float[objects];
+		maxX = new float[objects];
+		maxY = new float[objects];
+
+		for (int i=0;i<objects;i++) {
+			minX[i] = random.nextFloat() * (WIDTH - size);
+			minY[i] = random.nextFloat() * (HEIGHT - size);
+			maxX[i] = minX[i] + size;
+			maxY[i] = minY[i] + size;
+		}
+
+		grid = new UniformGrid(WIDTH, HEIGHT, 64);
+	}
+
+	@Benchmark
+	public int grid(Counters counters) {
+		grid.clear();
+		for (int i=0;i<objects;i++) {
+			grid.insert(minX[i], minY[i], maxX[i], maxY[i]);
+		}
+
+		int pairs = grid.findPairs();
+		counters.pairTests += grid.getPairTests();
+		return pairs;
+	}
+
+	@Benchmark
+	public int bruteForce(Counters counters) {
+		int pairs = 0;
+		for (int i=0;i<objects;i++) {
+			for (int j=i+1;j<objects;j++) {
+				if (minX[i] <= maxX[j] && minX[j] <= maxX[i] && minY[i] <= maxY[j] && minY[j] <= maxY[i]) {
+					pairs++;
+				}
+			}
+		}
+
+		counters.pairTests += (long) objects * (objects - 1) / 2;
+		return pairs;
+	}
+}
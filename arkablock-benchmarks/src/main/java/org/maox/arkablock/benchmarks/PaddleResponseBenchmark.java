@@ -0,0 +1,125 @@
+package org.maox.arkablock.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.maox.arkablock.collision.PaddleResponse;
+import org.maox.arkablock.ecs.EcsWorld;
+import org.maox.arkablock.entities.Ball;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Coste por rebote de la respuesta de la nave: el cambio de signo de la
+ * versión anterior de Ship.hit, la tabla de PaddleResponse y, como
+ * referencia, el mismo cálculo de ángulos con senos y cosenos.
+ * 
+ * @author Alex
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaddleResponseBenchmark {
+	/** Rebotes por invocación */
+	private static final int HITS = 1024;
+	/** Ángulo máximo y efecto de la velocidad de la nave (los de Ship) */
+	private static final float MAX_ANGLE = 60, SPIN = 0.25f / 900;
+
+	/** Velocidad de la bola antes de cada rebote */
+	private float[] velocityX, velocityY;
+	/** Punto de golpeo [-1, 1] y velocidad de la nave */
+	private float[] offset, paddleVelocity;
+
+	private Ball ball;
+	private PaddleResponse response;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		velocityX = new float[HITS];
+		velocityY = new float[HITS];
+		offset = new float[HITS];
+		paddleVelocity = new float[HITS];
+
+		for (int i=0;i<HITS;i++) {
+			velocityX[i] = (random.nextFloat() * 2 - 1) * 800;
+			velocityY[i] = 200 + random.nextFloat() * 800;
+			offset[i] = random.nextFloat() * 2 - 1;
+			paddleVelocity[i] = (random.nextFloat() * 2 - 1) * 900;
+		}
+
+		// Bola sin modelo: solo se usan sus componentes
+		ball = new Ball(new EcsWorld());
+		ball.create(-1, null, null);
+		response = new PaddleResponse(MAX_ANGLE, SPIN);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(HITS)
+	public float signFlip() {
+		float sum = 0;
+
+		for (int i=0;i<HITS;i++) {
+			ball.launch(velocityX[i], velocityY[i]);
+
+			if (ball.getVelocityY() > 0) {
+				ball.changeY(-1f);
+
+				if (offset[i] > 0 && ball.getVelocityX() < 0)
+					ball.changeX(-1f);
+				else if (offset[i] < 0 && ball.getVelocityX() > 0)
+					ball.changeX(-1f);
+			}
+
+			sum += ball.getVelocityX() + ball.getVelocityY();
+		}
+
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(HITS)
+	public float angleTable() {
+		float sum = 0;
+
+		for (int i=0;i<HITS;i++) {
+			ball.launch(velocityX[i], velocityY[i]);
+			response.apply(ball, offset[i], paddleVelocity[i]);
+
+			sum += ball.getVelocityX() + ball.getVelocityY();
+		}
+
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(HITS)
+	public float angleTrig() {
+		float sum = 0;
+
+		for (int i=0;i<HITS;i++) {
+			ball.launch(velocityX[i], velocityY[i]);
+
+			float speed = (float) Math.sqrt(velocityX[i] * velocityX[i] + velocityY[i] * velocityY[i]);
+			float x = Math.max(-1, Math.min(1, offset[i] + paddleVelocity[i] * SPIN));
+			double angle = Math.toRadians(MAX_ANGLE * x);
+			ball.launch((float) Math.sin(angle) * speed, (float) -Math.cos(angle) * speed);
+
+			sum += ball.getVelocityX() + ball.getVelocityY();
+		}
+
+		return sum;
+	}
+}
@@ -0,0 +1,72 @@
+package org.maox.arkablock.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.maox.arkablock.level.BrickField;
+import org.maox.arkablock.render.RenderBatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Construcción del lote de dibujo de un frame (sin GPU): quads del muro,
+ * ordenación y copia de los vértices al buffer de subida.
+ * 
+ * @author Alex
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBatchBenchmark {
+	/** Fracción de las celdas del muro ocupadas por ladrillos */
+	@Param({ "0.25", "0.5", "1.0" })
+	public float density;
+
+	private BrickField bricks;
+	private RenderBatch batch;
+	private IntBuffer staging;
+
+	@Setup
+	public void setup() {
+		bricks = new BrickField(16, 18, 0, 40, 50, 20);
+		SimulationTickBenchmark.fillBricks(bricks, density, new Random(42));
+
+		batch = new RenderBatch();
+		staging = ByteBuffer.allocateDirect((bricks.getCells() + 1) * RenderBatch.QUAD_SIZE * 4)
+				.order(ByteOrder.nativeOrder()).asIntBuffer();
+	}
+
+	@Benchmark
+	public int build() {
+		batch.begin();
+		batch.quad(RenderBatch.LAYER_BACKGROUND, 0, 0, 0, 800, 600, 0, 1, 1, 0, RenderBatch.WHITE);
+
+		float w = bricks.getBrickWidth() - 1;
+		float h = bricks.getBrickHeight() - 1;
+		for (int cell=bricks.nextAlive(0);cell>=0;cell=bricks.nextAlive(cell + 1)) {
+			float x = bricks.getCellX(cell);
+			float y = bricks.getCellY(cell);
+			batch.quad(RenderBatch.LAYER_WORLD, 0, x, y, x + w, y + h, 0, 0, 0, 0, bricks.getColor(cell));
+		}
+
+		batch.sort();
+		staging.clear();
+		batch.writeVertices(staging);
+		return batch.getRunCount();
+	}
+}
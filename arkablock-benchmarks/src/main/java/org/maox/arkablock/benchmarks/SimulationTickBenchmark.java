@@ -0,0 +1,97 @@
+package org.maox.arkablock.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.maox.arkablock.backend.Backend;
+import org.maox.arkablock.entities.Ball;
+import org.maox.arkablock.level.BrickField;
+import org.maox.arkablock.states.InGameState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Ciclos de simulación por segundo de InGameState sin ventana, con N bolas y
+ * un muro con una densidad de ladrillos dada. Con -prof gc se obtiene además
+ * la memoria reservada por ciclo (gc.alloc.rate.norm).
+ * 
+ * @author Alex
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulationTickBenchmark {
+	/** Duración del ciclo en ms */
+	private static final int TICK = 10;
+
+	/** Número de bolas en juego */
+	@Param({ "1", "8", "64" })
+	public int balls;
+
+	/** Fracción de las celdas del muro ocupadas por ladrillos */
+	@Param({ "0.25", "0.5", "1.0" })
+	public float density;
+
+	private InGameState state;
+
+	/**
+	 * Mundo nuevo para cada iteración, para que todas empiecen con el mismo muro
+	 */
+	@Setup(Level.Iteration)
+	public void setup() throws Exception {
+		Backend.setHeadless(true);
+
+		state = new InGameState();
+		state.init(null);
+		state.enter();
+
+		Random random = new Random(42);
+		fillBricks(state.getBricks(), density, random);
+		
+		// Sin jugador las bolas no deben perderse por abajo
+		state.getPlayfield().setBottomWall(true);
+
+		// enter() ya ha sacado una bola
+		for (int i=0;i<balls;i++) {
+			Ball ball = i == 0 ? state.getBall(0) : state.spawnBall();
+			// Velocidades distintas para que las bolas no vayan juntas
+			ball.launch(200 + random.nextFloat() * 800, -(200 + random.nextFloat() * 800));
+		}
+	}
+
+	/**
+	 * Rellena el muro con ladrillos de varios golpes para que no se vacíe
+	 * durante la medición
+	 */
+	static void fillBricks(BrickField bricks, float density, Random random) {
+		bricks.clear();
+
+		// Se deja libre la parte inferior del muro para las bolas
+		int rows = bricks.getRows() / 2;
+		for (int row=0;row<rows;row++) {
+			for (int col=0;col<bricks.getCols();col++) {
+				if (random.nextFloat() < density) {
+					bricks.set(col, row, BrickField.TYPE_SILVER, 100, 0xC0C0C0FF);
+				}
+			}
+		}
+	}
+
+	@Benchmark
+	public void tick() throws Exception {
+		state.update(TICK);
+	}
+}
@@ -19,18 +19,36 @@ import static org.lwjgl.opengl.GL11.glMatrixMode;
 import static org.lwjgl.opengl.GL11.glOrtho;
 import static org.lwjgl.opengl.GL11.glShadeModel;
 import static org.lwjgl.opengl.GL11.glViewport;
-import static org.maox.time.Clock.getTimeMilis;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Iterator;
 
-import org.lwjgl.opengl.Display;
-import org.lwjgl.opengl.DisplayMode;
+import org.lwjgl.input.Keyboard;
+import org.maox.arkablock.audio.AudioEngine;
+import org.maox.arkablock.audio.Sounds;
+import org.maox.arkablock.audio.SynthMusic;
+import org.maox.arkablock.backend.Backend;
+import org.maox.arkablock.input.InputSampler;
+import org.maox.arkablock.input.InputSnapshot;
+import org.maox.arkablock.input.InputSource;
+import org.maox.arkablock.input.LiveInput;
+import org.maox.arkablock.input.SessionPlayer;
+import org.maox.arkablock.input.SessionRecorder;
+import org.maox.arkablock.profiling.AllocationGuard;
+import org.maox.arkablock.profiling.FrameProfiler;
+import org.maox.arkablock.profiling.ProfilerExporter;
+import org.maox.arkablock.render.FrameSnapshot;
+import org.maox.arkablock.render.RenderBatch;
+import org.maox.arkablock.render.SnapshotBuffer;
 import org.maox.arkablock.states.InGameState;
+import org.maox.arkablock.states.InterpolatedGameState;
+import org.maox.arkablock.states.LoadingState;
+import org.maox.arkablock.states.ThreadedGameState;
 //import org.lwjgl.util.glu.GLU;
 import org.maox.games.Game;
 import org.maox.games.GameState;
-import org.maox.graphics.Graphics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,39 +64,121 @@ public class ArkaBlock implements Game {
 	// Constantes de Sistema
 	final public static int WIDTH = 800;
 	final public static int HEIGHT = 600;
-	final private int TARGET_FPS = 60; // Objetivo de FPS
-	final private long OPTIMAL_TIME = 1000 / TARGET_FPS; // Tiempo optimo en ms entre Frames   
+	
+	/** Propiedad de sistema con la frecuencia de la lógica en ciclos por segundo */
+	final public static String PROPERTY_TICK_RATE = "arkablock.tickrate";
+	/** Propiedad de sistema con el máximo de ciclos de recuperación por frame */
+	final public static String PROPERTY_MAX_CATCHUP = "arkablock.maxcatchup";
+	/** Propiedad de sistema con el número de ciclos a simular en modo headless (0 sin limite) */
+	final public static String PROPERTY_TICKS = "arkablock.ticks";
+	
+	/** Frecuencia de la lógica en ciclos por segundo (100 por defecto). Siempre
+	 *  divide 1000 (ver readTickRate) */
+	final private int TICK_RATE = readTickRate();
+	/** Ciclo fijo de la lógica en ms: el tiempo de juego que avanza cada ciclo */
+	final private int UPDATE_STEP = 1000 / TICK_RATE;
+	/** Ciclo fijo en ns: el tiempo real entre ciclos. Como la frecuencia divide
+	 *  1000 es exactamente UPDATE_STEP ms, y el tiempo de juego sigue al real */
+	final private long UPDATE_STEP_NANOS = 1000000000L / TICK_RATE;
+	/** Máximo de ciclos de lógica por frame. Si un frame tarda demasiado se descarta
+	 *  el tiempo sobrante en lugar de encadenar recuperaciones (espiral de la muerte) */
+	final private int MAX_CATCHUP = Math.max(1, Integer.getInteger(PROPERTY_MAX_CATCHUP, 5));
+	/** Propiedad de sistema con el tiempo por frame para subir recursos a la GPU en µs */
+	final public static String PROPERTY_ASSET_BUDGET = "arkablock.assets.budget";
+	/** Tiempo máximo por frame para subir recursos a la GPU en ns (4 ms por defecto) */
+	final private long ASSET_BUDGET = Integer.getInteger(PROPERTY_ASSET_BUDGET, 4000) * 1000L;
+	/** Propiedad de sistema con el fichero en el que grabar la sesión */
+	final public static String PROPERTY_RECORD = "arkablock.record";
+	/** Propiedad de sistema con la sesión grabada a reproducir (en modo headless a la máxima velocidad) */
+	final public static String PROPERTY_REPLAY = "arkablock.replay";
+	/** Propiedad de sistema para simular en un hilo propio los estados que lo permiten (ThreadedGameState) */
+	final public static String PROPERTY_THREADED = "arkablock.threaded";
+	/** Simulación en un hilo propio */
+	final private boolean THREADED = Boolean.getBoolean(PROPERTY_THREADED);
+	
+	/** Plataforma sobre la que corre el juego (ventana OpenGL o headless) */
+	private Backend backend = Backend.getInstance();
+	
+	/** Sonido (arkablock.audio: openal, null o file:ruta.wav) */
+	private AudioEngine audio;
+	
+	/** Muestreo del teclado una vez por frame */
+	private InputSampler inputSampler = InputSampler.getInstance();
+	
+	/** Comprobación de reservas de memoria en el renderizado (arkablock.alloccheck) */
+	private AllocationGuard allocationGuard = AllocationGuard.fromSystemProperties();
+	
+	/** Ritmo de los frames (arkablock.fps: 60, 120, 144... o 0 sin límite) */
+	private FramePacer pacer = FramePacer.fromSystemProperties();
+	
+	/** Tiempos por fase de cada frame (panel con F3, arkablock.profiler.output para JSON) */
+	private FrameProfiler profiler = FrameProfiler.fromSystemProperties();
+	
+	/** Estado del bucle de juego (entrada y suma de comprobación de las sesiones) */
+	private InGameState inGame;
+	/** Grabación de la sesión (arkablock.record) */
+	private SessionRecorder recorder;
+	/** Sesión reproducida (arkablock.replay) */
+	private SessionPlayer replay;
+	/** Si ya se ha cerrado la grabación o comprobado la reproducción */
+	private boolean sessionEnded;
+	
+	/** Hilo de simulación (arkablock.threaded) mientras está en marcha */
+	private volatile SimulationThread simulation;
+	/** Estados de dibujo publicados por el hilo de simulación */
+	private SnapshotBuffer snapshots = new SnapshotBuffer();
+	/** Lote del frame interpolado a partir del último estado publicado */
+	private RenderBatch frameBatch = new RenderBatch();
+	/** Cambio de estado pedido desde el hilo de simulación */
+	private volatile String pendingState;
 	
 	/** Lista de los estado de juego registrados */
 	private HashMap<String, GameState> gameStates = new HashMap<String, GameState>();
 	/** Estado de juego actual activo */
 	private GameState currentState;
 
+	/**
+	 * Frecuencia de la lógica de la propiedad arkablock.tickrate, entre 1 y
+	 * 1000 ciclos por segundo. La lógica avanza en ms enteros (1000 / frecuencia),
+	 * así que una frecuencia que no divide 1000 (60, 120, 144...) haría que
+	 * cada ciclo avanzase menos tiempo de juego del que dura y la partida
+	 * fuese más lenta. En ese caso se usa el divisor de 1000 más cercano y se
+	 * indica en el log
+	 * 
+	 * @return Ciclos por segundo (divide 1000)
+	 */
+	public static int readTickRate() {
+		int requested = Math.max(1, Math.min(1000, Integer.getInteger(PROPERTY_TICK_RATE, 100)));
+		
+		if (1000 % requested == 0) {
+			return requested;
+		}
+		
+		// Divisor más cercano (en caso de empate el mayor)
+		int rate = 1;
+		for (int divisor=1;divisor<=1000;divisor++) {
+			if (1000 % divisor == 0 && Math.abs(divisor - requested) <= Math.abs(rate - requested)) {
+				rate = divisor;
+			}
+		}
+		
+		LoggerFactory.getLogger(ArkaBlock.class).warn(PROPERTY_TICK_RATE+"="+requested+" no divide 1000: se usan "
+				+rate+" ciclos por segundo (ciclo de "+1000 / rate+" ms) para que el tiempo de juego siga al real");
+		
+		return rate;
+	}
+	
 	/**
 	 * Crea la ventana de juego
 	 */
 	public ArkaBlock() {
 		try {
-			// Obtener cuantos Bits por Pixel hay actualmente en el escritorio
-			int currentBpp = Display.getDisplayMode().getBitsPerPixel();
-			
-			// Encontrar el DisplayMode 800x600
-			DisplayMode mode = Graphics.findDisplayMode(WIDTH, HEIGHT, currentBpp);
-			
-			// Si el modo no está disponible salir con error.
-			if (mode == null) {
-				logger.fatal("Modo de video "+WIDTH+"x"+HEIGHT+"x"+currentBpp+" no disponible.");
+			// Creación de la ventana (Vista). Sin ventana en modo headless
+			if (!backend.createDisplay("Arkanoid", WIDTH, HEIGHT)) {
+				logger.fatal("Modo de video "+WIDTH+"x"+HEIGHT+" no disponible.");
 				return;
 			}
 			
-			// Configurar y crear el display LWJGL
-			Display.setTitle("Arkanoid");
-			Display.setDisplayMode(mode);
-			Display.setFullscreen(false);
-			
-			// Creación de la ventana (Vista)
-			Display.create();
-			
 			// Inicializar los estados de juego
 			init();
 
@@ -97,7 +197,9 @@ public class ArkaBlock implements Game {
 		initSound();
 		
 		// Inicialización del modo grafico
-		initGraphics();
+		if (!backend.isHeadless()) {
+			initGraphics();
+		}
 		
 		// Inicialización de los estados de juego
 		initStates();
@@ -105,16 +207,24 @@ public class ArkaBlock implements Game {
 	
 	/**
 	 * Inicialización de los estados de juego
-	 * Existirán 2 estados de juego:
-	 *    1. El menu de juego
-	 *    2. El bucle de juego
+	 * Existirán 3 estados de juego:
+	 *    1. La pantalla de carga (primer estado, mientras se cargan los recursos)
+	 *    2. El menu de juego
+	 *    3. El bucle de juego
 	 * @throws Exception 
 	 */
 	private void initStates() throws Exception {
+		// Los estados piden sus recursos en init() sin esperar a que se carguen
+		addState(new LoadingState(InGameState.NAME));
 		// TODO
 		//addState(new MenuState());
 		addState(new InGameState());
 		
+		// Con hilo de simulación la lógica se mide con sus propios acumuladores
+		if (THREADED) {
+			profiler.detachSimulation();
+		}
+		
 		//Inicializar los estados de juego para que carguen los recursos que necesiten
 		Iterator<GameState> states = gameStates.values().iterator();
 			
@@ -122,6 +232,91 @@ public class ArkaBlock implements Game {
 		while (states.hasNext()) {
 			GameState state = states.next();
 			state.init(this);
+			
+			if (state instanceof InGameState) {
+				inGame = (InGameState) state;
+				inGame.setProfiler(profiler);
+				inGame.setInputSource(initInput());
+			}
+		}
+	}
+	
+	/**
+	 * Origen de la entrada del jugador: el teclado, grabándolo si se ha pedido
+	 * (arkablock.record), o una sesión grabada (arkablock.replay)
+	 * 
+	 * @return Origen de la entrada
+	 * @throws IOException Si no se puede abrir la sesión
+	 */
+	private InputSource initInput() throws IOException {
+		String replayFile = System.getProperty(PROPERTY_REPLAY);
+		
+		if (replayFile != null) {
+			replay = new SessionPlayer(new File(replayFile));
+			
+			// Con otro ciclo la simulación sería distinta
+			if (replay.getTickMillis() != UPDATE_STEP) {
+				throw new IOException("La sesión se grabó con ciclos de "+replay.getTickMillis()+" ms"
+						+" (usar -D"+PROPERTY_TICK_RATE+"="+1000 / replay.getTickMillis()+")");
+			}
+			
+			logger.info("Reproduciendo la sesión "+replayFile);
+			return replay;
+		}
+		
+		String recordFile = System.getProperty(PROPERTY_RECORD);
+		
+		if (recordFile != null) {
+			recorder = new SessionRecorder(new LiveInput(), new File(recordFile), UPDATE_STEP);
+			logger.info("Grabando la sesión en "+recordFile);
+			return recorder;
+		}
+		
+		return new LiveInput();
+	}
+	
+	/**
+	 * @return true mientras quedan ciclos por simular (sin sesión reproducida
+	 * o sin haberla terminado)
+	 */
+	private boolean isSessionRunning() {
+		return replay == null || !replay.isFinished();
+	}
+	
+	/**
+	 * Cierre de la sesión: se termina la grabación con la suma de comprobación
+	 * del estado final o, al reproducir, se comprueba que se ha llegado al
+	 * mismo estado que en la grabación
+	 */
+	private void endSession() {
+		if (sessionEnded || inGame == null) {
+			return;
+		}
+		sessionEnded = true;
+		
+		if (recorder != null) {
+			try {
+				recorder.close(inGame.getChecksum());
+				logger.info("Sesión grabada: "+recorder.getTicks()+" ciclos");
+			}
+			catch (IOException e) {
+				logger.error("Error grabando la sesión", e);
+			}
+		}
+		
+		if (replay != null) {
+			long checksum = inGame.getChecksum();
+			
+			if (!replay.isFinished()) {
+				logger.warn("Reproducción interrumpida en el ciclo "+replay.getTicks());
+			}
+			else if (checksum == replay.getChecksum()) {
+				logger.info("Reproducción correcta: "+replay.getTicks()+" ciclos, estado final "+Long.toHexString(checksum));
+			}
+			else {
+				logger.error("La reproducción no llega al estado grabado: "+Long.toHexString(checksum)
+						+" en lugar de "+Long.toHexString(replay.getChecksum()));
+			}
 		}
 	}
 	
@@ -182,11 +377,14 @@ public class ArkaBlock implements Game {
 	}
 
 	/**
-	 * Inicialización del Sonido
+	 * Inicialización del Sonido. Los efectos se decodifican (o generan) una
+	 * sola vez aquí y la música empieza a sonar en su propio hilo
+	 * @throws IOException 
 	 */
-	private void initSound() {
-		// TODO Inicialización sonido
-		//SoundLoader.get().init();
+	private void initSound() throws IOException {
+		audio = AudioEngine.getInstance();
+		Sounds.load(audio);
+		audio.playMusic(new SynthMusic(), 0.3f);
 	}
 	
 	/**
@@ -208,70 +406,252 @@ public class ArkaBlock implements Game {
 		int fps = 0;
 		long lastFpsTime = 0;
 		boolean gameRunning = true;
-		long lastLoop = getTimeMilis();
+		long lastLoop = System.nanoTime();
+		// Tiempo real pendiente de simular por la lógica
+		long accumulator = 0;
 		
 		currentState.enter();
 		
+		// Volcado de los tiempos a fichero (si se ha pedido)
+		ProfilerExporter.startFromSystemProperties(profiler);
+		
+		// Sin ventana solo se simula la lógica
+		if (backend.isHeadless()) {
+			headlessLoop();
+			return;
+		}
+		
 		// Mientras el juego este corriendo se acutalizan y renderizan los estados
 		while (gameRunning) {
 			
-			// Se calcula cuanto ha pasado desde el último bucle para poder actualizar
-			// el renderizado y la lógica esa cantidad de tiempo determinada.
-			int delta = (int) (getTimeMilis() - lastLoop);
-			lastLoop = getTimeMilis();
+			// Se calcula cuanto ha pasado desde el último bucle
+			long now = System.nanoTime();
+			long frameTime = now - lastLoop;
+			lastLoop = now;
+			
+			// Lectura del teclado una sola vez por frame (la usan todos los ciclos)
+			InputSnapshot input = inputSampler.sample(now);
 			
 			// Contador de los FPS
-			lastFpsTime += delta;
+			lastFpsTime += frameTime;
 			fps++;
 			
 			// Actualizar el FPS si ha transcurrido un segundo
-			if (lastFpsTime >= 1000) {
-				Display.setTitle("Arkanoid (FPS: "+fps+")");
+			if (lastFpsTime >= 1000000000L) {
+				backend.setTitle("Arkanoid (FPS: "+fps+")");
+				profiler.updateStats();
 				lastFpsTime = 0;
 				fps = 0;
 			}
 			
-			// Se actualiza la lógica dependiendo del tiempo transcurrido
-			// Se va a realizar en ciclos de 10 ms
-			int step = delta / 10;
-
-			for (int i=0;i<step;i++) {
-				currentState.update(10);
-			}
+			// Con arkablock.threaded la lógica avanza en su propio hilo
+			boolean threadedFrame = updateSimulation();
+			
+			if (!threadedFrame) {
+				// Se actualiza la lógica en ciclos fijos consumiendo el tiempo acumulado.
+				// El resultado de la simulación no depende así de los FPS
+				accumulator += frameTime;
+				int ticks = 0;
+				FrameProfiler simulationProfiler = profiler.getSimulation();
 
-			int remainder = delta % 10;
+				simulationProfiler.begin(FrameProfiler.PHASE_UPDATE);
+				while (accumulator >= UPDATE_STEP_NANOS && ticks < MAX_CATCHUP && isSessionRunning()) {
+					// Instante real en el que termina el ciclo (para el estado del teclado)
+					inputSampler.setTickTime(now - accumulator + UPDATE_STEP_NANOS);
+					currentState.update(UPDATE_STEP);
+					accumulator -= UPDATE_STEP_NANOS;
+					ticks++;
+				}
+				simulationProfiler.end(FrameProfiler.PHASE_UPDATE);
+				simulationProfiler.endTicks();
+				
+				// Al terminar la sesión reproducida el juego queda parado en su estado final
+				if (!isSessionRunning()) {
+					endSession();
+				}
 
-			if (remainder != 0) {
-				currentState.update(remainder);
+				// Si el frame ha sido demasiado lento se descarta el tiempo que no se ha
+				// podido simular. La partida se ralentiza pero el trabajo por frame queda acotado
+				if (accumulator >= UPDATE_STEP_NANOS) {
+					accumulator %= UPDATE_STEP_NANOS;
+				}
 			}
 			
-			// Se renderiza el estado activo
-			currentState.render(delta);
+			// Se renderiza el estado activo interpolando entre los dos últimos ciclos
+			// con la fracción de ciclo que queda en el acumulador
+			int delta = (int) (frameTime / 1000000L);
+			
+			profiler.begin(FrameProfiler.PHASE_RENDER);
+			
+			// Subida a la GPU de los recursos cargados en segundo plano, limitada por frame
+			backend.uploadAssets(ASSET_BUDGET);
+			
+			allocationGuard.begin();
+			
+			if (threadedFrame) {
+				// Último estado publicado por la simulación, interpolado al instante del frame
+				FrameSnapshot snapshot = snapshots.acquire();
+				
+				if (snapshot != null) {
+					snapshot.interpolate(frameBatch, now, UPDATE_STEP_NANOS);
+					((ThreadedGameState) currentState).draw(frameBatch);
+				}
+			}
+			else if (currentState instanceof InterpolatedGameState) {
+				float alpha = (float) accumulator / UPDATE_STEP_NANOS;
+				((InterpolatedGameState) currentState).render(delta, alpha);
+			}
+			else {
+				currentState.render(delta);
+			}
+			
+			allocationGuard.end();
+			profiler.end(FrameProfiler.PHASE_RENDER);
 			
 			// Se le indica al LWJGL que actualize la vista
-			// El resfresco se realiza por Doble Buffering
-			// Como efecto secundario se comprobará el teclado / ratón y controladores
-			Display.update();
+			profiler.begin(FrameProfiler.PHASE_SWAP);
+			backend.update();
+			profiler.end(FrameProfiler.PHASE_SWAP);
+			
+			// F3 muestra u oculta el panel de tiempos (pulsaciones de este frame)
+			if (input.wasPressed(Keyboard.KEY_F3, now - frameTime, now)) {
+				profiler.setHudVisible(!profiler.isHudVisible());
+			}
 			
 			// Si el usuario ha solicitado el cierre de la ventana
-			if (Display.isCloseRequested()) {
+			if (backend.isCloseRequested()) {
+				stopSimulation();
+				endSession();
+				audio.dispose();
 				gameRunning = false;
 				System.exit(0);
 			}
 			
-			// Dormir el Thread para optimizar la CPU
-			// Tiempo que se ha tardado en actualizar la logica y renderizar todo
-			long timeBetweenUpdate = getTimeMilis() - lastLoop;
-			Thread.yield();
-			if (timeBetweenUpdate < OPTIMAL_TIME)
-			{
-				try
-				{
-					Thread.sleep(OPTIMAL_TIME - timeBetweenUpdate);
+			// Espera hasta la hora del siguiente frame (sin límite no se espera)
+			profiler.begin(FrameProfiler.PHASE_SLEEP);
+			long pacingError = pacer.sync();
+			profiler.end(FrameProfiler.PHASE_SLEEP);
+			profiler.record(FrameProfiler.PHASE_PACING, Math.abs(pacingError));
+			
+			// Cierre del frame con su duración total (hasta el inicio del siguiente)
+			profiler.endFrame(System.nanoTime() - lastLoop);
+		} // bucle juego
+	}
+	
+	/**
+	 * Gestión del hilo de simulación desde el hilo de la ventana: se arranca
+	 * cuando el estado actual lo permite y, cuando se para (cambio de estado
+	 * pedido desde la simulación, fin de la sesión o error), se aplica el
+	 * cambio o se cierra la sesión aquí, con la simulación ya parada.
+	 * 
+	 * @return true si la lógica la actualiza el hilo de simulación
+	 * @throws Exception Error de la simulación o del cambio de estado
+	 */
+	private boolean updateSimulation() throws Exception {
+		if (simulation != null && !simulation.isAlive()) {
+			stopSimulation();
+			
+			String name = pendingState;
+			pendingState = null;
+			
+			if (name != null) {
+				changeToState(name);
+			}
+			else if (!isSessionRunning()) {
+				endSession();
+			}
+		}
+		
+		if (!THREADED || !(currentState instanceof ThreadedGameState)) {
+			return false;
+		}
+		
+		if (simulation == null && isSessionRunning()) {
+			snapshots.reset();
+			simulation = new SimulationThread((ThreadedGameState) currentState, snapshots, UPDATE_STEP, UPDATE_STEP_NANOS, MAX_CATCHUP, profiler.getSimulation()) {
+				@Override
+				protected boolean isSessionRunning() {
+					return ArkaBlock.this.isSessionRunning();
 				}
-				catch (InterruptedException e){};
+			};
+			simulation.start();
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Para el hilo de simulación (si está en marcha) y espera a que termine
+	 * 
+	 * @throws Exception Error que haya parado la simulación
+	 */
+	private void stopSimulation() throws Exception {
+		if (simulation == null) {
+			return;
+		}
+		
+		SimulationThread thread = simulation;
+		simulation = null;
+		thread.shutdown();
+	}
+	
+	/**
+	 * Bucle de simulación sin ventana. Actualiza la lógica en ciclos fijos
+	 * a la máxima velocidad posible e informa de los ciclos por segundo
+	 * simulados, para poder medir el coste de la simulación por separado
+	 * del renderizado. Con una sesión reproducida se simula hasta su final,
+	 * así la misma sesión sirve de prueba de rendimiento repetible y de
+	 * prueba de regresión (el estado final debe coincidir con el grabado).
+	 * @throws Exception 
+	 */
+	private void headlessLoop() throws Exception {
+		// Número de ciclos a simular (0 sin limite)
+		long maxTicks = Long.getLong(PROPERTY_TICKS, 0);
+		long ticks = 0;
+		long lastTicks = 0;
+		long start = System.nanoTime();
+		long lastReport = start;
+		
+		while ((maxTicks == 0 || ticks < maxTicks) && isSessionRunning()) {
+			long tickStart = System.nanoTime();
+			
+			profiler.getSimulation().begin(FrameProfiler.PHASE_UPDATE);
+			currentState.update(UPDATE_STEP);
+			profiler.getSimulation().end(FrameProfiler.PHASE_UPDATE);
+			profiler.getSimulation().endTicks();
+			ticks++;
+			
+			// Con la comprobación de memoria activa también se construye el frame
+			// (sin contexto OpenGL solo se genera el lote) para comprobar que no reserva
+			if (allocationGuard.isEnabled()) {
+				allocationGuard.begin();
+				profiler.begin(FrameProfiler.PHASE_RENDER);
+				currentState.render(UPDATE_STEP);
+				profiler.end(FrameProfiler.PHASE_RENDER);
+				allocationGuard.end();
 			}
-		} // bucle juego
+			
+			// Cada ciclo cuenta como un frame
+			profiler.endFrame(System.nanoTime() - tickStart);
+			
+			// Informe de los ciclos por segundo cada segundo
+			long now = System.nanoTime();
+			if (now - lastReport >= 1000000000L) {
+				profiler.updateStats();
+				logger.info("Simulación: "+(ticks - lastTicks)*1000000000L/(now - lastReport)+" ticks/s"
+						+", update p50/p99/max: "+profiler.getStat(FrameProfiler.PHASE_UPDATE, FrameProfiler.STAT_P50)/1000f
+						+"/"+profiler.getStat(FrameProfiler.PHASE_UPDATE, FrameProfiler.STAT_P99)/1000f
+						+"/"+profiler.getStat(FrameProfiler.PHASE_UPDATE, FrameProfiler.STAT_MAX)/1000f+" µs");
+				lastTicks = ticks;
+				lastReport = now;
+			}
+		}
+		
+		long elapsed = Math.max(1, System.nanoTime() - start);
+		logger.info("Simulación finalizada: "+ticks+" ticks en "+elapsed/1000000+" ms ("+ticks*1000000000L/elapsed+" ticks/s)");
+		
+		endSession();
+		audio.dispose();
 	}
 	
 	/**
@@ -282,6 +662,16 @@ public class ArkaBlock implements Game {
 	 * @throws Exception 
 	 */
 	public void changeToState(String name) throws Exception {
+		// Desde el hilo de simulación el cambio se aplica en el hilo de la ventana
+		// una vez parada la simulación (leave y enter pueden usar OpenGL)
+		SimulationThread thread = simulation;
+		if (thread != null && Thread.currentThread() == thread) {
+			pendingState = name;
+			thread.requestStop();
+			return;
+		}
+		stopSimulation();
+		
 		// Se obtiene el estado desde el nombre dado
 		GameState newState = gameStates.get(name);
 
@@ -296,11 +686,17 @@ public class ArkaBlock implements Game {
 	}
 
 	/**
-	 * Punto de entrada al programa. No necesita parametros de entrada
+	 * Punto de entrada al programa. 
 	 * 
-	 * @param argv Parametros de la linea de comandos (no necesarios)
+	 * @param argv Parametros de la linea de comandos (--headless para simular sin ventana)
 	 */
 	public static void main(String argv[]) {
+		for (int i=0;i<argv.length;i++) {
+			if (argv[i].equals("--headless")) {
+				System.setProperty(Backend.PROPERTY_HEADLESS, "true");
+			}
+		}
+		
 		ArkaBlock game = new ArkaBlock();
 		try {
 			game.startGame();
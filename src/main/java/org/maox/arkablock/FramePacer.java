@@ -0,0 +1,126 @@
+package org.maox.arkablock;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Ritmo de los frames. Cada frame tiene una hora de inicio fija (múltiplos
+ * del periodo desde el primero), así los errores no se acumulan como al
+ * dormir "lo que falta" en cada frame. La espera se hace en dos partes:
+ * se duerme con LockSupport.parkNanos hasta un margen antes de la hora y
+ * el margen se consume en espera activa, que es precisa. El margen se
+ * adapta al exceso de sueño medido (lo que el sistema se pasa al despertar):
+ * crece enseguida si el sistema se pasa y decrece poco a poco.
+ * 
+ * Objetivos: 60, 120, 144... frames por segundo, o sin límite (0).
+ * 
+ * @author Alex
+ */
+public class FramePacer {
+	/** Propiedad de sistema con el objetivo de frames por segundo (0 sin límite) */
+	public static final String PROPERTY_FPS = "arkablock.fps";
+	/** Objetivo por defecto */
+	public static final int DEFAULT_FPS = 60;
+	
+	/** Margen mínimo y máximo de espera activa en ns */
+	private static final long MIN_SPIN = 200000L, MAX_SPIN = 4000000L;
+	/** Por debajo de este tiempo no se duerme (solo espera activa) */
+	private static final long MIN_PARK = 100000L;
+	
+	/** Duración del frame en ns (0 sin límite) */
+	private final long period;
+	/** Hora de inicio del siguiente frame */
+	private long deadline;
+	/** Exceso de sueño estimado en ns (margen de espera activa) */
+	private long oversleep = 1000000L;
+	/** Error del último frame en ns (positivo si se ha empezado tarde) */
+	private long lastError;
+	
+	/**
+	 * @param fps Objetivo de frames por segundo (0 sin límite)
+	 */
+	public FramePacer(int fps) {
+		period = fps > 0 ? 1000000000L / fps : 0;
+	}
+	
+	/**
+	 * Crea el ritmo a partir de las propiedades de sistema
+	 */
+	public static FramePacer fromSystemProperties() {
+		return new FramePacer(Math.max(0, Integer.getInteger(PROPERTY_FPS, DEFAULT_FPS)));
+	}
+	
+	/**
+	 * Espera hasta la hora de inicio del siguiente frame. Si el frame se ha
+	 * retrasado más de un periodo no se intenta recuperar: la cuenta vuelve
+	 * a empezar desde ahora
+	 * 
+	 * @return Error respecto a la hora prevista en ns (positivo si se ha empezado tarde)
+	 */
+	public long sync() {
+		long now = System.nanoTime();
+		
+		if (period == 0) {
+			lastError = 0;
+			return 0;
+		}
+		
+		if (deadline == 0) {
+			deadline = now;
+		}
+		deadline += period;
+		
+		// Frame demasiado lento: se descarta el retraso
+		if (now - deadline > period) {
+			deadline = now;
+			lastError = 0;
+			return 0;
+		}
+		
+		// Sueño hasta el margen de espera activa, midiendo lo que se pasa el sistema
+		long sleep = deadline - now - oversleep;
+		if (sleep >= MIN_PARK) {
+			LockSupport.parkNanos(sleep);
+			
+			long woke = System.nanoTime();
+			long over = woke - (now + sleep);
+			
+			// Adaptación: rápida si se pasa más, lenta si se pasa menos
+			if (over > oversleep) {
+				oversleep = Math.min(MAX_SPIN, over + over / 4);
+			}
+			else {
+				oversleep = Math.max(MIN_SPIN, oversleep - (oversleep - over) / 16);
+			}
+		}
+		
+		// Espera activa hasta la hora
+		long time = System.nanoTime();
+		while (time < deadline) {
+			time = System.nanoTime();
+		}
+		
+		lastError = time - deadline;
+		return lastError;
+	}
+	
+	/**
+	 * @return Duración del frame en ns (0 sin límite)
+	 */
+	public long getPeriod() {
+		return period;
+	}
+	
+	/**
+	 * @return Margen actual de espera activa en ns
+	 */
+	public long getSpinMargin() {
+		return oversleep;
+	}
+	
+	/**
+	 * @return Error del último frame en ns
+	 */
+	public long getLastError() {
+		return lastError;
+	}
+}
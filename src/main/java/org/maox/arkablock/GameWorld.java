@@ -0,0 +1,47 @@
+package org.maox.arkablock;
+
+import org.maox.arkablock.audio.AudioEngine;
+import org.maox.arkablock.collision.Hit;
+import org.maox.arkablock.input.InputFrame;
+import org.maox.arkablock.particles.ParticleSystem;
+import org.maox.games.entities.EntityManager;
+
+/**
+ * Mundo de juego visto desde las entidades: además de gestionar las
+ * entidades permite consultar los sólidos del escenario.
+ * 
+ * @author Alex
+ */
+public interface GameWorld extends EntityManager {
+
+	/**
+	 * Busca el primer impacto de un circulo que se desplaza desde (x, y)
+	 * hasta (x + dx, y + dy) contra todos los sólidos del mundo
+	 * 
+	 * @param hit Impacto encontrado (debe estar inicializado con reset)
+	 * @return true si hay impacto
+	 */
+	public boolean sweep(float x, float y, float dx, float dy, float radius, Hit hit);
+	
+	/**
+	 * Entrada del jugador en el ciclo actual. Las entidades la usan en lugar
+	 * de leer el teclado para que la simulación se pueda grabar y reproducir
+	 * 
+	 * @return Entrada del ciclo
+	 */
+	public InputFrame getInput();
+	
+	/**
+	 * Partículas del mundo, para que las entidades generen sus efectos
+	 * 
+	 * @return Sistema de partículas
+	 */
+	public ParticleSystem getParticles();
+	
+	/**
+	 * Audio del mundo, para que las entidades reproduzcan sus sonidos
+	 * 
+	 * @return Motor de audio
+	 */
+	public AudioEngine getAudio();
+}
@@ -0,0 +1,171 @@
+package org.maox.arkablock;
+
+import java.util.concurrent.locks.LockSupport;
+
+import org.maox.arkablock.input.InputSampler;
+import org.maox.arkablock.profiling.FrameProfiler;
+import org.maox.arkablock.render.FrameSnapshot;
+import org.maox.arkablock.render.SnapshotBuffer;
+import org.maox.arkablock.states.ThreadedGameState;
+
+/**
+ * Hilo de simulación (arkablock.threaded). Actualiza la lógica del estado en
+ * ciclos fijos según el reloj real, igual que el bucle de un solo hilo, y
+ * tras cada tanda de ciclos publica el estado de dibujo (FrameSnapshot) para
+ * el hilo de la ventana, que es el único que usa OpenGL. Así un intercambio
+ * de buffers lento no para la simulación ni una simulación lenta retiene
+ * los frames. Ver el contrato de hilos en ThreadedGameState.
+ * 
+ * @author Alex
+ */
+public class SimulationThread extends Thread {
+	/** Estado simulado */
+	private final ThreadedGameState state;
+	/** Intercambio de estados de dibujo con el hilo de la ventana */
+	private final SnapshotBuffer snapshots;
+	/** Muestreo del teclado (instante de cada ciclo) */
+	private final InputSampler inputSampler;
+	/** Tiempos de las fases de simulación (medidor propio de este hilo) */
+	private final FrameProfiler profiler;
+	/** Tiempo de juego de cada ciclo en ms */
+	private final int step;
+	/** Tiempo real entre ciclos en ns */
+	private final long stepNanos;
+	/** Máximo de ciclos seguidos antes de descartar el tiempo pendiente */
+	private final int maxCatchup;
+	
+	/** Si debe seguir simulando */
+	private volatile boolean running = true;
+	/** Error que ha parado la simulación */
+	private volatile Exception error;
+	/** Ciclos simulados */
+	private volatile long ticks;
+	
+	/**
+	 * @param state Estado a simular
+	 * @param snapshots Intercambio de estados de dibujo
+	 * @param step Tiempo de juego de cada ciclo en ms
+	 * @param stepNanos Tiempo real entre ciclos en ns
+	 * @param maxCatchup Máximo de ciclos seguidos de recuperación
+	 * @param profiler Medidor de las fases de simulación (FrameProfiler.detachSimulation),
+	 * que solo usa este hilo
+	 */
+	public SimulationThread(ThreadedGameState state, SnapshotBuffer snapshots, int step, long stepNanos, int maxCatchup, FrameProfiler profiler) {
+		super("simulation");
+		setDaemon(true);
+		
+		this.state = state;
+		this.snapshots = snapshots;
+		this.inputSampler = InputSampler.getInstance();
+		this.profiler = profiler;
+		this.step = step;
+		this.stepNanos = stepNanos;
+		this.maxCatchup = maxCatchup;
+	}
+	
+	/**
+	 * Condición adicional para seguir simulando (p.e. que no se haya
+	 * terminado una sesión reproducida). Se evalúa en el hilo de simulación
+	 * antes de cada ciclo
+	 * 
+	 * @return true para seguir simulando
+	 */
+	protected boolean isSessionRunning() {
+		return true;
+	}
+	
+	/**
+	 * @see java.lang.Thread#run()
+	 */
+	@Override
+	public void run() {
+		// Instante en el que termina el siguiente ciclo
+		long nextTick = System.nanoTime() + stepNanos;
+		
+		try {
+			while (running && isSessionRunning()) {
+				long now = System.nanoTime();
+				
+				// Espera hasta el final del siguiente ciclo
+				if (now < nextTick) {
+					LockSupport.parkNanos(nextTick - now);
+					continue;
+				}
+				
+				int catchup = 0;
+				
+				profiler.begin(FrameProfiler.PHASE_UPDATE);
+				while (now >= nextTick && catchup < maxCatchup && running && isSessionRunning()) {
+					inputSampler.setTickTime(nextTick);
+					state.update(step);
+					nextTick += stepNanos;
+					catchup++;
+					ticks++;
+				}
+				profiler.end(FrameProfiler.PHASE_UPDATE);
+				
+				// Si no se ha podido recuperar se descarta el tiempo que falta (la
+				// partida se ralentiza, como en el bucle de un solo hilo)
+				if (now >= nextTick) {
+					nextTick += ((now - nextTick) / stepNanos + 1) * stepNanos;
+				}
+				
+				// Estado de dibujo en las posiciones del ciclo anterior y del último
+				FrameSnapshot snapshot = snapshots.getBack();
+				snapshot.begin(ticks, nextTick - stepNanos);
+				state.submit(snapshot.getPrevious(), 0f);
+				state.submit(snapshot.getLatest(), 1f);
+				snapshots.publish();
+				
+				// Tiempos de la tanda a los buffers del medidor
+				profiler.endTicks();
+			}
+		}
+		catch (Exception e) {
+			error = e;
+		}
+	}
+	
+	/**
+	 * Pide que se pare la simulación al terminar el ciclo en curso. Se
+	 * puede llamar desde cualquier hilo
+	 */
+	public void requestStop() {
+		running = false;
+		LockSupport.unpark(this);
+	}
+	
+	/**
+	 * Para la simulación y espera a que termine. Desde el hilo de la ventana
+	 * 
+	 * @throws Exception Error que haya parado la simulación
+	 */
+	public void shutdown() throws Exception {
+		requestStop();
+		
+		boolean interrupted = false;
+		while (isAlive()) {
+			try {
+				join();
+			}
+			catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	/**
+	 * @return Ciclos simulados
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+}
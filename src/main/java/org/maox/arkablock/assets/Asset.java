@@ -0,0 +1,226 @@
+package org.maox.arkablock.assets;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Recurso cargado en dos fases:
+ *    1. Decodificación (hilo de trabajo): lectura del classpath a memoria
+ *    2. Subida (hilo de render): creación de los objetos OpenGL
+ * 
+ * Las fases las lanza el AssetManager. Hasta que el recurso está listo su
+ * uso no dibuja nada.
+ * 
+ * @author Alex
+ */
+public abstract class Asset {
+	/** En cola para decodificar */
+	public static final int STATE_QUEUED = 0;
+	/** Decodificado, pendiente de subir a OpenGL */
+	public static final int STATE_DECODED = 1;
+	/** Listo para usar */
+	public static final int STATE_READY = 2;
+	/** Error al cargar */
+	public static final int STATE_FAILED = 3;
+	
+	/** Ruta del recurso en el classpath */
+	private final String ref;
+	/** Estado de la carga (STATE_*) */
+	private volatile int state = STATE_QUEUED;
+	/** Error de la carga, si lo hay */
+	private volatile Exception error;
+	/** Se abre al terminar la decodificación (correcta o no) */
+	private final CountDownLatch decoded = new CountDownLatch(1);
+	
+	/**
+	 * @param ref Ruta del recurso en el classpath
+	 */
+	protected Asset(String ref) {
+		this.ref = ref;
+	}
+	
+	/**
+	 * Decodifica el recurso. Se ejecuta en un hilo de trabajo
+	 */
+	void load() {
+		try {
+			URL url = Asset.class.getClassLoader().getResource(ref);
+			
+			if (url == null) {
+				throw new IOException("No se encuentra el recurso: "+ref);
+			}
+			
+			decode(url);
+			state = STATE_DECODED;
+		}
+		catch (Exception e) {
+			error = e;
+			state = STATE_FAILED;
+		}
+		finally {
+			decoded.countDown();
+		}
+	}
+	
+	/**
+	 * Lee el recurso a memoria desde su URL. Es el punto de entrada de la
+	 * decodificación: por defecto abre el contenido y llama a
+	 * decode(InputStream). Los recursos que no se leen como flujo (p.e. los
+	 * que se proyectan en memoria) sobrescriben solo este método
+	 * 
+	 * @param url Ubicación del recurso
+	 * @throws IOException
+	 */
+	protected void decode(URL url) throws IOException {
+		InputStream in = url.openStream();
+		
+		try {
+			decode(in);
+		}
+		finally {
+			in.close();
+		}
+	}
+	
+	/**
+	 * Obtiene el contenido de un recurso binario en memoria directa. Si el
+	 * recurso está en disco se proyecta en memoria (mmap), sin copiarlo; si
+	 * está dentro de un jar se lee entero.
+	 * 
+	 * @param url Ubicación del recurso
+	 * @return Contenido del recurso
+	 * @throws IOException
+	 */
+	public static ByteBuffer map(URL url) throws IOException {
+		if ("file".equals(url.getProtocol())) {
+			File file;
+			try {
+				file = new File(url.toURI());
+			}
+			catch (URISyntaxException e) {
+				throw new IOException("Ruta no válida: "+url, e);
+			}
+			
+			RandomAccessFile raf = new RandomAccessFile(file, "r");
+			try {
+				// La proyección sigue siendo válida después de cerrar el fichero
+				FileChannel channel = raf.getChannel();
+				return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			}
+			finally {
+				raf.close();
+			}
+		}
+		
+		InputStream in = url.openStream();
+		try {
+			byte[] chunk = new byte[8192];
+			ByteBuffer data = ByteBuffer.allocateDirect(chunk.length);
+			int read;
+			
+			while ((read = in.read(chunk)) > 0) {
+				if (data.remaining() < read) {
+					ByteBuffer bigger = ByteBuffer.allocateDirect(data.capacity() * 2);
+					data.flip();
+					bigger.put(data);
+					data = bigger;
+				}
+				data.put(chunk, 0, read);
+			}
+			data.flip();
+			
+			return data;
+		}
+		finally {
+			in.close();
+		}
+	}
+	
+	/**
+	 * Sube el recurso decodificado a OpenGL. Se ejecuta en el hilo de render
+	 */
+	void finish() {
+		if (state != STATE_DECODED) {
+			return;
+		}
+		
+		try {
+			upload();
+			state = STATE_READY;
+		}
+		catch (RuntimeException e) {
+			error = e;
+			state = STATE_FAILED;
+		}
+	}
+	
+	/**
+	 * Lee el recurso a memoria (sin llamadas a OpenGL) desde su contenido.
+	 * La implementan los recursos que usan la lectura por defecto de
+	 * decode(URL); sin ella el recurso falla al cargar (STATE_FAILED)
+	 * 
+	 * @param in Contenido del recurso
+	 * @throws IOException
+	 */
+	protected void decode(InputStream in) throws IOException {
+		throw new IOException("El recurso "+ref+" no se puede leer como flujo");
+	}
+	
+	/**
+	 * Crea los objetos OpenGL a partir de los datos decodificados
+	 */
+	protected abstract void upload();
+	
+	/**
+	 * Espera a que termine la decodificación
+	 */
+	protected void waitDecoded() {
+		boolean interrupted = false;
+		
+		while (decoded.getCount() > 0) {
+			try {
+				decoded.await();
+			}
+			catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	public String getRef() {
+		return ref;
+	}
+	
+	public int getState() {
+		return state;
+	}
+	
+	/**
+	 * @return true si el recurso se puede usar
+	 */
+	public boolean isReady() {
+		return state == STATE_READY;
+	}
+	
+	/**
+	 * @return true si la carga ha terminado (lista o con error)
+	 */
+	public boolean isDone() {
+		return state == STATE_READY || state == STATE_FAILED;
+	}
+	
+	public Exception getError() {
+		return error;
+	}
+}
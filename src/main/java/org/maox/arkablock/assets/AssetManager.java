@@ -0,0 +1,249 @@
+package org.maox.arkablock.assets;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.maox.arkablock.backend.Model;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Carga asíncrona de texturas y modelos. Las peticiones devuelven al momento
+ * el recurso (sin cargar) y lo encolan en un grupo de hilos de trabajo que
+ * decodifican las imágenes y leen los OBJ en paralelo. La subida a OpenGL
+ * solo puede hacerse en el hilo de render: upload() se llama una vez por
+ * frame y sube recursos decodificados hasta agotar el tiempo indicado.
+ * 
+ * Los recursos se cargan una sola vez; las peticiones repetidas devuelven
+ * el mismo objeto. Las imágenes empaquetadas en el atlas de texturas
+ * (TextureAtlas) no se decodifican: se devuelven como regiones del atlas.
+ * 
+ * Propiedades de sistema:
+ *    arkablock.assets.workers: hilos de trabajo (por defecto núcleos - 1)
+ * 
+ * @author Alex
+ */
+public class AssetManager {
+	/** Log */
+	private static final Logger logger = LoggerFactory.getLogger(AssetManager.class);
+	
+	/** Propiedad de sistema con el número de hilos de trabajo */
+	public static final String PROPERTY_WORKERS = "arkablock.assets.workers";
+	
+	/** Instancia única */
+	private static AssetManager instance;
+	
+	/** Hilos de decodificación */
+	private final ExecutorService workers;
+	/** Recursos pedidos por ruta */
+	private final HashMap<String, Asset> assets = new HashMap<String, Asset>();
+	/** Recursos decodificados pendientes de subir (los añaden los hilos de trabajo) */
+	private final ConcurrentLinkedQueue<Asset> decoded = new ConcurrentLinkedQueue<Asset>();
+	/** Regiones de textura por ruta de la imagen */
+	private final HashMap<String, TextureRegion> regions = new HashMap<String, TextureRegion>();
+	/** Si ya se ha buscado el atlas de texturas */
+	private boolean atlasChecked;
+	
+	/** Recursos pedidos y terminados (listos o con error) */
+	private int requested, finished;
+	
+	/**
+	 * @return Instancia única del gestor
+	 */
+	public static synchronized AssetManager getInstance() {
+		if (instance == null) {
+			int workers = Integer.getInteger(PROPERTY_WORKERS, Runtime.getRuntime().availableProcessors() - 1);
+			instance = new AssetManager(Math.max(1, workers));
+		}
+		
+		return instance;
+	}
+	
+	/**
+	 * @param threads Número de hilos de trabajo
+	 */
+	AssetManager(int threads) {
+		workers = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+			
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "asset-loader-"+count.incrementAndGet());
+				// Los hilos no impiden terminar el programa
+				thread.setDaemon(true);
+				thread.setPriority(Thread.NORM_PRIORITY - 1);
+				return thread;
+			}
+		});
+	}
+	
+	/**
+	 * Pide una textura. Si la imagen está empaquetada en el atlas se devuelve
+	 * su región dentro de la textura del atlas; si no, una región que ocupa
+	 * toda una textura propia.
+	 * 
+	 * @param ref Ruta de la imagen en el classpath (o TextureAtlas.WHITE)
+	 * @return Región de la textura (puede no estar cargada todavía) o null
+	 * si se pide la región blanca y no hay atlas
+	 * @throws IOException Si el recurso no existe
+	 */
+	public synchronized TextureRegion getTexture(String ref) throws IOException {
+		TextureRegion region = regions.get(ref);
+		
+		if (region == null) {
+			loadAtlas();
+			region = regions.get(ref);
+		}
+		
+		if (region == null) {
+			// Sin atlas no hay región blanca: se dibuja sin textura
+			if (TextureAtlas.WHITE.equals(ref)) {
+				return null;
+			}
+			
+			TextureAsset texture = (TextureAsset) request(ref, new TextureAsset(ref));
+			region = new TextureRegion(texture, 0, 0, 1, 1);
+			regions.put(ref, region);
+		}
+		
+		return region;
+	}
+	
+	/**
+	 * Lee la tabla del atlas (la primera vez) y encola la carga de sus pixels.
+	 * La tabla es pequeña y se lee en el momento, así las regiones están
+	 * disponibles antes de que se suba la textura.
+	 */
+	private void loadAtlas() throws IOException {
+		if (atlasChecked) {
+			return;
+		}
+		atlasChecked = true;
+		
+		InputStream in = AssetManager.class.getClassLoader().getResourceAsStream(TextureAtlas.REF);
+		
+		// El atlas se genera al compilar (AtlasPacker); sin él se cargan las imágenes sueltas
+		if (in == null) {
+			return;
+		}
+		
+		TextureAtlas atlas;
+		try {
+			atlas = TextureAtlas.readTable(in);
+		}
+		finally {
+			in.close();
+		}
+		
+		TextureAsset page = (TextureAsset) request(TextureAtlas.REF, new AtlasPage(TextureAtlas.REF, atlas));
+		
+		for (int i=0;i<atlas.getRegionCount();i++) {
+			float[] uv = atlas.getRegionUv(i);
+			regions.put(atlas.getRegionName(i), new TextureRegion(page, uv[0], uv[1], uv[2], uv[3]));
+		}
+		
+		logger.info("Atlas "+atlas.getWidth()+"x"+atlas.getHeight()+" con "+atlas.getRegionCount()+" regiones");
+	}
+	
+	/**
+	 * Pide un modelo OBJ. Si existe su versión precocinada (.mdl) se carga
+	 * esa en su lugar
+	 * 
+	 * @param ref Ruta del modelo OBJ en el classpath
+	 * @return Modelo (puede no estar cargado todavía)
+	 * @throws IOException Si el recurso no existe
+	 */
+	public synchronized Model getModel(String ref) throws IOException {
+		Asset asset = assets.get(ref);
+		
+		if (asset == null) {
+			// Se usa el modelo precocinado al compilar (ModelBaker) si existe
+			String baked = BakedMesh.bakedRef(ref);
+			
+			if (AssetManager.class.getClassLoader().getResource(baked) != null) {
+				asset = request(ref, new BakedModelAsset(baked));
+			}
+			else {
+				asset = request(ref, new ModelAsset(ref));
+			}
+		}
+		
+		return (Model) asset;
+	}
+	
+	/**
+	 * Registra un recurso nuevo y lo encola para decodificar
+	 * 
+	 * @param ref Ruta pedida (clave de la caché)
+	 * @param asset Recurso a cargar
+	 */
+	private Asset request(String ref, final Asset asset) throws IOException {
+		// Los recursos que no existen fallan en la petición, no más tarde
+		if (AssetManager.class.getClassLoader().getResource(asset.getRef()) == null) {
+			throw new IOException("No se encuentra el recurso: "+asset.getRef());
+		}
+		
+		assets.put(ref, asset);
+		requested++;
+		
+		workers.execute(new Runnable() {
+			@Override
+			public void run() {
+				asset.load();
+				decoded.add(asset);
+			}
+		});
+		
+		return asset;
+	}
+	
+	/**
+	 * Sube a OpenGL los recursos decodificados. Debe llamarse desde el hilo
+	 * de render. Se sube al menos un recurso por llamada aunque supere el
+	 * tiempo indicado.
+	 * 
+	 * @param budget Tiempo máximo en ns
+	 * @return Recursos subidos
+	 */
+	public synchronized int upload(long budget) {
+		long start = System.nanoTime();
+		int count = 0;
+		Asset asset;
+		
+		while ((asset = decoded.poll()) != null) {
+			asset.finish();
+			finished++;
+			count++;
+			
+			if (asset.getState() == Asset.STATE_FAILED) {
+				logger.error("Error cargando "+asset.getRef(), asset.getError());
+			}
+			
+			if (System.nanoTime() - start >= budget) {
+				break;
+			}
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * @return Fracción de los recursos pedidos que han terminado de cargar (0..1)
+	 */
+	public synchronized float getProgress() {
+		return requested == 0 ? 1 : (float) finished / requested;
+	}
+	
+	/**
+	 * @return true si no queda ningún recurso pendiente
+	 */
+	public synchronized boolean isIdle() {
+		return finished == requested;
+	}
+}
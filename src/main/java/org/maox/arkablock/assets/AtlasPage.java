@@ -0,0 +1,44 @@
+package org.maox.arkablock.assets;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+
+/**
+ * Textura del atlas (TextureAtlas). Los pixels ya están decodificados en el
+ * fichero: se proyectan en memoria (o se leen si están dentro de un jar) y
+ * se suben a la GPU tal cual, sin decodificar ninguna imagen.
+ * 
+ * @author Alex
+ */
+public class AtlasPage extends TextureAsset {
+	/** Tabla del atlas (dimensiones y posición de los pixels) */
+	private final TextureAtlas atlas;
+	
+	/**
+	 * @param ref Ruta del atlas en el classpath
+	 * @param atlas Tabla del atlas ya leida
+	 */
+	AtlasPage(String ref, TextureAtlas atlas) {
+		super(ref);
+		this.atlas = atlas;
+	}
+	
+	/**
+	 * @see org.maox.arkablock.assets.Asset#decode(URL)
+	 */
+	@Override
+	protected void decode(URL url) throws IOException {
+		ByteBuffer data = map(url);
+		int size = atlas.getWidth() * atlas.getHeight() * 4;
+		
+		if (data.limit() < atlas.getPixelOffset() + size) {
+			throw new IOException("Atlas incompleto: "+url);
+		}
+		
+		data.position(atlas.getPixelOffset());
+		data.limit(atlas.getPixelOffset() + size);
+		
+		setPixels(data.slice(), atlas.getWidth(), atlas.getHeight());
+	}
+}
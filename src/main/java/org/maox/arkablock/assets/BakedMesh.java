@@ -0,0 +1,283 @@
+package org.maox.arkablock.assets;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Formato binario de los modelos precocinados (.mdl). Lo genera la
+ * herramienta ModelBaker a partir de los OBJ al compilar, y en ejecución se
+ * proyecta en memoria y se sube a la GPU tal cual, sin leer texto.
+ * 
+ * Estructura (little endian):
+ *    Cabecera de 48 bytes:
+ *       int magic ('AKMD'), int versión, int flags, int vértices, int índices,
+ *       float minX, minY, minZ, maxX, maxY, maxZ, int reservado
+ *    Vértices sin repetir, entrelazados como MeshData (8 floats, 32 bytes):
+ *       x, y, z, nx, ny, nz, u, v
+ *    Índices de los triángulos: uint16 si hay menos de 65536 vértices
+ *       (FLAG_SHORT_INDICES) o uint32
+ * 
+ * @author Alex
+ */
+public class BakedMesh {
+	/** Identificador del formato ('AKMD' leido en little endian) */
+	public static final int MAGIC = 'A' | 'K' << 8 | 'M' << 16 | 'D' << 24;
+	/** Versión del formato */
+	public static final int VERSION = 1;
+	/** Tamaño de la cabecera en bytes */
+	public static final int HEADER_SIZE = 48;
+	/** Bytes por vértice */
+	public static final int VERTEX_BYTES = MeshData.VERTEX_SIZE * 4;
+	/** Extensión de los modelos precocinados */
+	public static final String EXTENSION = ".mdl";
+	
+	/** El modelo tiene coordenadas de textura */
+	public static final int FLAG_TEXTURED = 1;
+	/** Índices de 16 bits */
+	public static final int FLAG_SHORT_INDICES = 2;
+	
+	/** Flags (FLAG_*) */
+	private final int flags;
+	/** Número de vértices e índices */
+	private final int vertexCount, indexCount;
+	/** Caja envolvente */
+	private final float minX, minY, minZ, maxX, maxY, maxZ;
+	/** Vértices e índices en el orden de bytes nativo */
+	private final ByteBuffer vertices, indices;
+	
+	private BakedMesh(ByteBuffer data) throws IOException {
+		data.order(ByteOrder.LITTLE_ENDIAN);
+		
+		if (data.remaining() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+			throw new IOException("No es un modelo precocinado");
+		}
+		if (data.getInt(4) != VERSION) {
+			throw new IOException("Versión de modelo no soportada: "+data.getInt(4));
+		}
+		
+		flags = data.getInt(8);
+		vertexCount = data.getInt(12);
+		indexCount = data.getInt(16);
+		minX = data.getFloat(20); minY = data.getFloat(24); minZ = data.getFloat(28);
+		maxX = data.getFloat(32); maxY = data.getFloat(36); maxZ = data.getFloat(40);
+		
+		int vertexBytes = vertexCount * VERTEX_BYTES;
+		int indexBytes = indexCount * getIndexSize();
+		
+		if (data.remaining() < HEADER_SIZE + vertexBytes + indexBytes) {
+			throw new IOException("Modelo precocinado incompleto");
+		}
+		
+		vertices = nativeOrder(slice(data, HEADER_SIZE, vertexBytes), 4);
+		indices = nativeOrder(slice(data, HEADER_SIZE + vertexBytes, indexBytes), getIndexSize());
+	}
+	
+	/**
+	 * Lee un modelo precocinado. Los vértices e índices son vistas del
+	 * buffer (sin copiar) salvo en máquinas big endian
+	 * 
+	 * @param data Contenido del fichero .mdl
+	 * @return Modelo
+	 * @throws IOException Si el contenido no es válido
+	 */
+	public static BakedMesh read(ByteBuffer data) throws IOException {
+		return new BakedMesh(data);
+	}
+	
+	/**
+	 * Lee solo la cabecera de un modelo (dimensiones y flags)
+	 * 
+	 * @param header Primeros HEADER_SIZE bytes del fichero
+	 * @return Caja envolvente (minX, minY, minZ, maxX, maxY, maxZ) seguida de los flags
+	 * @throws IOException Si la cabecera no es válida
+	 */
+	public static float[] readBounds(ByteBuffer header) throws IOException {
+		header.order(ByteOrder.LITTLE_ENDIAN);
+		
+		if (header.remaining() < HEADER_SIZE || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+			throw new IOException("No es un modelo precocinado");
+		}
+		
+		float[] bounds = new float[7];
+		for (int i=0;i<6;i++) {
+			bounds[i] = header.getFloat(20 + i * 4);
+		}
+		bounds[6] = header.getInt(8);
+		
+		return bounds;
+	}
+	
+	/**
+	 * @param ref Ruta de un modelo OBJ
+	 * @return Ruta del modelo precocinado correspondiente (obj/vaus.obj -> obj/vaus.mdl)
+	 */
+	public static String bakedRef(String ref) {
+		int dot = ref.lastIndexOf('.');
+		return (dot > ref.lastIndexOf('/') ? ref.substring(0, dot) : ref) + EXTENSION;
+	}
+	
+	/**
+	 * Escribe una malla en formato precocinado eliminando los vértices repetidos
+	 * 
+	 * @param mesh Malla leida del OBJ
+	 * @param out Destino
+	 * @return Número de vértices sin repetir
+	 * @throws IOException
+	 */
+	public static int write(MeshData mesh, OutputStream out) throws IOException {
+		float[] src = mesh.getVertices();
+		int count = mesh.getVertexCount();
+		
+		// Vértices únicos (comparando los bits de los 8 floats) e índices
+		HashMap<VertexKey, Integer> unique = new HashMap<VertexKey, Integer>();
+		float[] vertices = new float[count * MeshData.VERTEX_SIZE];
+		int[] indices = new int[count];
+		int vertexCount = 0;
+		
+		for (int i=0;i<count;i++) {
+			VertexKey key = new VertexKey(src, i * MeshData.VERTEX_SIZE);
+			Integer index = unique.get(key);
+			
+			if (index == null) {
+				index = vertexCount++;
+				unique.put(key, index);
+				System.arraycopy(src, i * MeshData.VERTEX_SIZE, vertices, index * MeshData.VERTEX_SIZE, MeshData.VERTEX_SIZE);
+			}
+			
+			indices[i] = index;
+		}
+		
+		boolean shortIndices = vertexCount < 65536;
+		int flags = (mesh.isTextured() ? FLAG_TEXTURED : 0) | (shortIndices ? FLAG_SHORT_INDICES : 0);
+		int indexBytes = count * (shortIndices ? 2 : 4);
+		
+		ByteBuffer data = ByteBuffer.allocate(HEADER_SIZE + vertexCount * VERTEX_BYTES + indexBytes)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		
+		data.putInt(MAGIC).putInt(VERSION).putInt(flags).putInt(vertexCount).putInt(count);
+		data.putFloat(mesh.getMinX()).putFloat(mesh.getMinY()).putFloat(mesh.getMinZ());
+		data.putFloat(mesh.getMaxX()).putFloat(mesh.getMaxY()).putFloat(mesh.getMaxZ());
+		data.putInt(0);
+		
+		for (int i=0;i<vertexCount * MeshData.VERTEX_SIZE;i++) {
+			data.putFloat(vertices[i]);
+		}
+		
+		for (int i=0;i<count;i++) {
+			if (shortIndices) {
+				data.putShort((short) indices[i]);
+			}
+			else {
+				data.putInt(indices[i]);
+			}
+		}
+		
+		out.write(data.array());
+		
+		return vertexCount;
+	}
+	
+	/**
+	 * Vista de una parte del buffer
+	 */
+	private static ByteBuffer slice(ByteBuffer data, int offset, int length) {
+		ByteBuffer view = data.duplicate();
+		view.position(offset);
+		view.limit(offset + length);
+		
+		return view.slice();
+	}
+	
+	/**
+	 * El fichero está en little endian; OpenGL lee los datos en el orden nativo.
+	 * En máquinas big endian se copian dándoles la vuelta
+	 */
+	private static ByteBuffer nativeOrder(ByteBuffer data, int size) {
+		if (ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN) {
+			return data.order(ByteOrder.LITTLE_ENDIAN);
+		}
+		
+		ByteBuffer copy = ByteBuffer.allocateDirect(data.remaining()).order(ByteOrder.nativeOrder());
+		data.order(ByteOrder.LITTLE_ENDIAN);
+		
+		for (int i=0;i<data.limit();i+=size) {
+			if (size == 2) {
+				copy.putShort(data.getShort(i));
+			}
+			else {
+				copy.putInt(data.getInt(i));
+			}
+		}
+		copy.flip();
+		
+		return copy;
+	}
+
+	public boolean isTextured() {
+		return (flags & FLAG_TEXTURED) != 0;
+	}
+	
+	/**
+	 * @return Bytes por índice (2 o 4)
+	 */
+	public int getIndexSize() {
+		return (flags & FLAG_SHORT_INDICES) != 0 ? 2 : 4;
+	}
+
+	public int getVertexCount() {
+		return vertexCount;
+	}
+
+	public int getIndexCount() {
+		return indexCount;
+	}
+
+	public ByteBuffer getVertices() {
+		return vertices;
+	}
+
+	public ByteBuffer getIndices() {
+		return indices;
+	}
+
+	public float getSizeX() {
+		return maxX - minX;
+	}
+
+	public float getSizeY() {
+		return maxY - minY;
+	}
+
+	public float getSizeZ() {
+		return maxZ - minZ;
+	}
+	
+	/**
+	 * Clave para comparar vértices por sus bits
+	 */
+	private static class VertexKey {
+		private final int[] bits = new int[MeshData.VERTEX_SIZE];
+		private final int hash;
+		
+		VertexKey(float[] vertices, int offset) {
+			for (int i=0;i<bits.length;i++) {
+				bits[i] = Float.floatToIntBits(vertices[offset + i]);
+			}
+			hash = Arrays.hashCode(bits);
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof VertexKey && Arrays.equals(bits, ((VertexKey) other).bits);
+		}
+	}
+}
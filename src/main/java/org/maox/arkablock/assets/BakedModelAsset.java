@@ -0,0 +1,131 @@
+package org.maox.arkablock.assets;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+
+import java.io.IOException;
+import java.net.URL;
+
+import org.maox.arkablock.backend.Model;
+
+/**
+ * Modelo precocinado (.mdl, ver BakedMesh). Si el fichero está en disco se
+ * proyecta en memoria (mmap) y los vértices e índices se suben desde ahí a
+ * un VBO y un IBO sin copias intermedias. Si está dentro de un jar se lee
+ * entero a un buffer directo.
+ * 
+ * @author Alex
+ */
+public class BakedModelAsset extends Asset implements Model {
+	/** Posición en bytes de la normal y de la coordenada de textura dentro del vértice */
+	private static final int NORMAL_OFFSET = 12, TEXCOORD_OFFSET = 24;
+	
+	/** Malla leida del fichero */
+	private BakedMesh mesh;
+	/** Buffers de vértices e índices en OpenGL */
+	private int vbo, ibo;
+	/** Tipo de los índices (GL_UNSIGNED_SHORT o GL_UNSIGNED_INT) */
+	private int indexType;
+	
+	/**
+	 * @param ref Ruta del modelo precocinado en el classpath
+	 */
+	BakedModelAsset(String ref) {
+		super(ref);
+	}
+
+	/**
+	 * Proyección del fichero en memoria (o lectura si no está en disco)
+	 * @see org.maox.arkablock.assets.Asset#decode(URL)
+	 */
+	@Override
+	protected void decode(URL url) throws IOException {
+		mesh = BakedMesh.read(map(url));
+	}
+
+	/**
+	 * Subida de vértices e índices a la GPU
+	 * @see org.maox.arkablock.assets.Asset#upload()
+	 */
+	@Override
+	protected void upload() {
+		vbo = glGenBuffers();
+		glBindBuffer(GL_ARRAY_BUFFER, vbo);
+		glBufferData(GL_ARRAY_BUFFER, mesh.getVertices(), GL_STATIC_DRAW);
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+		
+		ibo = glGenBuffers();
+		glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, ibo);
+		glBufferData(GL_ELEMENT_ARRAY_BUFFER, mesh.getIndices(), GL_STATIC_DRAW);
+		glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, 0);
+		
+		indexType = mesh.getIndexSize() == 2 ? GL_UNSIGNED_SHORT : GL_UNSIGNED_INT;
+	}
+
+	/**
+	 * @see org.maox.arkablock.backend.Model#render()
+	 */
+	@Override
+	public void render() {
+		if (!isReady()) {
+			return;
+		}
+		
+		glBindBuffer(GL_ARRAY_BUFFER, vbo);
+		glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, ibo);
+		glEnableClientState(GL_VERTEX_ARRAY);
+		glEnableClientState(GL_NORMAL_ARRAY);
+		glEnableClientState(GL_TEXTURE_COORD_ARRAY);
+		glVertexPointer(3, GL_FLOAT, BakedMesh.VERTEX_BYTES, 0);
+		glNormalPointer(GL_FLOAT, BakedMesh.VERTEX_BYTES, NORMAL_OFFSET);
+		glTexCoordPointer(2, GL_FLOAT, BakedMesh.VERTEX_BYTES, TEXCOORD_OFFSET);
+		
+		glDrawElements(GL_TRIANGLES, mesh.getIndexCount(), indexType, 0);
+		
+		glDisableClientState(GL_TEXTURE_COORD_ARRAY);
+		glDisableClientState(GL_NORMAL_ARRAY);
+		glDisableClientState(GL_VERTEX_ARRAY);
+		glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, 0);
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+	}
+
+	/**
+	 * Libera el VBO y el IBO. El modelo es compartido por todos los que lo
+	 * piden al gestor de recursos: solo debe liberarlo el gestor
+	 * @see org.maox.arkablock.backend.Model#dispose()
+	 */
+	@Override
+	public void dispose() {
+		if (vbo != 0) {
+			glDeleteBuffers(vbo);
+			glDeleteBuffers(ibo);
+			vbo = ibo = 0;
+		}
+	}
+	
+	/**
+	 * @return Malla leida (espera a la lectura). null si ha habido un error
+	 */
+	private BakedMesh mesh() {
+		waitDecoded();
+		return mesh;
+	}
+
+	@Override
+	public boolean hasTexture() {
+		BakedMesh mesh = mesh();
+		return mesh != null && mesh.isTextured();
+	}
+
+	@Override
+	public float getSizeX() {
+		BakedMesh mesh = mesh();
+		return mesh != null ? mesh.getSizeX() : 0;
+	}
+
+	@Override
+	public float getSizeY() {
+		BakedMesh mesh = mesh();
+		return mesh != null ? mesh.getSizeY() : 0;
+	}
+}
@@ -0,0 +1,101 @@
+package org.maox.arkablock.assets;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Imagen decodificada a pixels RGBA de 8 bits en memoria directa, lista para
+ * glTexImage2D. Las dimensiones se ajustan a potencias de 2 escalando la
+ * imagen, de forma que las coordenadas de textura 0..1 cubren la imagen entera.
+ * 
+ * @author Alex
+ */
+public class ImageData {
+	/** Ancho en pixels (potencia de 2) */
+	private final int width;
+	/** Alto en pixels (potencia de 2) */
+	private final int height;
+	/** Pixels RGBA por filas, empezando por la superior */
+	private final ByteBuffer pixels;
+	
+	private ImageData(int width, int height, ByteBuffer pixels) {
+		this.width = width;
+		this.height = height;
+		this.pixels = pixels;
+	}
+	
+	/**
+	 * Decodifica una imagen (JPEG, PNG...) con ImageIO
+	 * 
+	 * @param in Contenido de la imagen
+	 * @return Imagen decodificada
+	 * @throws IOException
+	 */
+	public static ImageData decode(InputStream in) throws IOException {
+		BufferedImage image = ImageIO.read(in);
+		
+		if (image == null) {
+			throw new IOException("Formato de imagen no soportado");
+		}
+		
+		int width = powerOfTwo(image.getWidth());
+		int height = powerOfTwo(image.getHeight());
+		
+		// Copia a ARGB escalando a las nuevas dimensiones
+		BufferedImage argb = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = argb.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		g.drawImage(image, 0, 0, width, height, null);
+		g.dispose();
+		
+		int[] row = new int[width];
+		ByteBuffer pixels = ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.nativeOrder());
+		
+		for (int y=0;y<height;y++) {
+			argb.getRGB(0, y, width, 1, row, 0, width);
+			
+			for (int x=0;x<width;x++) {
+				int pixel = row[x];
+				pixels.put((byte) (pixel >> 16));
+				pixels.put((byte) (pixel >> 8));
+				pixels.put((byte) pixel);
+				pixels.put((byte) (pixel >>> 24));
+			}
+		}
+		
+		pixels.flip();
+		
+		return new ImageData(width, height, pixels);
+	}
+	
+	/**
+	 * @return Menor potencia de 2 mayor o igual que el valor
+	 */
+	static int powerOfTwo(int value) {
+		int pot = 1;
+		while (pot < value) {
+			pot <<= 1;
+		}
+		
+		return pot;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public ByteBuffer getPixels() {
+		return pixels;
+	}
+}
@@ -0,0 +1,100 @@
+package org.maox.arkablock.assets;
+
+/**
+ * Malla de triángulos en memoria con los vértices entrelazados:
+ * posición (x, y, z), normal (nx, ny, nz) y coordenada de textura (u, v)
+ * 
+ * @author Alex
+ */
+public class MeshData {
+	/** Floats por vértice */
+	public static final int VERTEX_SIZE = 8;
+	
+	/** Vértices entrelazados, tres por triángulo */
+	private final float[] vertices;
+	/** Número de vértices */
+	private final int vertexCount;
+	/** Si la malla tiene coordenadas de textura */
+	private final boolean textured;
+	/** Caja envolvente */
+	private final float minX, minY, minZ, maxX, maxY, maxZ;
+	
+	/**
+	 * @param vertices Vértices entrelazados
+	 * @param vertexCount Número de vértices
+	 * @param textured Si la malla tiene coordenadas de textura
+	 */
+	public MeshData(float[] vertices, int vertexCount, boolean textured) {
+		this.vertices = vertices;
+		this.vertexCount = vertexCount;
+		this.textured = textured;
+		
+		float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, minZ = Float.MAX_VALUE;
+		float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE, maxZ = -Float.MAX_VALUE;
+		
+		for (int i=0;i<vertexCount;i++) {
+			int v = i * VERTEX_SIZE;
+			minX = Math.min(minX, vertices[v]);
+			minY = Math.min(minY, vertices[v + 1]);
+			minZ = Math.min(minZ, vertices[v + 2]);
+			maxX = Math.max(maxX, vertices[v]);
+			maxY = Math.max(maxY, vertices[v + 1]);
+			maxZ = Math.max(maxZ, vertices[v + 2]);
+		}
+		
+		if (vertexCount == 0) {
+			minX = minY = minZ = maxX = maxY = maxZ = 0;
+		}
+		
+		this.minX = minX; this.minY = minY; this.minZ = minZ;
+		this.maxX = maxX; this.maxY = maxY; this.maxZ = maxZ;
+	}
+
+	public float[] getVertices() {
+		return vertices;
+	}
+
+	public int getVertexCount() {
+		return vertexCount;
+	}
+
+	public boolean isTextured() {
+		return textured;
+	}
+
+	public float getMinX() {
+		return minX;
+	}
+
+	public float getMinY() {
+		return minY;
+	}
+
+	public float getMinZ() {
+		return minZ;
+	}
+
+	public float getMaxX() {
+		return maxX;
+	}
+
+	public float getMaxY() {
+		return maxY;
+	}
+
+	public float getMaxZ() {
+		return maxZ;
+	}
+
+	public float getSizeX() {
+		return maxX - minX;
+	}
+
+	public float getSizeY() {
+		return maxY - minY;
+	}
+
+	public float getSizeZ() {
+		return maxZ - minZ;
+	}
+}
@@ -0,0 +1,109 @@
+package org.maox.arkablock.assets;
+
+import static org.lwjgl.opengl.GL11.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.maox.arkablock.backend.Model;
+
+/**
+ * Modelo OBJ. El fichero se lee en un hilo de trabajo y se compila en un
+ * Display List de OpenGL en el hilo de render. Las dimensiones están
+ * disponibles en cuanto se ha leido el fichero (si se piden antes se espera
+ * a la lectura).
+ * 
+ * @author Alex
+ */
+public class ModelAsset extends Asset implements Model {
+	/** Malla leida del fichero */
+	private MeshData mesh;
+	/** Identificador del Display List del modelo */
+	private int listID;
+	
+	/**
+	 * @param ref Ruta del modelo en el classpath
+	 */
+	ModelAsset(String ref) {
+		super(ref);
+	}
+
+	/**
+	 * @see org.maox.arkablock.assets.Asset#decode(InputStream)
+	 */
+	@Override
+	protected void decode(InputStream in) throws IOException {
+		mesh = ObjParser.parse(in);
+	}
+
+	/**
+	 * @see org.maox.arkablock.assets.Asset#upload()
+	 */
+	@Override
+	protected void upload() {
+		float[] v = mesh.getVertices();
+		
+		listID = glGenLists(1);
+		glNewList(listID, GL_COMPILE);
+		glBegin(GL_TRIANGLES);
+		
+		for (int i=0;i<mesh.getVertexCount();i++) {
+			int o = i * MeshData.VERTEX_SIZE;
+			glNormal3f(v[o + 3], v[o + 4], v[o + 5]);
+			glTexCoord2f(v[o + 6], v[o + 7]);
+			glVertex3f(v[o], v[o + 1], v[o + 2]);
+		}
+		
+		glEnd();
+		glEndList();
+	}
+
+	/**
+	 * @see org.maox.arkablock.backend.Model#render()
+	 */
+	@Override
+	public void render() {
+		if (isReady()) {
+			glCallList(listID);
+		}
+	}
+	
+	/**
+	 * Libera el Display List. El modelo es compartido por todos los que lo
+	 * piden al gestor de recursos: solo debe liberarlo el gestor
+	 * @see org.maox.arkablock.backend.Model#dispose()
+	 */
+	@Override
+	public void dispose() {
+		if (listID != 0) {
+			glDeleteLists(listID, 1);
+			listID = 0;
+		}
+	}
+	
+	/**
+	 * @return Malla leida (espera a la lectura). null si ha habido un error
+	 */
+	private MeshData mesh() {
+		waitDecoded();
+		return mesh;
+	}
+
+	@Override
+	public boolean hasTexture() {
+		MeshData mesh = mesh();
+		return mesh != null && mesh.isTextured();
+	}
+
+	@Override
+	public float getSizeX() {
+		MeshData mesh = mesh();
+		return mesh != null ? mesh.getSizeX() : 0;
+	}
+
+	@Override
+	public float getSizeY() {
+		MeshData mesh = mesh();
+		return mesh != null ? mesh.getSizeY() : 0;
+	}
+}
@@ -0,0 +1,156 @@
+package org.maox.arkablock.assets;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+
+/**
+ * Lector de modelos en formato OBJ (Wavefront). Soporta vértices, normales,
+ * coordenadas de textura y caras de cualquier número de lados (se dividen
+ * en abanico de triángulos). Se ignoran materiales y grupos.
+ * 
+ * @author Alex
+ */
+public class ObjParser {
+	/** Datos leidos del fichero (x, y, z) / (u, v) */
+	private float[] positions = new float[3 * 64];
+	private float[] normals = new float[3 * 64];
+	private float[] texCoords = new float[2 * 64];
+	private int positionCount, normalCount, texCoordCount;
+	
+	/** Vértices de salida */
+	private float[] vertices = new float[MeshData.VERTEX_SIZE * 192];
+	private int vertexCount;
+	
+	/** Indices (posición, textura, normal) de los vértices de la cara actual */
+	private int[] face = new int[3 * 8];
+	
+	/**
+	 * Lee un modelo OBJ
+	 * 
+	 * @param in Contenido del modelo
+	 * @return Malla del modelo
+	 * @throws IOException
+	 */
+	public static MeshData parse(InputStream in) throws IOException {
+		return new ObjParser().read(in);
+	}
+	
+	private MeshData read(InputStream in) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+		String line;
+		int number = 0;
+		
+		while ((line = reader.readLine()) != null) {
+			number++;
+			line = line.trim();
+			
+			try {
+				if (line.startsWith("v ")) {
+					positions = put(positions, positionCount++ * 3, line, 3);
+				}
+				else if (line.startsWith("vn ")) {
+					normals = put(normals, normalCount++ * 3, line, 3);
+				}
+				else if (line.startsWith("vt ")) {
+					texCoords = put(texCoords, texCoordCount++ * 2, line, 2);
+				}
+				else if (line.startsWith("f ")) {
+					face(line);
+				}
+			}
+			catch (RuntimeException e) {
+				throw new IOException("Error en la linea "+number+": "+line, e);
+			}
+		}
+		
+		return new MeshData(vertices, vertexCount, texCoordCount > 0);
+	}
+	
+	/**
+	 * Guarda los valores numéricos de una linea (v, vn, vt)
+	 */
+	private static float[] put(float[] dst, int offset, String line, int count) {
+		if (offset + count > dst.length) {
+			dst = Arrays.copyOf(dst, dst.length * 2);
+		}
+		
+		String[] values = line.split("\\s+");
+		for (int i=0;i<count;i++) {
+			dst[offset + i] = i + 1 < values.length ? Float.parseFloat(values[i + 1]) : 0;
+		}
+		
+		return dst;
+	}
+	
+	/**
+	 * Lee una cara (v, v/vt, v//vn o v/vt/vn) y la añade como abanico de triángulos
+	 */
+	private void face(String line) {
+		String[] corners = line.split("\\s+");
+		int count = corners.length - 1;
+		
+		if (face.length < count * 3) {
+			face = new int[count * 3];
+		}
+		
+		for (int i=0;i<count;i++) {
+			String[] indices = corners[i + 1].split("/");
+			face[i * 3] = index(indices[0], positionCount);
+			face[i * 3 + 1] = indices.length > 1 && indices[1].length() > 0 ? index(indices[1], texCoordCount) : -1;
+			face[i * 3 + 2] = indices.length > 2 && indices[2].length() > 0 ? index(indices[2], normalCount) : -1;
+		}
+		
+		for (int i=1;i+1<count;i++) {
+			vertex(0);
+			vertex(i);
+			vertex(i + 1);
+		}
+	}
+	
+	/**
+	 * @return Indice desde 0 de un indice OBJ (desde 1, o negativo relativo al final)
+	 */
+	private static int index(String value, int count) {
+		int index = Integer.parseInt(value);
+		return index < 0 ? count + index : index - 1;
+	}
+	
+	/**
+	 * Añade un vértice de la cara actual a la salida
+	 */
+	private void vertex(int corner) {
+		if ((vertexCount + 1) * MeshData.VERTEX_SIZE > vertices.length) {
+			vertices = Arrays.copyOf(vertices, vertices.length * 2);
+		}
+		
+		int v = vertexCount++ * MeshData.VERTEX_SIZE;
+		int p = face[corner * 3] * 3;
+		int t = face[corner * 3 + 1];
+		int n = face[corner * 3 + 2];
+		
+		vertices[v] = positions[p];
+		vertices[v + 1] = positions[p + 1];
+		vertices[v + 2] = positions[p + 2];
+		
+		if (n >= 0) {
+			vertices[v + 3] = normals[n * 3];
+			vertices[v + 4] = normals[n * 3 + 1];
+			vertices[v + 5] = normals[n * 3 + 2];
+		}
+		else {
+			vertices[v + 3] = vertices[v + 4] = 0;
+			vertices[v + 5] = 1;
+		}
+		
+		if (t >= 0) {
+			vertices[v + 6] = texCoords[t * 2];
+			vertices[v + 7] = texCoords[t * 2 + 1];
+		}
+		else {
+			vertices[v + 6] = vertices[v + 7] = 0;
+		}
+	}
+}
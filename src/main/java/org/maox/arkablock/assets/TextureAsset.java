@@ -0,0 +1,93 @@
+package org.maox.arkablock.assets;
+
+import static org.lwjgl.opengl.GL11.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Textura 2D. La imagen se decodifica en un hilo de trabajo y se sube a
+ * OpenGL en el hilo de render; después se liberan los pixels en memoria.
+ * 
+ * @author Alex
+ */
+public class TextureAsset extends Asset {
+	/** Pixels RGBA pendientes de subir */
+	private ByteBuffer pixels;
+	/** Identificador de la textura en OpenGL */
+	private int textureID;
+	/** Dimensiones en pixels */
+	private int width, height;
+	
+	/**
+	 * @param ref Ruta de la imagen en el classpath
+	 */
+	TextureAsset(String ref) {
+		super(ref);
+	}
+
+	/**
+	 * @see org.maox.arkablock.assets.Asset#decode(InputStream)
+	 */
+	@Override
+	protected void decode(InputStream in) throws IOException {
+		ImageData image = ImageData.decode(in);
+		setPixels(image.getPixels(), image.getWidth(), image.getHeight());
+	}
+	
+	/**
+	 * Pixels a subir a la GPU (lo llaman las subclases al decodificar)
+	 * 
+	 * @param pixels Pixels RGBA por filas, empezando por la superior
+	 * @param width Ancho en pixels
+	 * @param height Alto en pixels
+	 */
+	protected void setPixels(ByteBuffer pixels, int width, int height) {
+		this.pixels = pixels;
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * @see org.maox.arkablock.assets.Asset#upload()
+	 */
+	@Override
+	protected void upload() {
+		textureID = glGenTextures();
+		
+		glBindTexture(GL_TEXTURE_2D, textureID);
+		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
+		glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
+		glPixelStorei(GL_UNPACK_ALIGNMENT, 4);
+		glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, width, height, 0, GL_RGBA, GL_UNSIGNED_BYTE, pixels);
+		
+		// Los pixels ya están en la GPU
+		pixels = null;
+	}
+	
+	/**
+	 * Activa la textura. Si aún no está lista se deja la textura vacía
+	 */
+	public void bind() {
+		glBindTexture(GL_TEXTURE_2D, isReady() ? textureID : 0);
+	}
+	
+	/**
+	 * Libera la textura de OpenGL
+	 */
+	public void dispose() {
+		if (textureID != 0) {
+			glDeleteTextures(textureID);
+			textureID = 0;
+		}
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+}
@@ -0,0 +1,155 @@
+package org.maox.arkablock.assets;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+
+/**
+ * Formato del atlas de texturas (.tex). Lo genera la herramienta AtlasPacker
+ * al compilar a partir de las imágenes de images.jar: todas se empaquetan en
+ * una textura RGBA ya decodificada, junto con la tabla de coordenadas de
+ * cada imagen. Incluye además una región blanca (WHITE) para dibujar los
+ * rectángulos de color con la misma textura.
+ * 
+ * Estructura (little endian):
+ *    Cabecera de 24 bytes:
+ *       int magic ('AKTX'), int versión, int ancho, int alto, int regiones,
+ *       int posición de los pixels
+ *    Tabla de regiones: short longitud + nombre UTF-8, float u0, v0, u1, v1
+ *    Pixels RGBA por filas, empezando por la superior (alineados a 16 bytes)
+ * 
+ * La tabla es pequeña y se lee al momento; los pixels se proyectan en memoria
+ * y se suben a la GPU sin decodificar nada (AtlasPage).
+ * 
+ * @author Alex
+ */
+public class TextureAtlas {
+	/** Identificador del formato ('AKTX' leido en little endian) */
+	public static final int MAGIC = 'A' | 'K' << 8 | 'T' << 16 | 'X' << 24;
+	/** Versión del formato */
+	public static final int VERSION = 1;
+	/** Tamaño de la cabecera en bytes */
+	public static final int HEADER_SIZE = 24;
+	/** Ruta del atlas en el classpath */
+	public static final String REF = "img/atlas.tex";
+	/** Nombre de la región blanca */
+	public static final String WHITE = "atlas/white";
+	
+	/** Dimensiones de la textura en pixels */
+	private final int width, height;
+	/** Posición de los pixels en el fichero */
+	private final int pixelOffset;
+	/** Nombres de las regiones */
+	private final ArrayList<String> names = new ArrayList<String>();
+	/** Coordenadas de las regiones (u0, v0, u1, v1) */
+	private final ArrayList<float[]> uvs = new ArrayList<float[]>();
+	
+	private TextureAtlas(int width, int height, int pixelOffset) {
+		this.width = width;
+		this.height = height;
+		this.pixelOffset = pixelOffset;
+	}
+	
+	/**
+	 * Lee la cabecera y la tabla de regiones (no lee los pixels)
+	 * 
+	 * @param in Contenido del fichero .tex
+	 * @return Atlas con su tabla de regiones
+	 * @throws IOException Si el contenido no es válido
+	 */
+	public static TextureAtlas readTable(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(in);
+		
+		byte[] bytes = new byte[HEADER_SIZE];
+		data.readFully(bytes);
+		ByteBuffer header = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+		
+		if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+			throw new IOException("No es un atlas de texturas");
+		}
+		
+		TextureAtlas atlas = new TextureAtlas(header.getInt(8), header.getInt(12), header.getInt(20));
+		int regions = header.getInt(16);
+		
+		bytes = new byte[atlas.pixelOffset - HEADER_SIZE];
+		data.readFully(bytes);
+		ByteBuffer table = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+		
+		for (int i=0;i<regions;i++) {
+			byte[] name = new byte[table.getShort()];
+			table.get(name);
+			
+			atlas.names.add(new String(name, "UTF-8"));
+			atlas.uvs.add(new float[] { table.getFloat(), table.getFloat(), table.getFloat(), table.getFloat() });
+		}
+		
+		return atlas;
+	}
+	
+	/**
+	 * Escribe un atlas
+	 * 
+	 * @param out Destino
+	 * @param width Ancho de la textura
+	 * @param height Alto de la textura
+	 * @param names Nombres de las regiones
+	 * @param uvs Coordenadas de las regiones (u0, v0, u1, v1)
+	 * @param pixels Pixels RGBA (ancho * alto * 4 bytes)
+	 * @throws IOException
+	 */
+	public static void write(OutputStream out, int width, int height, 
+			ArrayList<String> names, ArrayList<float[]> uvs, byte[] pixels) throws IOException {
+		
+		int tableSize = 0;
+		for (int i=0;i<names.size();i++) {
+			tableSize += 2 + names.get(i).getBytes("UTF-8").length + 16;
+		}
+		
+		int pixelOffset = (HEADER_SIZE + tableSize + 15) & ~15;
+		ByteBuffer header = ByteBuffer.allocate(pixelOffset).order(ByteOrder.LITTLE_ENDIAN);
+		
+		header.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height).putInt(names.size()).putInt(pixelOffset);
+		
+		for (int i=0;i<names.size();i++) {
+			byte[] name = names.get(i).getBytes("UTF-8");
+			header.putShort((short) name.length).put(name);
+			
+			float[] uv = uvs.get(i);
+			header.putFloat(uv[0]).putFloat(uv[1]).putFloat(uv[2]).putFloat(uv[3]);
+		}
+		
+		out.write(header.array());
+		out.write(pixels);
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getPixelOffset() {
+		return pixelOffset;
+	}
+	
+	public int getRegionCount() {
+		return names.size();
+	}
+	
+	public String getRegionName(int region) {
+		return names.get(region);
+	}
+	
+	/**
+	 * @return Coordenadas de la región (u0, v0, u1, v1)
+	 */
+	public float[] getRegionUv(int region) {
+		return uvs.get(region);
+	}
+}
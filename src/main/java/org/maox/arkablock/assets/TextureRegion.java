@@ -0,0 +1,78 @@
+package org.maox.arkablock.assets;
+
+/**
+ * Zona rectangular de una textura. Las imágenes empaquetadas en el atlas
+ * son regiones de la misma textura, de forma que todo lo que las usa se
+ * dibuja con un solo cambio de textura. Una imagen suelta es una región
+ * que ocupa toda su textura.
+ * 
+ * @author Alex
+ */
+public class TextureRegion {
+	/** Textura que contiene la región */
+	private final TextureAsset texture;
+	/** Coordenadas de textura de las esquinas (u0, v0) superior izquierda y (u1, v1) inferior derecha */
+	private final float u0, v0, u1, v1;
+	
+	/**
+	 * @param texture Textura que contiene la región
+	 * @param u0 Coordenada de la esquina superior izquierda
+	 * @param v0 Coordenada de la esquina superior izquierda
+	 * @param u1 Coordenada de la esquina inferior derecha
+	 * @param v1 Coordenada de la esquina inferior derecha
+	 */
+	public TextureRegion(TextureAsset texture, float u0, float v0, float u1, float v1) {
+		this.texture = texture;
+		this.u0 = u0;
+		this.v0 = v0;
+		this.u1 = u1;
+		this.v1 = v1;
+	}
+	
+	/**
+	 * Convierte una coordenada horizontal de la imagen (0..1) a la textura
+	 * 
+	 * @param u Coordenada en la imagen
+	 * @return Coordenada en la textura
+	 */
+	public float u(float u) {
+		return u0 + (u1 - u0) * u;
+	}
+	
+	/**
+	 * Convierte una coordenada vertical de la imagen (0..1) a la textura
+	 * 
+	 * @param v Coordenada en la imagen
+	 * @return Coordenada en la textura
+	 */
+	public float v(float v) {
+		return v0 + (v1 - v0) * v;
+	}
+	
+	/**
+	 * @return true si la región ocupa toda la textura
+	 */
+	public boolean isWhole() {
+		return u0 == 0 && v0 == 0 && u1 == 1 && v1 == 1;
+	}
+
+	public TextureAsset getTexture() {
+		return texture;
+	}
+
+	public float getU0() {
+		return u0;
+	}
+
+	public float getV0() {
+		return v0;
+	}
+
+	public float getU1() {
+		return u1;
+	}
+
+	public float getV1() {
+		return v1;
+	}
+}
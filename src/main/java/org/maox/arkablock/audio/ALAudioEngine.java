@@ -0,0 +1,279 @@
+package org.maox.arkablock.audio;
+
+import static org.lwjgl.openal.AL10.AL_BUFFER;
+import static org.lwjgl.openal.AL10.AL_BUFFERS_PROCESSED;
+import static org.lwjgl.openal.AL10.AL_FORMAT_MONO16;
+import static org.lwjgl.openal.AL10.AL_GAIN;
+import static org.lwjgl.openal.AL10.AL_NO_ERROR;
+import static org.lwjgl.openal.AL10.AL_PITCH;
+import static org.lwjgl.openal.AL10.AL_PLAYING;
+import static org.lwjgl.openal.AL10.AL_SOURCE_STATE;
+import static org.lwjgl.openal.AL10.alBufferData;
+import static org.lwjgl.openal.AL10.alDeleteBuffers;
+import static org.lwjgl.openal.AL10.alDeleteSources;
+import static org.lwjgl.openal.AL10.alGenBuffers;
+import static org.lwjgl.openal.AL10.alGenSources;
+import static org.lwjgl.openal.AL10.alGetError;
+import static org.lwjgl.openal.AL10.alGetSourcei;
+import static org.lwjgl.openal.AL10.alSourcePlay;
+import static org.lwjgl.openal.AL10.alSourceQueueBuffers;
+import static org.lwjgl.openal.AL10.alSourceStop;
+import static org.lwjgl.openal.AL10.alSourceUnqueueBuffers;
+import static org.lwjgl.openal.AL10.alSourcef;
+import static org.lwjgl.openal.AL10.alSourcei;
+
+import java.io.IOException;
+import java.nio.ShortBuffer;
+import java.util.concurrent.locks.LockSupport;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.LWJGLException;
+import org.lwjgl.openal.AL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Motor de audio sobre OpenAL. Cada voz es una fuente creada al arrancar y
+ * cada sonido un buffer compartido por todas las fuentes que lo reproducen.
+ * 
+ * La música usa una fuente aparte con un anillo de MUSIC_BUFFERS buffers
+ * encolados: el hilo "music" recoge los que OpenAL ya ha reproducido, los
+ * rellena con las siguientes muestras y los vuelve a encolar. Si el hilo se
+ * retrasa y la cola se vacía, la fuente se para y se vuelve a arrancar en
+ * cuanto hay buffers llenos.
+ * 
+ * @author Alex
+ */
+public class ALAudioEngine extends AudioEngine {
+	/** Log */
+	private static final Logger logger = LoggerFactory.getLogger(ALAudioEngine.class);
+	
+	/** Buffers del anillo de la música */
+	private static final int MUSIC_BUFFERS = 4;
+	/** Muestras por buffer de música (unos 185 ms a 22050 Hz) */
+	private static final int MUSIC_CHUNK = 4096;
+	/** Espera del hilo de la música entre comprobaciones en ns */
+	private static final long MUSIC_POLL = 20000000L;
+	
+	/** Fuente de cada voz */
+	private final int[] sources;
+	/** Buffer de cada sonido (0 sin cargar) */
+	private final int[] buffers = new int[MAX_SOUNDS];
+	
+	/** Fuente y anillo de buffers de la música */
+	private final int musicSource;
+	private final int[] musicBuffers = new int[MUSIC_BUFFERS];
+	/** Muestras de música leidas y su copia en memoria directa para OpenAL */
+	private final short[] musicPcm = new short[MUSIC_CHUNK];
+	private final ShortBuffer musicData = BufferUtils.createShortBuffer(MUSIC_CHUNK);
+	/** Hilo que alimenta la música (null sin música) */
+	private MusicThread musicThread;
+	
+	/**
+	 * Abre el dispositivo de audio por defecto y crea las fuentes
+	 * 
+	 * @param voices Número de voces
+	 * @throws LWJGLException Si no hay dispositivo de audio
+	 */
+	public ALAudioEngine(int voices) throws LWJGLException {
+		super(voices);
+		AL.create();
+		
+		sources = new int[voices];
+		for (int v=0;v<voices;v++) {
+			sources[v] = alGenSources();
+		}
+		
+		musicSource = alGenSources();
+		for (int i=0;i<MUSIC_BUFFERS;i++) {
+			musicBuffers[i] = alGenBuffers();
+		}
+		
+		int error = alGetError();
+		if (error != AL_NO_ERROR) {
+			destroy();
+			throw new LWJGLException("Error de OpenAL creando las fuentes: "+error);
+		}
+		
+		logger.info("Audio OpenAL: "+voices+" voces");
+	}
+	
+	/**
+	 * @see org.maox.arkablock.audio.AudioEngine#createSound
+	 */
+	@Override
+	protected void createSound(int sound, SoundData data) throws IOException {
+		short[] samples = data.getSamples();
+		ShortBuffer pcm = BufferUtils.createShortBuffer(samples.length);
+		pcm.put(samples).flip();
+		
+		if (buffers[sound] == 0) {
+			buffers[sound] = alGenBuffers();
+		}
+		alBufferData(buffers[sound], AL_FORMAT_MONO16, pcm, data.getSampleRate());
+		
+		int error = alGetError();
+		if (error != AL_NO_ERROR) {
+			throw new IOException("Error de OpenAL cargando el sonido "+sound+": "+error);
+		}
+	}
+	
+	/**
+	 * @see org.maox.arkablock.audio.AudioEngine#startVoice
+	 */
+	@Override
+	protected void startVoice(int voice, int sound, float gain, float pitch) {
+		int source = sources[voice];
+		
+		alSourcei(source, AL_BUFFER, buffers[sound]);
+		alSourcef(source, AL_GAIN, gain);
+		alSourcef(source, AL_PITCH, pitch);
+		alSourcePlay(source);
+	}
+	
+	/**
+	 * @see org.maox.arkablock.audio.AudioEngine#stopVoice
+	 */
+	@Override
+	protected void stopVoice(int voice) {
+		alSourceStop(sources[voice]);
+	}
+	
+	/**
+	 * @see org.maox.arkablock.audio.AudioEngine#isPlaying
+	 */
+	@Override
+	protected boolean isPlaying(int voice) {
+		return alGetSourcei(sources[voice], AL_SOURCE_STATE) == AL_PLAYING;
+	}
+	
+	/**
+	 * Llena el anillo de buffers y arranca el hilo que lo mantiene lleno
+	 * @see org.maox.arkablock.audio.AudioEngine#playMusic
+	 */
+	@Override
+	public synchronized void playMusic(MusicStream music, float gain) {
+		stopMusic();
+		
+		alSourcef(musicSource, AL_GAIN, gain);
+		
+		for (int i=0;i<MUSIC_BUFFERS;i++) {
+			if (fill(music, musicBuffers[i])) {
+				alSourceQueueBuffers(musicSource, musicBuffers[i]);
+			}
+		}
+		alSourcePlay(musicSource);
+		
+		musicThread = new MusicThread(music);
+		musicThread.start();
+	}
+	
+	/**
+	 * @see org.maox.arkablock.audio.AudioEngine#stopMusic
+	 */
+	@Override
+	public synchronized void stopMusic() {
+		if (musicThread == null) {
+			return;
+		}
+		
+		musicThread.running = false;
+		LockSupport.unpark(musicThread);
+		try {
+			musicThread.join();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		musicThread = null;
+		
+		// Parada la fuente se sueltan todos los buffers de su cola
+		alSourceStop(musicSource);
+		alSourcei(musicSource, AL_BUFFER, 0);
+	}
+	
+	/**
+	 * Rellena un buffer de la música con sus siguientes muestras
+	 * 
+	 * @return false si la música ha terminado
+	 */
+	private boolean fill(MusicStream music, int buffer) {
+		int length = music.read(musicPcm, 0, MUSIC_CHUNK);
+		
+		if (length <= 0) {
+			return false;
+		}
+		
+		musicData.clear();
+		musicData.put(musicPcm, 0, length).flip();
+		alBufferData(buffer, AL_FORMAT_MONO16, musicData, music.getSampleRate());
+		
+		return true;
+	}
+	
+	/**
+	 * @see org.maox.arkablock.audio.AudioEngine#destroy
+	 */
+	@Override
+	protected void destroy() {
+		for (int v=0;v<sources.length;v++) {
+			if (sources[v] != 0) {
+				alSourceStop(sources[v]);
+				alDeleteSources(sources[v]);
+			}
+		}
+		alDeleteSources(musicSource);
+		
+		for (int i=0;i<MUSIC_BUFFERS;i++) {
+			alDeleteBuffers(musicBuffers[i]);
+		}
+		for (int i=0;i<MAX_SOUNDS;i++) {
+			if (buffers[i] != 0) {
+				alDeleteBuffers(buffers[i]);
+			}
+		}
+		
+		AL.destroy();
+	}
+	
+	/**
+	 * Hilo que devuelve a la cola de la música los buffers ya reproducidos
+	 */
+	private class MusicThread extends Thread {
+		/** Origen de la música */
+		private final MusicStream music;
+		/** Se pone a false para terminar */
+		private volatile boolean running = true;
+		
+		MusicThread(MusicStream music) {
+			super("music");
+			this.music = music;
+			setDaemon(true);
+		}
+		
+		@Override
+		public void run() {
+			while (running) {
+				int processed = alGetSourcei(musicSource, AL_BUFFERS_PROCESSED);
+				
+				for (int i=0;i<processed;i++) {
+					int buffer = alSourceUnqueueBuffers(musicSource);
+					
+					if (!fill(music, buffer)) {
+						// Fin de la música: se deja terminar lo encolado
+						running = false;
+						break;
+					}
+					alSourceQueueBuffers(musicSource, buffer);
+				}
+				
+				// Cola vacia (el hilo se ha retrasado): se vuelve a arrancar
+				if (running && alGetSourcei(musicSource, AL_SOURCE_STATE) != AL_PLAYING) {
+					alSourcePlay(musicSource);
+				}
+				
+				LockSupport.parkNanos(MUSIC_POLL);
+			}
+		}
+	}
+}
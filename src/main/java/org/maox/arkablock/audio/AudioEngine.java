@@ -0,0 +1,253 @@
+package org.maox.arkablock.audio;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.maox.arkablock.backend.Backend;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Motor de audio. Los efectos cortos se decodifican una sola vez en un
+ * buffer compartido por sonido (load) y se reproducen en un conjunto fijo
+ * de voces creadas al arrancar: si no queda ninguna libre se le quita la
+ * suya al sonido más antiguo. La música se lee por trozos desde un hilo
+ * propio del motor. Reproducir un sonido no reserva memoria ni espera por
+ * nada, así que se puede llamar desde la lógica en cada ciclo.
+ * 
+ * Existen tres implementaciones, que se eligen con la propiedad de sistema
+ * arkablock.audio:
+ *    1. openal: ALAudioEngine, el audio real (por defecto con ventana)
+ *    2. null: NullAudioEngine, sin sonido (por defecto en modo headless)
+ *    3. file:ruta.wav: WavAudioEngine, mezcla el audio a un fichero WAV
+ *       al ritmo de la lógica, para pruebas sin tarjeta de sonido
+ * 
+ * Las voces se gestionan desde el hilo de la lógica (play y update).
+ * 
+ * @author Alex
+ */
+public abstract class AudioEngine {
+	/** Log */
+	private static final Logger logger = LoggerFactory.getLogger(AudioEngine.class);
+	
+	/** Propiedad de sistema con el motor de audio (openal, null o file:ruta.wav) */
+	public static final String PROPERTY_AUDIO = "arkablock.audio";
+	/** Número de voces por defecto */
+	public static final int VOICES = 16;
+	/** Máximo de sonidos cargados */
+	public static final int MAX_SOUNDS = 32;
+	
+	/** Motor activo */
+	private static AudioEngine instance;
+	
+	/** Número de voces */
+	private final int voices;
+	/** Orden de arranque de cada voz (la menor es la más antigua) */
+	private final long[] voiceSerial;
+	/** Contador de arranques */
+	private long serial;
+	/** Sonidos cargados */
+	private final boolean[] loaded = new boolean[MAX_SOUNDS];
+	
+	/** Sonidos reproducidos */
+	private long plays;
+	/** Voces quitadas a otro sonido por no haber libres */
+	private long steals;
+	
+	/**
+	 * @param voices Número de voces
+	 */
+	protected AudioEngine(int voices) {
+		this.voices = voices;
+		this.voiceSerial = new long[voices];
+	}
+	
+	/**
+	 * Obtiene el motor activo. Si no se ha creado ninguno se elige a partir
+	 * de la propiedad de sistema arkablock.audio (sin ventana, el motor nulo)
+	 * 
+	 * @return Motor activo
+	 */
+	public static synchronized AudioEngine getInstance() {
+		if (instance == null) {
+			instance = create(System.getProperty(PROPERTY_AUDIO, Backend.getInstance().isHeadless() ? "null" : "openal"));
+		}
+		
+		return instance;
+	}
+	
+	/**
+	 * Crea un motor de audio. Si no se puede abrir el dispositivo o el
+	 * fichero se sigue sin sonido
+	 * 
+	 * @param name openal, null o file:ruta.wav
+	 * @return Motor creado
+	 */
+	public static AudioEngine create(String name) {
+		try {
+			if (name.equals("openal")) {
+				return new ALAudioEngine(VOICES);
+			}
+			if (name.startsWith("file:")) {
+				return new WavAudioEngine(new File(name.substring(5)), VOICES);
+			}
+			if (!name.equals("null")) {
+				logger.warn("Motor de audio desconocido: "+name);
+			}
+		}
+		catch (Exception e) {
+			logger.warn("No se puede iniciar el audio ("+name+"), se sigue sin sonido", e);
+		}
+		
+		return new NullAudioEngine(VOICES);
+	}
+	
+	/**
+	 * Carga un sonido en su buffer compartido
+	 * 
+	 * @param sound Identificador del sonido (menor que MAX_SOUNDS)
+	 * @param data Sonido decodificado
+	 * @throws IOException Si el motor no puede crear el buffer
+	 */
+	public void load(int sound, SoundData data) throws IOException {
+		if (sound < 0 || sound >= MAX_SOUNDS) {
+			throw new IllegalArgumentException("Sonido fuera de rango: "+sound);
+		}
+		
+		createSound(sound, data);
+		loaded[sound] = true;
+	}
+	
+	/**
+	 * Reproduce un sonido con su volumen y tono originales
+	 * 
+	 * @param sound Identificador del sonido
+	 * @return Voz usada (-1 si el sonido no está cargado)
+	 */
+	public int play(int sound) {
+		return play(sound, 1, 1);
+	}
+	
+	/**
+	 * Reproduce un sonido en una voz libre o, si están todas ocupadas, en la
+	 * que lleva más tiempo sonando
+	 * 
+	 * @param sound Identificador del sonido
+	 * @param gain Volumen (1 el original)
+	 * @param pitch Tono (1 el original, 2 una octava más agudo y el doble de rápido)
+	 * @return Voz usada (-1 si el sonido no está cargado)
+	 */
+	public int play(int sound, float gain, float pitch) {
+		if (sound < 0 || sound >= MAX_SOUNDS || !loaded[sound]) {
+			return -1;
+		}
+		
+		int voice = -1;
+		int oldest = 0;
+		
+		for (int v=0;v<voices;v++) {
+			if (!isPlaying(v)) {
+				voice = v;
+				break;
+			}
+			if (voiceSerial[v] < voiceSerial[oldest]) {
+				oldest = v;
+			}
+		}
+		
+		if (voice < 0) {
+			voice = oldest;
+			stopVoice(voice);
+			steals++;
+		}
+		
+		voiceSerial[voice] = ++serial;
+		startVoice(voice, sound, gain, pitch);
+		plays++;
+		
+		return voice;
+	}
+	
+	/**
+	 * Avanza el audio tras un ciclo de la lógica. Los motores que siguen el
+	 * reloj del juego en lugar del real (nulo y fichero) miden con él la
+	 * duración de los sonidos
+	 * 
+	 * @param delta Duración del ciclo en ms
+	 */
+	public void update(int delta) {
+	}
+	
+	/**
+	 * Para la música y libera el dispositivo y los buffers
+	 */
+	public void dispose() {
+		stopMusic();
+		destroy();
+		
+		synchronized (AudioEngine.class) {
+			if (instance == this) {
+				instance = null;
+			}
+		}
+	}
+	
+	/**
+	 * @return Número de voces
+	 */
+	public int getVoices() {
+		return voices;
+	}
+	
+	/**
+	 * @return Sonidos reproducidos
+	 */
+	public long getPlays() {
+		return plays;
+	}
+	
+	/**
+	 * @return Voces quitadas a otro sonido por no haber libres
+	 */
+	public long getSteals() {
+		return steals;
+	}
+	
+	/**
+	 * Empieza a reproducir música en bucle (la anterior se para)
+	 * 
+	 * @param music Origen de la música
+	 * @param gain Volumen
+	 */
+	public abstract void playMusic(MusicStream music, float gain);
+	
+	/**
+	 * Para la música (si está sonando)
+	 */
+	public abstract void stopMusic();
+	
+	/**
+	 * Crea el buffer compartido de un sonido
+	 */
+	protected abstract void createSound(int sound, SoundData data) throws IOException;
+	
+	/**
+	 * Empieza a reproducir un sonido en una voz libre
+	 */
+	protected abstract void startVoice(int voice, int sound, float gain, float pitch);
+	
+	/**
+	 * Corta el sonido de una voz
+	 */
+	protected abstract void stopVoice(int voice);
+	
+	/**
+	 * @return true si la voz está sonando
+	 */
+	protected abstract boolean isPlaying(int voice);
+	
+	/**
+	 * Libera los recursos del motor
+	 */
+	protected abstract void destroy();
+}
@@ -0,0 +1,27 @@
+package org.maox.arkablock.audio;
+
+/**
+ * Origen de la música. El motor de audio la va leyendo por trozos desde su
+ * propio hilo (nunca desde el bucle de juego), así que la lectura puede
+ * decodificar o generar las muestras sin prisa pero no debe reservar memoria
+ * en cada llamada.
+ * 
+ * @author Alex
+ */
+public interface MusicStream {
+	
+	/**
+	 * Lee las siguientes muestras
+	 * 
+	 * @param pcm Destino de las muestras PCM de 16 bits (un canal)
+	 * @param offset Primera posición a escribir
+	 * @param length Máximo de muestras a leer
+	 * @return Muestras leidas (0 al terminar la música)
+	 */
+	public int read(short[] pcm, int offset, int length);
+	
+	/**
+	 * @return Frecuencia de muestreo en Hz
+	 */
+	public int getSampleRate();
+}
@@ -0,0 +1,90 @@
+package org.maox.arkablock.audio;
+
+/**
+ * Motor de audio sin sonido. Solo lleva la cuenta de qué voces estarían
+ * sonando según el reloj de la lógica, así el reparto de voces (y las voces
+ * quitadas) es el mismo que con sonido y se puede medir sin ventana.
+ * 
+ * @author Alex
+ */
+public class NullAudioEngine extends AudioEngine {
+	/** Duración de cada sonido en ms */
+	private final int[] soundMillis = new int[MAX_SOUNDS];
+	/** Instante en el que termina cada voz */
+	private final long[] voiceEnd;
+	/** Reloj de la lógica en ms */
+	private long clock;
+	
+	public NullAudioEngine() {
+		this(VOICES);
+	}
+	
+	/**
+	 * @param voices Número de voces
+	 */
+	public NullAudioEngine(int voices) {
+		super(voices);
+		voiceEnd = new long[voices];
+	}
+	
+	/**
+	 * @see org.maox.arkablock.audio.AudioEngine#update
+	 */
+	@Override
+	public void update(int delta) {
+		clock += delta;
+	}
+	
+	/**
+	 * @see org.maox.arkablock.audio.AudioEngine#playMusic
+	 */
+	@Override
+	public void playMusic(MusicStream music, float gain) {
+	}
+	
+	/**
+	 * @see org.maox.arkablock.audio.AudioEngine#stopMusic
+	 */
+	@Override
+	public void stopMusic() {
+	}
+	
+	/**
+	 * @see org.maox.arkablock.audio.AudioEngine#createSound
+	 */
+	@Override
+	protected void createSound(int sound, SoundData data) {
+		soundMillis[sound] = data.getLengthMillis();
+	}
+	
+	/**
+	 * @see org.maox.arkablock.audio.AudioEngine#startVoice
+	 */
+	@Override
+	protected void startVoice(int voice, int sound, float gain, float pitch) {
+		voiceEnd[voice] = clock + Math.max(1, (long) (soundMillis[sound] / pitch));
+	}
+	
+	/**
+	 * @see org.maox.arkablock.audio.AudioEngine#stopVoice
+	 */
+	@Override
+	protected void stopVoice(int voice) {
+		voiceEnd[voice] = clock;
+	}
+	
+	/**
+	 * @see org.maox.arkablock.audio.AudioEngine#isPlaying
+	 */
+	@Override
+	protected boolean isPlaying(int voice) {
+		return clock < voiceEnd[voice];
+	}
+	
+	/**
+	 * @see org.maox.arkablock.audio.AudioEngine#destroy
+	 */
+	@Override
+	protected void destroy() {
+	}
+}
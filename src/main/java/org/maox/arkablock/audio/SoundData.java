@@ -0,0 +1,174 @@
+package org.maox.arkablock.audio;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Sonido ya decodificado: muestras PCM de 16 bits en un solo canal. Se
+ * decodifica una vez al cargar el juego y el motor de audio lo copia a su
+ * buffer compartido (todas las reproducciones del sonido usan el mismo).
+ * 
+ * @author Alex
+ */
+public class SoundData {
+	/** Frecuencia de muestreo por defecto (sonidos generados y música) */
+	public static final int SAMPLE_RATE = 22050;
+	/** Tamaño de la cabecera de un WAV sencillo (RIFF + fmt + data) */
+	public static final int WAV_HEADER = 44;
+	
+	/** Muestras */
+	private final short[] samples;
+	/** Frecuencia de muestreo en Hz */
+	private final int sampleRate;
+	
+	/**
+	 * @param samples Muestras PCM de 16 bits (un canal)
+	 * @param sampleRate Frecuencia de muestreo en Hz
+	 */
+	public SoundData(short[] samples, int sampleRate) {
+		this.samples = samples;
+		this.sampleRate = sampleRate;
+	}
+	
+	/**
+	 * @return Muestras PCM de 16 bits
+	 */
+	public short[] getSamples() {
+		return samples;
+	}
+	
+	/**
+	 * @return Frecuencia de muestreo en Hz
+	 */
+	public int getSampleRate() {
+		return sampleRate;
+	}
+	
+	/**
+	 * @return Duración en ms
+	 */
+	public int getLengthMillis() {
+		return (int) (samples.length * 1000L / sampleRate);
+	}
+	
+	/**
+	 * Decodifica un fichero WAV PCM de 8 o 16 bits. Si es estéreo se mezclan
+	 * los dos canales en uno
+	 * 
+	 * @param in Contenido del fichero
+	 * @return Sonido decodificado
+	 * @throws IOException Si no es un WAV PCM soportado
+	 */
+	public static SoundData read(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(in);
+		
+		if (data.readInt() != 0x52494646) { // "RIFF"
+			throw new IOException("No es un fichero RIFF");
+		}
+		readLE32(data);
+		if (data.readInt() != 0x57415645) { // "WAVE"
+			throw new IOException("No es un fichero WAVE");
+		}
+		
+		int channels = 0, sampleRate = 0, bits = 0;
+		
+		while (true) {
+			int id = data.readInt();
+			int size = readLE32(data);
+			
+			if (id == 0x666d7420) { // "fmt "
+				int format = readLE16(data);
+				channels = readLE16(data);
+				sampleRate = readLE32(data);
+				readLE32(data);
+				readLE16(data);
+				bits = readLE16(data);
+				data.skipBytes(size - 16);
+				
+				if (format != 1 || channels < 1 || channels > 2 || (bits != 8 && bits != 16)) {
+					throw new IOException("Formato WAV no soportado: "+format+", "+channels+" canales, "+bits+" bits");
+				}
+			}
+			else if (id == 0x64617461) { // "data"
+				if (channels == 0) {
+					throw new IOException("WAV sin formato");
+				}
+				
+				int frames = size / (channels * bits / 8);
+				short[] samples = new short[frames];
+				
+				for (int i=0;i<frames;i++) {
+					int sum = 0;
+					for (int c=0;c<channels;c++) {
+						sum += bits == 16 ? (short) readLE16(data) : (data.readUnsignedByte() - 128) << 8;
+					}
+					samples[i] = (short) (sum / channels);
+				}
+				
+				return new SoundData(samples, sampleRate);
+			}
+			else {
+				// Los bloques tienen tamaño par
+				data.skipBytes(size + (size & 1));
+			}
+		}
+	}
+	
+	/**
+	 * Cabecera de un WAV PCM de 16 bits y un canal
+	 * 
+	 * @param sampleRate Frecuencia de muestreo en Hz
+	 * @param samples Número de muestras
+	 * @return Cabecera (WAV_HEADER bytes)
+	 */
+	public static byte[] header(int sampleRate, int samples) {
+		byte[] header = new byte[WAV_HEADER];
+		int size = samples * 2;
+		
+		putTag(header, 0, "RIFF");
+		putLE32(header, 4, 36 + size);
+		putTag(header, 8, "WAVE");
+		putTag(header, 12, "fmt ");
+		putLE32(header, 16, 16);
+		putLE16(header, 20, 1);
+		putLE16(header, 22, 1);
+		putLE32(header, 24, sampleRate);
+		putLE32(header, 28, sampleRate * 2);
+		putLE16(header, 32, 2);
+		putLE16(header, 34, 16);
+		putTag(header, 36, "data");
+		putLE32(header, 40, size);
+		
+		return header;
+	}
+	
+	private static int readLE16(DataInputStream in) throws IOException {
+		int b0 = in.read(), b1 = in.read();
+		if ((b0 | b1) < 0) {
+			throw new EOFException();
+		}
+		return b0 | b1 << 8;
+	}
+	
+	private static int readLE32(DataInputStream in) throws IOException {
+		return readLE16(in) | readLE16(in) << 16;
+	}
+	
+	private static void putTag(byte[] data, int offset, String tag) {
+		for (int i=0;i<4;i++) {
+			data[offset + i] = (byte) tag.charAt(i);
+		}
+	}
+	
+	private static void putLE16(byte[] data, int offset, int value) {
+		data[offset] = (byte) value;
+		data[offset + 1] = (byte) (value >> 8);
+	}
+	
+	private static void putLE32(byte[] data, int offset, int value) {
+		putLE16(data, offset, value);
+		putLE16(data, offset + 2, value >> 16);
+	}
+}
@@ -0,0 +1,60 @@
+package org.maox.arkablock.audio;
+
+/**
+ * Generador de efectos sencillos al estilo de las máquinas recreativas: un
+ * tono (cuadrado o triangular) cuya frecuencia barre de un valor a otro,
+ * con algo de ruido opcional y una envolvente de ataque corto y caida
+ * lineal. Se usa para los sonidos que no se encuentran en el classpath.
+ * 
+ * @author Alex
+ */
+public class SoundSynth {
+	/** Onda cuadrada */
+	public static final int WAVE_SQUARE = 0;
+	/** Onda triangular */
+	public static final int WAVE_TRIANGLE = 1;
+	
+	/** Ataque de la envolvente en ms (evita el chasquido inicial) */
+	private static final int ATTACK = 2;
+	/** Amplitud máxima */
+	private static final float AMPLITUDE = 12000;
+	
+	/**
+	 * Genera un barrido de frecuencia
+	 * 
+	 * @param millis Duración en ms
+	 * @param from Frecuencia inicial en Hz
+	 * @param to Frecuencia final en Hz
+	 * @param wave Forma de la onda (WAVE_*)
+	 * @param noise Proporción de ruido (0 sin ruido, 1 solo ruido)
+	 * @return Sonido generado a SoundData.SAMPLE_RATE
+	 */
+	public static SoundData sweep(int millis, float from, float to, int wave, float noise) {
+		int rate = SoundData.SAMPLE_RATE;
+		int length = millis * rate / 1000;
+		int attack = ATTACK * rate / 1000;
+		short[] samples = new short[length];
+		
+		// Ruido con semilla fija: el mismo sonido en cada arranque
+		int seed = 0x1F123BB5;
+		float phase = 0;
+		
+		for (int i=0;i<length;i++) {
+			float t = (float) i / length;
+			phase += (from + (to - from) * t) / rate;
+			phase -= (int) phase;
+			
+			float tone = wave == WAVE_SQUARE ? (phase < 0.5f ? 1 : -1) : 1 - 4 * Math.abs(phase - 0.5f);
+			
+			seed ^= seed << 13;
+			seed ^= seed >>> 17;
+			seed ^= seed << 5;
+			float white = (seed & 0xFFFF) / 32768f - 1;
+			
+			float envelope = i < attack ? (float) i / attack : 1 - t;
+			samples[i] = (short) ((tone * (1 - noise) + white * noise) * envelope * AMPLITUDE);
+		}
+		
+		return new SoundData(samples, rate);
+	}
+}
@@ -0,0 +1,91 @@
+package org.maox.arkablock.audio;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Efectos de sonido del juego. Cada efecto se busca en el classpath como
+ * snd/nombre.wav y, si no existe, se genera con SoundSynth.
+ * 
+ * @author Alex
+ */
+public class Sounds {
+	/** Log */
+	private static final Logger logger = LoggerFactory.getLogger(Sounds.class);
+	
+	/** Sin sonido */
+	public static final int NONE = -1;
+	/** Rebote de la bola en la nave */
+	public static final int PADDLE = 0;
+	/** Ladrillo roto */
+	public static final int BRICK = 1;
+	/** Rebote de la bola en las paredes */
+	public static final int WALL = 2;
+	/** Bola perdida */
+	public static final int LOST = 3;
+	
+	/** Nombre del fichero de cada efecto */
+	private static final String[] NAMES = { "paddle", "brick", "wall", "lost" };
+	
+	/**
+	 * Carga todos los efectos en el motor de audio
+	 * 
+	 * @param audio Motor de audio
+	 * @throws IOException Si el motor no puede crear algún buffer
+	 */
+	public static void load(AudioEngine audio) throws IOException {
+		for (int sound=0;sound<NAMES.length;sound++) {
+			SoundData data = read("snd/"+NAMES[sound]+".wav");
+			
+			if (data == null) {
+				data = synth(sound);
+			}
+			
+			audio.load(sound, data);
+		}
+	}
+	
+	/**
+	 * @param ref Ruta del sonido en el classpath
+	 * @return Sonido decodificado o null si no existe o no se puede leer
+	 */
+	private static SoundData read(String ref) {
+		InputStream in = Sounds.class.getClassLoader().getResourceAsStream(ref);
+		
+		if (in == null) {
+			return null;
+		}
+		
+		try {
+			try {
+				return SoundData.read(in);
+			}
+			finally {
+				in.close();
+			}
+		}
+		catch (IOException e) {
+			logger.warn("No se puede leer el sonido "+ref, e);
+			return null;
+		}
+	}
+	
+	/**
+	 * Sonido generado de cada efecto
+	 */
+	private static SoundData synth(int sound) {
+		switch (sound) {
+		case PADDLE:
+			return SoundSynth.sweep(70, 520, 390, SoundSynth.WAVE_SQUARE, 0);
+		case BRICK:
+			return SoundSynth.sweep(90, 880, 1320, SoundSynth.WAVE_SQUARE, 0.3f);
+		case WALL:
+			return SoundSynth.sweep(40, 660, 620, SoundSynth.WAVE_TRIANGLE, 0);
+		default:
+			return SoundSynth.sweep(700, 440, 90, SoundSynth.WAVE_SQUARE, 0.1f);
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package org.maox.arkablock.audio;
+
+/**
+ * Música generada: un arpegio de onda cuadrada sobre un bajo triangular que
+ * recorre en bucle una secuencia de acordes. Las notas se calculan al
+ * crearla y la lectura solo avanza fases, sin reservar memoria.
+ * 
+ * @author Alex
+ */
+public class SynthMusic implements MusicStream {
+	/** Acordes (nota MIDI de la fundamental y si es menor) */
+	private static final int[] CHORDS = { 57, 53, 48, 55 };
+	private static final boolean[] MINOR = { true, false, false, false };
+	/** Intervalos del arpegio en semitonos desde la fundamental (el 3 es la tercera) */
+	private static final int[] ARPEGGIO = { 0, 3, 7, 12, 7, 3, 0, 3, 7, 12, 15, 12, 7, 3, 7, 12 };
+	/** Duración de cada nota del arpegio en ms (semicorcheas a 120 ppm) */
+	private static final int NOTE_MILLIS = 125;
+	/** Amplitud del arpegio y del bajo */
+	private static final float LEAD = 5000, BASS = 7000;
+	
+	/** Frecuencia de muestreo */
+	private final int sampleRate;
+	/** Muestras por nota */
+	private final int noteLength;
+	/** Incremento de fase por muestra de cada nota y del bajo de cada acorde */
+	private final float[] leadStep, bassStep;
+	
+	/** Nota actual y muestra dentro de ella */
+	private int note, position;
+	/** Fase de las dos voces */
+	private float leadPhase, bassPhase;
+	
+	public SynthMusic() {
+		this(SoundData.SAMPLE_RATE);
+	}
+	
+	/**
+	 * @param sampleRate Frecuencia de muestreo en Hz
+	 */
+	public SynthMusic(int sampleRate) {
+		this.sampleRate = sampleRate;
+		this.noteLength = NOTE_MILLIS * sampleRate / 1000;
+		
+		leadStep = new float[CHORDS.length * ARPEGGIO.length];
+		bassStep = new float[CHORDS.length];
+		
+		for (int c=0;c<CHORDS.length;c++) {
+			bassStep[c] = frequency(CHORDS[c] - 24) / sampleRate;
+			
+			for (int n=0;n<ARPEGGIO.length;n++) {
+				int interval = ARPEGGIO[n];
+				// Tercera mayor en los acordes mayores
+				if (!MINOR[c] && interval % 12 == 3) {
+					interval++;
+				}
+				leadStep[c * ARPEGGIO.length + n] = frequency(CHORDS[c] + interval) / sampleRate;
+			}
+		}
+	}
+	
+	/**
+	 * @see org.maox.arkablock.audio.MusicStream#read
+	 */
+	@Override
+	public int read(short[] pcm, int offset, int length) {
+		for (int i=0;i<length;i++) {
+			if (position == noteLength) {
+				position = 0;
+				note = (note + 1) % leadStep.length;
+			}
+			
+			leadPhase += leadStep[note];
+			leadPhase -= (int) leadPhase;
+			bassPhase += bassStep[note / ARPEGGIO.length];
+			bassPhase -= (int) bassPhase;
+			
+			// Cada nota del arpegio se apaga a lo largo de su duración
+			float envelope = 1 - 0.7f * position / noteLength;
+			float lead = (leadPhase < 0.5f ? 1 : -1) * envelope * LEAD;
+			float bass = (1 - 4 * Math.abs(bassPhase - 0.5f)) * BASS;
+			
+			pcm[offset + i] = (short) (lead + bass);
+			position++;
+		}
+		
+		return length;
+	}
+	
+	/**
+	 * @see org.maox.arkablock.audio.MusicStream#getSampleRate
+	 */
+	@Override
+	public int getSampleRate() {
+		return sampleRate;
+	}
+	
+	/**
+	 * Frecuencia de una nota MIDI (la 69 es el La de 440 Hz)
+	 */
+	private static float frequency(int note) {
+		return (float) (440 * Math.pow(2, (note - 69) / 12.0));
+	}
+}
@@ -0,0 +1,225 @@
+package org.maox.arkablock.audio;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Motor de audio que mezcla las voces y la música en un fichero WAV en
+ * lugar de en la tarjeta de sonido (arkablock.audio=file:ruta.wav). El
+ * audio avanza con el reloj de la lógica: cada ciclo mezcla exactamente
+ * su duración, así una sesión reproducida sin ventana (a la velocidad que
+ * sea) genera siempre el mismo fichero y se puede escuchar o comparar.
+ * 
+ * Es un motor de pruebas: la escritura va al bucle de juego a través de un
+ * buffer, pero el disco puede bloquear en algún ciclo.
+ * 
+ * @author Alex
+ */
+public class WavAudioEngine extends AudioEngine {
+	/** Log */
+	private static final Logger logger = LoggerFactory.getLogger(WavAudioEngine.class);
+	
+	/** Frecuencia de la mezcla */
+	private static final int SAMPLE_RATE = SoundData.SAMPLE_RATE;
+	/** Muestras mezcladas por pasada */
+	private static final int CHUNK = 1024;
+	
+	/** Fichero de salida */
+	private final File file;
+	/** Salida (tras la cabecera) */
+	private final OutputStream out;
+	
+	/** Sonidos cargados */
+	private final SoundData[] sounds = new SoundData[MAX_SOUNDS];
+	/** Sonido de cada voz (-1 libre) */
+	private final int[] voiceSound;
+	/** Posición, avance por muestra de la mezcla y volumen de cada voz */
+	private final float[] voicePosition, voiceStep, voiceGain;
+	
+	/** Música (null sin música) y su volumen */
+	private MusicStream music;
+	private float musicGain;
+	
+	/** Mezcla en enteros, muestras de música y bytes de salida */
+	private final int[] mix = new int[CHUNK];
+	private final short[] musicPcm = new short[CHUNK];
+	private final byte[] bytes = new byte[CHUNK * 2];
+	
+	/** Reloj de la lógica en ms y muestras escritas */
+	private long clock, written;
+	
+	/**
+	 * @param file Fichero WAV de salida
+	 * @param voices Número de voces
+	 * @throws IOException Si no se puede crear el fichero
+	 */
+	public WavAudioEngine(File file, int voices) throws IOException {
+		super(voices);
+		this.file = file;
+		
+		voiceSound = new int[voices];
+		voicePosition = new float[voices];
+		voiceStep = new float[voices];
+		voiceGain = new float[voices];
+		for (int v=0;v<voices;v++) {
+			voiceSound[v] = -1;
+		}
+		
+		// Cabecera provisional, los tamaños se completan al cerrar
+		out = new BufferedOutputStream(new FileOutputStream(file), 64 * 1024);
+		out.write(SoundData.header(SAMPLE_RATE, 0));
+	}
+	
+	/**
+	 * Mezcla la duración del ciclo
+	 * @see org.maox.arkablock.audio.AudioEngine#update
+	 */
+	@Override
+	public void update(int delta) {
+		clock += delta;
+		long target = clock * SAMPLE_RATE / 1000;
+		
+		try {
+			while (written < target) {
+				int length = (int) Math.min(CHUNK, target - written);
+				mix(length);
+				out.write(bytes, 0, length * 2);
+				written += length;
+			}
+		}
+		catch (IOException e) {
+			logger.error("Error escribiendo el audio en "+file, e);
+			clock = written * 1000 / SAMPLE_RATE;
+		}
+	}
+	
+	/**
+	 * Mezcla las voces y la música en bytes
+	 */
+	private void mix(int length) {
+		for (int i=0;i<length;i++) {
+			mix[i] = 0;
+		}
+		
+		if (music != null) {
+			int read = music.read(musicPcm, 0, length);
+			for (int i=0;i<read;i++) {
+				mix[i] += (int) (musicPcm[i] * musicGain);
+			}
+			if (read == 0) {
+				music = null;
+			}
+		}
+		
+		for (int v=0;v<voiceSound.length;v++) {
+			if (voiceSound[v] < 0) {
+				continue;
+			}
+			
+			short[] samples = sounds[voiceSound[v]].getSamples();
+			float position = voicePosition[v];
+			float step = voiceStep[v];
+			float gain = voiceGain[v];
+			
+			for (int i=0;i<length && position < samples.length;i++) {
+				mix[i] += (int) (samples[(int) position] * gain);
+				position += step;
+			}
+			
+			voicePosition[v] = position;
+			if (position >= samples.length) {
+				voiceSound[v] = -1;
+			}
+		}
+		
+		for (int i=0;i<length;i++) {
+			int sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, mix[i]));
+			bytes[i * 2] = (byte) sample;
+			bytes[i * 2 + 1] = (byte) (sample >> 8);
+		}
+	}
+	
+	/**
+	 * @see org.maox.arkablock.audio.AudioEngine#playMusic
+	 */
+	@Override
+	public void playMusic(MusicStream music, float gain) {
+		this.music = music;
+		this.musicGain = gain;
+	}
+	
+	/**
+	 * @see org.maox.arkablock.audio.AudioEngine#stopMusic
+	 */
+	@Override
+	public void stopMusic() {
+		music = null;
+	}
+	
+	/**
+	 * @see org.maox.arkablock.audio.AudioEngine#createSound
+	 */
+	@Override
+	protected void createSound(int sound, SoundData data) {
+		sounds[sound] = data;
+	}
+	
+	/**
+	 * @see org.maox.arkablock.audio.AudioEngine#startVoice
+	 */
+	@Override
+	protected void startVoice(int voice, int sound, float gain, float pitch) {
+		voiceSound[voice] = sound;
+		voicePosition[voice] = 0;
+		voiceStep[voice] = pitch * sounds[sound].getSampleRate() / SAMPLE_RATE;
+		voiceGain[voice] = gain;
+	}
+	
+	/**
+	 * @see org.maox.arkablock.audio.AudioEngine#stopVoice
+	 */
+	@Override
+	protected void stopVoice(int voice) {
+		voiceSound[voice] = -1;
+	}
+	
+	/**
+	 * @see org.maox.arkablock.audio.AudioEngine#isPlaying
+	 */
+	@Override
+	protected boolean isPlaying(int voice) {
+		return voiceSound[voice] >= 0;
+	}
+	
+	/**
+	 * Cierra el fichero y completa la cabecera
+	 * @see org.maox.arkablock.audio.AudioEngine#destroy
+	 */
+	@Override
+	protected void destroy() {
+		try {
+			out.close();
+			
+			RandomAccessFile wav = new RandomAccessFile(file, "rw");
+			try {
+				wav.write(SoundData.header(SAMPLE_RATE, (int) written));
+			}
+			finally {
+				wav.close();
+			}
+			
+			logger.info("Audio escrito en "+file+": "+written * 1000 / SAMPLE_RATE+" ms, "
+					+getPlays()+" sonidos, "+getSteals()+" voces quitadas");
+		}
+		catch (IOException e) {
+			logger.error("Error cerrando el audio en "+file, e);
+		}
+	}
+}
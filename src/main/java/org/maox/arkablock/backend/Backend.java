@@ -0,0 +1,137 @@
+package org.maox.arkablock.backend;
+
+import java.io.IOException;
+
+import org.maox.arkablock.assets.TextureRegion;
+
+/**
+ * Abstracción de la plataforma sobre la que corre el juego: ventana, entrada
+ * y carga de recursos gráficos. Existen dos implementaciones:
+ *    1. GLBackend: ventana LWJGL con contexto OpenGL
+ *    2. HeadlessBackend: sin ventana ni contexto, para simular la lógica del
+ *       juego a máxima velocidad (integración continua, pruebas de rendimiento)
+ * 
+ * El backend se selecciona con la propiedad de sistema arkablock.headless
+ * o con el parámetro --headless de la linea de comandos.
+ * 
+ * @author Alex
+ */
+public abstract class Backend {
+
+	/** Propiedad de sistema que activa el modo sin ventana */
+	public static final String PROPERTY_HEADLESS = "arkablock.headless";
+	
+	/** Backend activo */
+	private static Backend instance;
+	
+	/**
+	 * Obtiene el backend activo. Si no se ha seleccionado ninguno se decide
+	 * a partir de la propiedad de sistema arkablock.headless
+	 * 
+	 * @return Backend activo
+	 */
+	public static synchronized Backend getInstance() {
+		if (instance == null) {
+			setHeadless(Boolean.getBoolean(PROPERTY_HEADLESS));
+		}
+		
+		return instance;
+	}
+	
+	/**
+	 * Selecciona el backend a usar. Debe llamarse antes de crear la ventana
+	 * y los estados de juego
+	 * 
+	 * @param headless true para ejecutar sin ventana ni contexto OpenGL
+	 */
+	public static synchronized void setHeadless(boolean headless) {
+		instance = headless ? new HeadlessBackend() : new GLBackend();
+	}
+	
+	/**
+	 * @return true si no existe ventana ni contexto OpenGL
+	 */
+	public abstract boolean isHeadless();
+	
+	/**
+	 * Crea la ventana de juego
+	 * 
+	 * @param title Titulo de la ventana
+	 * @param width Ancho en pixels
+	 * @param height Alto en pixels
+	 * @return false si el modo de video no está disponible
+	 * @throws Exception
+	 */
+	public abstract boolean createDisplay(String title, int width, int height) throws Exception;
+	
+	/**
+	 * Cambia el titulo de la ventana
+	 * 
+	 * @param title Nuevo titulo
+	 */
+	public abstract void setTitle(String title);
+	
+	/**
+	 * Presenta el frame renderizado (Doble Buffering) y procesa los mensajes
+	 * de la ventana
+	 */
+	public abstract void update();
+	
+	/**
+	 * @return true si el usuario ha solicitado el cierre de la ventana
+	 */
+	public abstract boolean isCloseRequested();
+	
+	/**
+	 * Consulta el estado de una tecla
+	 * 
+	 * @param key Código de tecla (Keyboard.KEY_*)
+	 * @return true si está pulsada
+	 */
+	public abstract boolean isKeyDown(int key);
+	
+	/**
+	 * Pide una textura. La carga es asíncrona: la textura se puede usar al
+	 * momento pero no se dibuja hasta que esté lista. Las imágenes del atlas
+	 * son regiones de una misma textura
+	 * 
+	 * @param ref Ruta de la textura en el classpath
+	 * @return Región de la textura o null si el backend no renderiza
+	 * @throws IOException
+	 */
+	public abstract TextureRegion getTexture(String ref) throws IOException;
+	
+	/**
+	 * Pide un modelo en formato OBJ. La carga es asíncrona como la de las
+	 * texturas, pero las dimensiones del modelo esperan a que se haya leido
+	 * 
+	 * @param ref Ruta del modelo en el classpath
+	 * @return Modelo
+	 * @throws IOException
+	 */
+	public abstract Model getModel(String ref) throws IOException;
+	
+	/**
+	 * Sube a la GPU los recursos ya decodificados. Se llama una vez por frame
+	 * desde el hilo de render
+	 * 
+	 * @param budget Tiempo máximo en ns (se sube al menos un recurso)
+	 * @return Recursos subidos
+	 */
+	public abstract int uploadAssets(long budget);
+	
+	/**
+	 * @return Fracción de los recursos pedidos que ya están cargados (0..1)
+	 */
+	public abstract float getLoadProgress();
+	
+	/**
+	 * Crea el modelo de una esfera
+	 * 
+	 * @param radius Radio de la esfera
+	 * @param slices Divisiones alrededor del eje Z
+	 * @param stacks Divisiones a lo largo del eje Z
+	 * @return Modelo de la esfera
+	 */
+	public abstract Model createSphere(float radius, int slices, int stacks);
+}
@@ -0,0 +1,141 @@
+package org.maox.arkablock.backend;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+
+import org.maox.arkablock.assets.BakedMesh;
+
+/**
+ * Modelo sin geometría que solo conserva sus dimensiones. Lo usa el backend
+ * headless para que las colisiones se comporten igual que con la ventana.
+ * 
+ * @author Alex
+ */
+class BoundsModel implements Model {
+	/** Modelos ya cargados (Se leen una sola vez) */
+	private static HashMap<String, BoundsModel> cache = new HashMap<String, BoundsModel>();
+	
+	/** Tamaño en X */
+	private float sizeX;
+	/** Tamaño en Y */
+	private float sizeY;
+	/** Si el modelo tiene coordenadas de textura */
+	private boolean textured;
+	
+	BoundsModel(float sizeX, float sizeY, boolean textured) {
+		this.sizeX = sizeX;
+		this.sizeY = sizeY;
+		this.textured = textured;
+	}
+	
+	/**
+	 * Calcula las dimensiones de un modelo OBJ recorriendo solo sus vertices,
+	 * o leyendo la cabecera de su versión precocinada si existe
+	 * 
+	 * @param ref Ruta del modelo en el classpath
+	 * @return Modelo con las dimensiones del OBJ
+	 * @throws IOException
+	 */
+	static synchronized BoundsModel load(String ref) throws IOException {
+		BoundsModel model = cache.get(ref);
+		
+		if (model != null) {
+			return model;
+		}
+		
+		// Con el modelo precocinado basta con leer su cabecera
+		InputStream in = BoundsModel.class.getClassLoader().getResourceAsStream(BakedMesh.bakedRef(ref));
+		
+		if (in != null) {
+			model = loadBaked(in);
+			cache.put(ref, model);
+			
+			return model;
+		}
+		
+		in = BoundsModel.class.getClassLoader().getResourceAsStream(ref);
+		
+		if (in == null) {
+			throw new IOException("No se encuentra el modelo: "+ref);
+		}
+		
+		float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+		float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+		boolean textured = false;
+		
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith("vt ")) {
+					textured = true;
+				}
+				else if (line.startsWith("v ")) {
+					String[] values = line.trim().split("\\s+");
+					float x = Float.parseFloat(values[1]);
+					float y = Float.parseFloat(values[2]);
+					
+					minX = Math.min(minX, x);
+					maxX = Math.max(maxX, x);
+					minY = Math.min(minY, y);
+					maxY = Math.max(maxY, y);
+				}
+			}
+		}
+		finally {
+			reader.close();
+		}
+		
+		model = new BoundsModel(maxX - minX, maxY - minY, textured);
+		cache.put(ref, model);
+		
+		return model;
+	}
+
+	/**
+	 * Dimensiones a partir de la cabecera de un modelo precocinado
+	 */
+	private static BoundsModel loadBaked(InputStream in) throws IOException {
+		byte[] header = new byte[BakedMesh.HEADER_SIZE];
+		
+		try {
+			new DataInputStream(in).readFully(header);
+		}
+		finally {
+			in.close();
+		}
+		
+		float[] bounds = BakedMesh.readBounds(ByteBuffer.wrap(header));
+		boolean textured = ((int) bounds[6] & BakedMesh.FLAG_TEXTURED) != 0;
+		
+		return new BoundsModel(bounds[3] - bounds[0], bounds[4] - bounds[1], textured);
+	}
+
+	@Override
+	public void render() {
+	}
+
+	@Override
+	public void dispose() {
+	}
+
+	@Override
+	public boolean hasTexture() {
+		return textured;
+	}
+
+	@Override
+	public float getSizeX() {
+		return sizeX;
+	}
+
+	@Override
+	public float getSizeY() {
+		return sizeY;
+	}
+}
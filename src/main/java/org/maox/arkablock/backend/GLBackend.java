@@ -0,0 +1,127 @@
+package org.maox.arkablock.backend;
+
+import java.io.IOException;
+
+import org.lwjgl.input.Keyboard;
+import org.lwjgl.opengl.Display;
+import org.lwjgl.opengl.DisplayMode;
+import org.maox.arkablock.assets.AssetManager;
+import org.maox.arkablock.assets.TextureRegion;
+import org.maox.graphics.Graphics;
+
+/**
+ * Backend sobre LWJGL: ventana, teclado y recursos en OpenGL
+ * 
+ * @author Alex
+ */
+public class GLBackend extends Backend {
+
+	/**
+	 * @see org.maox.arkablock.backend.Backend#isHeadless()
+	 */
+	@Override
+	public boolean isHeadless() {
+		return false;
+	}
+
+	/**
+	 * @see org.maox.arkablock.backend.Backend#createDisplay(String, int, int)
+	 */
+	@Override
+	public boolean createDisplay(String title, int width, int height) throws Exception {
+		// Obtener cuantos Bits por Pixel hay actualmente en el escritorio
+		int currentBpp = Display.getDisplayMode().getBitsPerPixel();
+		
+		// Encontrar el DisplayMode pedido
+		DisplayMode mode = Graphics.findDisplayMode(width, height, currentBpp);
+		
+		// Si el modo no está disponible salir con error.
+		if (mode == null) {
+			return false;
+		}
+		
+		// Configurar y crear el display LWJGL
+		Display.setTitle(title);
+		Display.setDisplayMode(mode);
+		Display.setFullscreen(false);
+		
+		// Creación de la ventana (Vista)
+		Display.create();
+		
+		return true;
+	}
+
+	/**
+	 * @see org.maox.arkablock.backend.Backend#setTitle(String)
+	 */
+	@Override
+	public void setTitle(String title) {
+		Display.setTitle(title);
+	}
+
+	/**
+	 * @see org.maox.arkablock.backend.Backend#update()
+	 */
+	@Override
+	public void update() {
+		// El resfresco se realiza por Doble Buffering
+		// Como efecto secundario se comprobará el teclado / ratón y controladores
+		Display.update();
+	}
+
+	/**
+	 * @see org.maox.arkablock.backend.Backend#isCloseRequested()
+	 */
+	@Override
+	public boolean isCloseRequested() {
+		return Display.isCloseRequested();
+	}
+
+	/**
+	 * @see org.maox.arkablock.backend.Backend#isKeyDown(int)
+	 */
+	@Override
+	public boolean isKeyDown(int key) {
+		return Keyboard.isKeyDown(key);
+	}
+
+	/**
+	 * @see org.maox.arkablock.backend.Backend#getTexture(String)
+	 */
+	@Override
+	public TextureRegion getTexture(String ref) throws IOException {
+		return AssetManager.getInstance().getTexture(ref);
+	}
+
+	/**
+	 * @see org.maox.arkablock.backend.Backend#getModel(String)
+	 */
+	@Override
+	public Model getModel(String ref) throws IOException {
+		return AssetManager.getInstance().getModel(ref);
+	}
+
+	/**
+	 * @see org.maox.arkablock.backend.Backend#uploadAssets(long)
+	 */
+	@Override
+	public int uploadAssets(long budget) {
+		return AssetManager.getInstance().upload(budget);
+	}
+
+	/**
+	 * @see org.maox.arkablock.backend.Backend#getLoadProgress()
+	 */
+	@Override
+	public float getLoadProgress() {
+		return AssetManager.getInstance().getProgress();
+	}
+
+	/**
+	 * @see org.maox.arkablock.backend.Backend#createSphere(float, int, int)
+	 */
+	@Override
+	public Model createSphere(float radius, int slices, int stacks) {
+		return new GLSphereModel(radius, slices, stacks);
+	}
+}
@@ -0,0 +1,72 @@
+package org.maox.arkablock.backend;
+
+import static org.lwjgl.opengl.GL11.GL_COMPILE;
+import static org.lwjgl.opengl.GL11.glCallList;
+import static org.lwjgl.opengl.GL11.glDeleteLists;
+import static org.lwjgl.opengl.GL11.glEndList;
+import static org.lwjgl.opengl.GL11.glGenLists;
+import static org.lwjgl.opengl.GL11.glNewList;
+
+import org.lwjgl.util.glu.Sphere;
+
+/**
+ * Esfera compilada en un Display List de OpenGL
+ * 
+ * @author Alex
+ */
+class GLSphereModel implements Model {
+	/** Identificador del Display List que indentifica este modelo */
+	private int listID;
+	/** Radio de la esfera */
+	private float radius;
+	
+	/**
+	 * Creación del modelo de la esfera
+	 */
+	GLSphereModel(float radius, int slices, int stacks) {
+		this.radius = radius;
+		
+		Sphere sphere = new Sphere();
+
+		//Se genera el identificador del Display List
+		listID = glGenLists(1);
+		
+		// Comienzo de las instrucciones del modelo
+		glNewList(listID, GL_COMPILE);
+		
+		sphere.draw(radius, slices, stacks);
+		
+		glEndList();
+	}
+
+	@Override
+	public void render() {
+		glCallList(listID);
+	}
+
+	/**
+	 * Borrado del Display List
+	 */
+	@Override
+	public void dispose() {
+		if (listID != 0) {
+			glDeleteLists(listID, 1);
+			listID = 0;
+		}
+	}
+
+	@Override
+	public boolean hasTexture() {
+		return true;
+	}
+
+	@Override
+	public float getSizeX() {
+		return radius*2;
+	}
+
+	@Override
+	public float getSizeY() {
+		return radius*2;
+	}
+}
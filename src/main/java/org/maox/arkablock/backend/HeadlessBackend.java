@@ -0,0 +1,79 @@
+package org.maox.arkablock.backend;
+
+import java.io.IOException;
+
+import org.maox.arkablock.assets.TextureRegion;
+
+/**
+ * Backend sin ventana ni contexto OpenGL. Permite ejecutar la lógica de los
+ * estados y entidades a máxima velocidad de CPU en maquinas sin GPU.
+ * No se renderiza nada, no hay entrada de teclado y los modelos solo
+ * conservan sus dimensiones.
+ * 
+ * @author Alex
+ */
+public class HeadlessBackend extends Backend {
+
+	@Override
+	public boolean isHeadless() {
+		return true;
+	}
+
+	@Override
+	public boolean createDisplay(String title, int width, int height) {
+		return true;
+	}
+
+	@Override
+	public void setTitle(String title) {
+	}
+
+	@Override
+	public void update() {
+	}
+
+	@Override
+	public boolean isCloseRequested() {
+		return false;
+	}
+
+	@Override
+	public boolean isKeyDown(int key) {
+		return false;
+	}
+
+	/**
+	 * Sin contexto OpenGL no hay texturas
+	 * @return null
+	 */
+	@Override
+	public TextureRegion getTexture(String ref) {
+		return null;
+	}
+
+	@Override
+	public Model getModel(String ref) throws IOException {
+		return BoundsModel.load(ref);
+	}
+
+	/**
+	 * Sin contexto OpenGL no hay nada que subir
+	 */
+	@Override
+	public int uploadAssets(long budget) {
+		return 0;
+	}
+
+	/**
+	 * Los modelos se leen al pedirlos y no hay texturas
+	 */
+	@Override
+	public float getLoadProgress() {
+		return 1;
+	}
+
+	@Override
+	public Model createSphere(float radius, int slices, int stacks) {
+		return new BoundsModel(radius*2, radius*2, false);
+	}
+}
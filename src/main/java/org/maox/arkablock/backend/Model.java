@@ -0,0 +1,37 @@
+package org.maox.arkablock.backend;
+
+/**
+ * Modelo renderizable con independencia del backend que lo haya creado.
+ * En modo headless sólo se conservan sus dimensiones (necesarias para
+ * las colisiones) y el renderizado no hace nada.
+ * 
+ * @author Alex
+ */
+public interface Model {
+
+	/**
+	 * Renderiza el modelo en la posición actual de la matriz de transformación
+	 */
+	public void render();
+
+	/**
+	 * @return true si el modelo tiene coordenadas de textura
+	 */
+	public boolean hasTexture();
+
+	/**
+	 * @return Tamaño del modelo en el eje X (sin escalar)
+	 */
+	public float getSizeX();
+
+	/**
+	 * @return Tamaño del modelo en el eje Y (sin escalar)
+	 */
+	public float getSizeY();
+
+	/**
+	 * Libera los recursos del modelo (Display Lists, buffers). El modelo no
+	 * se puede dibujar después
+	 */
+	public void dispose();
+}
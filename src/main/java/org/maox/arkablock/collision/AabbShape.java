@@ -0,0 +1,27 @@
+package org.maox.arkablock.collision;
+
+/**
+ * Caja alineada con los ejes
+ * 
+ * @author Alex
+ */
+public class AabbShape extends CollisionShape {
+	
+	/**
+	 * @param halfWidth Semieje X
+	 * @param halfHeight Semieje Y
+	 */
+	public AabbShape(float halfWidth, float halfHeight) {
+		super(halfWidth, halfHeight);
+	}
+	
+	/**
+	 * @see org.maox.arkablock.collision.CollisionShape#sweep
+	 */
+	@Override
+	public boolean sweep(float cx, float cy, float x, float y, float dx, float dy, float r,
+			Hit hit, SweepTarget target, int index) {
+		return Sweep.circleAabb(x, y, dx, dy, r, cx - getHalfWidth(), cy - getHalfHeight(),
+				cx + getHalfWidth(), cy + getHalfHeight(), hit, target, index);
+	}
+}
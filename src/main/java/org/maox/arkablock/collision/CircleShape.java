@@ -0,0 +1,35 @@
+package org.maox.arkablock.collision;
+
+/**
+ * Circulo
+ * 
+ * @author Alex
+ */
+public class CircleShape extends CollisionShape {
+	/** Radio */
+	private final float radius;
+	
+	/**
+	 * @param radius Radio
+	 */
+	public CircleShape(float radius) {
+		super(radius, radius);
+		this.radius = radius;
+	}
+	
+	/**
+	 * @return Radio
+	 */
+	public float getRadius() {
+		return radius;
+	}
+	
+	/**
+	 * @see org.maox.arkablock.collision.CollisionShape#sweep
+	 */
+	@Override
+	public boolean sweep(float cx, float cy, float x, float y, float dx, float dy, float r,
+			Hit hit, SweepTarget target, int index) {
+		return Sweep.circleCircle(x, y, dx, dy, r, cx, cy, radius, hit, target, index);
+	}
+}
@@ -0,0 +1,54 @@
+package org.maox.arkablock.collision;
+
+/**
+ * Forma de colisión de una entidad, centrada en su posición. Es inmutable:
+ * se calcula una vez a partir del modelo y su escala (ver Shaped) y las
+ * comprobaciones ya no consultan el modelo en cada llamada.
+ * 
+ * @author Alex
+ */
+public abstract class CollisionShape {
+	/** Semiejes de la caja que envuelve la forma */
+	private final float halfWidth, halfHeight;
+	
+	/**
+	 * @param halfWidth Semieje X de la caja envolvente
+	 * @param halfHeight Semieje Y de la caja envolvente
+	 */
+	protected CollisionShape(float halfWidth, float halfHeight) {
+		this.halfWidth = halfWidth;
+		this.halfHeight = halfHeight;
+	}
+	
+	/**
+	 * @return Semieje X de la caja envolvente
+	 */
+	public final float getHalfWidth() {
+		return halfWidth;
+	}
+	
+	/**
+	 * @return Semieje Y de la caja envolvente
+	 */
+	public final float getHalfHeight() {
+		return halfHeight;
+	}
+	
+	/**
+	 * Barrido de un circulo contra la forma situada en (cx, cy)
+	 * 
+	 * @param cx Posición de la forma
+	 * @param cy Posición de la forma
+	 * @param x Centro del circulo
+	 * @param y Centro del circulo
+	 * @param dx Desplazamiento del circulo en X
+	 * @param dy Desplazamiento del circulo en Y
+	 * @param r Radio del circulo
+	 * @param hit Impacto encontrado hasta ahora (se actualiza si este es anterior)
+	 * @param target Sólido al que pertenece la forma
+	 * @param index Dato adicional del sólido para el impacto
+	 * @return true si se ha actualizado el impacto
+	 */
+	public abstract boolean sweep(float cx, float cy, float x, float y, float dx, float dy, float r,
+			Hit hit, SweepTarget target, int index);
+}
@@ -0,0 +1,89 @@
+package org.maox.arkablock.collision;
+
+/**
+ * Forma compuesta de varias formas desplazadas respecto a su centro. El
+ * barrido se queda con el primer impacto contra cualquiera de las partes.
+ * 
+ * @author Alex
+ */
+public class CompoundShape extends CollisionShape {
+	/** Partes de la forma */
+	private final CollisionShape[] parts;
+	/** Desplazamiento de cada parte respecto al centro */
+	private final float[] offsetX, offsetY;
+	
+	/**
+	 * @param parts Partes de la forma
+	 * @param offsetX Desplazamiento en X de cada parte
+	 * @param offsetY Desplazamiento en Y de cada parte
+	 */
+	public CompoundShape(CollisionShape[] parts, float[] offsetX, float[] offsetY) {
+		super(halfWidth(parts, offsetX), halfHeight(parts, offsetY));
+		
+		// Copias para que la forma no cambie aunque cambien los arrays
+		this.parts = parts.clone();
+		this.offsetX = offsetX.clone();
+		this.offsetY = offsetY.clone();
+	}
+	
+	/**
+	 * Cápsula horizontal: una caja con dos semicirculos en los extremos (la
+	 * forma de la nave). Si es más alta que ancha queda en un circulo
+	 * 
+	 * @param width Ancho total
+	 * @param height Alto (diámetro de los extremos)
+	 * @return Forma de la cápsula
+	 */
+	public static CollisionShape capsule(float width, float height) {
+		float radius = height / 2;
+		float half = width / 2 - radius;
+		
+		if (half <= 0) {
+			return new CircleShape(Math.max(width, height) / 2);
+		}
+		
+		CircleShape end = new CircleShape(radius);
+		
+		return new CompoundShape(
+				new CollisionShape[] { new AabbShape(half, radius), end, end },
+				new float[] { 0, -half, half },
+				new float[] { 0, 0, 0 });
+	}
+	
+	/**
+	 * @see org.maox.arkablock.collision.CollisionShape#sweep
+	 */
+	@Override
+	public boolean sweep(float cx, float cy, float x, float y, float dx, float dy, float r,
+			Hit hit, SweepTarget target, int index) {
+		// Descarte rápido: el recorrido del circulo no llega a la caja envolvente
+		if (Math.min(x, x + dx) - r > cx + getHalfWidth() || Math.max(x, x + dx) + r < cx - getHalfWidth()
+				|| Math.min(y, y + dy) - r > cy + getHalfHeight() || Math.max(y, y + dy) + r < cy - getHalfHeight()) {
+			return false;
+		}
+		
+		boolean found = false;
+		
+		for (int i=0;i<parts.length;i++) {
+			found |= parts[i].sweep(cx + offsetX[i], cy + offsetY[i], x, y, dx, dy, r, hit, target, index);
+		}
+		
+		return found;
+	}
+	
+	private static float halfWidth(CollisionShape[] parts, float[] offsetX) {
+		float half = 0;
+		for (int i=0;i<parts.length;i++) {
+			half = Math.max(half, Math.abs(offsetX[i]) + parts[i].getHalfWidth());
+		}
+		return half;
+	}
+	
+	private static float halfHeight(CollisionShape[] parts, float[] offsetY) {
+		float half = 0;
+		for (int i=0;i<parts.length;i++) {
+			half = Math.max(half, Math.abs(offsetY[i]) + parts[i].getHalfHeight());
+		}
+		return half;
+	}
+}
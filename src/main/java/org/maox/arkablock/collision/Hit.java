@@ -0,0 +1,55 @@
+package org.maox.arkablock.collision;
+
+/**
+ * Resultado de un barrido: el primer impacto encontrado en el desplazamiento.
+ * Se reutiliza entre ciclos para no crear objetos en cada comprobación.
+ * 
+ * @author Alex
+ */
+public class Hit {
+	/** Instante del impacto como fracción [0, 1] del desplazamiento */
+	public float time;
+	/** Normal de la superficie en el punto de impacto (unitaria) */
+	public float normalX, normalY;
+	/** Sólido contra el que se ha producido el impacto */
+	public SweepTarget target;
+	/** Dato adicional del sólido (p.e. la celda del ladrillo golpeado) */
+	public int index;
+
+	/**
+	 * Prepara el impacto para un nuevo barrido (sin impacto encontrado)
+	 */
+	public void reset() {
+		time = Float.MAX_VALUE;
+		normalX = 0;
+		normalY = 0;
+		target = null;
+		index = -1;
+	}
+
+	/**
+	 * @return true si el barrido ha encontrado algún impacto
+	 */
+	public boolean found() {
+		return target != null;
+	}
+	
+	/**
+	 * Registra un impacto si es anterior al que ya se tiene
+	 * 
+	 * @return true si se ha registrado
+	 */
+	public boolean offer(float time, float normalX, float normalY, SweepTarget target, int index) {
+		if (time >= this.time) {
+			return false;
+		}
+		
+		this.time = time;
+		this.normalX = normalX;
+		this.normalY = normalY;
+		this.target = target;
+		this.index = index;
+		
+		return true;
+	}
+}
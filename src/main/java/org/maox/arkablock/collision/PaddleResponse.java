@@ -0,0 +1,71 @@
+package org.maox.arkablock.collision;
+
+import org.maox.arkablock.entities.Ball;
+
+/**
+ * Rebote de la bola en la nave por ángulos: la dirección de salida depende
+ * del punto de la nave en el que golpea (en el centro sale vertical y hacia
+ * los extremos cada vez más inclinada) y de la velocidad de la nave, que
+ * desplaza el punto de golpeo en el sentido en que se mueve. La bola
+ * conserva su velocidad, limitada a la máxima.
+ * 
+ * Las direcciones están precalculadas en una tabla al crear la respuesta, de
+ * modo que el rebote no calcula senos ni cosenos. La tabla se calcula con
+ * StrictMath para que sea idéntica en cualquier máquina y las sesiones
+ * grabadas se reproduzcan igual.
+ * 
+ * @author Alex
+ */
+public class PaddleResponse {
+	/** Entradas de la tabla (impar, para que el centro sea exacto) */
+	public static final int TABLE_SIZE = 257;
+	/** Escala del desplazamiento [-1, 1] a la entrada de la tabla */
+	private static final float HALF = (TABLE_SIZE - 1) / 2f;
+	
+	/** Componentes X e Y de la dirección de salida de cada entrada */
+	private final float[] directionX = new float[TABLE_SIZE];
+	private final float[] directionY = new float[TABLE_SIZE];
+	/** Desplazamiento del punto de golpeo por cada pixel/s de la nave */
+	private final float spin;
+	
+	/**
+	 * @param maxAngle Ángulo de salida respecto a la vertical en los extremos, en grados
+	 * @param spin Desplazamiento del punto de golpeo (en fracciones del semiancho)
+	 * por cada pixel/s de velocidad de la nave
+	 */
+	public PaddleResponse(float maxAngle, float spin) {
+		this.spin = spin;
+		
+		for (int i=0;i<TABLE_SIZE;i++) {
+			double angle = StrictMath.toRadians(maxAngle * (i / HALF - 1));
+			directionX[i] = (float) StrictMath.sin(angle);
+			directionY[i] = (float) -StrictMath.cos(angle);
+		}
+	}
+	
+	/**
+	 * Aplica el rebote a la bola
+	 * 
+	 * @param ball Bola que golpea la nave
+	 * @param offset Punto de golpeo respecto al centro de la nave (-1 extremo
+	 * izquierdo, 1 extremo derecho)
+	 * @param paddleVelocity Velocidad horizontal de la nave en pixels/s
+	 */
+	public void apply(Ball ball, float offset, float paddleVelocity) {
+		float velocityX = ball.getVelocityX();
+		float velocityY = ball.getVelocityY();
+		float speed = (float) Math.sqrt(velocityX * velocityX + velocityY * velocityY);
+		
+		if (speed > ball.getMaxSpeed()) {
+			speed = ball.getMaxSpeed();
+		}
+		
+		float x = offset + paddleVelocity * spin;
+		if (x < -1) x = -1;
+		if (x > 1) x = 1;
+		
+		int i = (int) ((x + 1) * HALF + 0.5f);
+		
+		ball.launch(directionX[i] * speed, directionY[i] * speed);
+	}
+}
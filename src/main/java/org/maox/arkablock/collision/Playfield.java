@@ -0,0 +1,71 @@
+package org.maox.arkablock.collision;
+
+import org.maox.arkablock.audio.Sounds;
+import org.maox.arkablock.entities.Ball;
+
+/**
+ * Paredes del area de juego. La bola rebota contra ellas por barrido.
+ * 
+ * @author Alex
+ */
+public class Playfield implements SweepTarget {
+	/** Dimensiones del area de juego */
+	private final float width, height;
+	/** Si la pared inferior es sólida */
+	private boolean bottomWall = true;
+
+	/**
+	 * @param width Ancho del area de juego
+	 * @param height Alto del area de juego
+	 */
+	public Playfield(float width, float height) {
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * @see org.maox.arkablock.collision.SweepTarget#sweep
+	 */
+	@Override
+	public boolean sweep(float x, float y, float dx, float dy, float radius, Hit hit) {
+		return Sweep.circleInsideBox(x, y, dx, dy, radius, 0, 0, width, height, true, true, true, bottomWall, hit, this);
+	}
+
+	/**
+	 * Rebote contra la pared
+	 * @see org.maox.arkablock.collision.SweepTarget#hit
+	 */
+	@Override
+	public void hit(Ball ball, Hit hit) {
+		ball.reflect(hit.normalX, hit.normalY);
+	}
+
+	/**
+	 * @see org.maox.arkablock.collision.SweepTarget#getHitSound
+	 */
+	@Override
+	public int getHitSound() {
+		return Sounds.WALL;
+	}
+
+	/**
+	 * @return Ancho del area de juego
+	 */
+	public float getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return Alto del area de juego
+	 */
+	public float getHeight() {
+		return height;
+	}
+
+	/**
+	 * @param bottomWall true si la bola rebota en la parte inferior
+	 */
+	public void setBottomWall(boolean bottomWall) {
+		this.bottomWall = bottomWall;
+	}
+}
@@ -0,0 +1,15 @@
+package org.maox.arkablock.collision;
+
+/**
+ * Entidad con forma de colisión precalculada
+ * 
+ * @author Alex
+ */
+public interface Shaped {
+	
+	/**
+	 * @return Forma de colisión centrada en la posición de la entidad (null
+	 * mientras no se conocen sus dimensiones, p.e. con el modelo cargando)
+	 */
+	public CollisionShape getShape();
+}
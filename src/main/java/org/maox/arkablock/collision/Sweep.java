@@ -0,0 +1,226 @@
+package org.maox.arkablock.collision;
+
+/**
+ * Cálculo del instante de impacto (time of impact) de un circulo en movimiento
+ * contra cajas alineadas con los ejes. Al ser continuo la bola no puede
+ * atravesar un sólido aunque se mueva muy rápido o el ciclo sea largo.
+ * 
+ * @author Alex
+ */
+public final class Sweep {
+
+	private Sweep() {
+	}
+
+	/**
+	 * Barrido de un circulo contra una caja (AABB). La caja se agranda con el
+	 * radio del circulo (suma de Minkowski) y se lanza un rayo desde el centro;
+	 * en las esquinas la suma es redondeada y se resuelve como rayo contra circulo.
+	 * 
+	 * Si el circulo ya solapa la caja solo hay impacto (en t = 0) cuando se
+	 * mueve hacia ella, para que un contacto previo no lo deje atrapado.
+	 * 
+	 * @param x Centro del circulo
+	 * @param y Centro del circulo
+	 * @param dx Desplazamiento del circulo en X
+	 * @param dy Desplazamiento del circulo en Y
+	 * @param r Radio del circulo
+	 * @param hit Impacto encontrado hasta ahora (se actualiza si este es anterior)
+	 * @param target Sólido al que pertenece la caja
+	 * @param index Dato adicional del sólido para el impacto
+	 * @return true si se ha actualizado el impacto
+	 */
+	public static boolean circleAabb(float x, float y, float dx, float dy, float r,
+			float minX, float minY, float maxX, float maxY,
+			Hit hit, SweepTarget target, int index) {
+
+		// Punto de la caja más cercano al centro
+		float qx = x < minX ? minX : (x > maxX ? maxX : x);
+		float qy = y < minY ? minY : (y > maxY ? maxY : y);
+		float ox = x - qx;
+		float oy = y - qy;
+		float dist2 = ox * ox + oy * oy;
+
+		// Solapamiento inicial
+		if (dist2 < r * r) {
+			float nx, ny;
+
+			if (dist2 > 0) {
+				float inv = 1f / (float) Math.sqrt(dist2);
+				nx = ox * inv;
+				ny = oy * inv;
+			}
+			else {
+				// Centro dentro de la caja: normal del lado más cercano
+				float left = x - minX, right = maxX - x, top = y - minY, bottom = maxY - y;
+				float min = Math.min(Math.min(left, right), Math.min(top, bottom));
+				nx = min == left ? -1 : (min == right ? 1 : 0);
+				ny = nx != 0 ? 0 : (min == top ? -1 : 1);
+			}
+
+			if (dx * nx + dy * ny < 0) {
+				return hit.offer(0, nx, ny, target, index);
+			}
+			return false;
+		}
+
+		// Rayo contra la caja agrandada con el radio (método de los slabs)
+		float tEnter = -Float.MAX_VALUE, tExit = 1;
+		float nx = 0, ny = 0;
+
+		if (dx != 0) {
+			float inv = 1f / dx;
+			float t1 = (minX - r - x) * inv;
+			float t2 = (maxX + r - x) * inv;
+			if (t1 > t2) { float tmp = t1; t1 = t2; t2 = tmp; }
+			if (t1 > tEnter) { tEnter = t1; nx = dx > 0 ? -1 : 1; ny = 0; }
+			if (t2 < tExit) tExit = t2;
+		}
+		else if (x < minX - r || x > maxX + r) {
+			return false;
+		}
+
+		if (dy != 0) {
+			float inv = 1f / dy;
+			float t1 = (minY - r - y) * inv;
+			float t2 = (maxY + r - y) * inv;
+			if (t1 > t2) { float tmp = t1; t1 = t2; t2 = tmp; }
+			if (t1 > tEnter) { tEnter = t1; nx = 0; ny = dy > 0 ? -1 : 1; }
+			if (t2 < tExit) tExit = t2;
+		}
+		else if (y < minY - r || y > maxY + r) {
+			return false;
+		}
+
+		// Sin cruce, rozando el borde o saliendo de la caja no hay impacto
+		if (tEnter >= tExit || tExit <= 0 || tEnter >= hit.time) {
+			return false;
+		}
+
+		// Si el punto de entrada queda fuera de la caja original en los dos ejes
+		// el impacto es contra la esquina redondeada
+		float t0 = tEnter > 0 ? tEnter : 0;
+		float px = x + dx * t0;
+		float py = y + dy * t0;
+		
+		if ((px < minX || px > maxX) && (py < minY || py > maxY)) {
+			float cx = px < minX ? minX : maxX;
+			float cy = py < minY ? minY : maxY;
+			float t = circle(x, y, dx, dy, cx, cy, r);
+
+			if (t < 0) {
+				return false;
+			}
+			
+			float invR = 1f / r;
+			return hit.offer(t, (x + dx * t - cx) * invR, (y + dy * t - cy) * invR, target, index);
+		}
+
+		// Dentro de la caja agrandada sin solapar solo se puede estar en una esquina
+		if (tEnter < 0) {
+			return false;
+		}
+
+		return hit.offer(tEnter, nx, ny, target, index);
+	}
+
+	/**
+	 * Barrido de un circulo contra otro circulo fijo: rayo desde el centro
+	 * contra el circulo de radio suma. Como en circleAabb, si ya se solapan
+	 * solo hay impacto (en t = 0) cuando se mueve hacia él.
+	 *
+	 * @param x Centro del circulo en movimiento
+	 * @param y Centro del circulo en movimiento
+	 * @param dx Desplazamiento en X
+	 * @param dy Desplazamiento en Y
+	 * @param r Radio del circulo en movimiento
+	 * @param cx Centro del circulo fijo
+	 * @param cy Centro del circulo fijo
+	 * @param radius Radio del circulo fijo
+	 * @param hit Impacto encontrado hasta ahora (se actualiza si este es anterior)
+	 * @param target Sólido al que pertenece el circulo
+	 * @param index Dato adicional del sólido para el impacto
+	 * @return true si se ha actualizado el impacto
+	 */
+	public static boolean circleCircle(float x, float y, float dx, float dy, float r,
+			float cx, float cy, float radius, Hit hit, SweepTarget target, int index) {
+
+		float sum = r + radius;
+		float ox = x - cx;
+		float oy = y - cy;
+		float dist2 = ox * ox + oy * oy;
+
+		// Solapamiento inicial
+		if (dist2 < sum * sum) {
+			if (dist2 == 0 || dx * ox + dy * oy >= 0) {
+				return false;
+			}
+
+			float inv = 1f / (float) Math.sqrt(dist2);
+			return hit.offer(0, ox * inv, oy * inv, target, index);
+		}
+
+		float t = circle(x, y, dx, dy, cx, cy, sum);
+
+		if (t < 0 || t >= hit.time) {
+			return false;
+		}
+
+		float inv = 1f / sum;
+		return hit.offer(t, (x + dx * t - cx) * inv, (y + dy * t - cy) * inv, target, index);
+	}
+
+	/**
+	 * Barrido de un circulo por el interior de un rectángulo (paredes del area
+	 * de juego). Las paredes activas se indican con los flags.
+	 * 
+	 * @return true si se ha actualizado el impacto
+	 */
+	public static boolean circleInsideBox(float x, float y, float dx, float dy, float r,
+			float minX, float minY, float maxX, float maxY,
+			boolean left, boolean top, boolean right, boolean bottom,
+			Hit hit, SweepTarget target) {
+		
+		boolean found = false;
+		
+		if (left && dx < 0 && x + dx - r < minX) {
+			found |= hit.offer(clamp((minX + r - x) / dx), 1, 0, target, 0);
+		}
+		if (right && dx > 0 && x + dx + r > maxX) {
+			found |= hit.offer(clamp((maxX - r - x) / dx), -1, 0, target, 1);
+		}
+		if (top && dy < 0 && y + dy - r < minY) {
+			found |= hit.offer(clamp((minY + r - y) / dy), 0, 1, target, 2);
+		}
+		if (bottom && dy > 0 && y + dy + r > maxY) {
+			found |= hit.offer(clamp((maxY - r - y) / dy), 0, -1, target, 3);
+		}
+		
+		return found;
+	}
+
+	/**
+	 * Rayo contra circulo
+	 * 
+	 * @return Primer instante [0, 1] en el que el rayo toca el circulo o -1
+	 */
+	private static float circle(float x, float y, float dx, float dy, float cx, float cy, float r) {
+		float fx = x - cx;
+		float fy = y - cy;
+		float a = dx * dx + dy * dy;
+		float b = 2 * (fx * dx + fy * dy);
+		float c = fx * fx + fy * fy - r * r;
+		float disc = b * b - 4 * a * c;
+
+		if (a == 0 || disc < 0) {
+			return -1;
+		}
+
+		float t = (-b - (float) Math.sqrt(disc)) / (2 * a);
+		return t >= 0 && t <= 1 ? t : -1;
+	}
+
+	private static float clamp(float t) {
+		return t < 0 ? 0 : (t > 1 ? 1 : t);
+	}
+}
@@ -0,0 +1,37 @@
+package org.maox.arkablock.collision;
+
+import org.maox.arkablock.entities.Ball;
+
+/**
+ * Sólido contra el que la bola comprueba su desplazamiento de forma continua
+ * (barrido), en lugar de comprobar solapamientos en posiciones discretas.
+ * 
+ * @author Alex
+ */
+public interface SweepTarget {
+
+	/**
+	 * Busca el primer impacto de un circulo que se desplaza desde (x, y)
+	 * hasta (x + dx, y + dy)
+	 * 
+	 * @param hit Impacto encontrado hasta ahora. Solo se actualiza si el 
+	 *        impacto con este sólido es anterior
+	 * @return true si se ha actualizado el impacto
+	 */
+	public boolean sweep(float x, float y, float dx, float dy, float radius, Hit hit);
+
+	/**
+	 * Respuesta al impacto de la bola contra este sólido. La bola ya está
+	 * situada en el punto de contacto
+	 * 
+	 * @param ball Bola que impacta
+	 * @param hit Datos del impacto
+	 */
+	public void hit(Ball ball, Hit hit);
+	
+	/**
+	 * @return Sonido del impacto de la bola (Sounds), o Sounds.NONE si el
+	 *         sólido no suena o suena por su cuenta
+	 */
+	public int getHitSound();
+}
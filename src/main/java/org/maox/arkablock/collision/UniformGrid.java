@@ -0,0 +1,220 @@
+package org.maox.arkablock.collision;
+
+import java.util.Arrays;
+
+/**
+ * Fase amplia (broadphase) de la detección de colisiones mediante una rejilla
+ * uniforme que cubre el area de juego. 
+ * 
+ * Cada ciclo se vacía la rejilla, se insertan las cajas (AABB) de los objetos y
+ * se obtienen los pares candidatos: solo se comparan objetos que comparten
+ * alguna celda, por lo que el número de comprobaciones pasa de O(n²) a casi O(n)
+ * cuando los objetos están repartidos. Los pares candidatos se deben confirmar
+ * después con la fase estrecha (Entity.collides).
+ * 
+ * La rejilla no reserva memoria en estado estable: los arrays solo crecen
+ * cuando aumenta el número de objetos o de pares.
+ * 
+ * @author Alex
+ */
+public class UniformGrid {
+	/** Tamaño de cada celda en pixels */
+	private final float cellSize;
+	/** Inverso del tamaño de celda (evitar divisiones) */
+	private final float invCellSize;
+	/** Número de celdas en horizontal y vertical */
+	private final int cols, rows;
+
+	/** Número de objetos insertados */
+	private int count;
+	/** Rango de celdas que ocupa cada objeto */
+	private int[] minCX = new int[16], minCY = new int[16], maxCX = new int[16], maxCY = new int[16];
+
+	/** Inicio de la lista de objetos de cada celda en cellItems (cols*rows + 1 entradas) */
+	private final int[] cellStart;
+	/** Posición de escritura de cada celda mientras se rellena */
+	private final int[] cellFill;
+	/** Objetos de todas las celdas, agrupados por celda */
+	private int[] cellItems = new int[64];
+
+	/** Pares candidatos encontrados (a, b consecutivos con a < b) */
+	private int[] pairs = new int[64];
+	/** Número de pares candidatos */
+	private int pairCount;
+	/** Comparaciones de pares realizadas en la última búsqueda */
+	private int pairTests;
+
+	/**
+	 * Crea una rejilla que cubre un area de juego
+	 * 
+	 * @param width Ancho del area de juego
+	 * @param height Alto del area de juego
+	 * @param cellSize Tamaño de la celda (del orden del objeto más grande)
+	 */
+	public UniformGrid(float width, float height, float cellSize) {
+		this.cellSize = cellSize;
+		this.invCellSize = 1f / cellSize;
+		this.cols = Math.max(1, (int) Math.ceil(width / cellSize));
+		this.rows = Math.max(1, (int) Math.ceil(height / cellSize));
+		this.cellStart = new int[cols * rows + 1];
+		this.cellFill = new int[cols * rows];
+	}
+
+	/**
+	 * Vacía la rejilla para empezar un nuevo ciclo
+	 */
+	public void clear() {
+		count = 0;
+		pairCount = 0;
+		pairTests = 0;
+	}
+
+	/**
+	 * Inserta la caja de un objeto. Los objetos fuera del area de juego se
+	 * asignan a las celdas del borde.
+	 * 
+	 * @return Identificador del objeto en la rejilla (orden de inserción)
+	 */
+	public int insert(float minX, float minY, float maxX, float maxY) {
+		if (count == minCX.length) {
+			int size = count * 2;
+			minCX = Arrays.copyOf(minCX, size);
+			minCY = Arrays.copyOf(minCY, size);
+			maxCX = Arrays.copyOf(maxCX, size);
+			maxCY = Arrays.copyOf(maxCY, size);
+		}
+		
+		minCX[count] = cellX(minX);
+		minCY[count] = cellY(minY);
+		maxCX[count] = cellX(maxX);
+		maxCY[count] = cellY(maxY);
+		
+		return count++;
+	}
+
+	/**
+	 * Reparte los objetos insertados en las celdas y busca los pares candidatos.
+	 * Cada par se informa una sola vez aunque los objetos compartan varias celdas.
+	 * 
+	 * @return Número de pares candidatos
+	 */
+	public int findPairs() {
+		int cells = cols * rows;
+		
+		// Recuento de objetos por celda
+		Arrays.fill(cellStart, 0);
+		int total = 0;
+		for (int i=0;i<count;i++) {
+			for (int cy=minCY[i];cy<=maxCY[i];cy++) {
+				for (int cx=minCX[i];cx<=maxCX[i];cx++) {
+					cellStart[cy * cols + cx + 1]++;
+					total++;
+				}
+			}
+		}
+		
+		// Inicio de cada celda (suma acumulada)
+		for (int c=0;c<cells;c++) {
+			cellStart[c + 1] += cellStart[c];
+		}
+		
+		if (total > cellItems.length) {
+			cellItems = new int[Math.max(total, cellItems.length * 2)];
+		}
+		
+		// Reparto de los objetos (en orden de inserción dentro de cada celda)
+		System.arraycopy(cellStart, 0, cellFill, 0, cells);
+		for (int i=0;i<count;i++) {
+			for (int cy=minCY[i];cy<=maxCY[i];cy++) {
+				for (int cx=minCX[i];cx<=maxCX[i];cx++) {
+					cellItems[cellFill[cy * cols + cx]++] = i;
+				}
+			}
+		}
+		
+		// Pares dentro de cada celda
+		pairCount = 0;
+		pairTests = 0;
+		for (int cy=0;cy<rows;cy++) {
+			for (int cx=0;cx<cols;cx++) {
+				int c = cy * cols + cx;
+				int end = cellStart[c + 1];
+				
+				for (int i=cellStart[c];i<end;i++) {
+					int a = cellItems[i];
+					
+					for (int j=i+1;j<end;j++) {
+						int b = cellItems[j];
+						pairTests++;
+						
+						// El par solo se informa en la primera celda que comparten
+						// (esquina superior izquierda de la intersección de rangos)
+						if (Math.max(minCX[a], minCX[b]) == cx && Math.max(minCY[a], minCY[b]) == cy) {
+							addPair(a, b);
+						}
+					}
+				}
+			}
+		}
+		
+		return pairCount;
+	}
+
+	/**
+	 * @param pair Indice del par [0, pairCount)
+	 * @return Primer objeto del par (el de menor identificador)
+	 */
+	public int getPairA(int pair) {
+		return pairs[pair * 2];
+	}
+
+	/**
+	 * @param pair Indice del par [0, pairCount)
+	 * @return Segundo objeto del par
+	 */
+	public int getPairB(int pair) {
+		return pairs[pair * 2 + 1];
+	}
+
+	/**
+	 * @return Número de pares candidatos de la última búsqueda
+	 */
+	public int getPairCount() {
+		return pairCount;
+	}
+
+	/**
+	 * @return Comparaciones de pares realizadas en la última búsqueda. 
+	 *         Con el bucle de todos contra todos serían n*(n-1)/2
+	 */
+	public int getPairTests() {
+		return pairTests;
+	}
+
+	/**
+	 * @return Tamaño de la celda en pixels
+	 */
+	public float getCellSize() {
+		return cellSize;
+	}
+
+	private void addPair(int a, int b) {
+		if (pairCount * 2 == pairs.length) {
+			pairs = Arrays.copyOf(pairs, pairs.length * 2);
+		}
+		
+		pairs[pairCount * 2] = a < b ? a : b;
+		pairs[pairCount * 2 + 1] = a < b ? b : a;
+		pairCount++;
+	}
+
+	private int cellX(float x) {
+		int cx = (int) (x * invCellSize);
+		return cx < 0 ? 0 : (cx >= cols ? cols - 1 : cx);
+	}
+
+	private int cellY(float y) {
+		int cy = (int) (y * invCellSize);
+		return cy < 0 ? 0 : (cy >= rows ? rows - 1 : cy);
+	}
+}
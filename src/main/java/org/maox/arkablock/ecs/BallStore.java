@@ -0,0 +1,51 @@
+package org.maox.arkablock.ecs;
+
+import java.util.Arrays;
+
+/**
+ * Componente de bola: radio, velocidades de saque y máxima en pixels/s y
+ * nave desde la que se saca (la bola parada la sigue)
+ * 
+ * @author Alex
+ */
+public class BallStore extends ComponentStore {
+	public float[] radius = new float[16];
+	public float[] speed = new float[16], maxSpeed = new float[16];
+	/** Entidad de la nave (-1 sin nave) */
+	public int[] paddle = new int[16];
+	
+	/**
+	 * Añade el componente
+	 * 
+	 * @return Posición de los datos de la entidad
+	 */
+	public int add(int entity, float size, float initial, float max, int paddleEntity) {
+		int i = add(entity);
+		radius[i] = size;
+		speed[i] = initial;
+		maxSpeed[i] = max;
+		paddle[i] = paddleEntity;
+		return i;
+	}
+	
+	@Override
+	protected int capacity() {
+		return radius.length;
+	}
+	
+	@Override
+	protected void grow(int capacity) {
+		radius = Arrays.copyOf(radius, capacity);
+		speed = Arrays.copyOf(speed, capacity);
+		maxSpeed = Arrays.copyOf(maxSpeed, capacity);
+		paddle = Arrays.copyOf(paddle, capacity);
+	}
+	
+	@Override
+	protected void move(int from, int to) {
+		radius[to] = radius[from];
+		speed[to] = speed[from];
+		maxSpeed[to] = maxSpeed[from];
+		paddle[to] = paddle[from];
+	}
+}
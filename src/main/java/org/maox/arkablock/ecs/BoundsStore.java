@@ -0,0 +1,57 @@
+package org.maox.arkablock.ecs;
+
+import java.util.Arrays;
+
+/**
+ * Componente de colisión: caja centrada en la posición (MotionStore) y
+ * capas. Dos entidades se comprueban si la capa de una está en la máscara
+ * de la otra
+ * 
+ * @author Alex
+ */
+public class BoundsStore extends ComponentStore {
+	/** Capa por defecto de las entidades */
+	public static final int LAYER_DEFAULT = 1;
+	/** Máscara que colisiona con todas las capas */
+	public static final int MASK_ALL = -1;
+	
+	/** Mitad del ancho y del alto de la caja */
+	public float[] halfX = new float[16], halfY = new float[16];
+	/** Capa (bit) y máscara de capas con las que colisiona */
+	public int[] layer = new int[16], mask = new int[16];
+	
+	/**
+	 * Añade el componente
+	 * 
+	 * @return Posición de los datos de la entidad
+	 */
+	public int add(int entity, float halfWidth, float halfHeight, int layerBit, int layerMask) {
+		int i = add(entity);
+		halfX[i] = halfWidth;
+		halfY[i] = halfHeight;
+		layer[i] = layerBit;
+		mask[i] = layerMask;
+		return i;
+	}
+
+	@Override
+	protected int capacity() {
+		return halfX.length;
+	}
+
+	@Override
+	protected void grow(int capacity) {
+		halfX = Arrays.copyOf(halfX, capacity);
+		halfY = Arrays.copyOf(halfY, capacity);
+		layer = Arrays.copyOf(layer, capacity);
+		mask = Arrays.copyOf(mask, capacity);
+	}
+
+	@Override
+	protected void move(int from, int to) {
+		halfX[to] = halfX[from];
+		halfY[to] = halfY[from];
+		layer[to] = layer[from];
+		mask[to] = mask[from];
+	}
+}
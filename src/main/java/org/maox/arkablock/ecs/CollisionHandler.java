@@ -0,0 +1,17 @@
+package org.maox.arkablock.ecs;
+
+/**
+ * Respuesta a las colisiones encontradas por CollisionSystem
+ * 
+ * @author Alex
+ */
+public interface CollisionHandler {
+	
+	/**
+	 * Dos entidades cuyas cajas se solapan (y cuyas capas colisionan)
+	 * 
+	 * @param a Identificador de entidad
+	 * @param b Identificador de entidad
+	 */
+	public void collision(int a, int b);
+}
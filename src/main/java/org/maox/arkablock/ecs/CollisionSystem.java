@@ -0,0 +1,63 @@
+package org.maox.arkablock.ecs;
+
+import org.maox.arkablock.collision.UniformGrid;
+
+/**
+ * Detección de colisiones entre las entidades con componente de colisión.
+ * La rejilla obtiene los pares candidatos y se confirman con las cajas y
+ * las capas, leyendo directamente los arrays de los componentes.
+ * 
+ * @author Alex
+ */
+public class CollisionSystem {
+	/** Fase amplia */
+	private final UniformGrid grid;
+	
+	/**
+	 * @param grid Rejilla que cubre el area de juego
+	 */
+	public CollisionSystem(UniformGrid grid) {
+		this.grid = grid;
+	}
+	
+	/**
+	 * Busca las colisiones del ciclo
+	 * 
+	 * @param world Entidades del mundo
+	 * @param handler Respuesta a cada colisión
+	 */
+	public void update(EcsWorld world, CollisionHandler handler) {
+		BoundsStore bounds = world.getBounds();
+		MotionStore motion = world.getMotion();
+		
+		// Las entidades se insertan en el orden de su componente de colisión,
+		// así el indice en la rejilla es la posición en el almacén
+		grid.clear();
+		
+		for (int i=0;i<bounds.size();i++) {
+			int m = motion.indexOf(bounds.getEntity(i));
+			float x = m >= 0 ? motion.x[m] : 0;
+			float y = m >= 0 ? motion.y[m] : 0;
+			
+			grid.insert(x - bounds.halfX[i], y - bounds.halfY[i], x + bounds.halfX[i], y + bounds.halfY[i]);
+		}
+		
+		int pairs = grid.findPairs();
+		
+		for (int p=0;p<pairs;p++) {
+			int a = grid.getPairA(p);
+			int b = grid.getPairB(p);
+			
+			if ((bounds.layer[a] & bounds.mask[b]) != 0 || (bounds.layer[b] & bounds.mask[a]) != 0) {
+				handler.collision(bounds.getEntity(a), bounds.getEntity(b));
+			}
+		}
+	}
+	
+	/**
+	 * @return Rejilla de la fase amplia
+	 */
+	public UniformGrid getGrid() {
+		return grid;
+	}
+}
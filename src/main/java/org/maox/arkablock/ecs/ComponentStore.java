@@ -0,0 +1,109 @@
+package org.maox.arkablock.ecs;
+
+/**
+ * Almacén de un tipo de componente. Los datos se guardan en arrays de tipos
+ * primitivos paralelos al denso del conjunto disperso: la posición de una
+ * entidad en el almacén es la misma en todos sus arrays. Las subclases
+ * definen los arrays y cómo crecen y se mueven.
+ * 
+ * @author Alex
+ */
+public abstract class ComponentStore {
+	/** Entidades con el componente */
+	private final SparseSet entities = new SparseSet(16);
+	
+	/**
+	 * Añade el componente a una entidad (si ya lo tiene se conservan sus datos)
+	 * 
+	 * @param entity Identificador de entidad
+	 * @return Posición de los datos de la entidad
+	 */
+	public int add(int entity) {
+		int index = entities.add(entity);
+		
+		if (entities.capacity() > capacity()) {
+			grow(entities.capacity());
+		}
+		
+		return index;
+	}
+	
+	/**
+	 * Quita el componente de una entidad. Los datos de la última entidad
+	 * pasan a la posición liberada
+	 * 
+	 * @param entity Identificador de entidad
+	 */
+	public void remove(int entity) {
+		int last = entities.size() - 1;
+		int index = entities.remove(entity);
+		
+		if (index < 0) {
+			return;
+		}
+		
+		if (index != last) {
+			move(last, index);
+		}
+		clear(last);
+	}
+	
+	/**
+	 * @return Posición de los datos de una entidad (-1 si no tiene el componente)
+	 */
+	public int indexOf(int entity) {
+		return entities.indexOf(entity);
+	}
+	
+	public boolean has(int entity) {
+		return entities.contains(entity);
+	}
+	
+	/**
+	 * @return Entidad de una posición
+	 */
+	public int getEntity(int index) {
+		return entities.get(index);
+	}
+	
+	/**
+	 * @return Número de entidades con el componente
+	 */
+	public int size() {
+		return entities.size();
+	}
+	
+	/**
+	 * Quita el componente de todas las entidades
+	 */
+	public void clear() {
+		for (int i=0;i<entities.size();i++) {
+			clear(i);
+		}
+		entities.clear();
+	}
+	
+	/**
+	 * @return Tamaño de los arrays de datos
+	 */
+	protected abstract int capacity();
+	
+	/**
+	 * Amplía los arrays de datos
+	 * 
+	 * @param capacity Nuevo tamaño mínimo
+	 */
+	protected abstract void grow(int capacity);
+	
+	/**
+	 * Copia los datos de una posición a otra
+	 */
+	protected abstract void move(int from, int to);
+	
+	/**
+	 * Libera las referencias de una posición que queda vacía (para no retener
+	 * objetos). Los almacenes de solo primitivos no necesitan hacer nada
+	 */
+	protected void clear(int index) {
+	}
+}
@@ -0,0 +1,116 @@
+package org.maox.arkablock.ecs;
+
+import java.util.Arrays;
+
+/**
+ * Entidades y componentes del mundo. Una entidad es solo un identificador;
+ * sus datos están en los almacenes de componentes, y los sistemas
+ * (PaddleSystem, MovementSystem, CollisionSystem, RenderSystem) recorren
+ * los almacenes de forma densa en lugar de llamar a métodos de cada entidad.
+ * 
+ * La nave y las bolas viven solo en los almacenes: Ship y Ball son vistas
+ * de una entidad que leen y escriben sus componentes. Las entidades clásicas
+ * (org.maox.games.entities.Entity) que se añadan al mundo se siguen moviendo
+ * y dibujando por sí mismas (ver LegacySystem).
+ * 
+ * Crear y destruir entidades es O(1): los identificadores liberados se
+ * reutilizan.
+ * 
+ * @author Alex
+ */
+public class EcsWorld {
+	/** Almacenes de componentes */
+	private final MotionStore motion = new MotionStore();
+	private final BoundsStore bounds = new BoundsStore();
+	private final MeshStore meshes = new MeshStore();
+	private final BallStore balls = new BallStore();
+	private final PaddleStore paddles = new PaddleStore();
+	private final LegacyStore legacy = new LegacyStore();
+	/** Todos los almacenes (para destruir entidades) */
+	private final ComponentStore[] stores = { motion, bounds, meshes, balls, paddles, legacy };
+	
+	/** Entidades vivas */
+	private final SparseSet alive = new SparseSet(16);
+	/** Identificadores liberados para reutilizar */
+	private int[] free = new int[16];
+	private int freeCount;
+	/** Siguiente identificador nuevo */
+	private int nextId;
+	
+	/**
+	 * @return Identificador de la nueva entidad
+	 */
+	public int create() {
+		int id = freeCount > 0 ? free[--freeCount] : nextId++;
+		alive.add(id);
+		return id;
+	}
+	
+	/**
+	 * Destruye una entidad y todos sus componentes
+	 * 
+	 * @param id Identificador de entidad
+	 */
+	public void destroy(int id) {
+		if (alive.remove(id) < 0) {
+			return;
+		}
+		
+		for (int i=0;i<stores.length;i++) {
+			stores[i].remove(id);
+		}
+		
+		if (freeCount == free.length) {
+			free = Arrays.copyOf(free, freeCount * 2);
+		}
+		free[freeCount++] = id;
+	}
+	
+	/**
+	 * Destruye todas las entidades
+	 */
+	public void clear() {
+		for (int i=0;i<stores.length;i++) {
+			stores[i].clear();
+		}
+		
+		alive.clear();
+		freeCount = 0;
+		nextId = 0;
+	}
+	
+	public boolean isAlive(int id) {
+		return alive.contains(id);
+	}
+	
+	/**
+	 * @return Número de entidades vivas
+	 */
+	public int size() {
+		return alive.size();
+	}
+
+	public MotionStore getMotion() {
+		return motion;
+	}
+
+	public BoundsStore getBounds() {
+		return bounds;
+	}
+
+	public MeshStore getMeshes() {
+		return meshes;
+	}
+
+	public BallStore getBalls() {
+		return balls;
+	}
+
+	public PaddleStore getPaddles() {
+		return paddles;
+	}
+
+	public LegacyStore getLegacy() {
+		return legacy;
+	}
+}
@@ -0,0 +1,36 @@
+package org.maox.arkablock.ecs;
+
+import java.util.Arrays;
+
+import org.maox.games.entities.Entity;
+
+/**
+ * Componente puente con las entidades clásicas (org.maox.games.entities.Entity):
+ * la entidad sigue actualizándose y dibujándose por sí misma, y su posición
+ * y tamaño se copian a los componentes de movimiento y colisión (ver LegacySystem)
+ * 
+ * @author Alex
+ */
+public class LegacyStore extends ComponentStore {
+	public Entity[] entity = new Entity[16];
+
+	@Override
+	protected int capacity() {
+		return entity.length;
+	}
+
+	@Override
+	protected void grow(int capacity) {
+		entity = Arrays.copyOf(entity, capacity);
+	}
+
+	@Override
+	protected void move(int from, int to) {
+		entity[to] = entity[from];
+	}
+	
+	@Override
+	protected void clear(int index) {
+		entity[index] = null;
+	}
+}
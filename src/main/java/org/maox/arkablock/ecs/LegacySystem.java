@@ -0,0 +1,175 @@
+package org.maox.arkablock.ecs;
+
+import java.util.IdentityHashMap;
+
+import org.maox.arkablock.entities.Renderable;
+import org.maox.arkablock.render.RenderBatch;
+import org.maox.games.entities.Entity;
+import org.maox.games.entities.EntityManager;
+
+/**
+ * Puente con las entidades clásicas (org.maox.games.entities.Entity) que se
+ * añaden al mundo a través de EntityManager.addEntity. La nave y las bolas
+ * no lo son: viven en los componentes (ver EcsWorld). Cada entidad clásica
+ * es una entidad del mundo con componente puente, de movimiento y de
+ * colisión: se actualiza llamando a su update y después se copian su
+ * posición y tamaño a los componentes, de forma que CollisionSystem obtiene
+ * los pares candidatos de los arrays. Las colisiones entre dos entidades
+ * clásicas se confirman y resuelven con sus métodos collides y collide.
+ * 
+ * @author Alex
+ */
+public class LegacySystem implements CollisionHandler {
+	/** Mundo de las entidades */
+	private final EcsWorld world;
+	/** Gestor que reciben las entidades en update y collide */
+	private final EntityManager manager;
+	/** Identificador de cada entidad clásica */
+	private final IdentityHashMap<Entity, Integer> ids = new IdentityHashMap<Entity, Integer>();
+	
+	/**
+	 * @param world Mundo de las entidades
+	 * @param manager Gestor que reciben las entidades en update y collide
+	 */
+	public LegacySystem(EcsWorld world, EntityManager manager) {
+		this.world = world;
+		this.manager = manager;
+	}
+	
+	/**
+	 * Añade una entidad clásica al mundo (si ya está no hace nada)
+	 * 
+	 * @param entity Entidad
+	 * @return Identificador en el mundo
+	 */
+	public int add(Entity entity) {
+		Integer id = ids.get(entity);
+		
+		if (id != null) {
+			return id;
+		}
+		
+		int created = world.create();
+		int i = world.getLegacy().add(created);
+		world.getLegacy().entity[i] = entity;
+		world.getMotion().add(created, entity.getX(), entity.getY());
+		world.getBounds().add(created, entity.getSizeX() / 2, entity.getSizeY() / 2, 
+				BoundsStore.LAYER_DEFAULT, BoundsStore.MASK_ALL);
+		
+		ids.put(entity, created);
+		return created;
+	}
+	
+	/**
+	 * Quita una entidad clásica del mundo
+	 * 
+	 * @param entity Entidad
+	 */
+	public void remove(Entity entity) {
+		Integer id = ids.remove(entity);
+		
+		if (id != null) {
+			world.destroy(id);
+		}
+	}
+	
+	/**
+	 * Quita todas las entidades clásicas
+	 */
+	public void clear() {
+		LegacyStore legacy = world.getLegacy();
+		
+		while (legacy.size() > 0) {
+			remove(legacy.entity[legacy.size() - 1]);
+		}
+	}
+	
+	/**
+	 * Actualiza las entidades clásicas y copia su estado a los componentes
+	 * 
+	 * @param delta Duración del ciclo en ms
+	 */
+	public void update(int delta) {
+		LegacyStore legacy = world.getLegacy();
+		MotionStore motion = world.getMotion();
+		BoundsStore bounds = world.getBounds();
+		
+		for (int i=0;i<legacy.size();i++) {
+			Entity entity = legacy.entity[i];
+			int id = legacy.getEntity(i);
+			
+			entity.update(manager, delta);
+			
+			// Si la entidad se ha quitado en su update, su hueco lo ocupa la última
+			if (i >= legacy.size() || legacy.entity[i] != entity) {
+				i--;
+				continue;
+			}
+			
+			int m = motion.indexOf(id);
+			motion.lastX[m] = motion.x[m];
+			motion.lastY[m] = motion.y[m];
+			motion.x[m] = entity.getX();
+			motion.y[m] = entity.getY();
+			motion.velocityX[m] = entity.getVelocityX();
+			motion.velocityY[m] = entity.getVelocityY();
+			
+			int b = bounds.indexOf(id);
+			bounds.halfX[b] = entity.getSizeX() / 2;
+			bounds.halfY[b] = entity.getSizeY() / 2;
+		}
+	}
+	
+	/**
+	 * Dibujo de las entidades clásicas
+	 * 
+	 * @param batch Lote del frame
+	 * @param alpha Fracción del ciclo transcurrida desde la última actualización
+	 */
+	public void submit(RenderBatch batch, float alpha) {
+		LegacyStore legacy = world.getLegacy();
+		
+		for (int i=0;i<legacy.size();i++) {
+			Entity entity = legacy.entity[i];
+			
+			if (entity instanceof Renderable) {
+				((Renderable) entity).submit(batch, alpha);
+			}
+			else {
+				entity.render();
+			}
+		}
+	}
+
+	/**
+	 * Colisión entre dos entidades clásicas: se confirma con collides y se
+	 * avisa a las dos
+	 * @see org.maox.arkablock.ecs.CollisionHandler#collision
+	 */
+	@Override
+	public void collision(int a, int b) {
+		LegacyStore legacy = world.getLegacy();
+		int ia = legacy.indexOf(a);
+		int ib = legacy.indexOf(b);
+		
+		if (ia < 0 || ib < 0) {
+			return;
+		}
+		
+		Entity entity = legacy.entity[ia];
+		Entity other = legacy.entity[ib];
+		
+		if (entity.collides(other)) {
+			entity.collide(manager, other);
+			other.collide(manager, entity);
+		}
+	}
+	
+	/**
+	 * @return Identificador en el mundo de una entidad clásica (-1 si no está)
+	 */
+	public int getId(Entity entity) {
+		Integer id = ids.get(entity);
+		return id != null ? id : -1;
+	}
+}
@@ -0,0 +1,64 @@
+package org.maox.arkablock.ecs;
+
+import java.util.Arrays;
+
+import org.maox.arkablock.assets.TextureRegion;
+import org.maox.arkablock.backend.Model;
+import org.maox.arkablock.render.Material;
+
+/**
+ * Componente de dibujo: modelo con su textura, material, profundidad y escala
+ * 
+ * @author Alex
+ */
+public class MeshStore extends ComponentStore {
+	public Model[] model = new Model[16];
+	public TextureRegion[] texture = new TextureRegion[16];
+	public Material[] material = new Material[16];
+	public float[] z = new float[16], scale = new float[16];
+	
+	/**
+	 * Añade el componente
+	 * 
+	 * @return Posición de los datos de la entidad
+	 */
+	public int add(int entity, Model mesh, TextureRegion region, Material mat, float depth, float size) {
+		int i = add(entity);
+		model[i] = mesh;
+		texture[i] = region;
+		material[i] = mat;
+		z[i] = depth;
+		scale[i] = size;
+		return i;
+	}
+
+	@Override
+	protected int capacity() {
+		return model.length;
+	}
+
+	@Override
+	protected void grow(int capacity) {
+		model = Arrays.copyOf(model, capacity);
+		texture = Arrays.copyOf(texture, capacity);
+		material = Arrays.copyOf(material, capacity);
+		z = Arrays.copyOf(z, capacity);
+		scale = Arrays.copyOf(scale, capacity);
+	}
+
+	@Override
+	protected void move(int from, int to) {
+		model[to] = model[from];
+		texture[to] = texture[from];
+		material[to] = material[from];
+		z[to] = z[from];
+		scale[to] = scale[from];
+	}
+	
+	@Override
+	protected void clear(int index) {
+		model[index] = null;
+		texture[index] = null;
+		material[index] = null;
+	}
+}
@@ -0,0 +1,53 @@
+package org.maox.arkablock.ecs;
+
+import java.util.Arrays;
+
+/**
+ * Componente de movimiento: posición, posición del ciclo anterior (para
+ * interpolar el renderizado) y velocidad en pixels/s
+ * 
+ * @author Alex
+ */
+public class MotionStore extends ComponentStore {
+	public float[] x = new float[16], y = new float[16];
+	public float[] lastX = new float[16], lastY = new float[16];
+	public float[] velocityX = new float[16], velocityY = new float[16];
+	
+	/**
+	 * Añade el componente con una posición inicial y sin velocidad
+	 * 
+	 * @return Posición de los datos de la entidad
+	 */
+	public int add(int entity, float posX, float posY) {
+		int i = add(entity);
+		x[i] = lastX[i] = posX;
+		y[i] = lastY[i] = posY;
+		velocityX[i] = velocityY[i] = 0;
+		return i;
+	}
+
+	@Override
+	protected int capacity() {
+		return x.length;
+	}
+
+	@Override
+	protected void grow(int capacity) {
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+		lastX = Arrays.copyOf(lastX, capacity);
+		lastY = Arrays.copyOf(lastY, capacity);
+		velocityX = Arrays.copyOf(velocityX, capacity);
+		velocityY = Arrays.copyOf(velocityY, capacity);
+	}
+
+	@Override
+	protected void move(int from, int to) {
+		x[to] = x[from];
+		y[to] = y[from];
+		lastX[to] = lastX[from];
+		lastY[to] = lastY[from];
+		velocityX[to] = velocityX[from];
+		velocityY[to] = velocityY[from];
+	}
+}
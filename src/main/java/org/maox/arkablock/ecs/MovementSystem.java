@@ -0,0 +1,128 @@
+package org.maox.arkablock.ecs;
+
+import org.maox.arkablock.GameWorld;
+import org.maox.arkablock.collision.Hit;
+import org.maox.arkablock.entities.Ball;
+import org.maox.arkablock.input.InputFrame;
+import org.maox.arkablock.particles.ParticleEmitter;
+
+/**
+ * Movimiento de las bolas. La bola parada sigue a su nave y sale al pulsar
+ * el disparo; en movimiento se desplaza por barrido contra los sólidos del
+ * mundo: se busca el primer impacto del recorrido, se avanza hasta el punto
+ * de contacto, se aplica la respuesta del sólido y se continua con el tiempo
+ * restante. Así se resuelven varios impactos en un mismo ciclo sin
+ * atravesar nada, por rápida que vaya la bola.
+ * 
+ * @author Alex
+ */
+public class MovementSystem {
+	/** Máximo de impactos resueltos por bola en un ciclo */
+	private static final int MAX_HITS = 4;
+	
+	/** Impacto del barrido (se reutiliza en cada ciclo) */
+	private final Hit hit = new Hit();
+	/** Vista de la bola que se mueve, para la respuesta de los sólidos */
+	private final Ball ball;
+	/** Estela de las bolas en movimiento (null sin estela) */
+	private ParticleEmitter trail;
+	
+	/**
+	 * @param world Entidades del mundo
+	 */
+	public MovementSystem(EcsWorld world) {
+		ball = new Ball(world);
+	}
+	
+	/**
+	 * @param world Entidades del mundo
+	 * @param game Sólidos, entrada, partículas y audio del mundo
+	 * @param delta Duración del ciclo en ms
+	 */
+	public void update(EcsWorld world, GameWorld game, int delta) {
+		BallStore balls = world.getBalls();
+		MotionStore motion = world.getMotion();
+		boolean fire = game.getInput().isDown(InputFrame.FIRE);
+		
+		for (int i=0;i<balls.size();i++) {
+			int m = motion.indexOf(balls.getEntity(i));
+			
+			// Posición de partida del ciclo
+			motion.lastX[m] = motion.x[m];
+			motion.lastY[m] = motion.y[m];
+			
+			// La bola parada se desplaza con su nave (ya movida en este ciclo)
+			// y sale con el disparo si la nave está quieta
+			if (motion.velocityY[m] == 0) {
+				int paddle = motion.indexOf(balls.paddle[i]);
+				float paddleVelocity = 0;
+				
+				if (paddle >= 0) {
+					motion.x[m] += motion.x[paddle] - motion.lastX[paddle];
+					paddleVelocity = motion.velocityX[paddle];
+				}
+				
+				if (!fire || paddleVelocity != 0) {
+					continue;
+				}
+				
+				motion.velocityX[m] = balls.speed[i];
+				motion.velocityY[m] = -balls.speed[i];
+			}
+			
+			// Velocidad máxima que se permitira
+			if (motion.velocityX[m] > balls.maxSpeed[i]) motion.velocityX[m] = balls.maxSpeed[i];
+			if (motion.velocityX[m] < -balls.maxSpeed[i]) motion.velocityX[m] = -balls.maxSpeed[i];
+			
+			if (trail != null) {
+				trail.emit(game.getParticles(), motion.x[m], motion.y[m], motion.velocityX[m], motion.velocityY[m], delta);
+			}
+			
+			ball.set(balls.getEntity(i));
+			sweep(game, motion, m, balls.radius[i], delta / 1000f);
+		}
+	}
+	
+	/**
+	 * Desplazamiento por barrido de una bola durante el ciclo. Los sólidos
+	 * cambian la velocidad de la bola a través de su vista (SweepTarget.hit),
+	 * por eso se vuelve a leer del almacén tras cada impacto
+	 * 
+	 * @param game Sólidos y audio del mundo
+	 * @param motion Componente de movimiento
+	 * @param m Posición de la bola en el componente de movimiento
+	 * @param radius Radio de la bola
+	 * @param remaining Duración del ciclo en s
+	 */
+	private void sweep(GameWorld game, MotionStore motion, int m, float radius, float remaining) {
+		for (int i=0;i<MAX_HITS && remaining > 0;i++) {
+			float dx = motion.velocityX[m] * remaining;
+			float dy = motion.velocityY[m] * remaining;
+			
+			hit.reset();
+			
+			if (!game.sweep(motion.x[m], motion.y[m], dx, dy, radius, hit)) {
+				motion.x[m] += dx;
+				motion.y[m] += dy;
+				return;
+			}
+			
+			// Avanzar hasta el contacto y responder al impacto
+			motion.x[m] += dx * hit.time;
+			motion.y[m] += dy * hit.time;
+			remaining *= 1 - hit.time;
+			
+			hit.target.hit(ball, hit);
+			game.getAudio().play(hit.target.getHitSound());
+		}
+		
+		// Si se agotan los impactos la bola se queda en el último contacto
+	}
+	
+	/**
+	 * @param trail Estela de las bolas en movimiento (null sin estela)
+	 */
+	public void setTrail(ParticleEmitter trail) {
+		this.trail = trail;
+	}
+}
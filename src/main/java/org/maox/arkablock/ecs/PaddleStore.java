@@ -0,0 +1,55 @@
+package org.maox.arkablock.ecs;
+
+import java.util.Arrays;
+
+import org.maox.arkablock.collision.CollisionShape;
+
+/**
+ * Componente de nave: aceleración y velocidad máxima en pixels/s y forma de
+ * colisión. La forma se calcula con las medidas del modelo escalado
+ * (MeshStore) la primera vez que se conocen, y se anula para recalcularla
+ * al cambiar el modelo o la escala
+ * 
+ * @author Alex
+ */
+public class PaddleStore extends ComponentStore {
+	public float[] acceleration = new float[16], maxSpeed = new float[16];
+	public CollisionShape[] shape = new CollisionShape[16];
+	
+	/**
+	 * Añade el componente (la forma se calcula en PaddleSystem)
+	 * 
+	 * @return Posición de los datos de la entidad
+	 */
+	public int add(int entity, float accel, float max) {
+		int i = add(entity);
+		acceleration[i] = accel;
+		maxSpeed[i] = max;
+		shape[i] = null;
+		return i;
+	}
+	
+	@Override
+	protected int capacity() {
+		return shape.length;
+	}
+	
+	@Override
+	protected void grow(int capacity) {
+		acceleration = Arrays.copyOf(acceleration, capacity);
+		maxSpeed = Arrays.copyOf(maxSpeed, capacity);
+		shape = Arrays.copyOf(shape, capacity);
+	}
+	
+	@Override
+	protected void move(int from, int to) {
+		acceleration[to] = acceleration[from];
+		maxSpeed[to] = maxSpeed[from];
+		shape[to] = shape[from];
+	}
+	
+	@Override
+	protected void clear(int index) {
+		shape[index] = null;
+	}
+}
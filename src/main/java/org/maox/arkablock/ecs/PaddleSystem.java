@@ -0,0 +1,96 @@
+package org.maox.arkablock.ecs;
+
+import org.maox.arkablock.backend.Model;
+import org.maox.arkablock.collision.CompoundShape;
+import org.maox.arkablock.input.InputFrame;
+
+/**
+ * Movimiento de las naves con la entrada del jugador: acelera mientras se
+ * pulsa izquierda o derecha, frena en seco al soltar y no sale del area de
+ * juego (la forma de colisión queda siempre dentro).
+ * 
+ * @author Alex
+ */
+public class PaddleSystem {
+
+	/**
+	 * @param world Entidades del mundo
+	 * @param input Entrada del ciclo
+	 * @param width Ancho del area de juego
+	 * @param delta Duración del ciclo en ms
+	 */
+	public void update(EcsWorld world, InputFrame input, float width, int delta) {
+		PaddleStore paddles = world.getPaddles();
+		MotionStore motion = world.getMotion();
+		float seconds = delta / 1000f;
+		
+		for (int i=0;i<paddles.size();i++) {
+			int entity = paddles.getEntity(i);
+			int m = motion.indexOf(entity);
+			
+			// Posición de partida del ciclo
+			motion.lastX[m] = motion.x[m];
+			motion.lastY[m] = motion.y[m];
+			
+			if (paddles.shape[i] == null) {
+				updateShape(world, entity, i);
+			}
+			
+			float velocity = motion.velocityX[m];
+			
+			if (input.isDown(InputFrame.LEFT)) {
+				velocity -= paddles.acceleration[i] * seconds;
+			}
+			else if (input.isDown(InputFrame.RIGHT)) {
+				velocity += paddles.acceleration[i] * seconds;
+			}
+			// Si no hay pulsado nada se para la nave
+			else if (Math.abs(velocity) > 1) {
+				velocity = 0;
+			}
+			else {
+				velocity /= 2;
+			}
+			
+			// Velocidad máxima que se permitira
+			if (velocity > paddles.maxSpeed[i]) velocity = paddles.maxSpeed[i];
+			if (velocity < -paddles.maxSpeed[i]) velocity = -paddles.maxSpeed[i];
+			
+			// Contra los laterales la nave se para
+			float x = motion.x[m] + velocity * seconds;
+			float half = paddles.shape[i] != null ? paddles.shape[i].getHalfWidth() : 0;
+			
+			if (x < half) {
+				x = half;
+				velocity = 0;
+			}
+			else if (x > width - half) {
+				x = width - half;
+				velocity = 0;
+			}
+			
+			motion.x[m] = x;
+			motion.velocityX[m] = velocity;
+		}
+	}
+	
+	/**
+	 * Calcula la forma de colisión de una nave, una cápsula con las medidas
+	 * del modelo escalado. Mientras el modelo se está cargando no se conocen
+	 * sus medidas y la forma sigue sin calcular
+	 * 
+	 * @param world Entidades del mundo
+	 * @param entity Entidad de la nave
+	 * @param index Posición de la nave en su almacén
+	 */
+	static void updateShape(EcsWorld world, int entity, int index) {
+		MeshStore meshes = world.getMeshes();
+		int mesh = meshes.indexOf(entity);
+		Model model = mesh >= 0 ? meshes.model[mesh] : null;
+		
+		if (model != null && model.getSizeX() > 0) {
+			float scale = meshes.scale[mesh];
+			world.getPaddles().shape[index] = CompoundShape.capsule(model.getSizeX() * scale, model.getSizeY() * scale);
+		}
+	}
+}
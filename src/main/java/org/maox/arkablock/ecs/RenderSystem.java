@@ -0,0 +1,39 @@
+package org.maox.arkablock.ecs;
+
+import org.maox.arkablock.backend.Model;
+import org.maox.arkablock.render.RenderBatch;
+
+/**
+ * Dibujo de las entidades con componente de dibujo y de movimiento,
+ * interpolando entre los dos últimos ciclos. La textura solo se aplica si
+ * el modelo tiene coordenadas de textura
+ * 
+ * @author Alex
+ */
+public class RenderSystem {
+
+	/**
+	 * @param world Entidades del mundo
+	 * @param batch Lote del frame
+	 * @param alpha Fracción del ciclo transcurrida desde la última actualización
+	 */
+	public void submit(EcsWorld world, RenderBatch batch, float alpha) {
+		MeshStore meshes = world.getMeshes();
+		MotionStore motion = world.getMotion();
+		
+		for (int i=0;i<meshes.size();i++) {
+			int m = motion.indexOf(meshes.getEntity(i));
+			Model model = meshes.model[i];
+			
+			if (m < 0 || model == null) {
+				continue;
+			}
+			
+			float x = motion.lastX[m] + (motion.x[m] - motion.lastX[m]) * alpha;
+			float y = motion.lastY[m] + (motion.y[m] - motion.lastY[m]) * alpha;
+			
+			batch.mesh(model, model.hasTexture() ? meshes.texture[i] : null, meshes.material[i],
+					x, y, meshes.z[i], meshes.scale[i]);
+		}
+	}
+}
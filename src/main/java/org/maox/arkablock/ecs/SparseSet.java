@@ -0,0 +1,116 @@
+package org.maox.arkablock.ecs;
+
+import java.util.Arrays;
+
+/**
+ * Conjunto disperso de identificadores de entidad. Alta, baja y consulta en
+ * O(1) y recorrido denso: los identificadores están seguidos en un array
+ * (dense) y otro array indexado por identificador (sparse) guarda su
+ * posición. Al dar de baja se mueve el último a la posición liberada.
+ * 
+ * Los datos de los componentes se guardan en arrays paralelos al denso
+ * (ver ComponentStore), así los sistemas los recorren sin huecos.
+ * 
+ * @author Alex
+ */
+public class SparseSet {
+	/** Posición + 1 en el denso de cada identificador (0 si no está) */
+	private int[] sparse;
+	/** Identificadores en orden denso */
+	private int[] dense;
+	/** Número de identificadores */
+	private int size;
+	
+	/**
+	 * @param capacity Capacidad inicial
+	 */
+	public SparseSet(int capacity) {
+		sparse = new int[capacity];
+		dense = new int[capacity];
+	}
+	
+	/**
+	 * Añade un identificador (si ya está no hace nada)
+	 * 
+	 * @param id Identificador de entidad
+	 * @return Posición en el denso
+	 */
+	public int add(int id) {
+		if (id >= sparse.length) {
+			sparse = Arrays.copyOf(sparse, Math.max(id + 1, sparse.length * 2));
+		}
+		
+		if (sparse[id] != 0) {
+			return sparse[id] - 1;
+		}
+		
+		if (size == dense.length) {
+			dense = Arrays.copyOf(dense, size * 2);
+		}
+		
+		dense[size] = id;
+		sparse[id] = ++size;
+		
+		return size - 1;
+	}
+	
+	/**
+	 * Quita un identificador moviendo el último a su posición
+	 * 
+	 * @param id Identificador de entidad
+	 * @return Posición que ocupaba (-1 si no estaba)
+	 */
+	public int remove(int id) {
+		int index = indexOf(id);
+		
+		if (index < 0) {
+			return -1;
+		}
+		
+		int last = dense[--size];
+		dense[index] = last;
+		sparse[last] = index + 1;
+		sparse[id] = 0;
+		
+		return index;
+	}
+	
+	/**
+	 * @return Posición en el denso (-1 si no está)
+	 */
+	public int indexOf(int id) {
+		return id < sparse.length ? sparse[id] - 1 : -1;
+	}
+	
+	public boolean contains(int id) {
+		return indexOf(id) >= 0;
+	}
+	
+	/**
+	 * @return Identificador en una posición del denso
+	 */
+	public int get(int index) {
+		return dense[index];
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * @return Capacidad del denso (los arrays paralelos deben tener al menos este tamaño)
+	 */
+	public int capacity() {
+		return dense.length;
+	}
+	
+	/**
+	 * Vacía el conjunto
+	 */
+	public void clear() {
+		for (int i=0;i<size;i++) {
+			sparse[dense[i]] = 0;
+		}
+		size = 0;
+	}
+}
@@ -1,223 +1,206 @@
 package org.maox.arkablock.entities;
 
-import java.io.IOException;
-import java.nio.FloatBuffer;
-
-import org.lwjgl.BufferUtils;
-import org.lwjgl.input.Keyboard;
-import org.lwjgl.util.glu.Sphere;
-
-import static org.lwjgl.opengl.GL11.*;
-
-import org.maox.games.entities.AbstractEntity2D;
-import org.maox.games.entities.Entity;
-import org.maox.games.entities.EntityManager;
-import org.maox.graphics.textures.Texture;
-import org.maox.graphics.textures.TextureLoader;
+import org.maox.arkablock.assets.TextureRegion;
+import org.maox.arkablock.backend.Model;
+import org.maox.arkablock.ecs.BallStore;
+import org.maox.arkablock.ecs.EcsWorld;
+import org.maox.arkablock.ecs.MotionStore;
+import org.maox.arkablock.render.Material;
 
 /**
- * Entidad que representa la bola manejada por del jugador.
- * Esta entidad es responsable de mostrar el modelo
+ * Bola del jugador. Sus datos están en los componentes de una entidad del
+ * mundo (movimiento, bola y dibujo) y esta clase solo es una vista que los
+ * lee y escribe; la mueve MovementSystem y la dibuja RenderSystem.
+ * 
+ * La vista se puede reutilizar: create añade la bola al mundo y destroy la
+ * quita, sin crear objetos.
  * 
  * @author Alex
  */
-public class Ball extends AbstractEntity2D {
-	/** Textura a aplicar al modelo */
-	private Texture texture = null;
-	/** Identificador del Display List que indentifica este modelo */
-	private int listID;
-	/** Tamaño de la bola */
-	private int iRadius = 7;
-	/** Velocidad máxima de la bola*/
-	private float fVelMax = 1500;
-	/** Velocidad inicial de la bola*/
-	private float fVelIni = 200;
+public class Ball {
+	/** Radio de la bola por defecto */
+	public static final float RADIUS = 7;
+	/** Velocidades de saque y máxima por defecto en pixels/s */
+	private static final float SPEED = 200, MAX_SPEED = 1500;
 	
+	/** Mundo de la entidad */
+	private final EcsWorld world;
+	/** Entidad de la bola (-1 fuera del mundo) */
+	private int entity = -1;
 	
 	/**
-	 * Crear una nueva entidad de jugador
+	 * @param world Mundo en el que se crea la bola
 	 */
-	public Ball() throws IOException {
-		TextureLoader loaderTex = TextureLoader.getInstance();
-
-		// Se carga la textura de la nave y el modelo de la nave
-		texture = loaderTex.getTexture("img/fire.jpg");
+	public Ball(EcsWorld world) {
+		this.world = world;
+	}
+	
+	/**
+	 * Añade la bola al mundo, parada en el origen. La posición de salida la
+	 * da el mundo (place), que conoce las medidas del area de juego
+	 * 
+	 * @param paddle Entidad de la nave que sigue mientras está parada (-1 sin nave)
+	 * @param model Modelo de la bola (compartido, no se libera con la bola)
+	 * @param texture Textura del modelo
+	 * @return Entidad de la bola
+	 */
+	public int create(int paddle, Model model, TextureRegion texture) {
+		destroy();
+		
+		entity = world.create();
+		world.getMotion().add(entity, 0, 0);
+		world.getBalls().add(entity, RADIUS, SPEED, MAX_SPEED, paddle);
+		world.getMeshes().add(entity, model, texture, Material.WHITE, 0, 1);
 		
-		initModel();
-		initPos();
+		return entity;
+	}
 	
+	/**
+	 * Quita la bola del mundo (si está)
+	 */
+	public void destroy() {
+		if (entity >= 0) {
+			world.destroy(entity);
+			entity = -1;
+		}
 	}
 	
 	/**
-	 * Inicialización de la posición inicial
+	 * Pasa a ser la vista de otra bola del mundo (p.e. la que está moviendo
+	 * MovementSystem)
+	 * 
+	 * @param entity Entidad con componente de bola
 	 */
-	public void initPos() {
-		// Posición y velocidad inicial
-		positionX = 400;
-		positionY = 540;
-		velocityX = 0;
-		velocityY = 0;		
+	public void set(int entity) {
+		this.entity = entity;
 	}
-
+	
 	/**
-	 * Creación del modelo de la bola
+	 * @return Entidad de la bola (-1 fuera del mundo)
 	 */
-	private void initModel() {
-		
-		Sphere sphere = new Sphere();
-
-		//Se genera el identificador del Display List
-		listID = glGenLists(1);
-		
-		// Comienzo de las instrucciones del modelo
-		glNewList(listID, GL_COMPILE);
-		
-		sphere.draw(iRadius, 10, 10);
-		
-		glEndList();
+	public int getEntity() {
+		return entity;
 	}
-
+	
 	/**
-	 * @see org.maox.graphics.Entity#update()
+	 * Coloca la bola sin interpolar desde la posición anterior (evitar que
+	 * se vea el salto)
+	 * 
+	 * @param x Posición X
+	 * @param y Posición Y
 	 */
-	public void update(EntityManager manager, int delta) {
-
-		// Si la bola está parada su posición será la de la nave
-		if (velocityY == 0) {
-			velocityX = manager.getEntity("vaus").getVelocityX();
-		}
-		// Arranque de la partida dando al espacio
-		if (Keyboard.isKeyDown(Keyboard.KEY_SPACE) && velocityX == 0) {
-			// Velocidad inicial
-			velocityX += fVelIni;
-			velocityY -= fVelIni;
-		}
-		
-		// Velocidad máxima que se permitira
-		if (velocityX > fVelMax) velocityX = fVelMax;
-		if (velocityX < -fVelMax) velocityX = -fVelMax;
-		
-		float fVelocityXAct = velocityX;
-		float fVelocityYAct = velocityY;
+	public void place(float x, float y) {
+		MotionStore motion = world.getMotion();
+		int m = motion.indexOf(entity);
 		
-		// Si ha sobrepasado el limite del area de dibujo ya no tendrá velocidad
-		super.update(manager, delta);
-		
-		// Cambio de dirección
-		if (velocityX==0)
-			velocityX = - fVelocityXAct;
-		
-		if (velocityY==0)
-			velocityY = - fVelocityYAct;
+		motion.x[m] = motion.lastX[m] = x;
+		motion.y[m] = motion.lastY[m] = y;
 	}
 	
 	/**
-	 * @see org.maox.graphics.Entity#render()
+	 * Velocidades de la bola (p.e. para ajustar la dificultad)
+	 * 
+	 * @param initial Velocidad inicial en el saque en pixels/s
+	 * @param max Velocidad máxima horizontal en pixels/s
 	 */
-	public void render() {
-		// TODO
-		// Establecer iluminación para el modelo
-		glEnable(GL_LIGHTING);
+	public void setSpeeds(float initial, float max) {
+		BallStore balls = world.getBalls();
+		int b = balls.indexOf(entity);
 		
-		// Almacenar la matrix actual para poder modificar sin afectar nada
-		// de otro sitio
-		glPushMatrix();
-
-		glMatrixMode(GL_MODELVIEW);
-		glLoadIdentity();
-
-		// Posicionar el modelo a partir de la posición acutal
-		glTranslatef(positionX, positionY, positionZ);
-				
-		// Definir el material del que está hecho el modelo para
-		// saber como refleja la Luz
-		FloatBuffer material = BufferUtils.createFloatBuffer(4);
-		material.put(1).put(1).put(1).put(1); 
-		material.flip();
+		balls.speed[b] = initial;
+		balls.maxSpeed[b] = max;
+	}
+	
+	/**
+	 * Lanza la bola con una velocidad dada (p.e. para varias bolas o para
+	 * simulaciones sin teclado)
+	 * 
+	 * @param velX Velocidad horizontal en pixels/s
+	 * @param velY Velocidad vertical en pixels/s (negativa hacia arriba)
+	 */
+	public void launch(float velX, float velY) {
+		MotionStore motion = world.getMotion();
+		int m = motion.indexOf(entity);
 		
-		// Material de las caras frontales y posteriores
-		glMaterial(GL_FRONT, GL_DIFFUSE, material);
-		glMaterial(GL_BACK, GL_DIFFUSE, material);
-		// El brillo especular pequeño (de 0 a 255).
-		glMaterialf(GL_FRONT, GL_SHININESS, 20);
+		motion.velocityX[m] = velX;
+		motion.velocityY[m] = velY;
+	}
+	
+	/**
+	 * Rebote contra una superficie: se refleja la velocidad respecto a la normal.
+	 * Si la bola ya se aleja de la superficie no se modifica
+	 * 
+	 * @param normalX Normal de la superficie (unitaria)
+	 * @param normalY Normal de la superficie (unitaria)
+	 */
+	public void reflect(float normalX, float normalY) {
+		MotionStore motion = world.getMotion();
+		int m = motion.indexOf(entity);
+		float dot = motion.velocityX[m] * normalX + motion.velocityY[m] * normalY;
 		
-		// Enlazar la textura al modelo y renderizar el modelo
-		glDisable(GL_TEXTURE_2D);
-
-		if (texture != null)
-		{
-			// Le indico a OpenGL que voy a usar texturas para pintar los
-			// objetos y que van a ser de 2 dimensiones (un dibujo normal).
-			glEnable(GL_TEXTURE_2D);
-			// Modo de mezcla de la textura con el color del material (MODULATE: Mezcla)
-			glTexEnvf(GL_TEXTURE_2D, GL_TEXTURE_ENV_MODE, GL_MODULATE);
-			texture.bind();
+		if (dot < 0) {
+			motion.velocityX[m] -= 2 * dot * normalX;
+			motion.velocityY[m] -= 2 * dot * normalY;
 		}
-
-		glCallList(listID);
-		
-		// Restaurar la matriz a como estaba al entrar en el metodo
-		glPopMatrix();
 	}
-
+	
 	/**
-	 * @see org.maox.graphics.Entity#getSize()
+	 * Modifica la dirección o velocidad horizontal de la bola multiplicando por el factor
+	 * @param factorX
 	 */
-	public float getSize() {
-		// the size of the player
-		return iRadius*2;
+	public void changeX(float factorX) {
+		MotionStore motion = world.getMotion();
+		motion.velocityX[motion.indexOf(entity)] *= factorX;
 	}
-
+	
 	/**
-	 * @see org.maox.graphics.Entity#getSizeX()
+	 * Modifica la dirección o velocidad vertical de la bola multiplicando por el factor
+	 * @param factorY
 	 */
-	@Override
-	public float getSizeX() {
-		return getSize()*2;
+	public void changeY(float factorY) {
+		MotionStore motion = world.getMotion();
+		motion.velocityY[motion.indexOf(entity)] *= factorY;
 	}
-
+	
+	public float getX() {
+		MotionStore motion = world.getMotion();
+		return motion.x[motion.indexOf(entity)];
+	}
+	
+	public float getY() {
+		MotionStore motion = world.getMotion();
+		return motion.y[motion.indexOf(entity)];
+	}
+	
 	/**
-	 * @see org.maox.graphics.Entity#getSizeY()
+	 * @return Velocidad horizontal en pixels/s
 	 */
-	@Override
-	public float getSizeY() {
-		return getSize()*2;
-	}	
+	public float getVelocityX() {
+		MotionStore motion = world.getMotion();
+		return motion.velocityX[motion.indexOf(entity)];
+	}
+	
 	/**
-	 * @see org.maox.graphics.Entity#collide()
+	 * @return Velocidad vertical en pixels/s (0 con la bola parada sobre la nave)
 	 */
-	public void collide(EntityManager manager, Entity other) {
-		// TODO
-		// if we've collide with a rock then the rock must split apart,
-		// and our velocity needs to be changed to push us away from the
-		// rock
-		/*
-		if (other instanceof Rock) {
-			velocityX = (getX() - other.getX());
-			velocityY = (getY() - other.getY());
-			
-			((Rock) other).split(manager, this);
-			
-			// notify the class manging the entities that the player
-			// has been hit, just in case anything needs doing
-			manager.playerHit();
-		}
-		*/
+	public float getVelocityY() {
+		MotionStore motion = world.getMotion();
+		return motion.velocityY[motion.indexOf(entity)];
 	}
 	
 	/**
-	 * Modifica la dirección o velocidad horizontal de la bola multiplicando por el factor
-	 * @param factorX 
+	 * @return Velocidad máxima en pixels/s
 	 */
-	public void changeX(float factorX) {
-		velocityX *= factorX;	
+	public float getMaxSpeed() {
+		BallStore balls = world.getBalls();
+		return balls.maxSpeed[balls.indexOf(entity)];
 	}
 	
 	/**
-	 * Modifica la dirección o velocidad vertical de la bola multiplicando por el factor
-	 * @param factorY 
+	 * @return Radio de la bola
 	 */
-	public void changeY(float factorY) {
-		velocityY *= factorY;	
+	public float getRadius() {
+		BallStore balls = world.getBalls();
+		return balls.radius[balls.indexOf(entity)];
 	}
 }
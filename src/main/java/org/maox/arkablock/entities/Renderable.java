@@ -0,0 +1,21 @@
+package org.maox.arkablock.entities;
+
+import org.maox.arkablock.render.RenderBatch;
+
+/**
+ * Entidad que se dibuja añadiendo sus elementos al lote del frame en lugar
+ * de llamar directamente a OpenGL. Guarda su posición del ciclo anterior
+ * para dibujarse interpolada entre ciclos de lógica.
+ * 
+ * @author Alex
+ */
+public interface Renderable {
+
+	/**
+	 * Añade la entidad al lote del frame
+	 * 
+	 * @param batch Lote del frame
+	 * @param alpha Fracción [0, 1] entre la posición anterior y la actual
+	 */
+	public void submit(RenderBatch batch, float alpha);
+}
@@ -1,209 +1,195 @@
 package org.maox.arkablock.entities;
 
-import java.io.IOException;
-import java.nio.FloatBuffer;
-
-import org.lwjgl.BufferUtils;
-import org.lwjgl.input.Keyboard;
-
-import static org.lwjgl.opengl.GL11.*;
-
-import org.maox.games.entities.AbstractEntity2D;
-import org.maox.games.entities.Entity;
-import org.maox.games.entities.EntityManager;
-import org.maox.graphics.models.ObjLoader;
-import org.maox.graphics.models.ObjModel;
-import org.maox.graphics.textures.Texture;
-import org.maox.graphics.textures.TextureLoader;
+import org.maox.arkablock.assets.TextureRegion;
+import org.maox.arkablock.audio.Sounds;
+import org.maox.arkablock.backend.Model;
+import org.maox.arkablock.collision.CollisionShape;
+import org.maox.arkablock.collision.Hit;
+import org.maox.arkablock.collision.PaddleResponse;
+import org.maox.arkablock.collision.Shaped;
+import org.maox.arkablock.collision.SweepTarget;
+import org.maox.arkablock.ecs.EcsWorld;
+import org.maox.arkablock.ecs.MeshStore;
+import org.maox.arkablock.ecs.MotionStore;
+import org.maox.arkablock.ecs.PaddleStore;
+import org.maox.arkablock.render.Material;
 
 /**
- * Entidad que representa la nave del jugador.
- * Esta entidad es responsable de mostrar el modelo
+ * Nave del jugador. Sus datos están en los componentes de una entidad del
+ * mundo (movimiento, nave y dibujo) y esta clase solo es una vista que los
+ * lee y escribe; la mueve PaddleSystem y la dibuja RenderSystem. Como
+ * sólido responde al impacto de la bola.
  * 
  * @author Alex
  */
-public class Ship extends AbstractEntity2D {
-	/** Textura a aplicar al modelo */
-	private Texture texture;
-	/** El modelo 3d de la nave */
-	private ObjModel model;
-	/** Factor por el que se va a escalar el modelo (por si es muy grande o pequeño) */
-	private float fScale = 15f;
+public class Ship implements SweepTarget, Shaped {
+	/** Factor por el que se escala el modelo (por si es muy grande o pequeño) */
+	private static final float SCALE = 15f;
+	/** Aceleración y velocidad máxima en pixels/s */
+	private static final float ACCELERATION = 5000, MAX_SPEED = 900;
+	
+	/** Rebote de la bola: hasta 60º en los extremos y, a la velocidad máxima
+	 *  de la nave, el punto de golpeo se desplaza un cuarto del semiancho */
+	private static final PaddleResponse RESPONSE = new PaddleResponse(60, 0.25f / MAX_SPEED);
+	
+	/** Mundo de la entidad */
+	private final EcsWorld world;
+	/** Entidad de la nave (-1 fuera del mundo) */
+	private int entity = -1;
 	
 	/**
-	 * Crear una nueva entidad de jugador
+	 * @param world Mundo en el que se crea la nave
 	 */
-	public Ship() throws IOException {
-		TextureLoader loaderTex = TextureLoader.getInstance();
-		ObjLoader loaderObj = ObjLoader.getInstance();
-
-		// Se carga la textura de la nave y el modelo de la nave
-		texture = loaderTex.getTexture("img/ship.jpg");
+	public Ship(EcsWorld world) {
+		this.world = world;
+	}
+	
+	/**
+	 * Añade la nave al mundo, parada en el origen. La posición de salida la
+	 * da el mundo (place), que conoce las medidas del area de juego
+	 * 
+	 * @param model Modelo de la nave (compartido, no se libera con la nave)
+	 * @param texture Textura del modelo
+	 * @return Entidad de la nave
+	 */
+	public int create(Model model, TextureRegion texture) {
+		destroy();
 		
-		// Carga del modelo 3D
-		model = loaderObj.getModel("obj/vaus.obj");
+		entity = world.create();
+		world.getMotion().add(entity, 0, 0);
+		world.getPaddles().add(entity, ACCELERATION, MAX_SPEED);
+		world.getMeshes().add(entity, model, texture, Material.WHITE, 0, SCALE);
 		
-		// Posición y velocidad inicial
-		initPos();
+		return entity;
 	}
 	
 	/**
-	 * Inicialización de la posición inicial
+	 * Quita la nave del mundo (si está)
 	 */
-	public void initPos() {
-		positionX = 400;
-		positionY = 550;
-		velocityX = 0;
-		velocityY = 0;
+	public void destroy() {
+		if (entity >= 0) {
+			world.destroy(entity);
+			entity = -1;
+		}
 	}
-
+	
 	/**
-	 * @see org.maox.graphics.Entity#update()
+	 * @return Entidad de la nave (-1 fuera del mundo)
 	 */
-	public void update(EntityManager manager, int delta) {
-		// Si el jugador está pulsado la derecha o izquierda
-		// hay que mover la nave. La cantidad de movmiento
-		// está escalado por el delta 
-		if (Keyboard.isKeyDown(Keyboard.KEY_LEFT)) {
-			velocityX -= (delta / 0.2f);
-		}
-		else if (Keyboard.isKeyDown(Keyboard.KEY_RIGHT)) {
-			velocityX += (delta / 0.2f);
-		}
-		// Si no hay pulsado nada se para la nave
-		else {
-			if (Math.abs(velocityX) > 1)
-				velocityX = 0;
-			else
-				velocityX /= 2;
-		}
-		
-		// Velocidad máxima que se permitira
-		if (velocityX > 900) velocityX = 900;
-		if (velocityX < -900) velocityX = -900;
-		
-		super.update(manager, delta);
+	public int getEntity() {
+		return entity;
 	}
 	
 	/**
-	 * @see org.maox.graphics.Entity#render()
+	 * Nave parada
 	 */
-	public void render() {
-		// Establecer iluminación para el modelo
-		glEnable(GL_LIGHTING);
-		
-		// Almacenar la matrix actual para poder modificar sin afectar nada
-		// de otro sitio
-		glPushMatrix();
-
-		glMatrixMode(GL_MODELVIEW);
-		glLoadIdentity();
-
-		// Posicionar el modelo a partir de la posición acutal
-		glTranslatef(positionX, positionY, positionZ);
-				
-		// Escalar el modelo porque es demasiado grande
-		glScalef(fScale, fScale, fScale);
-		
-		// Definir el material del que está hecho el modelo para
-		// saber como refleja la Luz
-		FloatBuffer material = BufferUtils.createFloatBuffer(4);
-		material.put(1).put(1).put(1).put(1); 
-		material.flip();
-		
-		// Material de las caras frontales y posteriores
-		glMaterial(GL_FRONT, GL_DIFFUSE, material);
-		glMaterial(GL_BACK, GL_DIFFUSE, material);
+	public void reset() {
+		MotionStore motion = world.getMotion();
+		int m = motion.indexOf(entity);
 		
-		// Enlazar la textura al modelo y renderizar el modelo
-		glDisable(GL_TEXTURE_2D);
-
-		if (model.hasTexture())
-		{
-			// Le indico a OpenGL que voy a usar texturas para pintar los
-			// objetos y que van a ser de 2 dimensiones (un dibujo normal).
-			glEnable(GL_TEXTURE_2D);
-			// Modo de mezcla de la textura con el color del material (MODULATE: Mezcla)
-			glTexEnvf(GL_TEXTURE_2D, GL_TEXTURE_ENV_MODE, GL_MODULATE);
-
-			texture.bind();
-		}
-
-		model.render();
+		motion.velocityX[m] = 0;
+		motion.velocityY[m] = 0;
+	}
+	
+	/**
+	 * Coloca la nave sin interpolar desde la posición anterior (evitar que
+	 * se vea el salto)
+	 * 
+	 * @param x Posición X
+	 * @param y Posición Y
+	 */
+	public void place(float x, float y) {
+		MotionStore motion = world.getMotion();
+		int m = motion.indexOf(entity);
 		
-		// Restaurar la matriz a como estaba al entrar en el metodo
-		glPopMatrix();
+		motion.x[m] = motion.lastX[m] = x;
+		motion.y[m] = motion.lastY[m] = y;
 	}
-
+	
+	public float getX() {
+		MotionStore motion = world.getMotion();
+		return motion.x[motion.indexOf(entity)];
+	}
+	
+	public float getY() {
+		MotionStore motion = world.getMotion();
+		return motion.y[motion.indexOf(entity)];
+	}
+	
 	/**
-	 * @see org.maox.graphics.Entity#getSize()
+	 * @return Velocidad horizontal en pixels/s
 	 */
-	public float getSize() {
-		// Radio de colisión
-		return (model.getSizeX()>model.getSizeY()?model.getSizeX():model.getSizeY())*fScale;
+	public float getVelocityX() {
+		MotionStore motion = world.getMotion();
+		return motion.velocityX[motion.indexOf(entity)];
 	}
-
+	
 	/**
-	 * @see org.maox.graphics.Entity#collide()
+	 * @see org.maox.arkablock.collision.SweepTarget#sweep
 	 */
-	public void collide(EntityManager manager, Entity other) {
-		// En caso de colisión con la bola se cambia de dirección Y la bola
+	@Override
+	public boolean sweep(float x, float y, float dx, float dy, float radius, Hit hit) {
+		CollisionShape shape = getShape();
 		
-		// Aquí se puede jugar con la velocidad de la nave y con que lado le de
-		// para cambiar de dirección la bola
-		if (other instanceof Ball) {
-			// Cambio de sentido por el rebote
-			((Ball)other).changeY(-1f);
-
-			// Si es necesario cambio de dirección por el lado que ha golpeado
-			if (getX() < other.getX() && other.getVelocityX() < 0)
-				((Ball)other).changeX(-1f);
-
-			else if (getX() > other.getX() && other.getVelocityX() > 0)
-				((Ball)other).changeX(-1f);
-			}
+		return shape != null && shape.sweep(getX(), getY(), x, y, dx, dy, radius, hit, this, 0);
 	}
-
+	
 	/**
-	 * @see org.maox.graphics.Entity#getSizeX()
+	 * @see org.maox.arkablock.collision.SweepTarget#hit
 	 */
 	@Override
-	public float getSizeX() {
-		return model.getSizeX()*fScale;
+	public void hit(Ball ball, Hit hit) {
+		// Los golpes en los laterales rebotan como contra una pared
+		if (hit.normalY >= 0) {
+			ball.reflect(hit.normalX, hit.normalY);
+			return;
+		}
+		
+		// En la parte superior la dirección de salida depende del punto de
+		// golpeo y de la velocidad de la nave (ver PaddleResponse)
+		if (ball.getVelocityY() > 0) {
+			RESPONSE.apply(ball, (ball.getX() - getX()) / getShape().getHalfWidth(), getVelocityX());
+		}
 	}
-
+	
 	/**
-	 * @see org.maox.graphics.Entity#getSizeY()
+	 * @see org.maox.arkablock.collision.SweepTarget#getHitSound
 	 */
 	@Override
-	public float getSizeY() {
-		return model.getSizeY()*fScale;
+	public int getHitSound() {
+		return Sounds.PADDLE;
 	}
 	
 	/**
-	 * @see org.maox.graphics.Entity#collides()
+	 * La forma la calcula PaddleSystem la primera vez que se conocen las
+	 * medidas del modelo (puede estar cargándose en segundo plano)
+	 * @see org.maox.arkablock.collision.Shaped#getShape()
 	 */
 	@Override
-	public boolean collides(Entity other) {
-		// La colisión de la nave con la bola no será por medio del raido de colisión
-		// Ya que al ser un objeto muy alargado no tiene sentido
-		// Además sólo puede colisionar con la bola
+	public CollisionShape getShape() {
+		PaddleStore paddles = world.getPaddles();
+		int p = paddles.indexOf(entity);
 		
-		if (!(other instanceof Ball))
-			return false;
-
-		// Distancia entre coordenadas
-		float dx = Math.abs(getX() - other.getX());
-		float dy = Math.abs(getY() - other.getY());
-		
-		// Alcances
-		float rangeX = Math.abs(other.getSizeX()/2 + getSizeX()/2);
-		float rangeY = Math.abs(other.getSizeY()/2 + getSizeY()/2);
+		return p >= 0 ? paddles.shape[p] : null;
+	}
+	
+	/**
+	 * @return Factor de escala del modelo
+	 */
+	public float getScale() {
+		MeshStore meshes = world.getMeshes();
+		return meshes.scale[meshes.indexOf(entity)];
+	}
+	
+	/**
+	 * @param scale Factor de escala del modelo (la forma de colisión se
+	 * recalcula en el siguiente ciclo)
+	 */
+	public void setScale(float scale) {
+		MeshStore meshes = world.getMeshes();
+		PaddleStore paddles = world.getPaddles();
 		
-		// Colisión
-		if (dx < rangeX && dy < rangeY)
-			return true;
-
-		return false;
+		meshes.scale[meshes.indexOf(entity)] = scale;
+		paddles.shape[paddles.indexOf(entity)] = null;
 	}
 }
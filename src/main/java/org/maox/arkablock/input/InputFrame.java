@@ -0,0 +1,52 @@
+package org.maox.arkablock.input;
+
+/**
+ * Entrada del jugador en un ciclo de lógica. Las entidades no leen el
+ * teclado: consultan la entrada del ciclo en el mundo (GameWorld.getInput),
+ * que se obtiene de una fuente (teclado, sesión grabada...). Con ciclos
+ * fijos y la misma secuencia de entradas la simulación es reproducible.
+ * 
+ * Los botones se guardan como una máscara de bits.
+ * 
+ * @author Alex
+ */
+public final class InputFrame {
+	/** Botón de desplazamiento a la izquierda */
+	public static final int LEFT = 1;
+	/** Botón de desplazamiento a la derecha */
+	public static final int RIGHT = 2;
+	/** Botón de disparo / saque de la bola */
+	public static final int FIRE = 4;
+	
+	/** Botones pulsados en el ciclo */
+	private int buttons;
+	
+	/**
+	 * @param button Botón (LEFT, RIGHT, FIRE)
+	 * @return true si el botón está pulsado en este ciclo
+	 */
+	public boolean isDown(int button) {
+		return (buttons & button) != 0;
+	}
+	
+	/**
+	 * @return Máscara de bits con los botones pulsados
+	 */
+	public int getButtons() {
+		return buttons;
+	}
+	
+	/**
+	 * @param buttons Máscara de bits con los botones pulsados
+	 */
+	public void setButtons(int buttons) {
+		this.buttons = buttons;
+	}
+	
+	/**
+	 * Ningún botón pulsado
+	 */
+	public void clear() {
+		buttons = 0;
+	}
+}
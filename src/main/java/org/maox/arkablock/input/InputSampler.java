@@ -0,0 +1,162 @@
+package org.maox.arkablock.input;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.lwjgl.input.Keyboard;
+
+/**
+ * Muestreo del teclado una vez por frame. Se vacía la cola de eventos de
+ * LWJGL en un estado (InputSnapshot) que leen después todos los ciclos de
+ * lógica del frame, en lugar de consultar el teclado cada entidad en cada
+ * ciclo.
+ * 
+ * Los estados se entregan con un triple buffer sin bloqueos, como los de
+ * dibujo (SnapshotBuffer): el muestreador (hilo de la ventana) rellena el
+ * suyo y lo publica cambiándolo por el del intercambio, y el lector (los
+ * ciclos de lógica, en el hilo de simulación con arkablock.threaded) toma
+ * el último publicado de la misma forma. El estado que tiene tomado el
+ * lector no lo vuelve a escribir el muestreador hasta que el lector toma
+ * otro, por lento que vaya. Solo puede haber un lector a la vez.
+ * 
+ * Los eventos traen su instante en el reloj del sistema de ventanas, que no
+ * es el de System.nanoTime. Se colocan contando hacia atrás desde el
+ * muestreo con la separación entre eventos, dentro del intervalo del frame.
+ * 
+ * Los cambios se conservan hasta que los ve un ciclo de lógica: si en un
+ * frame no se simula ningún ciclo pasan al estado del frame siguiente.
+ * 
+ * Sin teclado (modo headless) el estado queda sin teclas pulsadas.
+ * 
+ * @author Alex
+ */
+public class InputSampler {
+	/** Instancia única */
+	private static InputSampler instance;
+	
+	/** Bit de estado nuevo en el intercambio */
+	private static final int FRESH = 4;
+	/** Máscara del indice en el intercambio */
+	private static final int INDEX = 3;
+	
+	/** Los tres estados */
+	private final InputSnapshot[] snapshots = { new InputSnapshot(), new InputSnapshot(), new InputSnapshot() };
+	/** Estado en intercambio (indice | FRESH) */
+	private final AtomicInteger middle = new AtomicInteger(1);
+	/** Estado que rellena el muestreador */
+	private int back = 0;
+	/** Estado tomado por el lector */
+	private int front = 2;
+	/** Último estado publicado (solo muestreador; puede tenerlo tomado el lector, que no lo modifica) */
+	private InputSnapshot published = snapshots[1];
+	/** Instante del último muestreo */
+	private long lastSample = System.nanoTime();
+	/** Instante del final del ciclo de lógica en curso */
+	private volatile long tickTime = lastSample;
+	/** Instante del último ciclo simulado (los cambios posteriores no se han leido aún) */
+	private volatile long consumed = lastSample;
+	
+	/** Eventos pendientes del frame (para colocarlos en el tiempo) */
+	private int[] eventKeys = new int[16];
+	private boolean[] eventPressed = new boolean[16];
+	private long[] eventNanos = new long[16];
+	
+	/**
+	 * @return Instancia única
+	 */
+	public static synchronized InputSampler getInstance() {
+		if (instance == null) {
+			instance = new InputSampler();
+		}
+		
+		return instance;
+	}
+	
+	InputSampler() {
+	}
+	
+	/**
+	 * Vacía la cola de eventos del teclado y publica el nuevo estado. Debe
+	 * llamarse una vez por frame, desde el hilo de la ventana
+	 * 
+	 * @param now Instante del muestreo en ns (System.nanoTime)
+	 * @return Estado publicado. El hilo de la ventana puede leerlo hasta su
+	 * siguiente muestreo
+	 */
+	public InputSnapshot sample(long now) {
+		InputSnapshot previous = published;
+		InputSnapshot next = snapshots[back];
+		
+		// Los cambios que no ha visto ningún ciclo (frames sin ciclos de lógica)
+		// pasan al nuevo estado para no perder pulsaciones cortas
+		next.begin(previous, consumed, now);
+		
+		int events = 0;
+		
+		if (Keyboard.isCreated()) {
+			while (Keyboard.next()) {
+				if (Keyboard.isRepeatEvent()) {
+					continue;
+				}
+				
+				if (events == eventKeys.length) {
+					int size = events * 2;
+					eventKeys = Arrays.copyOf(eventKeys, size);
+					eventPressed = Arrays.copyOf(eventPressed, size);
+					eventNanos = Arrays.copyOf(eventNanos, size);
+				}
+				
+				eventKeys[events] = Keyboard.getEventKey();
+				eventPressed[events] = Keyboard.getEventKeyState();
+				eventNanos[events] = Keyboard.getEventNanoseconds();
+				events++;
+			}
+		}
+		
+		// El último evento se toma como ocurrido en el muestreo
+		long last = events > 0 ? eventNanos[events - 1] : 0;
+		
+		for (int i=0;i<events;i++) {
+			long time = now - (last - eventNanos[i]);
+			next.edge(eventKeys[i], eventPressed[i], Math.min(now, Math.max(lastSample + 1, time)));
+		}
+		
+		lastSample = now;
+		published = next;
+		
+		// El estado rellenado pasa al intercambio y el que había en él se
+		// reutiliza en el siguiente muestreo (nunca es el del lector)
+		back = middle.getAndSet(back | FRESH) & INDEX;
+		
+		return next;
+	}
+	
+	/**
+	 * Toma el último estado publicado, si hay uno nuevo, y suelta el que se
+	 * tenía tomado. Solo desde el hilo que ejecuta los ciclos de lógica
+	 * 
+	 * @return Estado tomado. Sigue siendo válido hasta la siguiente llamada
+	 */
+	public InputSnapshot acquire() {
+		if ((middle.get() & FRESH) != 0) {
+			front = middle.getAndSet(front) & INDEX;
+		}
+		
+		return snapshots[front];
+	}
+	
+	/**
+	 * Instante del final del ciclo de lógica que se va a simular. Con varios
+	 * ciclos por frame cada uno ve el estado del teclado en su instante
+	 * 
+	 * @param tickTime Instante en ns (System.nanoTime)
+	 */
+	public void setTickTime(long tickTime) {
+		this.tickTime = tickTime;
+		consumed = tickTime;
+	}
+	
+	public long getTickTime() {
+		return tickTime;
+	}
+}
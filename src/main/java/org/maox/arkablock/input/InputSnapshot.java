@@ -0,0 +1,174 @@
+package org.maox.arkablock.input;
+
+import java.util.Arrays;
+
+/**
+ * Estado del teclado en un frame: teclas pulsadas al final del frame (un
+ * bit por tecla) y los cambios ocurridos durante el frame, en orden y con
+ * su instante. Con los cambios se puede saber el estado de una tecla en
+ * cualquier instante del frame, y no se pierden las pulsaciones más cortas
+ * que un frame.
+ * 
+ * Para quien lo lee es inmutable. El muestreador (InputSampler) lo entrega
+ * con un triple buffer: el estado que ha tomado el lector (acquire) no se
+ * vuelve a escribir hasta que el lector toma otro, aunque el hilo de la
+ * ventana siga muestreando mientras tanto.
+ * 
+ * @author Alex
+ */
+public final class InputSnapshot {
+	/** Número de teclas */
+	public static final int KEYS = 256;
+	
+	/** Teclas pulsadas al final del frame (bit por tecla) */
+	private final long[] down = new long[KEYS / 64];
+	/** Cambios del frame: tecla, si se pulsa o se suelta e instante en ns */
+	private int[] edgeKeys = new int[16];
+	private boolean[] edgePressed = new boolean[16];
+	private long[] edgeTimes = new long[16];
+	/** Número de cambios */
+	private int edges;
+	/** Intervalo del frame (from, to] en ns (System.nanoTime) */
+	private long from, to;
+	
+	InputSnapshot() {
+	}
+	
+	/**
+	 * Comienza un nuevo frame partiendo del estado final de otro. Se
+	 * conservan sus cambios posteriores al inicio del intervalo
+	 * 
+	 * @param previous Estado del frame anterior
+	 * @param from Inicio del intervalo (excluido)
+	 * @param to Final del intervalo (instante del muestreo)
+	 */
+	void begin(InputSnapshot previous, long from, long to) {
+		System.arraycopy(previous.down, 0, down, 0, down.length);
+		edges = 0;
+		this.from = from;
+		this.to = to;
+		
+		for (int i=0;i<previous.edges;i++) {
+			if (previous.edgeTimes[i] > from) {
+				add(previous.edgeKeys[i], previous.edgePressed[i], previous.edgeTimes[i]);
+			}
+		}
+	}
+	
+	/**
+	 * Añade un cambio del frame (en orden de llegada)
+	 */
+	void edge(int key, boolean pressed, long time) {
+		if (key < 0 || key >= KEYS) {
+			return;
+		}
+		
+		add(key, pressed, time);
+		
+		if (pressed) {
+			down[key >>> 6] |= 1L << key;
+		}
+		else {
+			down[key >>> 6] &= ~(1L << key);
+		}
+	}
+	
+	private void add(int key, boolean pressed, long time) {
+		if (edges == edgeKeys.length) {
+			int size = edges * 2;
+			edgeKeys = Arrays.copyOf(edgeKeys, size);
+			edgePressed = Arrays.copyOf(edgePressed, size);
+			edgeTimes = Arrays.copyOf(edgeTimes, size);
+		}
+		
+		edgeKeys[edges] = key;
+		edgePressed[edges] = pressed;
+		edgeTimes[edges] = time;
+		edges++;
+	}
+	
+	/**
+	 * @param key Código de tecla (Keyboard.KEY_*)
+	 * @return true si la tecla está pulsada al final del frame
+	 */
+	public boolean isDown(int key) {
+		return (down[key >>> 6] & (1L << key)) != 0;
+	}
+	
+	/**
+	 * Estado de una tecla en un instante del frame. Se parte del estado final
+	 * y se deshacen los cambios posteriores al instante
+	 * 
+	 * @param key Código de tecla (Keyboard.KEY_*)
+	 * @param time Instante en ns (System.nanoTime)
+	 * @return true si la tecla estaba pulsada en ese instante
+	 */
+	public boolean isDownAt(int key, long time) {
+		boolean state = isDown(key);
+		
+		for (int i=edges-1;i>=0 && edgeTimes[i]>time;i--) {
+			if (edgeKeys[i] == key) {
+				state = !edgePressed[i];
+			}
+		}
+		
+		return state;
+	}
+	
+	/**
+	 * @param key Código de tecla (Keyboard.KEY_*)
+	 * @param after Inicio del intervalo en ns (excluido)
+	 * @param until Fin del intervalo en ns (incluido)
+	 * @return true si la tecla se ha pulsado dentro del intervalo
+	 */
+	public boolean wasPressed(int key, long after, long until) {
+		for (int i=0;i<edges;i++) {
+			if (edgeKeys[i] == key && edgePressed[i] && edgeTimes[i] > after && edgeTimes[i] <= until) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * @param key Código de tecla (Keyboard.KEY_*)
+	 * @return true si la tecla se ha pulsado durante el frame
+	 */
+	public boolean wasPressed(int key) {
+		return wasPressed(key, Long.MIN_VALUE, Long.MAX_VALUE);
+	}
+	
+	/**
+	 * @return Número de cambios durante el frame
+	 */
+	public int getEdgeCount() {
+		return edges;
+	}
+	
+	public int getEdgeKey(int edge) {
+		return edgeKeys[edge];
+	}
+	
+	public boolean isEdgePressed(int edge) {
+		return edgePressed[edge];
+	}
+	
+	public long getEdgeTime(int edge) {
+		return edgeTimes[edge];
+	}
+	
+	/**
+	 * @return Inicio del frame en ns (excluido)
+	 */
+	public long getFrom() {
+		return from;
+	}
+	
+	/**
+	 * @return Final del frame (instante del muestreo) en ns
+	 */
+	public long getTo() {
+		return to;
+	}
+}
@@ -0,0 +1,19 @@
+package org.maox.arkablock.input;
+
+/**
+ * Origen de la entrada del jugador, ciclo a ciclo
+ * 
+ * @author Alex
+ */
+public interface InputSource {
+	
+	/**
+	 * Obtiene la entrada del siguiente ciclo de lógica. Se llama una vez por
+	 * ciclo, también mientras el juego está parado, para que la secuencia de
+	 * entradas corresponda siempre con la de ciclos
+	 * 
+	 * @param frame Entrada a rellenar
+	 * @return false si la fuente se ha agotado (la entrada queda vacía)
+	 */
+	public boolean next(InputFrame frame);
+}
@@ -0,0 +1,55 @@
+package org.maox.arkablock.input;
+
+import org.lwjgl.input.Keyboard;
+
+/**
+ * Entrada del teclado a partir del muestreo del frame (InputSampler). Cada
+ * ciclo toma el estado de las teclas en su instante, y el disparo cuenta
+ * también si la tecla se ha pulsado y soltado entre dos ciclos.
+ * 
+ * @author Alex
+ */
+public class LiveInput implements InputSource {
+	/** Muestreo del teclado */
+	private final InputSampler sampler;
+	/** Instante del ciclo anterior */
+	private long lastTick = Long.MIN_VALUE;
+	
+	/**
+	 * Entrada del muestreo del teclado compartido
+	 */
+	public LiveInput() {
+		this(InputSampler.getInstance());
+	}
+	
+	/**
+	 * @param sampler Muestreo del teclado
+	 */
+	public LiveInput(InputSampler sampler) {
+		this.sampler = sampler;
+	}
+
+	/**
+	 * @see org.maox.arkablock.input.InputSource#next
+	 */
+	@Override
+	public boolean next(InputFrame frame) {
+		InputSnapshot snapshot = sampler.acquire();
+		long tick = sampler.getTickTime();
+		int buttons = 0;
+		
+		if (snapshot.isDownAt(Keyboard.KEY_LEFT, tick)) {
+			buttons |= InputFrame.LEFT;
+		}
+		if (snapshot.isDownAt(Keyboard.KEY_RIGHT, tick)) {
+			buttons |= InputFrame.RIGHT;
+		}
+		if (snapshot.isDownAt(Keyboard.KEY_SPACE, tick) || snapshot.wasPressed(Keyboard.KEY_SPACE, lastTick, tick)) {
+			buttons |= InputFrame.FIRE;
+		}
+		
+		lastTick = tick;
+		frame.setButtons(buttons);
+		return true;
+	}
+}
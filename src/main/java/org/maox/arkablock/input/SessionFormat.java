@@ -0,0 +1,67 @@
+package org.maox.arkablock.input;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Formato de las sesiones grabadas (.aks). Se graba la entrada de cada ciclo
+ * comprimida por tramos: mientras no cambian los botones solo crece el
+ * contador del tramo, así una partida de varios minutos ocupa unos pocos KB.
+ * 
+ * Estructura:
+ *    Cabecera: int magic ('AKSS'), int versión, int duración del ciclo en ms
+ *    Tramos: varint ciclos, byte botones (InputFrame)
+ *    Fin: varint 0, long suma de comprobación del estado final
+ * 
+ * Los enteros de la cabecera y la suma son big endian (DataOutputStream);
+ * los varint usan 7 bits por byte, empezando por los de menor peso.
+ * 
+ * @author Alex
+ */
+final class SessionFormat {
+	/** Identificador del formato */
+	static final int MAGIC = 'A' << 24 | 'K' << 16 | 'S' << 8 | 'S';
+	/** Versión del formato */
+	static final int VERSION = 1;
+	
+	private SessionFormat() {
+	}
+	
+	/**
+	 * Escribe un entero positivo en formato varint
+	 */
+	static void writeVarint(OutputStream out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.write((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+	
+	/**
+	 * Lee un entero positivo en formato varint
+	 * 
+	 * @throws EOFException Si el fichero termina antes de tiempo
+	 */
+	static long readVarint(InputStream in) throws IOException {
+		long value = 0;
+		
+		for (int shift=0;shift<64;shift+=7) {
+			int b = in.read();
+			
+			if (b < 0) {
+				throw new EOFException("Sesión incompleta");
+			}
+			
+			value |= (long) (b & 0x7F) << shift;
+			
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		
+		throw new IOException("Varint no válido");
+	}
+}
@@ -0,0 +1,120 @@
+package org.maox.arkablock.input;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Reproducción de una sesión grabada con SessionRecorder. Entrega la misma
+ * entrada, ciclo a ciclo, que se grabó. Al terminar queda disponible la suma
+ * de comprobación del estado final de la grabación.
+ * 
+ * @author Alex
+ */
+public class SessionPlayer implements InputSource {
+	/** Fichero de la sesión */
+	private final DataInputStream in;
+	/** Duración del ciclo de lógica con el que se grabó, en ms */
+	private final int tickMillis;
+	
+	/** Botones del tramo actual */
+	private int runButtons;
+	/** Ciclos que quedan del tramo actual */
+	private long runLeft;
+	/** Ciclos reproducidos */
+	private long ticks;
+	/** Si se ha llegado al final de la sesión */
+	private boolean finished;
+	/** Suma de comprobación grabada (válida al terminar) */
+	private long checksum;
+	
+	/**
+	 * @param file Fichero de la sesión
+	 * @throws IOException Si el fichero no es una sesión
+	 */
+	public SessionPlayer(File file) throws IOException {
+		in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		
+		if (in.readInt() != SessionFormat.MAGIC || in.readInt() != SessionFormat.VERSION) {
+			in.close();
+			throw new IOException("No es una sesión grabada: "+file);
+		}
+		
+		tickMillis = in.readInt();
+		readRun();
+	}
+
+	/**
+	 * @see org.maox.arkablock.input.InputSource#next
+	 */
+	@Override
+	public boolean next(InputFrame frame) {
+		if (finished) {
+			frame.clear();
+			return false;
+		}
+		
+		frame.setButtons(runButtons);
+		runLeft--;
+		ticks++;
+		
+		// Se lee el siguiente tramo al acabar el actual, así el final de la
+		// sesión se conoce justo después del último ciclo grabado
+		if (runLeft == 0) {
+			try {
+				readRun();
+			}
+			catch (IOException e) {
+				throw new IllegalStateException("Error leyendo la sesión", e);
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Lee la cabecera del siguiente tramo o el final de la sesión
+	 */
+	private void readRun() throws IOException {
+		runLeft = SessionFormat.readVarint(in);
+		
+		if (runLeft == 0) {
+			checksum = in.readLong();
+			finished = true;
+			in.close();
+		}
+		else {
+			runButtons = in.readUnsignedByte();
+		}
+	}
+	
+	/**
+	 * @return true si se han reproducido todos los ciclos grabados
+	 */
+	public boolean isFinished() {
+		return finished;
+	}
+	
+	/**
+	 * @return Duración del ciclo de lógica con el que se grabó, en ms
+	 */
+	public int getTickMillis() {
+		return tickMillis;
+	}
+	
+	/**
+	 * @return Ciclos reproducidos
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+	
+	/**
+	 * @return Suma de comprobación del estado final grabada (solo al terminar)
+	 */
+	public long getChecksum() {
+		return checksum;
+	}
+}
@@ -0,0 +1,111 @@
+package org.maox.arkablock.input;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Grabación de una sesión. Se coloca entre la fuente de entrada y el juego:
+ * cada entrada que pasa por él se graba en el fichero (ver SessionFormat).
+ * 
+ * @author Alex
+ */
+public class SessionRecorder implements InputSource {
+	/** Fuente de entrada grabada */
+	private final InputSource source;
+	/** Fichero de la sesión */
+	private final DataOutputStream out;
+	
+	/** Botones del tramo actual (-1 antes del primer ciclo) */
+	private int runButtons = -1;
+	/** Ciclos del tramo actual */
+	private long runLength;
+	/** Ciclos grabados */
+	private long ticks;
+	/** Si ya se ha cerrado la grabación */
+	private boolean closed;
+	
+	/**
+	 * @param source Fuente de entrada a grabar
+	 * @param file Fichero de la sesión
+	 * @param tickMillis Duración del ciclo de lógica en ms
+	 * @throws IOException
+	 */
+	public SessionRecorder(InputSource source, File file, int tickMillis) throws IOException {
+		this.source = source;
+		
+		out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		out.writeInt(SessionFormat.MAGIC);
+		out.writeInt(SessionFormat.VERSION);
+		out.writeInt(tickMillis);
+	}
+
+	/**
+	 * @see org.maox.arkablock.input.InputSource#next
+	 */
+	@Override
+	public boolean next(InputFrame frame) {
+		boolean more = source.next(frame);
+		
+		if (closed) {
+			return more;
+		}
+		
+		int buttons = frame.getButtons();
+		
+		if (buttons != runButtons) {
+			try {
+				writeRun();
+			}
+			catch (IOException e) {
+				throw new IllegalStateException("Error grabando la sesión", e);
+			}
+			runButtons = buttons;
+		}
+		
+		runLength++;
+		ticks++;
+		
+		return more;
+	}
+	
+	private void writeRun() throws IOException {
+		if (runLength > 0) {
+			SessionFormat.writeVarint(out, runLength);
+			out.writeByte(runButtons);
+			runLength = 0;
+		}
+	}
+	
+	/**
+	 * Termina la grabación
+	 * 
+	 * @param checksum Suma de comprobación del estado final del juego, para
+	 * comprobar al reproducir que se llega al mismo estado
+	 * @throws IOException
+	 */
+	public void close(long checksum) throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		
+		try {
+			writeRun();
+			SessionFormat.writeVarint(out, 0);
+			out.writeLong(checksum);
+		}
+		finally {
+			out.close();
+		}
+	}
+	
+	/**
+	 * @return Ciclos grabados
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+}
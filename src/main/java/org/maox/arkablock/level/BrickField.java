@@ -0,0 +1,398 @@
+package org.maox.arkablock.level;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.maox.arkablock.audio.Sounds;
+import org.maox.arkablock.collision.Hit;
+import org.maox.arkablock.collision.Sweep;
+import org.maox.arkablock.collision.SweepTarget;
+import org.maox.arkablock.entities.Ball;
+
+/**
+ * Muro de ladrillos del nivel. En lugar de una entidad por ladrillo, todo el
+ * muro se guarda en arrays de primitivos indexados por celda (fila * columnas + columna):
+ * golpes restantes, tipo, color empaquetado (RGBA) y un conjunto de bits con
+ * los ladrillos vivos. 
+ * 
+ * Las consultas de la bola se resuelven directamente con el indice de celda
+ * y el número de ladrillos que quedan por romper se mantiene al día para
+ * saber al instante si se ha completado el nivel.
+ * 
+ * @author Alex
+ */
+public class BrickField implements SweepTarget {
+	/** Tipos de ladrillo */
+	public static final int TYPE_NONE = 0;
+	/** Ladrillo normal (un golpe) */
+	public static final int TYPE_NORMAL = 1;
+	/** Ladrillo plateado (varios golpes) */
+	public static final int TYPE_SILVER = 2;
+	/** Ladrillo dorado (indestructible, no cuenta para terminar el nivel) */
+	public static final int TYPE_GOLD = 3;
+
+	/** Dimensiones de la rejilla en celdas */
+	private final int cols, rows;
+	/** Esquina superior izquierda del muro */
+	private final float originX, originY;
+	/** Tamaño de cada ladrillo */
+	private final float brickWidth, brickHeight;
+
+	/** Golpes que le quedan a cada ladrillo */
+	private final byte[] hits;
+	/** Tipo de cada ladrillo */
+	private final byte[] types;
+	/** Color de cada ladrillo (RGBA empaquetado) */
+	private final int[] colors;
+	/** Bits de ladrillos vivos (bit = celda) */
+	private final long[] alive;
+	/** Ladrillos vivos */
+	private int aliveCount;
+	/** Ladrillos destructibles que quedan */
+	private int remaining;
+
+	/** Destinatario de los avisos de ladrillos destruidos */
+	private BrickListener listener;
+
+	/**
+	 * Crea un muro vacío
+	 * 
+	 * @param cols Columnas de la rejilla
+	 * @param rows Filas de la rejilla
+	 * @param originX Posición X de la esquina superior izquierda
+	 * @param originY Posición Y de la esquina superior izquierda
+	 * @param brickWidth Ancho de un ladrillo
+	 * @param brickHeight Alto de un ladrillo
+	 */
+	public BrickField(int cols, int rows, float originX, float originY, float brickWidth, float brickHeight) {
+		this.cols = cols;
+		this.rows = rows;
+		this.originX = originX;
+		this.originY = originY;
+		this.brickWidth = brickWidth;
+		this.brickHeight = brickHeight;
+
+		int cells = cols * rows;
+		hits = new byte[cells];
+		types = new byte[cells];
+		colors = new int[cells];
+		alive = new long[(cells + 63) >>> 6];
+	}
+
+	/**
+	 * Elimina todos los ladrillos
+	 */
+	public void clear() {
+		Arrays.fill(hits, (byte) 0);
+		Arrays.fill(types, (byte) 0);
+		Arrays.fill(colors, 0);
+		Arrays.fill(alive, 0);
+		aliveCount = 0;
+		remaining = 0;
+	}
+
+	/**
+	 * Coloca un ladrillo (o lo quita si el tipo es TYPE_NONE)
+	 * 
+	 * @param col Columna
+	 * @param row Fila
+	 * @param type Tipo de ladrillo
+	 * @param hitPoints Golpes necesarios para romperlo
+	 * @param color Color RGBA empaquetado
+	 */
+	public void set(int col, int row, int type, int hitPoints, int color) {
+		int cell = row * cols + col;
+
+		if (isAlive(cell)) {
+			kill(cell);
+		}
+
+		types[cell] = (byte) type;
+		hits[cell] = (byte) hitPoints;
+		colors[cell] = color;
+
+		if (type != TYPE_NONE) {
+			alive[cell >>> 6] |= 1L << cell;
+			aliveCount++;
+			if (type != TYPE_GOLD) {
+				remaining++;
+			}
+		}
+	}
+
+	/**
+	 * Carga el contenido completo de una rejilla del mismo tamaño
+	 * 
+	 * @param srcTypes Tipos por celda
+	 * @param srcHits Golpes por celda
+	 * @param srcColors Colores por celda
+	 */
+	public void load(byte[] srcTypes, byte[] srcHits, int[] srcColors) {
+		System.arraycopy(srcTypes, 0, types, 0, types.length);
+		System.arraycopy(srcHits, 0, hits, 0, hits.length);
+		System.arraycopy(srcColors, 0, colors, 0, colors.length);
+		rebuild();
+	}
+
+	/**
+	 * Carga el contenido completo de una rejilla del mismo tamaño desde un
+	 * bloque de memoria con los campos seguidos (ver LevelPack): tipos,
+	 * golpes, relleno hasta múltiplo de 4 y colores. Cada campo se copia de
+	 * una vez
+	 * 
+	 * @param data Datos del nivel desde la posición actual (con su orden de bytes)
+	 */
+	public void load(ByteBuffer data) {
+		int start = data.position();
+		
+		data.get(types);
+		data.get(hits);
+		data.position(start + ((types.length * 2 + 3) & ~3));
+		data.asIntBuffer().get(colors);
+		
+		rebuild();
+	}
+
+	/**
+	 * Recalcula los bits de ladrillos vivos y los contadores a partir de los tipos
+	 */
+	protected void rebuild() {
+		Arrays.fill(alive, 0);
+		aliveCount = 0;
+		remaining = 0;
+
+		for (int cell=0;cell<types.length;cell++) {
+			if (types[cell] != TYPE_NONE) {
+				alive[cell >>> 6] |= 1L << cell;
+				aliveCount++;
+				if (types[cell] != TYPE_GOLD) {
+					remaining++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Golpea un ladrillo
+	 * 
+	 * @param cell Celda del ladrillo
+	 * @return true si el ladrillo se ha destruido
+	 */
+	public boolean damage(int cell) {
+		if (!isAlive(cell) || types[cell] == TYPE_GOLD) {
+			return false;
+		}
+
+		if (--hits[cell] > 0) {
+			return false;
+		}
+
+		int type = types[cell];
+		kill(cell);
+
+		if (listener != null) {
+			listener.brickDestroyed(this, cell, type);
+		}
+
+		return true;
+	}
+
+	private void kill(int cell) {
+		alive[cell >>> 6] &= ~(1L << cell);
+		aliveCount--;
+		if (types[cell] != TYPE_GOLD) {
+			remaining--;
+		}
+		types[cell] = TYPE_NONE;
+		hits[cell] = 0;
+	}
+
+	/**
+	 * @return true si hay un ladrillo vivo en la celda
+	 */
+	public boolean isAlive(int cell) {
+		return (alive[cell >>> 6] & (1L << cell)) != 0;
+	}
+
+	/**
+	 * Siguiente ladrillo vivo para recorrer el muro sin mirar las celdas vacías
+	 * 
+	 * @param from Celda desde la que buscar (incluida)
+	 * @return Celda del siguiente ladrillo vivo o -1 si no hay más
+	 */
+	public int nextAlive(int from) {
+		if (from >= types.length) {
+			return -1;
+		}
+
+		int word = from >>> 6;
+		long bits = alive[word] & (-1L << from);
+
+		while (true) {
+			if (bits != 0) {
+				return (word << 6) + Long.numberOfTrailingZeros(bits);
+			}
+			if (++word == alive.length) {
+				return -1;
+			}
+			bits = alive[word];
+		}
+	}
+
+	/**
+	 * Celda que contiene un punto
+	 * 
+	 * @return Celda o -1 si el punto está fuera del muro
+	 */
+	public int cellAt(float x, float y) {
+		int col = (int) Math.floor((x - originX) / brickWidth);
+		int row = (int) Math.floor((y - originY) / brickHeight);
+
+		if (col < 0 || col >= cols || row < 0 || row >= rows) {
+			return -1;
+		}
+
+		return row * cols + col;
+	}
+
+	/**
+	 * Barrido de la bola contra los ladrillos vivos de las celdas que cubre
+	 * su recorrido
+	 * 
+	 * @see org.maox.arkablock.collision.SweepTarget#sweep
+	 */
+	@Override
+	public boolean sweep(float x, float y, float dx, float dy, float radius, Hit hit) {
+		if (aliveCount == 0) {
+			return false;
+		}
+
+		// Celdas que cubre la caja del recorrido
+		float invW = 1f / brickWidth;
+		float invH = 1f / brickHeight;
+		int minCol = (int) Math.floor((Math.min(x, x + dx) - radius - originX) * invW);
+		int maxCol = (int) Math.floor((Math.max(x, x + dx) + radius - originX) * invW);
+		int minRow = (int) Math.floor((Math.min(y, y + dy) - radius - originY) * invH);
+		int maxRow = (int) Math.floor((Math.max(y, y + dy) + radius - originY) * invH);
+
+		if (maxCol < 0 || minCol >= cols || maxRow < 0 || minRow >= rows) {
+			return false;
+		}
+
+		minCol = Math.max(minCol, 0);
+		maxCol = Math.min(maxCol, cols - 1);
+		minRow = Math.max(minRow, 0);
+		maxRow = Math.min(maxRow, rows - 1);
+
+		boolean found = false;
+
+		for (int row=minRow;row<=maxRow;row++) {
+			float top = originY + row * brickHeight;
+
+			for (int col=minCol;col<=maxCol;col++) {
+				int cell = row * cols + col;
+
+				if (isAlive(cell)) {
+					float left = originX + col * brickWidth;
+					found |= Sweep.circleAabb(x, y, dx, dy, radius,
+							left, top, left + brickWidth, top + brickHeight, hit, this, cell);
+				}
+			}
+		}
+
+		return found;
+	}
+
+	/**
+	 * Rebote de la bola y golpe al ladrillo
+	 * @see org.maox.arkablock.collision.SweepTarget#hit
+	 */
+	@Override
+	public void hit(Ball ball, Hit hit) {
+		ball.reflect(hit.normalX, hit.normalY);
+		damage(hit.index);
+	}
+
+	/**
+	 * Los ladrillos suenan al romperse (ver BrickListener)
+	 * @see org.maox.arkablock.collision.SweepTarget#getHitSound
+	 */
+	@Override
+	public int getHitSound() {
+		return Sounds.NONE;
+	}
+
+	/**
+	 * @return Ladrillos destructibles que quedan (0 = nivel completado)
+	 */
+	public int getRemaining() {
+		return remaining;
+	}
+
+	/**
+	 * @return Ladrillos vivos (incluidos los indestructibles)
+	 */
+	public int getAliveCount() {
+		return aliveCount;
+	}
+
+	public int getType(int cell) {
+		return types[cell];
+	}
+
+	public int getHits(int cell) {
+		return hits[cell];
+	}
+
+	public int getColor(int cell) {
+		return colors[cell];
+	}
+
+	public int getCols() {
+		return cols;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * @return Número total de celdas
+	 */
+	public int getCells() {
+		return types.length;
+	}
+
+	/**
+	 * @return Posición X de la esquina superior izquierda de la celda
+	 */
+	public float getCellX(int cell) {
+		return originX + (cell % cols) * brickWidth;
+	}
+
+	/**
+	 * @return Posición Y de la esquina superior izquierda de la celda
+	 */
+	public float getCellY(int cell) {
+		return originY + (cell / cols) * brickHeight;
+	}
+
+	public float getBrickWidth() {
+		return brickWidth;
+	}
+
+	public float getBrickHeight() {
+		return brickHeight;
+	}
+
+	/**
+	 * @param listener Destinatario de los avisos de ladrillos destruidos
+	 */
+	public void setListener(BrickListener listener) {
+		this.listener = listener;
+	}
+	
+	public BrickListener getListener() {
+		return listener;
+	}
+}
@@ -0,0 +1,18 @@
+package org.maox.arkablock.level;
+
+/**
+ * Recibe los avisos de los ladrillos destruidos del muro
+ * 
+ * @author Alex
+ */
+public interface BrickListener {
+
+	/**
+	 * Un ladrillo ha sido destruido
+	 * 
+	 * @param field Muro al que pertenece
+	 * @param cell Celda del ladrillo
+	 * @param type Tipo del ladrillo
+	 */
+	public void brickDestroyed(BrickField field, int cell, int type);
+}
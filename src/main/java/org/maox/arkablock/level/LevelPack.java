@@ -0,0 +1,207 @@
+package org.maox.arkablock.level;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+import org.maox.arkablock.assets.Asset;
+
+/**
+ * Paquete de niveles (.lvl). Lo genera la herramienta LevelCompiler al
+ * compilar a partir de los muros en texto (src/main/levels). Todos los
+ * niveles tienen la misma rejilla y ocupan lo mismo, con los datos por
+ * campos tal y como los guarda BrickField, de modo que cargar un nivel es
+ * copiar tres bloques de memoria (ver BrickField#load(ByteBuffer)).
+ * 
+ * Estructura (little endian):
+ *    Cabecera de 32 bytes:
+ *       int magic ('AKLV'), int versión, int columnas, int filas, int niveles,
+ *       int tamaño de un nivel, int posición del índice, int reservado
+ *    Índice: por nivel, int posición de sus datos e int ladrillos a romper
+ *    Niveles (alineados a 4 bytes): byte tipo[celdas], byte golpes[celdas],
+ *       relleno hasta múltiplo de 4, int color RGBA[celdas]
+ * 
+ * El fichero se proyecta en memoria y no se lee nada más que la cabecera
+ * al abrirlo: cada nivel se copia al muro cuando se necesita.
+ * 
+ * @author Alex
+ */
+public class LevelPack {
+	/** Identificador del formato ('AKLV' leido en little endian) */
+	public static final int MAGIC = 'A' | 'K' << 8 | 'L' << 16 | 'V' << 24;
+	/** Versión del formato */
+	public static final int VERSION = 1;
+	/** Tamaño de la cabecera en bytes */
+	public static final int HEADER_SIZE = 32;
+	/** Tamaño de cada entrada del índice en bytes */
+	public static final int INDEX_ENTRY = 8;
+	/** Ruta del paquete en el classpath */
+	public static final String REF = "levels/levels.lvl";
+	
+	/** Contenido del paquete (proyectado en memoria) */
+	private final ByteBuffer data;
+	/** Dimensiones de la rejilla */
+	private final int cols, rows;
+	/** Número de niveles */
+	private final int levels;
+	/** Tamaño de un nivel en bytes */
+	private final int levelSize;
+	/** Posición del índice */
+	private final int indexOffset;
+	
+	/**
+	 * @param data Contenido del paquete
+	 * @throws IOException Si el contenido no es válido
+	 */
+	public LevelPack(ByteBuffer data) throws IOException {
+		this.data = data.order(ByteOrder.LITTLE_ENDIAN);
+		
+		if (data.limit() < HEADER_SIZE || data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+			throw new IOException("No es un paquete de niveles");
+		}
+		
+		cols = data.getInt(8);
+		rows = data.getInt(12);
+		levels = data.getInt(16);
+		levelSize = data.getInt(20);
+		indexOffset = data.getInt(24);
+		
+		if (levelSize != levelSize(cols * rows) || indexOffset + levels * INDEX_ENTRY > data.limit()) {
+			throw new IOException("Paquete de niveles incompleto");
+		}
+		
+		for (int i=0;i<levels;i++) {
+			if (getOffset(i) < 0 || getOffset(i) + levelSize > data.limit()) {
+				throw new IOException("Paquete de niveles incompleto");
+			}
+		}
+	}
+	
+	/**
+	 * Abre el paquete del classpath (REF)
+	 * 
+	 * @return Paquete, o null si no existe
+	 * @throws IOException Si no se puede leer o no es válido
+	 */
+	public static LevelPack open() throws IOException {
+		URL url = LevelPack.class.getClassLoader().getResource(REF);
+		return url != null ? open(url) : null;
+	}
+	
+	/**
+	 * Abre un paquete proyectándolo en memoria
+	 * 
+	 * @param url Ubicación del paquete
+	 * @return Paquete
+	 * @throws IOException Si no se puede leer o no es válido
+	 */
+	public static LevelPack open(URL url) throws IOException {
+		return new LevelPack(Asset.map(url));
+	}
+	
+	/**
+	 * Copia un nivel en el muro. Solo lee las páginas del nivel. Se puede
+	 * llamar desde varios hilos a la vez (con muros distintos)
+	 * 
+	 * @param level Nivel [0, getLevelCount())
+	 * @param field Muro con la misma rejilla que el paquete
+	 */
+	public void load(int level, BrickField field) {
+		if (field.getCols() != cols || field.getRows() != rows) {
+			throw new IllegalArgumentException("El muro no tiene la rejilla del paquete: "+cols+"x"+rows);
+		}
+		
+		// Vista propia de los datos (la posición no se comparte entre hilos)
+		ByteBuffer view = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		view.position(getOffset(level));
+		view.limit(getOffset(level) + levelSize);
+		
+		field.load(view);
+	}
+	
+	private int getOffset(int level) {
+		return data.getInt(indexOffset + level * INDEX_ENTRY);
+	}
+	
+	/**
+	 * @return Ladrillos a romper en un nivel
+	 */
+	public int getRemaining(int level) {
+		return data.getInt(indexOffset + level * INDEX_ENTRY + 4);
+	}
+	
+	/**
+	 * @return Tamaño en bytes de los datos de un nivel de una rejilla
+	 */
+	public static int levelSize(int cells) {
+		return ((cells * 2 + 3) & ~3) + cells * 4;
+	}
+	
+	/**
+	 * Escribe un paquete
+	 * 
+	 * @param out Destino
+	 * @param cols Columnas de la rejilla
+	 * @param rows Filas de la rejilla
+	 * @param types Tipos por celda de cada nivel
+	 * @param hits Golpes por celda de cada nivel
+	 * @param colors Colores por celda de cada nivel
+	 * @throws IOException
+	 */
+	public static void write(OutputStream out, int cols, int rows, 
+			List<byte[]> types, List<byte[]> hits, List<int[]> colors) throws IOException {
+		
+		int cells = cols * rows;
+		int levels = types.size();
+		int size = levelSize(cells);
+		int dataOffset = HEADER_SIZE + levels * INDEX_ENTRY;
+		
+		ByteBuffer buffer = ByteBuffer.allocate(dataOffset + levels * size).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(cols).putInt(rows).putInt(levels).putInt(size).putInt(HEADER_SIZE).putInt(0);
+		
+		for (int i=0;i<levels;i++) {
+			int remaining = 0;
+			for (int cell=0;cell<cells;cell++) {
+				int type = types.get(i)[cell];
+				if (type != BrickField.TYPE_NONE && type != BrickField.TYPE_GOLD) {
+					remaining++;
+				}
+			}
+			
+			buffer.putInt(dataOffset + i * size).putInt(remaining);
+		}
+		
+		for (int i=0;i<levels;i++) {
+			int start = buffer.position();
+			
+			buffer.put(types.get(i), 0, cells);
+			buffer.put(hits.get(i), 0, cells);
+			buffer.position(start + size - cells * 4);
+			
+			int[] levelColors = colors.get(i);
+			for (int cell=0;cell<cells;cell++) {
+				buffer.putInt(levelColors[cell]);
+			}
+		}
+		
+		out.write(buffer.array());
+	}
+
+	public int getCols() {
+		return cols;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * @return Número de niveles del paquete
+	 */
+	public int getLevelCount() {
+		return levels;
+	}
+}
@@ -0,0 +1,177 @@
+package org.maox.arkablock.level;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Carga anticipada del siguiente nivel. Mientras se juega un nivel, un hilo
+ * de fondo copia el siguiente del paquete (LevelPack) en un muro de reserva,
+ * de modo que el cambio de nivel se reduce a intercambiar el muro en juego
+ * por el de reserva, que pasa a ser la nueva reserva. Si al cambiar de
+ * nivel la carga no ha terminado, el nivel se carga en el momento (mismo
+ * resultado, solo cambia el coste).
+ * 
+ * Cada cargador usa el hilo de carga que recibe. El juego usa el hilo
+ * compartido (getSharedWorker), de prioridad mínima; quien simule varios
+ * mundos en paralelo (SimulationRunner) debe dar a cada mundo su propio
+ * hilo, porque con el compartido las cargas de todos los mundos esperan en
+ * la misma cola y acaban cargándose en el cambio de nivel.
+ * 
+ * @author Alex
+ */
+public class LevelPrefetcher {
+	/** Hilo de carga compartido */
+	private static ExecutorService sharedWorker;
+	
+	/** Hilo de carga de este cargador */
+	private final ExecutorService worker;
+	/** Paquete de niveles */
+	private final LevelPack pack;
+	/** Muro de reserva (lo escribe el hilo de carga mientras hay una carga pendiente) */
+	private BrickField spare;
+	/** Carga en curso o terminada y no usada */
+	private Future<?> pending;
+	/** Nivel de la carga pendiente */
+	private int pendingLevel = -1;
+	/** Cambios de nivel con el nivel ya cargado y sin cargar */
+	private long hits, misses;
+	
+	/**
+	 * @param pack Paquete de niveles
+	 * @param spare Muro de reserva, con la misma rejilla y posición que el muro en juego
+	 * @param worker Hilo de carga (el compartido o uno propio, ver createWorker)
+	 */
+	public LevelPrefetcher(LevelPack pack, BrickField spare, ExecutorService worker) {
+		this.pack = pack;
+		this.spare = spare;
+		this.worker = worker;
+	}
+	
+	/**
+	 * @return Hilo de carga compartido del juego (se crea la primera vez)
+	 */
+	public static synchronized ExecutorService getSharedWorker() {
+		if (sharedWorker == null) {
+			sharedWorker = createWorker("level-prefetch");
+		}
+		
+		return sharedWorker;
+	}
+	
+	/**
+	 * Crea un hilo de carga demonio de prioridad mínima. Quien lo crea lo
+	 * termina (shutdown) cuando ya no lo usa
+	 * 
+	 * @param name Nombre del hilo
+	 * @return Hilo de carga
+	 */
+	public static ExecutorService createWorker(final String name) {
+		return Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, name);
+				thread.setDaemon(true);
+				thread.setPriority(Thread.MIN_PRIORITY);
+				return thread;
+			}
+		});
+	}
+	
+	/**
+	 * Empieza a cargar un nivel en el muro de reserva
+	 * 
+	 * @param level Nivel del paquete [0, getLevelCount())
+	 */
+	public void prefetch(final int level) {
+		if (pending != null && pendingLevel == level) {
+			return;
+		}
+		
+		// La reserva no se puede tocar hasta que termine la carga anterior
+		await();
+		
+		final BrickField field = spare;
+		pendingLevel = level;
+		pending = worker.submit(new Runnable() {
+			@Override
+			public void run() {
+				pack.load(level, field);
+			}
+		});
+	}
+	
+	/**
+	 * Cambio de nivel: si el nivel ya está cargado se devuelve el muro de
+	 * reserva y el muro en juego pasa a ser la reserva
+	 * 
+	 * @param level Nivel del paquete que empieza
+	 * @param current Muro en juego
+	 * @return Muro con el nivel cargado, o null si no está listo (hay que cargarlo en current)
+	 */
+	public BrickField swap(int level, BrickField current) {
+		if (pending == null || pendingLevel != level || !pending.isDone()) {
+			misses++;
+			return null;
+		}
+		
+		await();
+		hits++;
+		
+		BrickField ready = spare;
+		ready.setListener(current.getListener());
+		spare = current;
+		
+		return ready;
+	}
+	
+	/**
+	 * Espera a que termine la carga pendiente
+	 */
+	private void await() {
+		if (pending == null) {
+			return;
+		}
+		
+		Future<?> task = pending;
+		pending = null;
+		pendingLevel = -1;
+		
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					task.get();
+					break;
+				}
+				catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		catch (ExecutionException e) {
+			throw new IllegalStateException("Error cargando el nivel", e.getCause());
+		}
+		finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * @return Cambios de nivel con el nivel ya cargado
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return Cambios de nivel en los que hubo que cargar el nivel
+	 */
+	public long getMisses() {
+		return misses;
+	}
+}
@@ -0,0 +1,167 @@
+package org.maox.arkablock.particles;
+
+import org.maox.arkablock.assets.TextureRegion;
+
+/**
+ * Configuración de un tipo de efecto (p.e. la rotura de un ladrillo o la
+ * estela de la bola). No guarda partículas: las genera en un ParticleSystem
+ * a ráfagas (burst) o de forma continua según un ritmo por segundo. Cada
+ * tipo de entidad tiene sus emisores y los puede compartir entre todas sus
+ * instancias.
+ * 
+ * Los tiempos se expresan en ms, las velocidades en pixels/s y los colores
+ * en RGBA empaquetado (0xRRGGBBAA).
+ * 
+ * @author Alex
+ */
+public class ParticleEmitter {
+	/** Partículas por ráfaga */
+	private int burst = 16;
+	/** Partículas por segundo en emisión continua */
+	private float rate = 60;
+	/** Velocidad de salida (mínima y máxima) */
+	private float speedMin = 50, speedMax = 150;
+	/** Dirección de salida en radianes y apertura a cada lado */
+	private float angle = 0, spread = (float) Math.PI;
+	/** Fracción de la velocidad del emisor que heredan las partículas */
+	private float inherit = 0;
+	/** Vida (mínima y máxima) en ms */
+	private int lifeMin = 300, lifeMax = 600;
+	/** Lado al nacer y al morir */
+	private float sizeStart = 6, sizeEnd = 1;
+	/** Color al nacer y al morir */
+	private int colorStart = 0xFFFFFFFF, colorEnd = 0xFFFFFF00;
+	/** Aceleración vertical en pixels/s² */
+	private float gravity = 0;
+	/** Frenado (fracción de la velocidad que se pierde por segundo) */
+	private float drag = 0;
+	/** Región de la textura (null para la región blanca / sin textura) */
+	private TextureRegion texture;
+	
+	/**
+	 * Ráfaga de partículas con el color del emisor
+	 * 
+	 * @param system Sistema de partículas
+	 * @param x Posición
+	 * @param y Posición
+	 */
+	public void burst(ParticleSystem system, float x, float y) {
+		burst(system, x, y, colorStart);
+	}
+	
+	/**
+	 * Ráfaga de partículas con otro color inicial (p.e. el del ladrillo roto).
+	 * El color final conserva el del emisor en cuanto a transparencia
+	 * 
+	 * @param system Sistema de partículas
+	 * @param x Posición
+	 * @param y Posición
+	 * @param rgba Color inicial
+	 */
+	public void burst(ParticleSystem system, float x, float y, int rgba) {
+		int end = (rgba & 0xFFFFFF00) | (colorEnd & 0xFF);
+		
+		for (int i=0;i<burst;i++) {
+			spawn(system, x, y, 0, 0, rgba, end);
+		}
+	}
+	
+	/**
+	 * Emisión continua durante un ciclo desde un emisor en movimiento. La
+	 * fracción de partícula que no completa una unidad se resuelve al azar,
+	 * así el ritmo medio es el configurado sin guardar estado por emisor
+	 * 
+	 * @param system Sistema de partículas
+	 * @param x Posición del emisor
+	 * @param y Posición del emisor
+	 * @param velocityX Velocidad del emisor
+	 * @param velocityY Velocidad del emisor
+	 * @param delta Duración del ciclo en ms
+	 */
+	public void emit(ParticleSystem system, float x, float y, float velocityX, float velocityY, int delta) {
+		float count = rate * delta / 1000f;
+		int n = (int) count;
+		
+		if (system.random() < count - n) {
+			n++;
+		}
+		
+		for (int i=0;i<n;i++) {
+			spawn(system, x, y, velocityX * inherit, velocityY * inherit, colorStart, colorEnd);
+		}
+	}
+	
+	private void spawn(ParticleSystem system, float x, float y, float baseX, float baseY, int start, int end) {
+		float a = angle + (system.random() * 2 - 1) * spread;
+		float speed = speedMin + (speedMax - speedMin) * system.random();
+		int life = lifeMin + (int) ((lifeMax - lifeMin) * system.random());
+		
+		system.add(x, y, baseX + (float) Math.cos(a) * speed, baseY + (float) Math.sin(a) * speed, 
+				life, sizeStart, sizeEnd, start, end, gravity, drag, texture);
+	}
+
+	public void setBurst(int burst) {
+		this.burst = burst;
+	}
+
+	public void setRate(float rate) {
+		this.rate = rate;
+	}
+
+	/**
+	 * @param speedMin Velocidad mínima de salida en pixels/s
+	 * @param speedMax Velocidad máxima de salida en pixels/s
+	 */
+	public void setSpeed(float speedMin, float speedMax) {
+		this.speedMin = speedMin;
+		this.speedMax = speedMax;
+	}
+
+	/**
+	 * @param angle Dirección de salida en radianes (0 hacia la derecha, PI/2 hacia abajo)
+	 * @param spread Apertura a cada lado en radianes (PI en todas direcciones)
+	 */
+	public void setDirection(float angle, float spread) {
+		this.angle = angle;
+		this.spread = spread;
+	}
+
+	public void setInherit(float inherit) {
+		this.inherit = inherit;
+	}
+
+	/**
+	 * @param lifeMin Vida mínima en ms
+	 * @param lifeMax Vida máxima en ms
+	 */
+	public void setLife(int lifeMin, int lifeMax) {
+		this.lifeMin = lifeMin;
+		this.lifeMax = lifeMax;
+	}
+
+	public void setSize(float sizeStart, float sizeEnd) {
+		this.sizeStart = sizeStart;
+		this.sizeEnd = sizeEnd;
+	}
+
+	public void setColor(int colorStart, int colorEnd) {
+		this.colorStart = colorStart;
+		this.colorEnd = colorEnd;
+	}
+
+	public void setGravity(float gravity) {
+		this.gravity = gravity;
+	}
+
+	public void setDrag(float drag) {
+		this.drag = drag;
+	}
+
+	public void setTexture(TextureRegion texture) {
+		this.texture = texture;
+	}
+	
+	public TextureRegion getTexture() {
+		return texture;
+	}
+}
@@ -0,0 +1,315 @@
+package org.maox.arkablock.particles;
+
+import org.maox.arkablock.assets.TextureRegion;
+import org.maox.arkablock.render.RenderBatch;
+
+/**
+ * Sistema de partículas. El estado de todas las partículas vive en arrays
+ * primitivos paralelos reservados al crearlo (uno por campo), de modo que
+ * no se crea ningún objeto por partícula: nacer es escribir al final de los
+ * arrays y morir es mover la última partícula al hueco. La actualización es
+ * un bucle sin saltos sobre los arrays (que el JIT puede vectorizar) y una
+ * pasada de compactación de las partículas muertas.
+ * 
+ * Las partículas se dibujan como quads de la capa de efectos del lote
+ * (RenderBatch.LAYER_EFFECTS), de forma que todas las de una misma textura
+ * salen en una sola llamada de dibujo.
+ * 
+ * Los efectos son solo visuales: el generador de números aleatorios es
+ * propio y no afecta a la simulación (ni a la suma de comprobación de las
+ * sesiones grabadas).
+ * 
+ * @author Alex
+ */
+public class ParticleSystem {
+	/** Máximo de texturas distintas */
+	private static final int MAX_TEXTURES = 16;
+	
+	/** Número máximo de partículas vivas (las que no caben se descartan) */
+	private final int capacity;
+	/** Posición y velocidad */
+	private final float[] x, y, velocityX, velocityY;
+	/** Edad y vida en segundos */
+	private final float[] age, life;
+	/** Lado al nacer y al morir */
+	private final float[] sizeStart, sizeEnd;
+	/** Aceleración vertical y frenado */
+	private final float[] gravity, drag;
+	/** Color al nacer y al morir (RGBA) */
+	private final int[] colorStart, colorEnd;
+	/** Textura (indice en textures) */
+	private final int[] texture;
+	/** Número de partículas vivas */
+	private int count;
+	
+	/** Texturas usadas por las partículas */
+	private final TextureRegion[] textures = new TextureRegion[MAX_TEXTURES];
+	/** Ranura en el lote de cada textura (se calcula en cada submit) */
+	private final int[] slots = new int[MAX_TEXTURES];
+	/** Número de texturas */
+	private int textureCount = 1;
+	
+	/** Duración del último ciclo en segundos (para interpolar) */
+	private float lastDelta;
+	/** Estado del generador xorshift */
+	private int seed = 0x2545F491;
+	/** Partículas descartadas por falta de sitio */
+	private long dropped;
+	/** Sin efectos no se generan partículas (p.e. al simular sin ventana) */
+	private boolean enabled = true;
+	
+	/**
+	 * @param capacity Número máximo de partículas vivas
+	 */
+	public ParticleSystem(int capacity) {
+		this.capacity = capacity;
+		
+		x = new float[capacity];
+		y = new float[capacity];
+		velocityX = new float[capacity];
+		velocityY = new float[capacity];
+		age = new float[capacity];
+		life = new float[capacity];
+		sizeStart = new float[capacity];
+		sizeEnd = new float[capacity];
+		gravity = new float[capacity];
+		drag = new float[capacity];
+		colorStart = new int[capacity];
+		colorEnd = new int[capacity];
+		texture = new int[capacity];
+	}
+	
+	/**
+	 * Región que se usa para las partículas sin textura propia (la región
+	 * blanca del atlas, o null para dibujarlas sin textura)
+	 * 
+	 * @param white Región blanca
+	 */
+	public void setWhite(TextureRegion white) {
+		textures[0] = white;
+	}
+	
+	/**
+	 * Añade una partícula
+	 * 
+	 * @param px Posición
+	 * @param py Posición
+	 * @param vx Velocidad en pixels/s
+	 * @param vy Velocidad en pixels/s
+	 * @param lifeMillis Vida en ms
+	 * @param size0 Lado al nacer
+	 * @param size1 Lado al morir
+	 * @param rgba0 Color al nacer
+	 * @param rgba1 Color al morir
+	 * @param ay Aceleración vertical en pixels/s²
+	 * @param damping Fracción de la velocidad que se pierde por segundo
+	 * @param region Textura (null para la región blanca)
+	 * @return false si no queda sitio
+	 */
+	public boolean add(float px, float py, float vx, float vy, int lifeMillis, float size0, float size1, 
+			int rgba0, int rgba1, float ay, float damping, TextureRegion region) {
+		
+		if (!enabled) {
+			return false;
+		}
+		
+		if (count == capacity || lifeMillis <= 0) {
+			dropped++;
+			return false;
+		}
+		
+		int i = count++;
+		x[i] = px;
+		y[i] = py;
+		velocityX[i] = vx;
+		velocityY[i] = vy;
+		age[i] = 0;
+		life[i] = lifeMillis / 1000f;
+		sizeStart[i] = size0;
+		sizeEnd[i] = size1;
+		colorStart[i] = rgba0;
+		colorEnd[i] = rgba1;
+		gravity[i] = ay;
+		drag[i] = damping;
+		texture[i] = textureIndex(region);
+		
+		return true;
+	}
+	
+	/**
+	 * Indice de una textura en la tabla, registrándola si es nueva
+	 */
+	private int textureIndex(TextureRegion region) {
+		if (region == null) {
+			return 0;
+		}
+		
+		for (int t=1;t<textureCount;t++) {
+			if (textures[t] == region) {
+				return t;
+			}
+		}
+		
+		// Con la tabla llena se usa la región blanca
+		if (textureCount == MAX_TEXTURES) {
+			return 0;
+		}
+		
+		textures[textureCount] = region;
+		return textureCount++;
+	}
+	
+	/**
+	 * Avanza todas las partículas un ciclo y elimina las que han agotado su vida
+	 * 
+	 * @param delta Duración del ciclo en ms
+	 */
+	public void update(int delta) {
+		float dt = delta / 1000f;
+		int n = count;
+		
+		// Integración: mismo trabajo para todas las partículas, sin saltos
+		for (int i=0;i<n;i++) {
+			float keep = 1 - drag[i] * dt;
+			velocityX[i] *= keep;
+			velocityY[i] = velocityY[i] * keep + gravity[i] * dt;
+			x[i] += velocityX[i] * dt;
+			y[i] += velocityY[i] * dt;
+			age[i] += dt;
+		}
+		
+		// Compactación: la última partícula ocupa el hueco de cada muerta
+		for (int i=0;i<n;) {
+			if (age[i] >= life[i]) {
+				move(--n, i);
+			}
+			else {
+				i++;
+			}
+		}
+		
+		count = n;
+		lastDelta = dt;
+	}
+	
+	private void move(int from, int to) {
+		x[to] = x[from];
+		y[to] = y[from];
+		velocityX[to] = velocityX[from];
+		velocityY[to] = velocityY[from];
+		age[to] = age[from];
+		life[to] = life[from];
+		sizeStart[to] = sizeStart[from];
+		sizeEnd[to] = sizeEnd[from];
+		colorStart[to] = colorStart[from];
+		colorEnd[to] = colorEnd[from];
+		gravity[to] = gravity[from];
+		drag[to] = drag[from];
+		texture[to] = texture[from];
+	}
+	
+	/**
+	 * Añade las partículas al lote, interpolando su posición entre los dos
+	 * últimos ciclos
+	 * 
+	 * @param batch Lote del frame
+	 * @param alpha Fracción del ciclo transcurrida desde la última actualización
+	 */
+	public void submit(RenderBatch batch, float alpha) {
+		for (int t=0;t<textureCount;t++) {
+			slots[t] = batch.textureSlot(textures[t]);
+		}
+		
+		// Tiempo que hay que retroceder desde la última actualización
+		float back = (1 - alpha) * lastDelta;
+		
+		for (int i=0;i<count;i++) {
+			float t = Math.max(0f, (age[i] - back) / life[i]);
+			float half = (sizeStart[i] + (sizeEnd[i] - sizeStart[i]) * t) / 2;
+			float px = x[i] - velocityX[i] * back;
+			float py = y[i] - velocityY[i] * back;
+			int rgba = lerpColor(colorStart[i], colorEnd[i], t);
+			
+			TextureRegion region = textures[texture[i]];
+			
+			if (region == null) {
+				batch.quad(RenderBatch.LAYER_EFFECTS, 0, px - half, py - half, px + half, py + half, 0, 0, 0, 0, rgba);
+			}
+			else {
+				batch.quad(RenderBatch.LAYER_EFFECTS, slots[texture[i]], px - half, py - half, px + half, py + half, 
+						region.getU0(), region.getV0(), region.getU1(), region.getV1(), rgba);
+			}
+		}
+	}
+	
+	/**
+	 * Interpolación canal a canal entre dos colores RGBA
+	 */
+	private static int lerpColor(int from, int to, float t) {
+		int rgba = 0;
+		
+		for (int shift=0;shift<32;shift+=8) {
+			int a = (from >>> shift) & 0xFF;
+			int b = (to >>> shift) & 0xFF;
+			rgba |= (a + (int) ((b - a) * t)) << shift;
+		}
+		
+		return rgba;
+	}
+	
+	/**
+	 * @return Número aleatorio en [0, 1) (xorshift de 32 bits)
+	 */
+	public float random() {
+		int s = seed;
+		s ^= s << 13;
+		s ^= s >>> 17;
+		s ^= s << 5;
+		seed = s;
+		
+		return (s >>> 8) / (float) (1 << 24);
+	}
+	
+	/**
+	 * Activa o desactiva los efectos. Desactivados no se generan partículas
+	 * y se eliminan las que hubiera
+	 * 
+	 * @param enabled false para no generar partículas
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		
+		if (!enabled) {
+			clear();
+		}
+	}
+	
+	public boolean isEnabled() {
+		return enabled;
+	}
+	
+	/**
+	 * Elimina todas las partículas
+	 */
+	public void clear() {
+		count = 0;
+	}
+
+	/**
+	 * @return Número de partículas vivas
+	 */
+	public int size() {
+		return count;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return Partículas descartadas por falta de sitio
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+}
@@ -0,0 +1,156 @@
+package org.maox.arkablock.profiling;
+
+import java.lang.management.ManagementFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Comprobación de que el renderizado no reserva memoria en estado estable.
+ * Mide los bytes reservados por el hilo entre begin() y end() y, pasados los
+ * frames de calentamiento, avisa o falla si un frame ha reservado algo.
+ * 
+ * Se activa con la propiedad de sistema arkablock.alloccheck:
+ *    warn: escribe un aviso en el log por cada frame que reserve memoria
+ *    fail: lanza una IllegalStateException (para la integración continua)
+ * 
+ * Necesita una JVM que soporte com.sun.management.ThreadMXBean; si no es así
+ * la comprobación queda desactivada.
+ * 
+ * @author Alex
+ */
+public class AllocationGuard {
+	/** Log */
+	private static final Logger logger = LoggerFactory.getLogger(AllocationGuard.class);
+	
+	/** Propiedad de sistema con el modo de comprobación (off, warn, fail) */
+	public static final String PROPERTY = "arkablock.alloccheck";
+	/** Propiedad de sistema con los frames de calentamiento */
+	public static final String PROPERTY_WARMUP = "arkablock.alloccheck.warmup";
+	
+	/** Sin comprobación */
+	public static final int MODE_OFF = 0;
+	/** Aviso en el log */
+	public static final int MODE_WARN = 1;
+	/** Excepción */
+	public static final int MODE_FAIL = 2;
+	
+	/** Modo de comprobación */
+	private final int mode;
+	/** Frames que no se comprueban (carga de clases, crecimiento de arrays) */
+	private final int warmup;
+	/** Acceso a la memoria reservada por hilo */
+	private com.sun.management.ThreadMXBean threads;
+	/** Bytes que reserva la propia medición */
+	private long overhead;
+	
+	/** Frames medidos */
+	private long frames;
+	/** Bytes reservados por el hilo al empezar el frame */
+	private long start;
+	/** Frames que han reservado memoria después del calentamiento */
+	private long dirtyFrames;
+	
+	/**
+	 * @param mode Modo de comprobación (MODE_*)
+	 * @param warmup Frames de calentamiento
+	 */
+	public AllocationGuard(int mode, int warmup) {
+		this.warmup = warmup;
+		
+		if (mode != MODE_OFF) {
+			try {
+				threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+				threads.setThreadAllocatedMemoryEnabled(true);
+			}
+			catch (Throwable e) {
+				logger.warn("Comprobación de memoria no soportada por la JVM", e);
+				threads = null;
+				mode = MODE_OFF;
+			}
+		}
+		
+		this.mode = mode;
+		
+		if (mode != MODE_OFF) {
+			calibrate();
+		}
+	}
+	
+	/**
+	 * Crea la comprobación a partir de las propiedades de sistema
+	 */
+	public static AllocationGuard fromSystemProperties() {
+		String value = System.getProperty(PROPERTY, "off");
+		int mode = value.equals("fail") ? MODE_FAIL : (value.equals("warn") ? MODE_WARN : MODE_OFF);
+		
+		return new AllocationGuard(mode, Integer.getInteger(PROPERTY_WARMUP, 120));
+	}
+	
+	/**
+	 * Mide lo que reserva una medición vacía para descontarlo
+	 */
+	private void calibrate() {
+		long min = Long.MAX_VALUE;
+		
+		for (int i=0;i<16;i++) {
+			long a = allocated();
+			long b = allocated();
+			min = Math.min(min, b - a);
+		}
+		
+		overhead = min;
+	}
+	
+	private long allocated() {
+		return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+	
+	/**
+	 * @return true si la comprobación está activa
+	 */
+	public boolean isEnabled() {
+		return mode != MODE_OFF;
+	}
+	
+	/**
+	 * Comienzo de la zona medida del frame
+	 */
+	public void begin() {
+		if (mode != MODE_OFF) {
+			start = allocated();
+		}
+	}
+	
+	/**
+	 * Fin de la zona medida del frame
+	 * 
+	 * @throws IllegalStateException En modo fail si el frame ha reservado memoria
+	 */
+	public void end() {
+		if (mode == MODE_OFF) {
+			return;
+		}
+		
+		long bytes = allocated() - start - overhead;
+		
+		if (++frames <= warmup || bytes <= 0) {
+			return;
+		}
+		
+		dirtyFrames++;
+		
+		if (mode == MODE_FAIL) {
+			throw new IllegalStateException("El frame "+frames+" ha reservado "+bytes+" bytes en estado estable");
+		}
+		
+		logger.warn("El frame "+frames+" ha reservado "+bytes+" bytes en estado estable");
+	}
+	
+	/**
+	 * @return Frames que han reservado memoria después del calentamiento
+	 */
+	public long getDirtyFrames() {
+		return dirtyFrames;
+	}
+}
@@ -0,0 +1,265 @@
+package org.maox.arkablock.profiling;
+
+import java.util.Arrays;
+
+/**
+ * Tiempos por fase de cada frame con resolución de nanosegundos. El bucle
+ * de juego marca el inicio y el final de cada fase (begin/end); los tiempos
+ * de una fase se acumulan durante el frame (varios ciclos de lógica por
+ * frame) y al cerrar el frame se guardan en un buffer circular por fase.
+ * 
+ * De los buffers se obtienen la mediana, el percentil 99 y el máximo de cada
+ * fase, que se muestran en pantalla (ProfilerHud, tecla F3) y se pueden
+ * volcar a un fichero como líneas JSON (ProfilerExporter).
+ * 
+ * Cada medidor lo usa un solo hilo. Con hilo de simulación (arkablock.threaded)
+ * las fases de la lógica (SIMULATION_PHASES) se separan en un medidor propio
+ * (detachSimulation) con sus acumuladores, que las guarda en los buffers
+ * compartidos al terminar cada tanda de ciclos (endTicks). Así cada buffer
+ * sigue teniendo un único hilo escritor, y en esas fases cada muestra es una
+ * tanda de ciclos en lugar de un frame de la ventana.
+ * 
+ * Propiedades de sistema:
+ *    arkablock.profiler: true para mostrar el panel desde el inicio
+ *    arkablock.profiler.output: fichero donde se escriben las líneas JSON
+ * 
+ * @author Alex
+ */
+public class FrameProfiler {
+	/** Propiedad de sistema para mostrar el panel al arrancar */
+	public static final String PROPERTY = "arkablock.profiler";
+	/** Propiedad de sistema con el fichero de salida JSON */
+	public static final String PROPERTY_OUTPUT = "arkablock.profiler.output";
+	
+	/** Actualización de la lógica (incluye la de colisiones) */
+	public static final int PHASE_UPDATE = 0;
+	/** Detección de colisiones */
+	public static final int PHASE_COLLISION = 1;
+	/** Construcción y dibujo del frame */
+	public static final int PHASE_RENDER = 2;
+	/** Intercambio de buffers y espera de la sincronización vertical */
+	public static final int PHASE_SWAP = 3;
+	/** Espera hasta el siguiente frame */
+	public static final int PHASE_SLEEP = 4;
+	/** Frame completo */
+	public static final int PHASE_FRAME = 5;
+	/** Error del ritmo de frames: diferencia entre el inicio previsto del frame y el real (ver FramePacer) */
+	public static final int PHASE_PACING = 6;
+	/** Cambio de nivel (incluida en la actualización) */
+	public static final int PHASE_LEVEL = 7;
+	/** Número de fases */
+	public static final int PHASES = 8;
+	
+	/** Fases que mide el hilo de simulación */
+	public static final int[] SIMULATION_PHASES = { PHASE_UPDATE, PHASE_COLLISION, PHASE_LEVEL };
+	
+	/** Nombres de las fases (claves del JSON) */
+	public static final String[] PHASE_NAMES = { "update", "collision", "render", "swap", "sleep", "frame", "pacing", "level" };
+	
+	/** Muestras guardadas por fase */
+	public static final int HISTORY = 1024;
+	
+	/** Estadísticas por fase */
+	public static final int STAT_P50 = 0, STAT_P99 = 1, STAT_MAX = 2, STATS = 3;
+	
+	/** Buffers circulares por fase (compartidos con el medidor de simulación) */
+	private final PhaseRing[] rings;
+	/** Fases que guarda este medidor en los buffers */
+	private final boolean[] owned = new boolean[PHASES];
+	/** Medidor principal si este es el de simulación, null en el principal */
+	private final FrameProfiler owner;
+	/** Medidor de las fases de simulación (este mismo si no se han separado) */
+	private FrameProfiler simulation = this;
+	/** Inicio de la fase en curso */
+	private final long[] starts = new long[PHASES];
+	/** Tiempo acumulado de cada fase en el frame actual */
+	private final long[] current = new long[PHASES];
+	
+	/** Últimas estadísticas calculadas (ns), PHASES x STATS */
+	private final long[] stats = new long[PHASES * STATS];
+	/** Copia de trabajo para el cálculo de estadísticas */
+	private final long[] scratch = new long[HISTORY];
+	
+	/** Panel visible en pantalla */
+	private volatile boolean hudVisible;
+	
+	/**
+	 * Crea el medidor
+	 */
+	public FrameProfiler() {
+		owner = null;
+		rings = new PhaseRing[PHASES];
+		
+		for (int i=0;i<PHASES;i++) {
+			rings[i] = new PhaseRing(HISTORY);
+			owned[i] = true;
+		}
+	}
+	
+	/**
+	 * Crea el medidor de simulación de otro medidor
+	 * 
+	 * @param owner Medidor principal
+	 */
+	private FrameProfiler(FrameProfiler owner) {
+		this.owner = owner;
+		this.rings = owner.rings;
+		
+		for (int i=0;i<SIMULATION_PHASES.length;i++) {
+			owned[SIMULATION_PHASES[i]] = true;
+		}
+	}
+	
+	/**
+	 * Crea el medidor a partir de las propiedades de sistema
+	 */
+	public static FrameProfiler fromSystemProperties() {
+		FrameProfiler profiler = new FrameProfiler();
+		profiler.setHudVisible(Boolean.getBoolean(PROPERTY));
+		
+		return profiler;
+	}
+	
+	/**
+	 * Separa las fases de simulación en un medidor propio para el hilo de
+	 * simulación. Desde entonces endFrame ya no las guarda. Se llama antes de
+	 * arrancar el bucle de juego
+	 * 
+	 * @return Medidor de las fases de simulación
+	 */
+	public FrameProfiler detachSimulation() {
+		if (simulation == this) {
+			for (int i=0;i<SIMULATION_PHASES.length;i++) {
+				owned[SIMULATION_PHASES[i]] = false;
+			}
+			simulation = new FrameProfiler(this);
+		}
+		
+		return simulation;
+	}
+	
+	/**
+	 * @return Medidor con el que se miden las fases de simulación (este mismo
+	 * si no se han separado)
+	 */
+	public FrameProfiler getSimulation() {
+		return simulation;
+	}
+	
+	/**
+	 * Inicio de una fase
+	 * 
+	 * @param phase Fase (PHASE_*)
+	 */
+	public void begin(int phase) {
+		starts[phase] = System.nanoTime();
+	}
+	
+	/**
+	 * Final de una fase. El tiempo se suma al de la fase en el frame actual
+	 * 
+	 * @param phase Fase (PHASE_*)
+	 */
+	public void end(int phase) {
+		current[phase] += System.nanoTime() - starts[phase];
+	}
+	
+	/**
+	 * Suma a una fase un tiempo medido fuera del medidor
+	 * 
+	 * @param phase Fase (PHASE_*)
+	 * @param nanos Tiempo en ns
+	 */
+	public void record(int phase, long nanos) {
+		current[phase] += nanos;
+	}
+	
+	/**
+	 * Cierra el frame guardando el tiempo de cada fase
+	 * 
+	 * @param frameNanos Duración total del frame en ns
+	 */
+	public void endFrame(long frameNanos) {
+		current[PHASE_FRAME] = frameNanos;
+		store();
+	}
+	
+	/**
+	 * Cierra una tanda de ciclos de lógica. En el medidor de simulación guarda
+	 * sus fases; en el principal no hace nada (se guardan en endFrame)
+	 */
+	public void endTicks() {
+		if (owner != null) {
+			store();
+		}
+	}
+	
+	/**
+	 * Guarda en los buffers los tiempos acumulados de las fases propias
+	 */
+	private void store() {
+		for (int i=0;i<PHASES;i++) {
+			if (owned[i]) {
+				rings[i].add(current[i]);
+			}
+			current[i] = 0;
+		}
+	}
+	
+	/**
+	 * Recalcula las estadísticas con las muestras guardadas. Ordena una copia
+	 * de cada buffer, por lo que no debe llamarse en cada frame
+	 */
+	public void updateStats() {
+		for (int i=0;i<PHASES;i++) {
+			int count = rings[i].snapshot(scratch, HISTORY);
+			percentiles(scratch, count, stats, i * STATS);
+		}
+	}
+	
+	/**
+	 * Ordena las muestras y guarda mediana, percentil 99 y máximo
+	 * 
+	 * @param samples Muestras (se ordenan)
+	 * @param count Número de muestras
+	 * @param out Destino de las estadísticas
+	 * @param offset Posición en el destino
+	 */
+	public static void percentiles(long[] samples, int count, long[] out, int offset) {
+		if (count == 0) {
+			out[offset + STAT_P50] = out[offset + STAT_P99] = out[offset + STAT_MAX] = 0;
+			return;
+		}
+		
+		Arrays.sort(samples, 0, count);
+		
+		out[offset + STAT_P50] = samples[(count - 1) / 2];
+		out[offset + STAT_P99] = samples[(int) ((count - 1) * 99L / 100)];
+		out[offset + STAT_MAX] = samples[count - 1];
+	}
+	
+	/**
+	 * @param phase Fase (PHASE_*)
+	 * @param stat Estadística (STAT_*)
+	 * @return Valor en ns de la última llamada a updateStats()
+	 */
+	public long getStat(int phase, int stat) {
+		return stats[phase * STATS + stat];
+	}
+	
+	/**
+	 * @param phase Fase (PHASE_*)
+	 * @return Buffer de muestras de la fase
+	 */
+	public PhaseRing getRing(int phase) {
+		return rings[phase];
+	}
+	
+	public boolean isHudVisible() {
+		return hudVisible;
+	}
+
+	public void setHudVisible(boolean hudVisible) {
+		this.hudVisible = hudVisible;
+	}
+}
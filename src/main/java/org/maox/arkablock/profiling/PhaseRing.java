@@ -0,0 +1,84 @@
+package org.maox.arkablock.profiling;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Buffer circular de muestras sin bloqueos. Un único hilo escribe (el bucle
+ * de juego) y cualquier otro puede leer una copia de las últimas muestras
+ * sin detener al escritor. Si el escritor da la vuelta al buffer durante la
+ * copia, las muestras sobreescritas se descartan.
+ * 
+ * @author Alex
+ */
+public class PhaseRing {
+	/** Muestras (tamaño potencia de 2) */
+	private final long[] samples;
+	/** Máscara para el índice circular */
+	private final int mask;
+	/** Número total de muestras escritas. Publica las muestras a los lectores */
+	private final AtomicLong written = new AtomicLong();
+	
+	/**
+	 * @param capacity Número de muestras guardadas (se redondea a potencia de 2)
+	 */
+	public PhaseRing(int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		samples = new long[size];
+		mask = size - 1;
+	}
+	
+	/**
+	 * Añade una muestra. Solo debe llamarse desde el hilo escritor
+	 * 
+	 * @param value Muestra
+	 */
+	public void add(long value) {
+		long index = written.get();
+		samples[(int) (index & mask)] = value;
+		// Escritura ordenada: la muestra es visible antes que el nuevo contador
+		written.lazySet(index + 1);
+	}
+	
+	/**
+	 * Copia las últimas muestras, de la más antigua a la más reciente
+	 * 
+	 * @param dst Destino de la copia
+	 * @param max Máximo de muestras a copiar
+	 * @return Número de muestras copiadas
+	 */
+	public int snapshot(long[] dst, int max) {
+		long end = written.get();
+		int count = (int) Math.min(end, Math.min(samples.length, Math.min(max, dst.length)));
+		long first = end - count;
+		
+		for (int i=0;i<count;i++) {
+			dst[i] = samples[(int) ((first + i) & mask)];
+		}
+		
+		// Muestras que el escritor ha podido pisar mientras se copiaban: las ya
+		// sobreescritas y la del hueco que puede estar escribiendo (la siguiente
+		// al contador leído, que aún no lo ha incrementado)
+		long lost = written.get() - samples.length - first + 1;
+		if (lost > 0) {
+			int keep = (int) Math.max(0, count - lost);
+			System.arraycopy(dst, count - keep, dst, 0, keep);
+			count = keep;
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * @return Número total de muestras escritas desde el inicio
+	 */
+	public long getWritten() {
+		return written.get();
+	}
+	
+	/**
+	 * @return Número de muestras que caben en el buffer
+	 */
+	public int getCapacity() {
+		return samples.length;
+	}
+}
@@ -0,0 +1,143 @@
+package org.maox.arkablock.profiling;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hilo que vuelca periódicamente los tiempos del FrameProfiler a un fichero,
+ * una línea JSON por intervalo con los frames medidos y la mediana, el
+ * percentil 99 y el máximo de cada fase en nanosegundos:
+ * 
+ *    {"time":1700000000000,"frames":60,"update":{"p50":210400,"p99":480100,"max":512900},...}
+ * 
+ * Lee los buffers circulares sin bloquear al bucle de juego. Las estadísticas
+ * de cada línea son solo de los frames del intervalo (como mucho los últimos
+ * FrameProfiler.HISTORY), para que un pico no quede diluido en la media.
+ * 
+ * @author Alex
+ */
+public class ProfilerExporter implements Runnable {
+	/** Log */
+	private static final Logger logger = LoggerFactory.getLogger(ProfilerExporter.class);
+	
+	/** Medidor del que se leen los tiempos */
+	private final FrameProfiler profiler;
+	/** Fichero de salida */
+	private final String path;
+	/** Intervalo entre líneas en ms */
+	private final long interval;
+	
+	/** Copia de trabajo de las muestras */
+	private final long[] scratch = new long[FrameProfiler.HISTORY];
+	/** Estadísticas de una fase */
+	private final long[] stats = new long[FrameProfiler.STATS];
+	/** Muestras escritas por fase en el último volcado */
+	private final long[] lastWritten = new long[FrameProfiler.PHASES];
+	
+	/**
+	 * @param profiler Medidor del que se leen los tiempos
+	 * @param path Fichero de salida
+	 * @param interval Intervalo entre líneas en ms
+	 */
+	public ProfilerExporter(FrameProfiler profiler, String path, long interval) {
+		this.profiler = profiler;
+		this.path = path;
+		this.interval = interval;
+	}
+	
+	/**
+	 * Arranca el volcado en un hilo demonio si se ha indicado el fichero de
+	 * salida (propiedad arkablock.profiler.output)
+	 * 
+	 * @param profiler Medidor del que se leen los tiempos
+	 * @return El hilo arrancado o null si no hay fichero de salida
+	 */
+	public static Thread startFromSystemProperties(FrameProfiler profiler) {
+		String path = System.getProperty(FrameProfiler.PROPERTY_OUTPUT);
+		if (path == null || path.length() == 0) {
+			return null;
+		}
+		
+		Thread thread = new Thread(new ProfilerExporter(profiler, path, 1000), "profiler-exporter");
+		thread.setDaemon(true);
+		thread.start();
+		
+		return thread;
+	}
+	
+	/**
+	 * @see java.lang.Runnable#run()
+	 */
+	@Override
+	public void run() {
+		Writer out = null;
+		
+		try {
+			out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(path), "UTF-8"));
+			StringBuilder line = new StringBuilder(512);
+			
+			for (int i=0;i<FrameProfiler.PHASES;i++) {
+				lastWritten[i] = profiler.getRing(i).getWritten();
+			}
+			
+			while (!Thread.currentThread().isInterrupted()) {
+				Thread.sleep(interval);
+				
+				line.setLength(0);
+				format(line, System.currentTimeMillis());
+				out.write(line.toString());
+				out.flush();
+			}
+		}
+		catch (InterruptedException e) {
+			// Fin del volcado
+		}
+		catch (IOException e) {
+			logger.error("Error escribiendo los tiempos en "+path, e);
+		}
+		finally {
+			if (out != null) {
+				try {
+					out.close();
+				}
+				catch (IOException e) {}
+			}
+		}
+	}
+	
+	/**
+	 * Añade la línea JSON con los frames desde el último volcado
+	 * 
+	 * @param line Destino
+	 * @param time Marca de tiempo en ms
+	 */
+	private void format(StringBuilder line, long time) {
+		PhaseRing frames = profiler.getRing(FrameProfiler.PHASE_FRAME);
+		
+		line.append("{\"time\":").append(time);
+		line.append(",\"frames\":").append(frames.getWritten() - lastWritten[FrameProfiler.PHASE_FRAME]);
+		
+		for (int i=0;i<FrameProfiler.PHASES;i++) {
+			PhaseRing ring = profiler.getRing(i);
+			long written = ring.getWritten();
+			int count = ring.snapshot(scratch, (int) Math.min(FrameProfiler.HISTORY, written - lastWritten[i]));
+			lastWritten[i] = written;
+			
+			FrameProfiler.percentiles(scratch, count, stats, 0);
+			
+			line.append(",\"").append(FrameProfiler.PHASE_NAMES[i]).append("\":{");
+			line.append("\"p50\":").append(stats[FrameProfiler.STAT_P50]);
+			line.append(",\"p99\":").append(stats[FrameProfiler.STAT_P99]);
+			line.append(",\"max\":").append(stats[FrameProfiler.STAT_MAX]);
+			line.append('}');
+		}
+		
+		line.append("}\n");
+	}
+}
@@ -0,0 +1,95 @@
+package org.maox.arkablock.profiling;
+
+import org.maox.arkablock.render.RenderBatch;
+
+/**
+ * Panel en pantalla con los tiempos del FrameProfiler, dibujado en la capa de
+ * superposición del lote. Sin texto, solo barras:
+ * 
+ *    Una fila por fase, en el orden de FrameProfiler.PHASE_NAMES, con la
+ *    mediana en el color de la fase, hasta el percentil 99 en un tono más
+ *    claro y una marca blanca en el máximo. El ancho total es un frame a 60 Hz.
+ *    Colores: update azul, collision magenta, render verde, swap amarillo,
+ *    sleep gris, frame naranja, pacing cian y level violeta.
+ *    
+ *    Debajo, el tiempo de los últimos frames como barras verticales (verdes
+ *    dentro del presupuesto de 60 Hz, rojas fuera) con la línea del presupuesto.
+ * 
+ * @author Alex
+ */
+public class ProfilerHud {
+	/** Presupuesto de un frame a 60 Hz en ns */
+	private static final long BUDGET = 1000000000L / 60;
+	
+	/** Posición y dimensiones del panel */
+	private static final float X = 10, Y = 10, BAR_WIDTH = 200, BAR_HEIGHT = 6, ROW = 9;
+	/** Frames del histórico y altura que ocupa el presupuesto */
+	private static final int GRAPH_FRAMES = 100;
+	private static final float GRAPH_HEIGHT = 30;
+	
+	/** Colores de las fases: mediana y percentil 99 (RGBA) */
+	private static final int[] PHASE_COLORS = { 
+		0x3070FFFF, 0xFF30FFFF, 0x30FF30FF, 0xFFFF30FF, 0x606060FF, 0xFF8030FF, 0x30FFFFFF, 0x8030C0FF };
+	private static final int[] PHASE_COLORS_P99 = { 
+		0x90B0FFFF, 0xFF90FFFF, 0x90FF90FF, 0xFFFF90FF, 0xA0A0A0FF, 0xFFC090FF, 0x90FFFFFF, 0xC090F0FF };
+	private static final int PANEL = 0x000000FF, MAX = 0xFFFFFFFF, OK = 0x30C030FF, LATE = 0xFF3030FF;
+	
+	/** Medidor del que se leen los tiempos */
+	private final FrameProfiler profiler;
+	/** Tiempos de los últimos frames */
+	private final long[] history = new long[GRAPH_FRAMES];
+	
+	/**
+	 * @param profiler Medidor del que se leen los tiempos
+	 */
+	public ProfilerHud(FrameProfiler profiler) {
+		this.profiler = profiler;
+	}
+	
+	/**
+	 * Añade el panel al lote del frame
+	 * 
+	 * @param batch Lote del frame
+	 */
+	public void submit(RenderBatch batch) {
+		float graphY = Y + FrameProfiler.PHASES * ROW + 4;
+		float bottom = graphY + GRAPH_HEIGHT * 2;
+		
+		batch.quad(RenderBatch.LAYER_OVERLAY, 0, X - 4, Y - 4, X + BAR_WIDTH + 4, bottom + 4, 0, 0, 0, 0, PANEL);
+		
+		// Barras de las fases
+		for (int i=0;i<FrameProfiler.PHASES;i++) {
+			float y = Y + i * ROW;
+			float p50 = scale(profiler.getStat(i, FrameProfiler.STAT_P50));
+			float p99 = scale(profiler.getStat(i, FrameProfiler.STAT_P99));
+			float max = scale(profiler.getStat(i, FrameProfiler.STAT_MAX));
+			
+			batch.quad(RenderBatch.LAYER_OVERLAY, 0, X, y, X + p99, y + BAR_HEIGHT, 0, 0, 0, 0, PHASE_COLORS_P99[i]);
+			batch.quad(RenderBatch.LAYER_OVERLAY, 0, X, y, X + p50, y + BAR_HEIGHT, 0, 0, 0, 0, PHASE_COLORS[i]);
+			batch.quad(RenderBatch.LAYER_OVERLAY, 0, X + max - 1, y, X + max + 1, y + BAR_HEIGHT, 0, 0, 0, 0, MAX);
+		}
+		
+		// Histórico de los últimos frames (de izquierda a derecha)
+		int count = profiler.getRing(FrameProfiler.PHASE_FRAME).snapshot(history, GRAPH_FRAMES);
+		float width = BAR_WIDTH / GRAPH_FRAMES;
+		
+		for (int i=0;i<count;i++) {
+			float x = X + (GRAPH_FRAMES - count + i) * width;
+			float h = Math.min(GRAPH_HEIGHT * 2, (float) history[i] * GRAPH_HEIGHT / BUDGET);
+			
+			batch.quad(RenderBatch.LAYER_OVERLAY, 0, x, bottom - h, x + width, bottom, 0, 0, 0, 0, 
+					history[i] > BUDGET ? LATE : OK);
+		}
+		
+		// Línea del presupuesto
+		float budget = bottom - GRAPH_HEIGHT;
+		batch.quad(RenderBatch.LAYER_OVERLAY, 0, X, budget, X + BAR_WIDTH, budget + 1, 0, 0, 0, 0, MAX);
+	}
+	
+	/**
+	 * @return Ancho en pixels de un tiempo, limitado al ancho del panel
+	 */
+	private static float scale(long nanos) {
+		return Math.min(BAR_WIDTH, (float) nanos * BAR_WIDTH / BUDGET);
+	}
+}
@@ -0,0 +1,67 @@
+package org.maox.arkablock.render;
+
+/**
+ * Estado de dibujo de un ciclo de lógica, generado por el hilo de simulación
+ * para el hilo de la ventana (ver SnapshotBuffer). Contiene el lote del
+ * ciclo anterior y el del último ciclo, con los mismos elementos, para que
+ * el hilo de la ventana interpole entre los dos sin leer el estado del juego.
+ * 
+ * Una vez publicado no se modifica hasta que el hilo de la ventana lo
+ * devuelve al cambiarlo por uno más reciente.
+ * 
+ * @author Alex
+ */
+public class FrameSnapshot {
+	/** Lote en la posición del ciclo anterior (alpha 0) */
+	private final RenderBatch previous = new RenderBatch();
+	/** Lote en la posición del último ciclo (alpha 1) */
+	private final RenderBatch latest = new RenderBatch();
+	/** Número de ciclo */
+	private long tick;
+	/** Instante en ns (System.nanoTime) que representa el final del ciclo */
+	private long tickTime;
+	
+	/**
+	 * Empieza a rellenar el estado de un nuevo ciclo
+	 * 
+	 * @param tick Número de ciclo
+	 * @param tickTime Instante del final del ciclo en ns
+	 */
+	public void begin(long tick, long tickTime) {
+		this.tick = tick;
+		this.tickTime = tickTime;
+		previous.begin();
+		latest.begin();
+	}
+	
+	/**
+	 * Construye el frame a dibujar interpolando entre los dos lotes
+	 * 
+	 * @param frame Lote de destino
+	 * @param now Instante del frame en ns
+	 * @param step Duración del ciclo en ns
+	 * @return Fracción [0, 1] del ciclo usada para interpolar
+	 */
+	public float interpolate(RenderBatch frame, long now, long step) {
+		float alpha = Math.max(0f, Math.min(1f, (float) (now - tickTime) / step));
+		frame.interpolate(previous, latest, alpha);
+		
+		return alpha;
+	}
+
+	public RenderBatch getPrevious() {
+		return previous;
+	}
+
+	public RenderBatch getLatest() {
+		return latest;
+	}
+
+	public long getTick() {
+		return tick;
+	}
+
+	public long getTickTime() {
+		return tickTime;
+	}
+}
@@ -0,0 +1,290 @@
+package org.maox.arkablock.render;
+
+import static org.lwjgl.opengl.GL11.GL_BACK;
+import static org.lwjgl.opengl.GL11.GL_BLEND;
+import static org.lwjgl.opengl.GL11.GL_COLOR_ARRAY;
+import static org.lwjgl.opengl.GL11.GL_DIFFUSE;
+import static org.lwjgl.opengl.GL11.GL_FLOAT;
+import static org.lwjgl.opengl.GL11.GL_FRONT;
+import static org.lwjgl.opengl.GL11.GL_LIGHTING;
+import static org.lwjgl.opengl.GL11.GL_MODELVIEW;
+import static org.lwjgl.opengl.GL11.GL_MODULATE;
+import static org.lwjgl.opengl.GL11.GL_ONE;
+import static org.lwjgl.opengl.GL11.GL_QUADS;
+import static org.lwjgl.opengl.GL11.GL_SHININESS;
+import static org.lwjgl.opengl.GL11.GL_SRC_ALPHA;
+import static org.lwjgl.opengl.GL11.GL_TEXTURE;
+import static org.lwjgl.opengl.GL11.GL_TEXTURE_2D;
+import static org.lwjgl.opengl.GL11.GL_TEXTURE_COORD_ARRAY;
+import static org.lwjgl.opengl.GL11.GL_TEXTURE_ENV;
+import static org.lwjgl.opengl.GL11.GL_TEXTURE_ENV_MODE;
+import static org.lwjgl.opengl.GL11.GL_UNSIGNED_BYTE;
+import static org.lwjgl.opengl.GL11.GL_VERTEX_ARRAY;
+import static org.lwjgl.opengl.GL11.glBlendFunc;
+import static org.lwjgl.opengl.GL11.glColorPointer;
+import static org.lwjgl.opengl.GL11.glDisable;
+import static org.lwjgl.opengl.GL11.glDisableClientState;
+import static org.lwjgl.opengl.GL11.glDrawArrays;
+import static org.lwjgl.opengl.GL11.glEnable;
+import static org.lwjgl.opengl.GL11.glEnableClientState;
+import static org.lwjgl.opengl.GL11.glLoadIdentity;
+import static org.lwjgl.opengl.GL11.glMaterial;
+import static org.lwjgl.opengl.GL11.glMaterialf;
+import static org.lwjgl.opengl.GL11.glMatrixMode;
+import static org.lwjgl.opengl.GL11.glPopMatrix;
+import static org.lwjgl.opengl.GL11.glPushMatrix;
+import static org.lwjgl.opengl.GL11.glScalef;
+import static org.lwjgl.opengl.GL11.glTexCoordPointer;
+import static org.lwjgl.opengl.GL11.glTexEnvf;
+import static org.lwjgl.opengl.GL11.glTranslatef;
+import static org.lwjgl.opengl.GL11.glVertexPointer;
+import static org.lwjgl.opengl.GL15.GL_ARRAY_BUFFER;
+import static org.lwjgl.opengl.GL15.GL_STREAM_DRAW;
+import static org.lwjgl.opengl.GL15.glBindBuffer;
+import static org.lwjgl.opengl.GL15.glBufferData;
+import static org.lwjgl.opengl.GL15.glBufferSubData;
+import static org.lwjgl.opengl.GL15.glDeleteBuffers;
+import static org.lwjgl.opengl.GL15.glGenBuffers;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+import org.lwjgl.BufferUtils;
+import org.maox.arkablock.assets.TextureAsset;
+
+/**
+ * Dibuja un RenderBatch con OpenGL.
+ * 
+ * Todos los quads del frame se suben a un único VBO de streaming (se
+ * descarta el contenido anterior en cada frame) y se dibuja un glDrawArrays
+ * por cada tramo de capa y textura. Los modelos se agrupan por textura y 
+ * material, de modo que la iluminación, el material y la textura solo
+ * se cambian cuando cambian de verdad.
+ * 
+ * @author Alex
+ */
+public class GLBatchRenderer {
+	/** Bytes por vértice */
+	private static final int STRIDE = RenderBatch.VERTEX_SIZE * 4;
+	
+	/** Identificador del VBO */
+	private int vbo;
+	/** Buffer intermedio con los vértices del frame */
+	private ByteBuffer staging;
+	/** Vista entera del buffer intermedio */
+	private IntBuffer stagingInts;
+	/** Capacidad del VBO en quads */
+	private int capacity;
+
+	/**
+	 * @param quads Capacidad inicial en quads (crece si hace falta)
+	 */
+	public GLBatchRenderer(int quads) {
+		vbo = glGenBuffers();
+		allocate(quads);
+	}
+	
+	private void allocate(int quads) {
+		capacity = quads;
+		staging = BufferUtils.createByteBuffer(quads * RenderBatch.QUAD_SIZE * 4);
+		stagingInts = staging.asIntBuffer();
+	}
+
+	/**
+	 * Dibuja el lote. El lote se ordena aquí si no se ha hecho antes
+	 * 
+	 * @param batch Lote del frame
+	 */
+	public void render(RenderBatch batch) {
+		batch.sort();
+		
+		int quads = batch.getQuadCount();
+		if (quads > capacity) {
+			allocate(Math.max(quads, capacity * 2));
+		}
+		
+		// Subida de todos los quads del frame al VBO
+		stagingInts.clear();
+		batch.writeVertices(stagingInts);
+		staging.clear();
+		staging.limit(quads * RenderBatch.QUAD_SIZE * 4);
+		
+		glBindBuffer(GL_ARRAY_BUFFER, vbo);
+		// Descartar el contenido del frame anterior (evita esperar a la GPU)
+		glBufferData(GL_ARRAY_BUFFER, (long) capacity * RenderBatch.QUAD_SIZE * 4, GL_STREAM_DRAW);
+		glBufferSubData(GL_ARRAY_BUFFER, 0, staging);
+		
+		glDisable(GL_LIGHTING);
+		glTexEnvf(GL_TEXTURE_ENV, GL_TEXTURE_ENV_MODE, GL_MODULATE);
+		
+		// Quads por debajo de los modelos, modelos y superposición
+		int run = drawRuns(batch, 0, RenderBatch.LAYER_OVERLAY);
+		drawMeshes(batch);
+		drawRuns(batch, run, Integer.MAX_VALUE);
+		
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+	}
+	
+	/**
+	 * Dibuja los tramos de quads consecutivos desde un tramo hasta una capa
+	 * 
+	 * @return Primer tramo no dibujado
+	 */
+	private int drawRuns(RenderBatch batch, int run, int maxLayer) {
+		int runs = batch.getRunCount();
+		
+		if (run >= runs || batch.getRunLayer(run) >= maxLayer) {
+			return run;
+		}
+		
+		glDisable(GL_LIGHTING);
+		glBindBuffer(GL_ARRAY_BUFFER, vbo);
+		glEnableClientState(GL_VERTEX_ARRAY);
+		glEnableClientState(GL_TEXTURE_COORD_ARRAY);
+		glEnableClientState(GL_COLOR_ARRAY);
+		glVertexPointer(2, GL_FLOAT, STRIDE, 0);
+		glTexCoordPointer(2, GL_FLOAT, STRIDE, 8);
+		glColorPointer(4, GL_UNSIGNED_BYTE, STRIDE, 16);
+		
+		int bound = -1;
+		boolean blend = false;
+		
+		for (;run<runs && batch.getRunLayer(run)<maxLayer;run++) {
+			int texture = batch.getRunTexture(run);
+			
+			if (texture != bound) {
+				bind(batch.getTexture(texture));
+				bound = texture;
+			}
+			
+			// Los efectos se suman a lo que hay debajo (la transparencia atenúa)
+			boolean effects = batch.getRunLayer(run) == RenderBatch.LAYER_EFFECTS;
+			if (effects != blend) {
+				if (effects) {
+					glEnable(GL_BLEND);
+					glBlendFunc(GL_SRC_ALPHA, GL_ONE);
+				}
+				else {
+					glDisable(GL_BLEND);
+				}
+				blend = effects;
+			}
+			
+			glDrawArrays(GL_QUADS, batch.getRunFirst(run), batch.getRunVertexCount(run));
+		}
+		
+		if (blend) {
+			glDisable(GL_BLEND);
+		}
+		
+		glDisableClientState(GL_COLOR_ARRAY);
+		glDisableClientState(GL_TEXTURE_COORD_ARRAY);
+		glDisableClientState(GL_VERTEX_ARRAY);
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+		
+		return run;
+	}
+	
+	/**
+	 * Dibuja los modelos agrupados por textura y material
+	 */
+	private void drawMeshes(RenderBatch batch) {
+		int meshes = batch.getMeshCount();
+		
+		if (meshes == 0) {
+			return;
+		}
+		
+		// Establecer iluminación para los modelos
+		glEnable(GL_LIGHTING);
+		
+		int boundTexture = -1;
+		Material boundMaterial = null;
+		
+		for (int i=0;i<meshes;i++) {
+			int index = batch.getMeshIndex(i);
+			int texture = batch.getMeshTexture(index);
+			Material material = batch.getMeshMaterial(index);
+			
+			if (texture != boundTexture) {
+				bind(batch.getTexture(texture));
+				boundTexture = texture;
+			}
+			
+			// Material de las caras frontales y posteriores
+			if (material != boundMaterial) {
+				glMaterial(GL_FRONT, GL_DIFFUSE, material.getDiffuse());
+				glMaterial(GL_BACK, GL_DIFFUSE, material.getDiffuse());
+				glMaterialf(GL_FRONT, GL_SHININESS, material.getShininess());
+				boundMaterial = material;
+			}
+			
+			// Región de la textura (atlas): se ajustan las coordenadas del modelo
+			boolean region = setTextureRegion(batch, index);
+			
+			glPushMatrix();
+			glTranslatef(batch.getMeshX(index), batch.getMeshY(index), batch.getMeshZ(index));
+			float scale = batch.getMeshScale(index);
+			if (scale != 1) {
+				glScalef(scale, scale, scale);
+			}
+			batch.getMeshModel(index).render();
+			glPopMatrix();
+			
+			if (region) {
+				glMatrixMode(GL_TEXTURE);
+				glLoadIdentity();
+				glMatrixMode(GL_MODELVIEW);
+			}
+		}
+		
+		glDisable(GL_LIGHTING);
+	}
+	
+	/**
+	 * Si la textura del modelo es una región de otra mayor (atlas) se lleva
+	 * la matriz de textura a esa región, así los modelos no cambian sus
+	 * coordenadas (0..1) y comparten la textura con el resto del atlas.
+	 * 
+	 * @return true si se ha cambiado la matriz de textura
+	 */
+	private boolean setTextureRegion(RenderBatch batch, int index) {
+		float u0 = batch.getMeshUv(index, 0);
+		float v0 = batch.getMeshUv(index, 1);
+		float u1 = batch.getMeshUv(index, 2);
+		float v1 = batch.getMeshUv(index, 3);
+		
+		if (u0 == 0 && v0 == 0 && u1 == 1 && v1 == 1) {
+			return false;
+		}
+		
+		glMatrixMode(GL_TEXTURE);
+		glLoadIdentity();
+		glTranslatef(u0, v0, 0);
+		glScalef(u1 - u0, v1 - v0, 1);
+		glMatrixMode(GL_MODELVIEW);
+		
+		return true;
+	}
+	
+	/**
+	 * Activa una textura o desactiva el texturizado si es null o aún no está cargada
+	 */
+	private void bind(TextureAsset texture) {
+		if (texture == null || !texture.isReady()) {
+			glDisable(GL_TEXTURE_2D);
+		}
+		else {
+			glEnable(GL_TEXTURE_2D);
+			texture.bind();
+		}
+	}
+
+	/**
+	 * Libera el VBO
+	 */
+	public void dispose() {
+		glDeleteBuffers(vbo);
+		vbo = 0;
+	}
+}
@@ -0,0 +1,55 @@
+package org.maox.arkablock.render;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Material con el que se iluminan los modelos: color difuso y brillo especular.
+ * Los parámetros se guardan en un bloque de memoria directa creado una sola
+ * vez, para poder pasarlos a OpenGL en cada frame sin reservar memoria.
+ * 
+ * @author Alex
+ */
+public class Material {
+	/** Material blanco con brillo especular pequeño (el de la nave y la bola) */
+	public static final Material WHITE = new Material(1, 1, 1, 1, 20);
+	
+	/** Contador para asignar identificadores */
+	private static int nextId = 1;
+	
+	/** Identificador del material (para ordenar los lotes) */
+	private final int id;
+	/** Parámetros del material: color difuso RGBA */
+	private final ParamBlock params = new ParamBlock(1);
+	/** Brillo especular (de 0 a 128) */
+	private final float shininess;
+
+	/**
+	 * @param r Componente roja del color difuso
+	 * @param g Componente verde del color difuso
+	 * @param b Componente azul del color difuso
+	 * @param a Componente alfa del color difuso
+	 * @param shininess Brillo especular
+	 */
+	public Material(float r, float g, float b, float a, float shininess) {
+		synchronized (Material.class) {
+			this.id = nextId++;
+		}
+		this.params.set(0, r, g, b, a);
+		this.shininess = shininess;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * @return Color difuso listo para glMaterial (no se debe modificar)
+	 */
+	public FloatBuffer getDiffuse() {
+		return params.get(0);
+	}
+
+	public float getShininess() {
+		return shininess;
+	}
+}
@@ -0,0 +1,64 @@
+package org.maox.arkablock.render;
+
+import java.nio.FloatBuffer;
+
+import org.lwjgl.BufferUtils;
+
+/**
+ * Bloque de parámetros de OpenGL (vectores de 4 floats) en memoria directa.
+ * Se reserva una sola vez y cada ranura tiene su propia vista ya preparada
+ * (posición 0, límite 4), de modo que los parámetros de luces y materiales se
+ * pueden cambiar y pasar a glLight/glMaterial en cada frame sin crear buffers.
+ * 
+ * @author Alex
+ */
+public class ParamBlock {
+	/** Memoria de todo el bloque */
+	private final FloatBuffer data;
+	/** Vista de cada ranura */
+	private final FloatBuffer[] slots;
+
+	/**
+	 * @param size Número de ranuras de 4 floats
+	 */
+	public ParamBlock(int size) {
+		data = BufferUtils.createFloatBuffer(size * 4);
+		slots = new FloatBuffer[size];
+		
+		for (int i=0;i<size;i++) {
+			data.limit(i * 4 + 4);
+			data.position(i * 4);
+			slots[i] = data.slice();
+		}
+		
+		data.clear();
+	}
+
+	/**
+	 * Cambia el valor de una ranura
+	 * 
+	 * @param slot Ranura
+	 * @return La vista de la ranura, lista para pasar a OpenGL
+	 */
+	public FloatBuffer set(int slot, float x, float y, float z, float w) {
+		FloatBuffer buffer = slots[slot];
+		buffer.put(0, x).put(1, y).put(2, z).put(3, w);
+		return buffer;
+	}
+
+	/**
+	 * @param slot Ranura
+	 * @return La vista de la ranura, lista para pasar a OpenGL (no se debe
+	 *         cambiar su posición ni su límite)
+	 */
+	public FloatBuffer get(int slot) {
+		return slots[slot];
+	}
+
+	/**
+	 * @return Número de ranuras
+	 */
+	public int size() {
+		return slots.length;
+	}
+}
@@ -0,0 +1,467 @@
+package org.maox.arkablock.render;
+
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.maox.arkablock.assets.TextureAsset;
+import org.maox.arkablock.assets.TextureRegion;
+import org.maox.arkablock.backend.Model;
+
+/**
+ * Lote de dibujo de un frame. Las entidades y el escenario no llaman a OpenGL:
+ * añaden rectángulos (quads) y modelos al lote, que al cerrar el frame se
+ * ordenan por capa, textura y material para dibujarlo todo con el menor número
+ * posible de llamadas y cambios de estado (ver GLBatchRenderer).
+ * 
+ * El lote no depende de OpenGL, así que su construcción se puede probar y
+ * medir sin GPU. Tampoco reserva memoria en estado estable: los arrays
+ * solo crecen cuando el frame tiene más elementos que los anteriores.
+ * 
+ * Formato de vértice de los quads (5 enteros): x, y, u, v (bits de float) y
+ * color RGBA en orden de bytes de memoria (GL_UNSIGNED_BYTE x 4).
+ * 
+ * @author Alex
+ */
+public class RenderBatch {
+	/** Capa del fondo (se dibuja la primera) */
+	public static final int LAYER_BACKGROUND = 0;
+	/** Capa del mundo de juego (ladrillos, efectos) */
+	public static final int LAYER_WORLD = 1;
+	/** Capa de efectos (partículas), con mezcla aditiva */
+	public static final int LAYER_EFFECTS = 2;
+	/** Capa de superposición (se dibuja después de los modelos) */
+	public static final int LAYER_OVERLAY = 3;
+	
+	/** Enteros por vértice */
+	public static final int VERTEX_SIZE = 5;
+	/** Enteros por quad */
+	public static final int QUAD_SIZE = VERTEX_SIZE * 4;
+	
+	/** Color blanco opaco (RGBA) */
+	public static final int WHITE = 0xFFFFFFFF;
+	
+	/** Si el orden de bytes nativo es little endian (para empaquetar el color) */
+	private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+	
+	/** Texturas usadas en los lotes. El indice es la ranura (0 = sin textura) */
+	private final ArrayList<TextureAsset> textures = new ArrayList<TextureAsset>();
+
+	/** Vértices de los quads en orden de llegada */
+	private int[] vertices = new int[QUAD_SIZE * 256];
+	/** Claves de ordenación de los quads: (capa, textura) << 32 | indice */
+	private long[] quadKeys = new long[256];
+	/** Número de quads */
+	private int quadCount;
+	
+	/** Tramos de quads consecutivos (ya ordenados) con la misma capa y textura */
+	private int[] runLayer = new int[16], runTexture = new int[16], runFirst = new int[16], runCount = new int[16];
+	/** Número de tramos */
+	private int runs;
+	
+	/** Modelos del frame */
+	private Model[] meshModels = new Model[16];
+	private Material[] meshMaterials = new Material[16];
+	private int[] meshTextures = new int[16];
+	private float[] meshTransforms = new float[16 * 4];
+	/** Región de la textura de cada modelo (u0, v0, u1, v1) */
+	private float[] meshUvs = new float[16 * 4];
+	/** Claves de ordenación de los modelos: (textura, material) << 32 | indice */
+	private long[] meshKeys = new long[16];
+	/** Número de modelos */
+	private int meshCount;
+
+	/**
+	 * Crea un lote vacío
+	 */
+	public RenderBatch() {
+		// Ranura 0 sin textura
+		textures.add(null);
+	}
+	
+	/**
+	 * Comienza un nuevo frame descartando el contenido anterior
+	 */
+	public void begin() {
+		quadCount = 0;
+		meshCount = 0;
+		runs = 0;
+		
+		// Los modelos se liberan para no retenerlos entre frames
+		Arrays.fill(meshModels, null);
+		Arrays.fill(meshMaterials, null);
+	}
+
+	/**
+	 * Obtiene la ranura de una textura, registrándola si es nueva
+	 * 
+	 * @param texture Textura (null = sin textura)
+	 * @return Ranura de la textura
+	 */
+	public int textureSlot(TextureAsset texture) {
+		if (texture == null) {
+			return 0;
+		}
+		
+		for (int i=1;i<textures.size();i++) {
+			if (textures.get(i) == texture) {
+				return i;
+			}
+		}
+		
+		textures.add(texture);
+		return textures.size() - 1;
+	}
+
+	/**
+	 * Obtiene la ranura de la textura que contiene una región. Las regiones
+	 * del atlas comparten ranura
+	 * 
+	 * @param region Región (null = sin textura)
+	 * @return Ranura de la textura
+	 */
+	public int textureSlot(TextureRegion region) {
+		return region == null ? 0 : textureSlot(region.getTexture());
+	}
+
+	/**
+	 * @return Textura de una ranura (null para la ranura 0)
+	 */
+	public TextureAsset getTexture(int slot) {
+		return textures.get(slot);
+	}
+	
+	/**
+	 * Añade un rectángulo alineado con los ejes
+	 * 
+	 * @param layer Capa de dibujo
+	 * @param texture Ranura de la textura (0 sin textura)
+	 * @param x0 Esquina superior izquierda
+	 * @param y0 Esquina superior izquierda
+	 * @param x1 Esquina inferior derecha
+	 * @param y1 Esquina inferior derecha
+	 * @param u0 Coordenada de textura de la esquina (x0, y0)
+	 * @param v0 Coordenada de textura de la esquina (x0, y0)
+	 * @param u1 Coordenada de textura de la esquina (x1, y1)
+	 * @param v1 Coordenada de textura de la esquina (x1, y1)
+	 * @param rgba Color RGBA empaquetado (0xRRGGBBAA)
+	 */
+	public void quad(int layer, int texture, float x0, float y0, float x1, float y1, 
+			float u0, float v0, float u1, float v1, int rgba) {
+		
+		if (quadCount == quadKeys.length) {
+			quadKeys = Arrays.copyOf(quadKeys, quadCount * 2);
+			vertices = Arrays.copyOf(vertices, quadCount * 2 * QUAD_SIZE);
+		}
+		
+		int color = packColor(rgba);
+		int i = quadCount * QUAD_SIZE;
+		i = vertex(i, x0, y0, u0, v0, color);
+		i = vertex(i, x0, y1, u0, v1, color);
+		i = vertex(i, x1, y1, u1, v1, color);
+		vertex(i, x1, y0, u1, v0, color);
+		
+		quadKeys[quadCount] = ((long) ((layer << 16) | texture) << 32) | quadCount;
+		quadCount++;
+	}
+	
+	private int vertex(int i, float x, float y, float u, float v, int color) {
+		vertices[i++] = Float.floatToRawIntBits(x);
+		vertices[i++] = Float.floatToRawIntBits(y);
+		vertices[i++] = Float.floatToRawIntBits(u);
+		vertices[i++] = Float.floatToRawIntBits(v);
+		vertices[i++] = color;
+		return i;
+	}
+	
+	/**
+	 * Añade un modelo 
+	 * 
+	 * @param model Modelo a dibujar
+	 * @param texture Ranura de la textura (0 sin textura)
+	 * @param material Material del modelo
+	 * @param x Posición
+	 * @param y Posición
+	 * @param z Posición
+	 * @param scale Escala uniforme
+	 */
+	public void mesh(Model model, int texture, Material material, float x, float y, float z, float scale) {
+		mesh(model, texture, 0, 0, 1, 1, material, x, y, z, scale);
+	}
+	
+	/**
+	 * Añade un modelo cuya textura es una región (p.e. una imagen del atlas).
+	 * Las coordenadas de textura del modelo (0..1) se llevan a la región
+	 * 
+	 * @param model Modelo a dibujar
+	 * @param region Región de la textura (null sin textura)
+	 * @param material Material del modelo
+	 * @param x Posición
+	 * @param y Posición
+	 * @param z Posición
+	 * @param scale Escala uniforme
+	 */
+	public void mesh(Model model, TextureRegion region, Material material, float x, float y, float z, float scale) {
+		if (region == null) {
+			mesh(model, 0, material, x, y, z, scale);
+		}
+		else {
+			mesh(model, textureSlot(region.getTexture()), region.getU0(), region.getV0(), region.getU1(), region.getV1(), 
+					material, x, y, z, scale);
+		}
+	}
+	
+	private void mesh(Model model, int texture, float u0, float v0, float u1, float v1, 
+			Material material, float x, float y, float z, float scale) {
+		
+		if (meshCount == meshKeys.length) {
+			int size = meshCount * 2;
+			meshKeys = Arrays.copyOf(meshKeys, size);
+			meshModels = Arrays.copyOf(meshModels, size);
+			meshMaterials = Arrays.copyOf(meshMaterials, size);
+			meshTextures = Arrays.copyOf(meshTextures, size);
+			meshTransforms = Arrays.copyOf(meshTransforms, size * 4);
+			meshUvs = Arrays.copyOf(meshUvs, size * 4);
+		}
+		
+		meshModels[meshCount] = model;
+		meshMaterials[meshCount] = material;
+		meshTextures[meshCount] = texture;
+		meshTransforms[meshCount * 4] = x;
+		meshTransforms[meshCount * 4 + 1] = y;
+		meshTransforms[meshCount * 4 + 2] = z;
+		meshTransforms[meshCount * 4 + 3] = scale;
+		meshUvs[meshCount * 4] = u0;
+		meshUvs[meshCount * 4 + 1] = v0;
+		meshUvs[meshCount * 4 + 2] = u1;
+		meshUvs[meshCount * 4 + 3] = v1;
+		meshKeys[meshCount] = ((long) ((texture << 16) | material.getId()) << 32) | meshCount;
+		meshCount++;
+	}
+	
+	/**
+	 * Construye el frame interpolando entre dos lotes del mismo estado
+	 * generados en dos instantes (los ciclos anterior y último de la lógica).
+	 * Los dos lotes deben tener los mismos elementos en el mismo orden: se
+	 * interpolan las posiciones de los vértices y de los modelos y el resto
+	 * se copia del último. Si no coinciden se copia el último sin interpolar.
+	 * Ninguno de los dos lotes se modifica, así que se pueden leer a la vez
+	 * desde otro hilo mientras nadie los escriba.
+	 * 
+	 * @param from Lote del ciclo anterior
+	 * @param to Lote del último ciclo
+	 * @param alpha Fracción [0, 1] entre los dos lotes
+	 */
+	public void interpolate(RenderBatch from, RenderBatch to, float alpha) {
+		begin();
+		
+		// Copia de las ranuras en su sitio (addAll crearía una copia en cada frame)
+		int textureCount = to.textures.size();
+		for (int i=0;i<textureCount;i++) {
+			if (i < textures.size()) {
+				textures.set(i, to.textures.get(i));
+			}
+			else {
+				textures.add(to.textures.get(i));
+			}
+		}
+		for (int i=textures.size()-1;i>=textureCount;i--) {
+			textures.remove(i);
+		}
+		
+		if (vertices.length < to.quadCount * QUAD_SIZE) {
+			vertices = new int[to.vertices.length];
+			quadKeys = new long[to.quadKeys.length];
+		}
+		System.arraycopy(to.vertices, 0, vertices, 0, to.quadCount * QUAD_SIZE);
+		System.arraycopy(to.quadKeys, 0, quadKeys, 0, to.quadCount);
+		quadCount = to.quadCount;
+		
+		if (meshKeys.length < to.meshCount) {
+			int size = to.meshKeys.length;
+			meshKeys = new long[size];
+			meshModels = new Model[size];
+			meshMaterials = new Material[size];
+			meshTextures = new int[size];
+			meshTransforms = new float[size * 4];
+			meshUvs = new float[size * 4];
+		}
+		System.arraycopy(to.meshKeys, 0, meshKeys, 0, to.meshCount);
+		System.arraycopy(to.meshModels, 0, meshModels, 0, to.meshCount);
+		System.arraycopy(to.meshMaterials, 0, meshMaterials, 0, to.meshCount);
+		System.arraycopy(to.meshTextures, 0, meshTextures, 0, to.meshCount);
+		System.arraycopy(to.meshTransforms, 0, meshTransforms, 0, to.meshCount * 4);
+		System.arraycopy(to.meshUvs, 0, meshUvs, 0, to.meshCount * 4);
+		meshCount = to.meshCount;
+		
+		if (alpha >= 1 || from.quadCount != quadCount || from.meshCount != meshCount) {
+			return;
+		}
+		
+		// Posición (x, y) de cada vértice de los quads
+		for (int v=0;v<quadCount * QUAD_SIZE;v+=VERTEX_SIZE) {
+			vertices[v] = lerp(from.vertices[v], vertices[v], alpha);
+			vertices[v + 1] = lerp(from.vertices[v + 1], vertices[v + 1], alpha);
+		}
+		
+		// Posición (x, y, z) de los modelos, si son los mismos en los dos lotes
+		for (int m=0;m<meshCount;m++) {
+			if (from.meshModels[m] != meshModels[m]) {
+				continue;
+			}
+			
+			for (int c=0;c<3;c++) {
+				float a = from.meshTransforms[m * 4 + c];
+				meshTransforms[m * 4 + c] = a + (meshTransforms[m * 4 + c] - a) * alpha;
+			}
+		}
+	}
+	
+	/**
+	 * Interpolación entre dos floats guardados como bits
+	 */
+	private static int lerp(int from, int to, float alpha) {
+		if (from == to) {
+			return to;
+		}
+		
+		float a = Float.intBitsToFloat(from);
+		return Float.floatToRawIntBits(a + (Float.intBitsToFloat(to) - a) * alpha);
+	}
+	
+	/**
+	 * Cierra el frame: ordena quads y modelos y calcula los tramos de quads.
+	 * El orden es estable: dentro de una misma capa y textura se respeta el
+	 * orden de llegada.
+	 */
+	public void sort() {
+		Arrays.sort(quadKeys, 0, quadCount);
+		Arrays.sort(meshKeys, 0, meshCount);
+		
+		runs = 0;
+		int lastKey = -1;
+		
+		for (int q=0;q<quadCount;q++) {
+			int key = (int) (quadKeys[q] >>> 32);
+			
+			if (key != lastKey) {
+				if (runs == runFirst.length) {
+					int size = runs * 2;
+					runLayer = Arrays.copyOf(runLayer, size);
+					runTexture = Arrays.copyOf(runTexture, size);
+					runFirst = Arrays.copyOf(runFirst, size);
+					runCount = Arrays.copyOf(runCount, size);
+				}
+				
+				runLayer[runs] = key >>> 16;
+				runTexture[runs] = key & 0xFFFF;
+				runFirst[runs] = q * 4;
+				runCount[runs] = 0;
+				runs++;
+				lastKey = key;
+			}
+			
+			runCount[runs - 1] += 4;
+		}
+	}
+	
+	/**
+	 * Copia los vértices de los quads, ya ordenados, al buffer de destino
+	 * 
+	 * @param dst Buffer con espacio para getQuadCount() * QUAD_SIZE enteros
+	 */
+	public void writeVertices(IntBuffer dst) {
+		for (int q=0;q<quadCount;q++) {
+			int index = (int) quadKeys[q];
+			dst.put(vertices, index * QUAD_SIZE, QUAD_SIZE);
+		}
+	}
+	
+	/**
+	 * Color RGBA (0xRRGGBBAA) en el orden de bytes en memoria R, G, B, A
+	 */
+	private static int packColor(int rgba) {
+		return LITTLE_ENDIAN ? Integer.reverseBytes(rgba) : rgba;
+	}
+
+	public int getQuadCount() {
+		return quadCount;
+	}
+
+	/**
+	 * @return Número de tramos de quads (cada tramo es una llamada de dibujo)
+	 */
+	public int getRunCount() {
+		return runs;
+	}
+
+	public int getRunLayer(int run) {
+		return runLayer[run];
+	}
+
+	public int getRunTexture(int run) {
+		return runTexture[run];
+	}
+
+	/**
+	 * @return Primer vértice del tramo en los vértices ordenados
+	 */
+	public int getRunFirst(int run) {
+		return runFirst[run];
+	}
+
+	/**
+	 * @return Número de vértices del tramo
+	 */
+	public int getRunVertexCount(int run) {
+		return runCount[run];
+	}
+
+	public int getMeshCount() {
+		return meshCount;
+	}
+
+	/**
+	 * @param i Posición en el orden de dibujo [0, getMeshCount())
+	 * @return Indice del modelo en orden de llegada
+	 */
+	public int getMeshIndex(int i) {
+		return (int) meshKeys[i];
+	}
+
+	public Model getMeshModel(int index) {
+		return meshModels[index];
+	}
+
+	public Material getMeshMaterial(int index) {
+		return meshMaterials[index];
+	}
+
+	public int getMeshTexture(int index) {
+		return meshTextures[index];
+	}
+
+	public float getMeshX(int index) {
+		return meshTransforms[index * 4];
+	}
+
+	public float getMeshY(int index) {
+		return meshTransforms[index * 4 + 1];
+	}
+
+	public float getMeshZ(int index) {
+		return meshTransforms[index * 4 + 2];
+	}
+
+	public float getMeshScale(int index) {
+		return meshTransforms[index * 4 + 3];
+	}
+
+	/**
+	 * @return Coordenadas de la región de textura del modelo (0 = u0, 1 = v0, 2 = u1, 3 = v1)
+	 */
+	public float getMeshUv(int index, int corner) {
+		return meshUvs[index * 4 + corner];
+	}
+}
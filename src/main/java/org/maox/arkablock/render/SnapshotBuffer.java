@@ -0,0 +1,75 @@
+package org.maox.arkablock.render;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Triple buffer sin bloqueos entre el hilo de simulación (productor) y el
+ * hilo de la ventana (consumidor). Cada hilo es dueño de un estado (el que
+ * escribe y el que dibuja) y el tercero es el intercambio: el productor
+ * publica cambiando su estado por el del intercambio y el consumidor toma el
+ * último publicado de la misma forma. Ninguno espera al otro: si la
+ * simulación va más rápida se pierden estados intermedios y si va más lenta
+ * se vuelve a dibujar el último.
+ * 
+ * El intercambio es un único entero atómico con el indice del estado y un
+ * bit que indica si es nuevo (aún no lo ha tomado el consumidor).
+ * 
+ * @author Alex
+ */
+public class SnapshotBuffer {
+	/** Bit de estado nuevo en el intercambio */
+	private static final int FRESH = 4;
+	/** Máscara del indice en el intercambio */
+	private static final int INDEX = 3;
+	
+	/** Los tres estados */
+	private final FrameSnapshot[] snapshots = { new FrameSnapshot(), new FrameSnapshot(), new FrameSnapshot() };
+	/** Estado en intercambio (indice | FRESH) */
+	private final AtomicInteger middle = new AtomicInteger(1);
+	/** Estado del productor */
+	private int back = 0;
+	/** Estado del consumidor */
+	private int front = 2;
+	/** Si el consumidor ha tomado algún estado publicado */
+	private boolean received;
+	
+	/**
+	 * Solo productor
+	 * 
+	 * @return Estado a rellenar
+	 */
+	public FrameSnapshot getBack() {
+		return snapshots[back];
+	}
+	
+	/**
+	 * Publica el estado rellenado. Solo productor
+	 */
+	public void publish() {
+		back = middle.getAndSet(back | FRESH) & INDEX;
+	}
+	
+	/**
+	 * Toma el último estado publicado, si hay uno nuevo. Solo consumidor
+	 * 
+	 * @return Último estado publicado (null si aún no se ha publicado ninguno)
+	 */
+	public FrameSnapshot acquire() {
+		if ((middle.get() & FRESH) != 0) {
+			front = middle.getAndSet(front) & INDEX;
+			received = true;
+		}
+		
+		return received ? snapshots[front] : null;
+	}
+	
+	/**
+	 * Descarta los estados publicados (con los dos hilos parados)
+	 */
+	public void reset() {
+		middle.set(1);
+		back = 0;
+		front = 2;
+		received = false;
+	}
+}
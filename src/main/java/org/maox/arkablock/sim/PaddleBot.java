@@ -0,0 +1,107 @@
+package org.maox.arkablock.sim;
+
+import java.util.Random;
+
+import org.maox.arkablock.entities.Ball;
+import org.maox.arkablock.entities.Ship;
+import org.maox.arkablock.input.InputFrame;
+import org.maox.arkablock.input.InputSource;
+import org.maox.arkablock.states.InGameState;
+
+/**
+ * Jugador automático: saca la bola y mueve la nave hacia la bola que baja
+ * más cerca. Para que no sea perfecto apunta con un error aleatorio, que
+ * cambia cada vez que la bola empieza a bajar. Con la misma semilla juega
+ * siempre igual.
+ * 
+ * @author Alex
+ */
+public class PaddleBot implements InputSource {
+	/** Distancia en pixels a la que la nave se da por colocada */
+	private static final float DEAD_ZONE = 8;
+	
+	/** Mundo en el que juega */
+	private final InGameState world;
+	/** Generador del error de puntería */
+	private final Random random;
+	/** Error máximo de puntería en pixels */
+	private final float error;
+	
+	/** Error de puntería actual */
+	private float aim;
+	/** Si la bola seguida estaba bajando en el ciclo anterior */
+	private boolean falling;
+	
+	/**
+	 * @param world Mundo en el que juega
+	 * @param seed Semilla del error de puntería
+	 * @param error Error máximo de puntería en pixels (0 para seguir la bola exactamente)
+	 */
+	public PaddleBot(InGameState world, long seed, float error) {
+		this.world = world;
+		this.random = new Random(seed);
+		this.error = error;
+	}
+
+	/**
+	 * @see org.maox.arkablock.input.InputSource#next
+	 */
+	@Override
+	public boolean next(InputFrame frame) {
+		Ball target = findTarget();
+		frame.clear();
+		
+		if (target == null) {
+			return true;
+		}
+		
+		// Bola parada sobre la nave: saque
+		if (target.getVelocityY() == 0) {
+			frame.setButtons(InputFrame.FIRE);
+			return true;
+		}
+		
+		boolean down = target.getVelocityY() > 0;
+		if (down && !falling) {
+			aim = (random.nextFloat() * 2 - 1) * error;
+		}
+		falling = down;
+		
+		Ship ship = world.getPlayer();
+		float dx = target.getX() + aim - ship.getX();
+		
+		if (dx < -DEAD_ZONE) {
+			frame.setButtons(InputFrame.LEFT);
+		}
+		else if (dx > DEAD_ZONE) {
+			frame.setButtons(InputFrame.RIGHT);
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * @return La bola que baja más abajo o, si ninguna baja, la más baja
+	 */
+	private Ball findTarget() {
+		Ball target = null;
+		
+		for (int i=0;i<world.getBallCount();i++) {
+			Ball ball = world.getBall(i);
+			
+			if (target == null) {
+				target = ball;
+				continue;
+			}
+			
+			boolean down = ball.getVelocityY() > 0;
+			boolean targetDown = target.getVelocityY() > 0;
+			
+			if ((down && !targetDown) || (down == targetDown && ball.getY() > target.getY())) {
+				target = ball;
+			}
+		}
+		
+		return target;
+	}
+}
@@ -0,0 +1,226 @@
+package org.maox.arkablock.sim;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.maox.arkablock.ArkaBlock;
+import org.maox.arkablock.audio.NullAudioEngine;
+import org.maox.arkablock.backend.Backend;
+import org.maox.arkablock.level.LevelPrefetcher;
+import org.maox.arkablock.states.InGameState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Simulación de muchas partidas en paralelo con el jugador automático
+ * (PaddleBot), para equilibrar los niveles y ajustar la velocidad de la
+ * bola. Cada mundo es un InGameState independiente y sin ventana que juega
+ * partidas seguidas hasta completar el total; los mundos se reparten en un
+ * grupo de hilos y no comparten nada salvo el contador de partidas (cada
+ * mundo tiene también su propio hilo de carga de niveles), así que el
+ * rendimiento crece con el número de núcleos.
+ * 
+ * Propiedades de sistema:
+ *    arkablock.sim.games: partidas a jugar (1000)
+ *    arkablock.sim.threads: hilos (núcleos del equipo)
+ *    arkablock.sim.worlds: mundos (uno por hilo)
+ *    arkablock.sim.maxtime: duración máxima de una partida en s de juego (600)
+ *    arkablock.sim.seed: semilla de los jugadores automáticos (1)
+ *    arkablock.sim.error: error de puntería del jugador en pixels (30)
+ *    arkablock.sim.ballspeed: velocidad inicial de la bola en pixels/s (200)
+ *    arkablock.sim.ballmaxspeed: velocidad máxima de la bola en pixels/s (1500)
+ *    arkablock.tickrate: ciclos de lógica por segundo (100, como en el juego)
+ * 
+ * @author Alex
+ */
+public class SimulationRunner {
+	/** Log */
+	private static final Logger logger = LoggerFactory.getLogger(SimulationRunner.class);
+	
+	/** Partidas a jugar */
+	private final int games;
+	/** Mundos simulados a la vez */
+	private final int worlds;
+	/** Duración del ciclo de lógica en ms */
+	private final int step;
+	/** Ciclos máximos por partida */
+	private final long maxTicks;
+	/** Semilla de los jugadores automáticos */
+	private final long seed;
+	/** Error de puntería de los jugadores en pixels */
+	private final float error;
+	/** Velocidad inicial y máxima de la bola */
+	private final float ballSpeed, ballMaxSpeed;
+	
+	/** Partidas que quedan por empezar */
+	private final AtomicInteger remaining = new AtomicInteger();
+	
+	/**
+	 * @param games Partidas a jugar
+	 * @param worlds Mundos simulados a la vez
+	 * @param step Duración del ciclo de lógica en ms
+	 * @param maxTime Duración máxima de una partida en s de juego
+	 * @param seed Semilla de los jugadores automáticos
+	 * @param error Error de puntería de los jugadores en pixels
+	 * @param ballSpeed Velocidad inicial de la bola en pixels/s
+	 * @param ballMaxSpeed Velocidad máxima de la bola en pixels/s
+	 */
+	public SimulationRunner(int games, int worlds, int step, int maxTime, long seed, float error, 
+			float ballSpeed, float ballMaxSpeed) {
+		this.games = games;
+		this.worlds = worlds;
+		this.step = step;
+		this.maxTicks = maxTime * 1000L / step;
+		this.seed = seed;
+		this.error = error;
+		this.ballSpeed = ballSpeed;
+		this.ballMaxSpeed = ballMaxSpeed;
+	}
+	
+	/**
+	 * Juega todas las partidas
+	 * 
+	 * @param threads Hilos de simulación
+	 * @return Resultados de todas las partidas
+	 * @throws Exception Si falla la simulación de algún mundo
+	 */
+	public SimulationStats run(int threads) throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+			
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "simulation-"+count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		
+		remaining.set(games);
+		
+		try {
+			ArrayList<Future<SimulationStats>> results = new ArrayList<Future<SimulationStats>>();
+			
+			for (int i=0;i<worlds;i++) {
+				final int world = i;
+				
+				results.add(pool.submit(new Callable<SimulationStats>() {
+					@Override
+					public SimulationStats call() throws Exception {
+						return runWorld(world);
+					}
+				}));
+			}
+			
+			SimulationStats total = new SimulationStats();
+			for (int i=0;i<results.size();i++) {
+				total.merge(results.get(i).get());
+			}
+			
+			return total;
+		}
+		finally {
+			pool.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Crea un mundo con su propio hilo de carga de niveles y juega partidas
+	 * en él hasta que no quedan por empezar
+	 * 
+	 * @param index Número del mundo (para la semilla de su jugador)
+	 * @return Resultados de las partidas del mundo
+	 */
+	private SimulationStats runWorld(int index) throws Exception {
+		SimulationStats stats = new SimulationStats();
+		InGameState world = new InGameState();
+		// Hilo de carga de niveles propio: con el compartido del juego las
+		// cargas de todos los mundos esperarían en la misma cola
+		ExecutorService levelWorker = LevelPrefetcher.createWorker("level-prefetch-"+index);
+		
+		try {
+			// Cada mundo lleva la cuenta de sus voces (sin sonido)
+			world.setAudio(new NullAudioEngine());
+			world.setLevelWorker(levelWorker);
+			world.init(null);
+			// Los efectos son solo visuales
+			world.getParticles().setEnabled(false);
+			world.setInputSource(new PaddleBot(world, seed * 31 + index, error));
+			world.setBallSpeeds(ballSpeed, ballMaxSpeed);
+			world.enter();
+			
+			while (remaining.getAndDecrement() > 0) {
+				long ticks = 0;
+				
+				while (!world.isGameOver() && ticks < maxTicks) {
+					world.update(step);
+					ticks++;
+				}
+				
+				stats.addGame(ticks, ticks * step, world.getBricksDestroyed(), world.getScore(), world.getLevel(), 
+						!world.isGameOver());
+				
+				world.restart();
+			}
+			
+			world.leave();
+		}
+		finally {
+			levelWorker.shutdownNow();
+		}
+		
+		return stats;
+	}
+	
+	/**
+	 * Informe de los resultados
+	 * 
+	 * @param stats Resultados
+	 * @param nanos Tiempo real de la simulación en ns
+	 */
+	public static void report(SimulationStats stats, long nanos) {
+		double seconds = Math.max(1, nanos) / 1e9;
+		double gameSeconds = Math.max(1, stats.getTotalMillis()) / 1000.0;
+		
+		logger.info("Partidas: "+stats.getGames()+" en "+String.format("%.2f", seconds)+" s ("
+				+String.format("%.1f", stats.getGames() / seconds)+" partidas/s, "
+				+String.format("%.0f", stats.getTicks() / seconds)+" ticks/s)");
+		logger.info("Duración de las partidas p50/p90/max: "
+				+stats.getSurvivalPercentile(0.5f) / 1000f+"/"+stats.getSurvivalPercentile(0.9f) / 1000f+"/"
+				+stats.getSurvivalPercentile(1) / 1000f+" s (cortadas por tiempo: "+stats.getTimeouts()+")");
+		logger.info("Ladrillos: "+String.format("%.2f", stats.getBricks() / gameSeconds)+" por segundo de juego, "
+				+String.format("%.1f", (double) stats.getBricks() / Math.max(1, stats.getGames()))+" por partida"
+				+", puntuación media "+stats.getScore() / Math.max(1, stats.getGames())+", nivel máximo "+stats.getMaxLevel());
+	}
+	
+	/**
+	 * @param args No se usan (ver las propiedades de sistema)
+	 */
+	public static void main(String[] args) throws Exception {
+		Backend.setHeadless(true);
+		
+		int cores = Runtime.getRuntime().availableProcessors();
+		int threads = Math.max(1, Integer.getInteger("arkablock.sim.threads", cores));
+		int worlds = Math.max(1, Integer.getInteger("arkablock.sim.worlds", threads));
+		int rate = ArkaBlock.readTickRate();
+		
+		SimulationRunner runner = new SimulationRunner(
+				Integer.getInteger("arkablock.sim.games", 1000), worlds, 1000 / rate,
+				Integer.getInteger("arkablock.sim.maxtime", 600),
+				Long.getLong("arkablock.sim.seed", 1),
+				Float.parseFloat(System.getProperty("arkablock.sim.error", "30")),
+				Float.parseFloat(System.getProperty("arkablock.sim.ballspeed", "200")),
+				Float.parseFloat(System.getProperty("arkablock.sim.ballmaxspeed", "1500")));
+		
+		logger.info("Simulando "+runner.games+" partidas en "+worlds+" mundos con "+threads+" hilos");
+		
+		long start = System.nanoTime();
+		SimulationStats stats = runner.run(threads);
+		report(stats, System.nanoTime() - start);
+	}
+}
@@ -0,0 +1,120 @@
+package org.maox.arkablock.sim;
+
+import java.util.Arrays;
+
+/**
+ * Resultados de un grupo de partidas simuladas. Cada mundo acumula las
+ * suyas sin compartir nada con los demás; al final se suman (merge).
+ * 
+ * @author Alex
+ */
+public class SimulationStats {
+	/** Partidas jugadas */
+	private int games;
+	/** Partidas terminadas por límite de tiempo (sin Game Over) */
+	private int timeouts;
+	/** Ciclos simulados */
+	private long ticks;
+	/** Ladrillos rotos */
+	private long bricks;
+	/** Puntuación total */
+	private long score;
+	/** Nivel máximo alcanzado */
+	private int maxLevel;
+	/** Duración de cada partida en ms de juego */
+	private long[] survival = new long[64];
+	
+	/**
+	 * Añade el resultado de una partida
+	 * 
+	 * @param ticks Ciclos simulados
+	 * @param millis Duración en ms de juego
+	 * @param bricks Ladrillos rotos
+	 * @param score Puntuación final
+	 * @param level Nivel alcanzado
+	 * @param timeout true si se ha cortado la partida por tiempo
+	 */
+	public void addGame(long ticks, long millis, int bricks, int score, int level, boolean timeout) {
+		if (games == survival.length) {
+			survival = Arrays.copyOf(survival, games * 2);
+		}
+		
+		survival[games++] = millis;
+		this.ticks += ticks;
+		this.bricks += bricks;
+		this.score += score;
+		maxLevel = Math.max(maxLevel, level);
+		
+		if (timeout) {
+			timeouts++;
+		}
+	}
+	
+	/**
+	 * Suma los resultados de otro grupo
+	 */
+	public void merge(SimulationStats other) {
+		for (int i=0;i<other.games;i++) {
+			if (games == survival.length) {
+				survival = Arrays.copyOf(survival, games * 2);
+			}
+			survival[games++] = other.survival[i];
+		}
+		
+		timeouts += other.timeouts;
+		ticks += other.ticks;
+		bricks += other.bricks;
+		score += other.score;
+		maxLevel = Math.max(maxLevel, other.maxLevel);
+	}
+	
+	/**
+	 * @param fraction Fracción (0..1)
+	 * @return Percentil de la duración de las partidas en ms de juego
+	 */
+	public long getSurvivalPercentile(float fraction) {
+		if (games == 0) {
+			return 0;
+		}
+		
+		long[] sorted = Arrays.copyOf(survival, games);
+		Arrays.sort(sorted);
+		
+		return sorted[Math.min(games - 1, (int) (fraction * games))];
+	}
+	
+	/**
+	 * @return Duración total de las partidas en ms de juego
+	 */
+	public long getTotalMillis() {
+		long total = 0;
+		for (int i=0;i<games;i++) {
+			total += survival[i];
+		}
+		return total;
+	}
+
+	public int getGames() {
+		return games;
+	}
+
+	public int getTimeouts() {
+		return timeouts;
+	}
+
+	public long getTicks() {
+		return ticks;
+	}
+
+	public long getBricks() {
+		return bricks;
+	}
+
+	public long getScore() {
+		return score;
+	}
+
+	public int getMaxLevel() {
+		return maxLevel;
+	}
+}
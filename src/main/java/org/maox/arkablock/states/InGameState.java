@@ -1,28 +1,53 @@
 package org.maox.arkablock.states;
 
-import java.nio.FloatBuffer;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
 
 import static org.lwjgl.opengl.GL11.*;
 
-import org.lwjgl.BufferUtils;
-import org.lwjgl.opengl.GL11;
 import org.maox.arkablock.ArkaBlock;
+import org.maox.arkablock.GameWorld;
+import org.maox.arkablock.assets.TextureAtlas;
+import org.maox.arkablock.audio.AudioEngine;
+import org.maox.arkablock.audio.Sounds;
+import org.maox.arkablock.assets.TextureRegion;
+import org.maox.arkablock.backend.Backend;
+import org.maox.arkablock.backend.Model;
+import org.maox.arkablock.collision.Hit;
+import org.maox.arkablock.collision.Playfield;
+import org.maox.arkablock.collision.SweepTarget;
+import org.maox.arkablock.collision.UniformGrid;
+import org.maox.arkablock.ecs.CollisionSystem;
+import org.maox.arkablock.ecs.EcsWorld;
+import org.maox.arkablock.ecs.LegacySystem;
+import org.maox.arkablock.ecs.MovementSystem;
+import org.maox.arkablock.ecs.PaddleSystem;
+import org.maox.arkablock.ecs.RenderSystem;
 import org.maox.arkablock.entities.Ball;
 import org.maox.arkablock.entities.Ship;
+import org.maox.arkablock.input.InputFrame;
+import org.maox.arkablock.input.InputSource;
+import org.maox.arkablock.input.LiveInput;
+import org.maox.arkablock.level.BrickField;
+import org.maox.arkablock.level.BrickListener;
+import org.maox.arkablock.level.LevelPack;
+import org.maox.arkablock.level.LevelPrefetcher;
+import org.maox.arkablock.particles.ParticleEmitter;
+import org.maox.arkablock.particles.ParticleSystem;
+import org.maox.arkablock.profiling.FrameProfiler;
+import org.maox.arkablock.profiling.ProfilerHud;
+import org.maox.arkablock.render.GLBatchRenderer;
+import org.maox.arkablock.render.ParamBlock;
+import org.maox.arkablock.render.RenderBatch;
 import org.maox.games.Game;
-import org.maox.games.GameState;
 import org.maox.games.entities.Entity;
-import org.maox.games.entities.EntityManager;
-import org.maox.graphics.textures.Texture;
-import org.maox.graphics.textures.TextureLoader;
 
 /**
  * Estado encargado de la renderización del mundo de juego y de la mecanica del juego
  * 
  * @author Alex
  */
-public class InGameState implements GameState, EntityManager {
+public class InGameState implements ThreadedGameState, GameWorld, BrickListener {
 
 	/** Puntero al juego princpial */
 	Game game = null;
@@ -31,14 +56,81 @@ public class InGameState implements GameState, EntityManager {
 	public static final String NAME = "inGame";
 	
 	/** Texturas usadas para el renderizado de objetos  */
-	private Texture	texBackground;
+	private TextureRegion	texBackground;
+	/** Región blanca del atlas para los ladrillos (null si no hay atlas) */
+	private TextureRegion	texWhite;
 
-	/** Entidades del juego */
-	private ArrayList<Entity> entities = new ArrayList<Entity>();
-	/** Entidad que representa la nave del jugador */
-	private Ship player;
-	/** Entidad que representa la bola del jugados */
-	private Ball ball;
+	/** Ranuras de los parámetros de la luz */
+	private static final int LIGHT_MODEL_AMBIENT = 0, LIGHT_AMBIENT = 1, LIGHT_DIFFUSE = 2, LIGHT_SPECULAR = 3, LIGHT_POSITION = 4;
+	/** Parámetros de la luz de la escena */
+	private ParamBlock lightParams = new ParamBlock(5);
+	/** Lote de dibujo del frame */
+	private RenderBatch batch = new RenderBatch();
+	/** Dibujo de los lotes con OpenGL */
+	private GLBatchRenderer renderer;
+	
+	/** Medición de tiempos por fase (opcional) */
+	private FrameProfiler profiler;
+	/** Medidor de las fases de la lógica (el del hilo de simulación si lo hay) */
+	private FrameProfiler simulationProfiler;
+	/** Panel de tiempos en pantalla */
+	private ProfilerHud profilerHud;
+
+	/** Entidades del juego y sus componentes */
+	private final EcsWorld world = new EcsWorld();
+	/** Movimiento de la nave con la entrada y de las bolas por barrido */
+	private final PaddleSystem paddles = new PaddleSystem();
+	private final MovementSystem movement = new MovementSystem(world);
+	/** Dibujo de la nave y las bolas */
+	private final RenderSystem renderSystem = new RenderSystem();
+	/** Puente con las entidades clásicas que se añadan con addEntity */
+	private final LegacySystem legacy = new LegacySystem(world, this);
+	/** Detección de colisiones entre las entidades clásicas */
+	private final CollisionSystem collisions;
+	/** Nave del jugador */
+	private final Ship player = new Ship(world);
+	/** Bolas en juego */
+	private ArrayList<Ball> balls = new ArrayList<Ball>();
+	/** Bolas fuera del mundo para reutilizarlas entre rondas */
+	private ArrayList<Ball> ballPool = new ArrayList<Ball>();
+	/** Altura de la nave y de la bola al empezar la ronda, desde la parte inferior del area de juego */
+	private static final float SHIP_START = 50, BALL_START = 60;
+	/** Modelos y texturas de la nave y de las bolas (el de las bolas es
+	 *  propio del estado: se crea en enter y se libera en leave) */
+	private Model shipModel, ballModel;
+	private TextureRegion texShip, texBall;
+	
+	/** Máximo de partículas vivas */
+	private static final int MAX_PARTICLES = 4096;
+	/** Efectos del juego */
+	private final ParticleSystem particles = new ParticleSystem(MAX_PARTICLES);
+	/** Efecto de cada tipo de entidad: rotura de ladrillo y estela de la bola */
+	private final ParticleEmitter brickBreak = new ParticleEmitter();
+	private final ParticleEmitter ballTrail = new ParticleEmitter();
+	
+	/** Sonido (el motor activo si no se asigna otro antes de init) */
+	private AudioEngine audio;
+	
+	/** Paredes del area de juego */
+	private final Playfield playfield;
+	/** Sólidos contra los que rebota la bola */
+	private ArrayList<SweepTarget> solids = new ArrayList<SweepTarget>();
+	/** Muro de ladrillos del nivel (16 columnas de 20 pixels de alto que ocupan todo el ancho) */
+	private BrickField bricks;
+	/** Niveles (null sin paquete de niveles: se usa el muro por defecto) */
+	private LevelPack levels;
+	/** Carga del siguiente nivel en segundo plano */
+	private LevelPrefetcher prefetcher;
+	/** Hilo de carga de los niveles (null para usar el compartido del juego) */
+	private ExecutorService levelWorker;
+	/** Colores de las filas del muro por defecto (RGBA) */
+	private static final int[] ROW_COLORS = { 
+		0xC0C0C0FF, 0xFF3030FF, 0xFFFF30FF, 0x3070FFFF, 0xFF30FFFF, 0x30FF30FF };
+	
+	/** Origen de la entrada del jugador (teclado o sesión grabada) */
+	private InputSource inputSource = new LiveInput();
+	/** Entrada del ciclo actual */
+	private InputFrame input = new InputFrame();
 	
 	/** Variables de juego (vidas, puntuación, si se ha terminado) */
 	/** Puntuación actual */
@@ -49,8 +141,62 @@ public class InGameState implements GameState, EntityManager {
 	private boolean gameOver;
 	/** Tiempo desde que sale el mensaje de Game Over hasta que se reinica al menu */
 	private int gameOverTimeout;
+	/** Espera en ms tras el Game Over */
+	private static final int GAME_OVER_TIME = 3000;
 	/** Nivel del juego */
 	private int level;
+	/** Ladrillos rotos en la partida */
+	private int bricksDestroyed;
+	/** Velocidad inicial y máxima de las bolas en pixels/s */
+	private float ballSpeed = 200, ballMaxSpeed = 1500;
+	
+	/**
+	 * Mundo de juego del tamaño de la ventana
+	 */
+	public InGameState() {
+		this(ArkaBlock.WIDTH, ArkaBlock.HEIGHT);
+	}
+	
+	/**
+	 * Mundo de juego independiente de la ventana (p.e. para simular muchas
+	 * partidas a la vez, ver SimulationRunner)
+	 * 
+	 * @param width Ancho del area de juego
+	 * @param height Alto del area de juego
+	 */
+	public InGameState(int width, int height) {
+		playfield = new Playfield(width, height);
+		bricks = new BrickField(16, 18, 0, 40, width / 16f, 20);
+		collisions = new CollisionSystem(new UniformGrid(width, height, 64));
+		
+		initEffects();
+		movement.setTrail(ballTrail);
+	}
+	
+	/**
+	 * Configuración de los efectos de cada tipo de entidad
+	 */
+	private void initEffects() {
+		// Ladrillo roto: fragmentos del color del ladrillo que caen
+		brickBreak.setBurst(24);
+		brickBreak.setSpeed(40, 160);
+		brickBreak.setDirection((float) -Math.PI / 2, (float) Math.PI);
+		brickBreak.setLife(300, 700);
+		brickBreak.setSize(5, 1);
+		brickBreak.setColor(0xFFFFFFFF, 0xFFFFFF00);
+		brickBreak.setGravity(600);
+		brickBreak.setDrag(1);
+		
+		// Estela de la bola: chispas que se quedan atrás y se apagan
+		ballTrail.setRate(120);
+		ballTrail.setSpeed(5, 30);
+		ballTrail.setDirection(0, (float) Math.PI);
+		ballTrail.setInherit(-0.1f);
+		ballTrail.setLife(150, 350);
+		ballTrail.setSize(10, 2);
+		ballTrail.setColor(0xFFC060FF, 0xFF300000);
+		ballTrail.setDrag(3);
+	}
 	
 	/**
 	 * @see org.maox.games.GameState#getName
@@ -69,13 +215,42 @@ public class InGameState implements GameState, EntityManager {
 		this.game = game;
 
 		// Carga de las texturas utilizadas
-		TextureLoader loader = TextureLoader.getInstance();
-		texBackground = loader.getTexture("img/bg_mig.jpg");
+		Backend backend = Backend.getInstance();
+		texBackground = backend.getTexture("img/bg_mig.jpg");
+		texWhite = backend.getTexture(TextureAtlas.WHITE);
+		
+		// Paquete de niveles (solo se lee su cabecera, cada nivel se copia al empezarlo)
+		levels = LevelPack.open();
+		if (levels != null && (levels.getCols() != bricks.getCols() || levels.getRows() != bricks.getRows())) {
+			levels = null;
+		}
+		if (levels != null && prefetcher == null) {
+			prefetcher = new LevelPrefetcher(levels, new BrickField(bricks.getCols(), bricks.getRows(), 
+					bricks.getCellX(0), bricks.getCellY(0), bricks.getBrickWidth(), bricks.getBrickHeight()),
+					levelWorker != null ? levelWorker : LevelPrefetcher.getSharedWorker());
+		}
+		
+		// Las partículas usan la región blanca y la estela la textura de la bola
+		particles.setWhite(texWhite);
+		ballTrail.setTexture(backend.getTexture("img/fire.jpg"));
+		
+		// Se piden también los recursos de las entidades (se crean en enter())
+		// para que se carguen mientras se muestra el estado de carga
+		backend.getTexture("img/ship.jpg");
+		backend.getTexture("img/fire.jpg");
+		backend.getModel("obj/vaus.obj");
 
-		// Definición de la luz que ilumine la escena
-		initLight();
+		// Definición de la luz que ilumine la escena y del dibujo por lotes
+		// (no hay contexto OpenGL en modo headless)
+		if (!backend.isHeadless()) {
+			initLight();
+			renderer = new GLBatchRenderer(1024);
+		}
 		
-		// TODO Inicialización del sonido
+		// Sonido: los efectos los carga el juego al arrancar (ArkaBlock.initSound)
+		if (audio == null) {
+			audio = AudioEngine.getInstance();
+		}
 	}
 	
 	/**
@@ -84,14 +259,11 @@ public class InGameState implements GameState, EntityManager {
 	 */
 	public void initLight() throws Exception {
 
-		// Los Buffer tenrán el componente RGB de la luz (4 paramatro es 1 para normalizar)
+		// Los parámetros tenrán el componente RGB de la luz (4 paramatro es 1 para normalizar)
+		// Se guardan en un bloque de memoria directa reservado una sola vez
 		
 		// Luz ambiental general
-		FloatBuffer bufferModel = BufferUtils.createFloatBuffer(4);
-		bufferModel.put(1f).put(1f).put(1f).put(1f);
-		bufferModel.flip();
-		
-		glLightModel(GL_LIGHT_MODEL_AMBIENT, bufferModel);
+		glLightModel(GL_LIGHT_MODEL_AMBIENT, lightParams.set(LIGHT_MODEL_AMBIENT, 1f, 1f, 1f, 1f));
 		
 		// Modo de cálculo del brillo de la luz especular
 		glLightModeli(GL_LIGHT_MODEL_LOCAL_VIEWER, GL_TRUE);
@@ -102,32 +274,16 @@ public class InGameState implements GameState, EntityManager {
 
 		// Caracteristicas de la Luz 0 (Se usará como Luz general)
 		// Luz ambiental (Procede de todas partes)
-		FloatBuffer bufferAmb = BufferUtils.createFloatBuffer(4);
-		bufferAmb.put(0.2f).put(0.2f).put(0.2f).put(1); 
-		bufferAmb.flip();
-		
-		glLight(GL_LIGHT0, GL_AMBIENT, bufferAmb);
+		glLight(GL_LIGHT0, GL_AMBIENT, lightParams.set(LIGHT_AMBIENT, 0.2f, 0.2f, 0.2f, 1));
 		
 		// Luz Difusa (Procede de la fuente y rebota en todas direcciones)
-		FloatBuffer bufferDif = BufferUtils.createFloatBuffer(4);
-		bufferDif.put(0.5f).put(0.5f).put(0.5f).put(1); 
-		bufferDif.flip();
-		
-		glLight(GL_LIGHT0, GL_DIFFUSE, bufferDif);
+		glLight(GL_LIGHT0, GL_DIFFUSE, lightParams.set(LIGHT_DIFFUSE, 0.5f, 0.5f, 0.5f, 1));
 		
 		// Luz especular (Procede de la fuente y rebota en una dirección (brillo))
-		FloatBuffer bufferEsp = BufferUtils.createFloatBuffer(4);
-		bufferEsp.put(0.8f).put(0.8f).put(0.8f).put(1); 
-		bufferEsp.flip();
-		
-		glLight(GL_LIGHT0, GL_SPECULAR, bufferEsp);
+		glLight(GL_LIGHT0, GL_SPECULAR, lightParams.set(LIGHT_SPECULAR, 0.8f, 0.8f, 0.8f, 1));
 
 		// Posición de la Luz
-		FloatBuffer  bufferPos = BufferUtils.createFloatBuffer(4);
-		bufferPos.put(0).put(0).put(-5).put(0);
-		bufferPos.flip();
-		
-		glLight(GL_LIGHT0, GL_POSITION, bufferPos);
+		glLight(GL_LIGHT0, GL_POSITION, lightParams.set(LIGHT_POSITION, 0, 0, -5, 0));
 		
 		// Activar la Luz
 		glEnable(GL_LIGHTING);
@@ -141,7 +297,49 @@ public class InGameState implements GameState, EntityManager {
 	 */
 	@Override
 	public void render(int delta) {
-		// TODO Auto-generated method stub
+		render(delta, 1f);
+	}
+
+	/**
+	 * @see org.maox.arkablock.states.InterpolatedGameState#render
+	 */
+	@Override
+	public void render(int delta, float alpha) {
+		batch.begin();
+		submit(batch, alpha);
+		draw(batch);
+	}
+
+	/**
+	 * Construcción del lote del frame: fondo, muro y entidades
+	 * @see org.maox.arkablock.states.ThreadedGameState#submit
+	 */
+	@Override
+	public void submit(RenderBatch batch, float alpha) {
+		drawBackground(batch);
+		drawBricks(batch);
+		particles.submit(batch, alpha);
+
+		// Entidades: la nave y las bolas desde sus componentes y las
+		// entidades clásicas por sí mismas
+		renderSystem.submit(world, batch, alpha);
+		legacy.submit(batch, alpha);
+		
+		// Panel de tiempos por encima de todo
+		if (profilerHud != null && profiler.isHudVisible()) {
+			profilerHud.submit(batch);
+		}
+	}
+
+	/**
+	 * @see org.maox.arkablock.states.ThreadedGameState#draw
+	 */
+	@Override
+	public void draw(RenderBatch batch) {
+		// Sin contexto OpenGL (headless) solo se construye el lote
+		if (renderer == null) {
+			return;
+		}
 		
 		// Limpieza del buffer de pantalla y del bit de profundidad
 		glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
@@ -150,37 +348,44 @@ public class InGameState implements GameState, EntityManager {
 		glMatrixMode(GL_MODELVIEW);
 		glLoadIdentity();
 		
-		// Se dibuja el fondo
-		drawBackground();
-
-		// Bucle por todas las entidades para renderizarlas
-		for (int i=0;i<entities.size();i++) {
-			Entity entity = (Entity) entities.get(i);
-			entity.render();
-		}
+		// Se dibuja todo el lote de una vez
+		renderer.render(batch);
 
 		glFlush();
 	}
 
-	private void drawBackground() {
-		// Establecer iluminación
-		glDisable(GL_LIGHTING);
+	/**
+	 * Fondo de la pantalla
+	 */
+	private void drawBackground(RenderBatch batch) {
+		if (texBackground == null) {
+			batch.quad(RenderBatch.LAYER_BACKGROUND, 0, 0, 0, playfield.getWidth(), playfield.getHeight(), 0, 1, 1, 0, RenderBatch.WHITE);
+			return;
+		}
 		
-		glEnable(GL_TEXTURE_2D);
-		glTexEnvf(GL_TEXTURE_2D, GL_TEXTURE_ENV_MODE, GL_DECAL);
+		batch.quad(RenderBatch.LAYER_BACKGROUND, batch.textureSlot(texBackground), 0, 0, playfield.getWidth(), playfield.getHeight(), 
+				texBackground.u(0), texBackground.v(1), texBackground.u(1), texBackground.v(0), RenderBatch.WHITE);
+	}
 
-		texBackground.bind();
+	/**
+	 * Ladrillos vivos del muro como rectángulos de color. Con atlas se dibujan
+	 * con su región blanca, así comparten la textura con el resto de la escena
+	 */
+	private void drawBricks(RenderBatch batch) {
+		// Un pixel de separación entre ladrillos
+		float w = bricks.getBrickWidth() - 1;
+		float h = bricks.getBrickHeight() - 1;
+		
+		int texture = batch.textureSlot(texWhite);
+		float u = texWhite == null ? 0 : texWhite.u(0.5f);
+		float v = texWhite == null ? 0 : texWhite.v(0.5f);
 		
-		glBegin(GL11.GL_QUADS);
-			glTexCoord2f(0,1);
-			glVertex2i(0,0);
-			glTexCoord2f(0,0);
-			glVertex2i(0,ArkaBlock.HEIGHT);
-			glTexCoord2f(1,0);
-			glVertex2i(ArkaBlock.WIDTH, ArkaBlock.HEIGHT);
-			glTexCoord2f(1,1);
-			glVertex2i(ArkaBlock.WIDTH, 0);
-		glEnd();		
+		for (int cell=bricks.nextAlive(0);cell>=0;cell=bricks.nextAlive(cell + 1)) {
+			float x = bricks.getCellX(cell);
+			float y = bricks.getCellY(cell);
+			
+			batch.quad(RenderBatch.LAYER_WORLD, texture, x, y, x + w, y + h, u, v, u, v, bricks.getColor(cell));
+		}
 	}
 
 	/**
@@ -188,58 +393,223 @@ public class InGameState implements GameState, EntityManager {
 	 */
 	@Override
 	public void update(int delta) throws Exception {
-		// TODO Auto-generated method stub
-
+		// Entrada del ciclo. Se lee en todos los ciclos (también durante el
+		// Game Over) para que la secuencia de entradas siga a la de ciclos
+		inputSource.next(input);
+		
+		// Los efectos siguen su curso también durante el Game Over
+		particles.update(delta);
+		audio.update(delta);
+		
 		// Si se ha finalizado el juego, se espera unos instantes (gemOverTimeout)
-		// antes de volver al menu
+		// antes de volver al menu. Durante la espera el juego queda parado
 		if (gameOver) {
 			gameOverTimeout -= delta;
 			if (gameOverTimeout < 0) {
-				game.changeToState(MenuState.NAME);
+				// TODO Volver al menu (MenuState) cuando esté registrado. Mientras
+				// tanto se vuelve a entrar en el estado para empezar otra partida.
+				// Sin juego (mundo simulado) se reinicia directamente
+				if (game != null) {
+					game.changeToState(NAME);
+				}
+				else {
+					restart();
+				}
 			}
+			return;
 		}
 		
-		// Actualizar todas las entidades actuales del Estado
-		for (int i=0;i<entities.size();i++) {
-			Entity entity = (Entity) entities.get(i);
-
-			// Actualización de la logica
-			entity.update(this, delta);
+		// Nave, bolas (contra la nave ya movida) y entidades clásicas
+		paddles.update(world, input, playfield.getWidth(), delta);
+		movement.update(world, this, delta);
+		legacy.update(delta);
+		
+		// Comprobación de colisiones una vez actualizadas todas las posiciones
+		if (simulationProfiler != null) {
+			simulationProfiler.begin(FrameProfiler.PHASE_COLLISION);
+			checkCollisions();
+			simulationProfiler.end(FrameProfiler.PHASE_COLLISION);
+		}
+		else {
+			checkCollisions();
+		}
+		
+		// Comprobación si quedan bloques por romper
+		if (bricks.getRemaining() == 0) {
+			nextLevel();
+		}
+		
+		// Las bolas que salen por la parte inferior se retiran.
+		// Si no queda ninguna se pierde una vida
+		for (int i=balls.size()-1;i>=0;i--) {
+			Ball ball = balls.get(i);
 			
-			// Comprobación de colisiones
-			for (int j=i+1;j<entities.size();j++) {
-				Entity other = (Entity) entities.get(j);
-					
-				if (entity.collides(other)) {
-					entity.collide(this, other);
-					other.collide(this, entity);
-				}
+			if (ball.getY() - ball.getRadius() > playfield.getHeight()) {
+				removeBall(i);
 			}
+		}
+		
+		if (balls.isEmpty()) {
+			ballMissed();
+		}
+	}
+
+	/**
+	 * Detección de colisiones entre las entidades clásicas. La rejilla obtiene
+	 * los pares candidatos (entidades que comparten celda) con las cajas de
+	 * los componentes, y se confirman con su fase estrecha (ver LegacySystem).
+	 * La nave y las bolas no tienen caja: las bolas se mueven por barrido
+	 * contra los sólidos (MovementSystem)
+	 */
+	private void checkCollisions() {
+		collisions.update(world, legacy);
+	}
+
+	/**
+	 * Paso al siguiente nivel al romper todos los ladrillos
+	 */
+	private void nextLevel() throws Exception {
+		if (simulationProfiler != null) {
+			simulationProfiler.begin(FrameProfiler.PHASE_LEVEL);
+		}
+		
+		level++;
+		buildLevel(level);
+		resetRound();
+		
+		if (simulationProfiler != null) {
+			simulationProfiler.end(FrameProfiler.PHASE_LEVEL);
+		}
+	}
+
+	/**
+	 * Construcción del muro de un nivel. Con paquete de niveles se toma el
+	 * muro cargado en segundo plano (o se copia el nivel del paquete si no
+	 * está listo) y se empieza a cargar el siguiente; al terminarlos se
+	 * vuelve a empezar. Sin paquete se ponen seis filas de ladrillos
+	 * normales, con la fila superior plateada a partir del segundo nivel
+	 * 
+	 * @param level Nivel a construir
+	 */
+	private void buildLevel(int level) {
+		if (levels != null && levels.getLevelCount() > 0) {
+			int index = (level - 1) % levels.getLevelCount();
+			BrickField ready = prefetcher.swap(index, bricks);
 			
-			// Si la posición vertical de la bola es inferior a la de la nave
-			// Se pierde una vida
-			if (ball.getY() + ball.getSizeY() < player.getY() + player.getSizeY()) {
-				ballMissed();
+			if (ready != null) {
+				// Intercambio del muro: el anterior queda de reserva
+				solids.set(solids.indexOf(bricks), ready);
+				bricks = ready;
+			}
+			else {
+				levels.load(index, bricks);
 			}
 			
-			// COmprobación si quedan bloques por romper
-			/*
-			if (entity instanceof Block) {
-				blockCount++;
+			prefetcher.prefetch(level % levels.getLevelCount());
+			return;
+		}
+		
+		bricks.clear();
+		
+		for (int row=0;row<ROW_COLORS.length;row++) {
+			boolean silver = row == 0 && level > 1;
+			
+			for (int col=0;col<bricks.getCols();col++) {
+				if (silver) {
+					bricks.set(col, row + 2, BrickField.TYPE_SILVER, 1 + level / 8, ROW_COLORS[row]);
+				}
+				else if (row > 0) {
+					bricks.set(col, row + 2, BrickField.TYPE_NORMAL, 1, ROW_COLORS[row]);
+				}
 			}
-			*/
 		}
+	}
 
+	/**
+	 * Puntuación por cada ladrillo roto
+	 * @see org.maox.arkablock.level.BrickListener#brickDestroyed
+	 */
+	@Override
+	public void brickDestroyed(BrickField field, int cell, int type) {
+		score += type == BrickField.TYPE_SILVER ? 50 * level : 50;
+		bricksDestroyed++;
+		
+		brickBreak.burst(particles, field.getCellX(cell) + field.getBrickWidth() / 2, 
+				field.getCellY(cell) + field.getBrickHeight() / 2, field.getColor(cell));
+		audio.play(Sounds.BRICK);
 	}
 
 	/**
-	 * Método llamado cuando se pierda una bola
+	 * Método llamado cuando se pierda la última bola
+	 */
+	private void ballMissed() throws Exception {
+		life--;
+		audio.play(Sounds.LOST);
+		
+		if (life <= 0) {
+			gameOver = true;
+			gameOverTimeout = GAME_OVER_TIME;
+		}
+		
+		resetRound();
+	}
+	
+	/**
+	 * Comienzo de ronda: la nave vuelve a su posición y se saca una sola bola.
+	 * Las bolas y sus entidades se reutilizan, no se crea nada
+	 */
+	private void resetRound() throws Exception {
+		for (int i=balls.size()-1;i>=0;i--) {
+			removeBall(i);
+		}
+		
+		player.reset();
+		player.place(playfield.getWidth() / 2, playfield.getHeight() - SHIP_START);
+		spawnBall();
+	}
+	
+	/**
+	 * Saca una bola de la reserva y la pone en juego sobre la nave
+	 * 
+	 * @return Bola en juego
+	 * @throws Exception
+	 */
+	public Ball spawnBall() throws Exception {
+		Ball ball = ballPool.isEmpty() ? new Ball(world) : ballPool.remove(ballPool.size() - 1);
+		ball.create(player.getEntity(), ballModel, texBall);
+		ball.setSpeeds(ballSpeed, ballMaxSpeed);
+		ball.place(player.getX(), playfield.getHeight() - BALL_START);
+		
+		balls.add(ball);
+		
+		return ball;
+	}
+	
+	/**
+	 * @return Número de bolas en juego
+	 */
+	public int getBallCount() {
+		return balls.size();
+	}
+	
+	/**
+	 * @param index Posición en la lista de bolas en juego
+	 * @return Bola en juego
+	 */
+	public Ball getBall(int index) {
+		return balls.get(index);
+	}
+	
+	/**
+	 * Retira una bola del juego y la devuelve a la reserva
+	 * 
+	 * @param index Posición en la lista de bolas en juego
 	 */
-	private void ballMissed() {
-		// TODO Auto-generated method stub
-		//life --;
-		//ball.initPos();
-		//player.initPos();
+	private void removeBall(int index) {
+		Ball ball = balls.remove(index);
+		
+		ball.destroy();
+		ballPool.add(ball);
 	}
 
 	/**
@@ -247,56 +617,279 @@ public class InGameState implements GameState, EntityManager {
 	 */
 	@Override
 	public void enter() throws Exception {
-		// TODO Auto-generated method stub
+		// Carga de las entidades iniciales. Las vistas de la nave y las bolas
+		// se reutilizan; solo se crean los recursos liberados en leave()
+		for (int i=balls.size()-1;i>=0;i--) {
+			removeBall(i);
+		}
+		legacy.clear();
+		particles.clear();
 		
-		// Carga de las entidades iniciales
-		entities.clear();
+		Backend backend = Backend.getInstance();
+		shipModel = backend.getModel("obj/vaus.obj");
+		texShip = backend.getTexture("img/ship.jpg");
+		texBall = backend.getTexture("img/fire.jpg");
+		if (ballModel == null) {
+			ballModel = backend.createSphere(Ball.RADIUS, 10, 10);
+		}
 		
 		// Nave del jugador
-		player = new Ship();
-		entities.add(player);
+		player.create(shipModel, texShip);
 		
-		// Bola
-		ball = new Ball();
-		entities.add(ball);
+		// Sólidos del escenario. La bola se pierde por la parte inferior
+		solids.clear();
+		solids.add(playfield);
+		solids.add(player);
+		solids.add(bricks);
+		playfield.setBottomWall(false);
 		
 		// Variables de juego
 		life = 3;
 		score = 0;
 		level = 1;
+		bricksDestroyed = 0;
 		gameOver = false;
+		
+		// Muro del primer nivel
+		bricks.setListener(this);
+		buildLevel(level);
+		
+		// Nave y bola en posición de inicio
+		resetRound();
 	}
 
 	/**
+	 * Empieza una nueva partida sin liberar los recursos de las entidades.
+	 * Las bolas en juego vuelven a la reserva
+	 * 
+	 * @throws Exception
+	 */
+	public void restart() throws Exception {
+		enter();
+	}
+
+	/**
+	 * Liberación de los recursos de las entidades y salida del mundo. Las
+	 * vistas de la nave y las bolas se conservan para la siguiente partida
 	 * @see org.maox.games.GameState#leave
 	 */
 	@Override
 	public void leave() {
-		// TODO Auto-generated method stub
+		for (int i=balls.size()-1;i>=0;i--) {
+			removeBall(i);
+		}
+		
+		legacy.clear();
+		player.destroy();
+		
+		// La textura y el modelo de la nave son compartidos (gestor de recursos)
+		if (ballModel != null) {
+			ballModel.dispose();
+			ballModel = null;
+		}
+		shipModel = null;
+		texShip = texBall = null;
+	}
 
+	/**
+	 * @see org.maox.arkablock.GameWorld#getInput
+	 */
+	@Override
+	public InputFrame getInput() {
+		return input;
 	}
 
+	/**
+	 * @see org.maox.arkablock.GameWorld#getParticles
+	 */
 	@Override
-	public void removeEntity(Entity entity) {
-		// TODO Auto-generated method stub
+	public ParticleSystem getParticles() {
+		return particles;
+	}
+
+	/**
+	 * @see org.maox.arkablock.GameWorld#getAudio
+	 */
+	@Override
+	public AudioEngine getAudio() {
+		return audio;
+	}
+	
+	/**
+	 * @param audio Motor de audio (p.e. uno propio por mundo simulado). Debe
+	 * asignarse antes de init
+	 */
+	public void setAudio(AudioEngine audio) {
+		this.audio = audio;
+	}
+	
+	/**
+	 * @param levelWorker Hilo de carga de los niveles (p.e. uno propio por mundo
+	 * simulado, ver LevelPrefetcher.createWorker). Debe asignarse antes de init
+	 */
+	public void setLevelWorker(ExecutorService levelWorker) {
+		this.levelWorker = levelWorker;
+	}
+	
+	/**
+	 * @param inputSource Origen de la entrada del jugador
+	 */
+	public void setInputSource(InputSource inputSource) {
+		this.inputSource = inputSource;
+	}
+	
+	/**
+	 * Suma de comprobación del estado de la partida (nave, bolas, muro y
+	 * marcador). Dos simulaciones con la misma entrada deben llegar a la misma
+	 * suma; se usa para comprobar las sesiones reproducidas
+	 * 
+	 * @return Suma de comprobación
+	 */
+	public long getChecksum() {
+		long hash = 17;
+		
+		hash = hash * 31 + Float.floatToIntBits(player.getX());
+		hash = hash * 31 + Float.floatToIntBits(player.getVelocityX());
+		
+		for (int i=0;i<balls.size();i++) {
+			Ball ball = balls.get(i);
+			hash = hash * 31 + Float.floatToIntBits(ball.getX());
+			hash = hash * 31 + Float.floatToIntBits(ball.getY());
+			hash = hash * 31 + Float.floatToIntBits(ball.getVelocityX());
+			hash = hash * 31 + Float.floatToIntBits(ball.getVelocityY());
+		}
 		
+		for (int cell=bricks.nextAlive(0);cell>=0;cell=bricks.nextAlive(cell + 1)) {
+			hash = hash * 31 + cell;
+			hash = hash * 31 + bricks.getHits(cell);
+		}
+		
+		hash = hash * 31 + score;
+		hash = hash * 31 + life;
+		hash = hash * 31 + level;
+		
+		return hash;
 	}
 
+	/**
+	 * @see org.maox.arkablock.GameWorld#sweep
+	 */
 	@Override
-	public void addEntity(Entity entity) {
-		// TODO Auto-generated method stub
+	public boolean sweep(float x, float y, float dx, float dy, float radius, Hit hit) {
+		boolean found = false;
+		
+		for (int i=0;i<solids.size();i++) {
+			found |= solids.get(i).sweep(x, y, dx, dy, radius, hit);
+		}
 		
+		return found;
 	}
 
 	/**
-	 * @see org.maox.graphics.Entity#render()
+	 * Quita una entidad clásica del mundo en O(1)
+	 * @see org.maox.games.entities.EntityManager#removeEntity
+	 */
+	@Override
+	public void removeEntity(Entity entity) {
+		legacy.remove(entity);
+	}
+
+	/**
+	 * Añade una entidad clásica al mundo en O(1). Se actualiza y se dibuja
+	 * por sí misma y colisiona con las otras entidades clásicas a través de
+	 * sus componentes
+	 * @see org.maox.games.entities.EntityManager#addEntity
+	 */
+	@Override
+	public void addEntity(Entity entity) {
+		legacy.add(entity);
+	}
+	
+	/**
+	 * @return Entidades del juego y sus componentes
+	 */
+	public EcsWorld getWorld() {
+		return world;
+	}
+	
+	/**
+	 * Asocia el medidor de tiempos por fase. Con el panel visible se
+	 * añade al lote de cada frame. Las fases de la lógica se miden con su
+	 * medidor de simulación (FrameProfiler.getSimulation), que ya debe estar
+	 * separado si se usa hilo de simulación
+	 * 
+	 * @param profiler Medidor de tiempos (null para no medir)
+	 */
+	public void setProfiler(FrameProfiler profiler) {
+		this.profiler = profiler;
+		simulationProfiler = profiler != null ? profiler.getSimulation() : null;
+		profilerHud = profiler != null ? new ProfilerHud(profiler) : null;
+	}
+	
+	/**
+	 * @return Paredes del area de juego
+	 */
+	public Playfield getPlayfield() {
+		return playfield;
+	}
+	
+	/**
+	 * Velocidades de las bolas (se aplican a las bolas que salen a partir de ahora)
+	 * 
+	 * @param speed Velocidad inicial en pixels/s
+	 * @param maxSpeed Velocidad máxima en pixels/s
+	 */
+	public void setBallSpeeds(float speed, float maxSpeed) {
+		ballSpeed = speed;
+		ballMaxSpeed = maxSpeed;
+	}
+	
+	/**
+	 * @return Nave del jugador
+	 */
+	public Ship getPlayer() {
+		return player;
+	}
+	
+	/**
+	 * @return true si la partida ha terminado (esperando para reiniciar)
+	 */
+	public boolean isGameOver() {
+		return gameOver;
+	}
+	
+	public int getScore() {
+		return score;
+	}
+	
+	public int getLife() {
+		return life;
+	}
+	
+	public int getLevel() {
+		return level;
+	}
+	
+	/**
+	 * @return Ladrillos rotos en la partida actual
+	 */
+	public int getBricksDestroyed() {
+		return bricksDestroyed;
+	}
+	
+	/**
+	 * @return Muro de ladrillos del nivel actual
+	 */
+	public BrickField getBricks() {
+		return bricks;
+	}
+
+	/**
+	 * La nave y las bolas no son entidades clásicas (ver getPlayer y getBall)
+	 * @see org.maox.games.entities.EntityManager#getEntity
 	 */
 	@Override
 	public Entity getEntity(String key) {
-		// TODO Auto-generated method stub
-		if (key.equals("vaus"))
-			return player;
-		
 		return null;
 	}
 
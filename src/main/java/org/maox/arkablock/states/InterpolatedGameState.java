@@ -0,0 +1,23 @@
+package org.maox.arkablock.states;
+
+import org.maox.games.GameState;
+
+/**
+ * Estado de juego que sabe renderizar interpolando entre los dos últimos
+ * ciclos de lógica. Con una lógica de ciclo fijo el renderizado casi nunca
+ * coincide con el final de un ciclo, y sin interpolar el movimiento se ve
+ * a saltos.
+ * 
+ * @author Alex
+ */
+public interface InterpolatedGameState extends GameState {
+
+	/**
+	 * Renderiza el estado
+	 * 
+	 * @param delta Tiempo en ms desde el último frame
+	 * @param alpha Fracción [0, 1) del ciclo de lógica en curso que ya ha transcurrido.
+	 *        0 es la posición del ciclo anterior y 1 la del último ciclo simulado
+	 */
+	public void render(int delta, float alpha);
+}
@@ -0,0 +1,121 @@
+package org.maox.arkablock.states;
+
+import static org.lwjgl.opengl.GL11.*;
+
+import org.maox.arkablock.ArkaBlock;
+import org.maox.arkablock.backend.Backend;
+import org.maox.arkablock.render.GLBatchRenderer;
+import org.maox.arkablock.render.RenderBatch;
+import org.maox.games.Game;
+import org.maox.games.GameState;
+
+/**
+ * Estado de carga. Muestra una barra de progreso mientras los recursos
+ * pedidos por los demás estados se decodifican en segundo plano y se suben
+ * a la GPU (el bucle de juego sube una parte en cada frame). Al terminar
+ * pasa al estado indicado.
+ * 
+ * @author Alex
+ */
+public class LoadingState implements GameState {
+
+	/** Puntero al juego princpial */
+	Game game = null;
+
+	/** El nombre indentificativo de este estado */
+	public static final String NAME = "loading";
+	
+	/** Dimensiones de la barra de progreso */
+	private static final float BAR_WIDTH = 400, BAR_HEIGHT = 16;
+	/** Colores del marco, el fondo y el progreso (RGBA) */
+	private static final int FRAME = 0xC0C0C0FF, EMPTY = 0x202020FF, FILL = 0x3070FFFF;
+	
+	/** Estado al que se pasa al terminar la carga */
+	private final String next;
+	
+	/** Lote de dibujo del frame */
+	private RenderBatch batch = new RenderBatch();
+	/** Dibujo de los lotes con OpenGL */
+	private GLBatchRenderer renderer;
+	
+	/**
+	 * @param next Nombre del estado al que se pasa al terminar la carga
+	 */
+	public LoadingState(String next) {
+		this.next = next;
+	}
+
+	/**
+	 * @see org.maox.games.GameState#getName
+	 */
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	/**
+	 * @see org.maox.games.GameState#init
+	 */
+	@Override
+	public void init(Game game) throws Exception {
+		this.game = game;
+	}
+
+	/**
+	 * @see org.maox.games.GameState#enter
+	 */
+	@Override
+	public void enter() throws Exception {
+		if (!Backend.getInstance().isHeadless()) {
+			renderer = new GLBatchRenderer(4);
+		}
+	}
+
+	/**
+	 * @see org.maox.games.GameState#update
+	 */
+	@Override
+	public void update(int delta) throws Exception {
+		if (Backend.getInstance().getLoadProgress() >= 1) {
+			game.changeToState(next);
+		}
+	}
+
+	/**
+	 * @see org.maox.games.GameState#render
+	 */
+	@Override
+	public void render(int delta) {
+		if (renderer == null) {
+			return;
+		}
+		
+		float progress = Backend.getInstance().getLoadProgress();
+		float x = (ArkaBlock.WIDTH - BAR_WIDTH) / 2;
+		float y = (ArkaBlock.HEIGHT - BAR_HEIGHT) / 2;
+		
+		batch.begin();
+		batch.quad(RenderBatch.LAYER_OVERLAY, 0, x - 2, y - 2, x + BAR_WIDTH + 2, y + BAR_HEIGHT + 2, 0, 0, 0, 0, FRAME);
+		batch.quad(RenderBatch.LAYER_OVERLAY, 0, x, y, x + BAR_WIDTH, y + BAR_HEIGHT, 0, 0, 0, 0, EMPTY);
+		batch.quad(RenderBatch.LAYER_OVERLAY, 0, x, y, x + BAR_WIDTH * progress, y + BAR_HEIGHT, 0, 0, 0, 0, FILL);
+		
+		glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+		glMatrixMode(GL_MODELVIEW);
+		glLoadIdentity();
+		
+		renderer.render(batch);
+		
+		glFlush();
+	}
+
+	/**
+	 * @see org.maox.games.GameState#leave
+	 */
+	@Override
+	public void leave() {
+		if (renderer != null) {
+			renderer.dispose();
+			renderer = null;
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package org.maox.arkablock.states;
+
+import org.maox.arkablock.render.RenderBatch;
+
+/**
+ * Estado de juego que se puede simular en un hilo propio (arkablock.threaded).
+ * La simulación deja de esperar al intercambio de buffers de la ventana y el
+ * renderizado deja de esperar a los ciclos de lógica.
+ * 
+ * Contrato de hilos:
+ * <ul>
+ * <li>init, enter, leave y draw se llaman en el hilo de la ventana, el único
+ * con contexto OpenGL. Los recursos (modelos, texturas) se crean y se
+ * liberan solo aquí.</li>
+ * <li>update y submit se llaman en el hilo de simulación mientras está en
+ * marcha. No pueden llamar a OpenGL ni crear o liberar recursos.</li>
+ * <li>submit solo lee el estado de la simulación y lo escribe en el lote;
+ * draw solo lee el lote, nunca el estado de la simulación.</li>
+ * <li>Un cambio de estado pedido desde update (Game.changeToState) se aplica
+ * en el hilo de la ventana después de parar la simulación.</li>
+ * <li>Entrada del teclado (InputSampler): sample solo en el hilo de la
+ * ventana; acquire (a través de LiveInput) solo en el hilo de simulación,
+ * que es el único lector. El estado tomado no cambia hasta el siguiente
+ * acquire.</li>
+ * <li>Medición de tiempos (FrameProfiler): update mide sus fases solo con el
+ * medidor de simulación (getSimulation), cuyos begin, end, record y endTicks
+ * llama únicamente el hilo de simulación. El medidor principal (begin, end,
+ * record, endFrame y updateStats) es solo del hilo de la ventana. Desde
+ * submit solo se leen isHudVisible y getStat, para el panel.</li>
+ * </ul>
+ * Sin hilo de simulación el estado se usa como un InterpolatedGameState.
+ * 
+ * @author Alex
+ */
+public interface ThreadedGameState extends InterpolatedGameState {
+
+	/**
+	 * Escribe en el lote el estado de la simulación. No llama a OpenGL
+	 * 
+	 * @param batch Lote del frame (ya empezado)
+	 * @param alpha Fracción del ciclo de lógica entre el anterior (0) y el último (1)
+	 */
+	public void submit(RenderBatch batch, float alpha);
+	
+	/**
+	 * Dibuja un lote construido con submit. Solo en el hilo de la ventana
+	 * 
+	 * @param batch Lote del frame
+	 */
+	public void draw(RenderBatch batch);
+}
@@ -0,0 +1,299 @@
+package org.maox.arkablock.tools;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.maox.arkablock.assets.ImageData;
+import org.maox.arkablock.assets.TextureAtlas;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Herramienta de compilación que empaqueta las imágenes del juego en un
+ * atlas de texturas (ver TextureAtlas) ya decodificado, para que el juego no
+ * tenga que decodificar ningún JPEG al arrancar y dibuje todo lo que usa el
+ * atlas con una sola textura. Se ejecuta en la fase process-classes de Maven.
+ * 
+ * Uso: AtlasPacker <jar o directorio con las imágenes> <directorio de salida>
+ * 
+ * Las imágenes se colocan por filas (de la más alta a la más baja) en la
+ * textura cuadrada o rectangular potencia de dos más pequeña en la que caben.
+ * Alrededor de cada imagen se deja un margen que repite sus bordes, para
+ * que el filtrado lineal no mezcle pixels de imágenes vecinas.
+ * 
+ * @author Alex
+ */
+public class AtlasPacker {
+	/** Log */
+	private static final Logger logger = LoggerFactory.getLogger(AtlasPacker.class);
+	
+	/** Margen en pixels alrededor de cada imagen */
+	private static final int GUTTER = 2;
+	/** Lado del bloque blanco (TextureAtlas.WHITE) */
+	private static final int WHITE_SIZE = 4;
+	/** Lado máximo del atlas */
+	private static final int MAX_SIZE = 4096;
+	
+	/** Imágenes a empaquetar */
+	private final ArrayList<Image> images = new ArrayList<Image>();
+	
+	/**
+	 * Imagen decodificada y su posición en el atlas
+	 */
+	private static class Image {
+		final String name;
+		final int width, height;
+		final ByteBuffer pixels;
+		int x, y;
+		
+		Image(String name, int width, int height, ByteBuffer pixels) {
+			this.name = name;
+			this.width = width;
+			this.height = height;
+			this.pixels = pixels;
+		}
+	}
+	
+	/**
+	 * Añade las imágenes de un jar
+	 * 
+	 * @param jar Fichero jar (o zip)
+	 * @throws IOException
+	 */
+	public void addJar(File jar) throws IOException {
+		ZipFile zip = new ZipFile(jar);
+		
+		try {
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				
+				if (!entry.isDirectory() && isImage(entry.getName())) {
+					InputStream in = zip.getInputStream(entry);
+					try {
+						add(entry.getName(), in);
+					}
+					finally {
+						in.close();
+					}
+				}
+			}
+		}
+		finally {
+			zip.close();
+		}
+	}
+	
+	/**
+	 * Añade las imágenes de un directorio (recursivamente)
+	 * 
+	 * @param dir Directorio raiz
+	 * @param prefix Ruta relativa del directorio ("" para la raiz)
+	 * @throws IOException
+	 */
+	public void addDirectory(File dir, String prefix) throws IOException {
+		File[] files = dir.listFiles();
+		
+		if (files == null) {
+			return;
+		}
+		
+		for (int i=0;i<files.length;i++) {
+			File file = files[i];
+			
+			if (file.isDirectory()) {
+				addDirectory(file, prefix + file.getName() + "/");
+			}
+			else if (isImage(file.getName())) {
+				InputStream in = new FileInputStream(file);
+				try {
+					add(prefix + file.getName(), in);
+				}
+				finally {
+					in.close();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Decodifica y añade una imagen. Se decodifica igual que al cargarla
+	 * suelta (TextureAsset), así el resultado es el mismo con o sin atlas
+	 * 
+	 * @param ref Ruta de la imagen (nombre de la región)
+	 * @param in Contenido de la imagen
+	 * @throws IOException
+	 */
+	public void add(String ref, InputStream in) throws IOException {
+		ImageData image = ImageData.decode(in);
+		images.add(new Image(ref, image.getWidth(), image.getHeight(), image.getPixels()));
+	}
+	
+	/**
+	 * Empaqueta las imágenes añadidas y escribe el atlas
+	 * 
+	 * @param file Fichero de salida
+	 * @throws IOException Si las imágenes no caben en el tamaño máximo
+	 */
+	public void write(File file) throws IOException {
+		// Bloque blanco para los rectángulos de color
+		ByteBuffer white = ByteBuffer.allocate(WHITE_SIZE * WHITE_SIZE * 4);
+		while (white.hasRemaining()) {
+			white.put((byte) 0xFF);
+		}
+		white.flip();
+		images.add(new Image(TextureAtlas.WHITE, WHITE_SIZE, WHITE_SIZE, white));
+		
+		// De la más alta a la más baja para aprovechar las filas
+		Collections.sort(images, new Comparator<Image>() {
+			@Override
+			public int compare(Image a, Image b) {
+				return b.height - a.height;
+			}
+		});
+		
+		int width = 0, height = 0;
+		
+		// Tamaño potencia de dos más pequeño (de menor área, lo más cuadrado posible) en el que caben todas
+		for (int area=1;width==0 && area<=MAX_SIZE * MAX_SIZE;area*=2) {
+			for (int w=1;w<=MAX_SIZE;w*=2) {
+				int h = area / w;
+				
+				if (w >= h && pack(w, h)) {
+					width = w;
+					height = h;
+					break;
+				}
+			}
+		}
+		
+		if (width == 0) {
+			throw new IOException("Las imágenes no caben en un atlas de "+MAX_SIZE+"x"+MAX_SIZE);
+		}
+		pack(width, height);
+		
+		byte[] pixels = new byte[width * height * 4];
+		ArrayList<String> names = new ArrayList<String>();
+		ArrayList<float[]> uvs = new ArrayList<float[]>();
+		
+		for (int i=0;i<images.size();i++) {
+			Image image = images.get(i);
+			copy(image, pixels, width);
+			
+			names.add(image.name);
+			
+			// La región blanca se toma del centro del bloque (sin tocar los bordes)
+			int inset = image.name.equals(TextureAtlas.WHITE) ? 1 : 0;
+			uvs.add(new float[] {
+				(float) (image.x + inset) / width, (float) (image.y + inset) / height,
+				(float) (image.x + image.width - inset) / width, (float) (image.y + image.height - inset) / height });
+		}
+		
+		if (file.getParentFile() != null) {
+			file.getParentFile().mkdirs();
+		}
+		
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+		try {
+			TextureAtlas.write(out, width, height, names, uvs, pixels);
+		}
+		finally {
+			out.close();
+		}
+		
+		logger.info(images.size()+" regiones en un atlas de "+width+"x"+height+" -> "+file.length()+" bytes");
+	}
+	
+	/**
+	 * Coloca las imágenes por filas
+	 * 
+	 * @return true si caben todas en el tamaño indicado
+	 */
+	private boolean pack(int width, int height) {
+		int x = 0, y = 0, rowHeight = 0;
+		
+		for (int i=0;i<images.size();i++) {
+			Image image = images.get(i);
+			int w = image.width + GUTTER * 2;
+			int h = image.height + GUTTER * 2;
+			
+			// Nueva fila
+			if (x + w > width) {
+				x = 0;
+				y += rowHeight;
+				rowHeight = 0;
+			}
+			
+			if (x + w > width || y + h > height) {
+				return false;
+			}
+			
+			image.x = x + GUTTER;
+			image.y = y + GUTTER;
+			x += w;
+			rowHeight = Math.max(rowHeight, h);
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Copia una imagen en el atlas repitiendo sus bordes en el margen
+	 */
+	private static void copy(Image image, byte[] pixels, int width) {
+		for (int y=-GUTTER;y<image.height + GUTTER;y++) {
+			int srcY = Math.min(Math.max(y, 0), image.height - 1);
+			
+			for (int x=-GUTTER;x<image.width + GUTTER;x++) {
+				int srcX = Math.min(Math.max(x, 0), image.width - 1);
+				int src = (srcY * image.width + srcX) * 4;
+				int dst = ((image.y + y) * width + image.x + x) * 4;
+				
+				pixels[dst] = image.pixels.get(src);
+				pixels[dst + 1] = image.pixels.get(src + 1);
+				pixels[dst + 2] = image.pixels.get(src + 2);
+				pixels[dst + 3] = image.pixels.get(src + 3);
+			}
+		}
+	}
+	
+	private static boolean isImage(String name) {
+		String lower = name.toLowerCase();
+		return lower.endsWith(".jpg") || lower.endsWith(".jpeg") || lower.endsWith(".png");
+	}
+	
+	/**
+	 * @param args Origen (jar o directorio) y directorio de salida
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Uso: AtlasPacker <jar o directorio con las imágenes> <directorio de salida>");
+			System.exit(1);
+		}
+		
+		File source = new File(args[0]);
+		AtlasPacker packer = new AtlasPacker();
+		
+		if (source.isDirectory()) {
+			packer.addDirectory(source, "");
+		}
+		else {
+			packer.addJar(source);
+		}
+		
+		packer.write(new File(args[1], TextureAtlas.REF));
+	}
+}
@@ -0,0 +1,190 @@
+package org.maox.arkablock.tools;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.maox.arkablock.level.BrickField;
+import org.maox.arkablock.level.LevelPack;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Herramienta de compilación que convierte los muros en texto en un paquete
+ * de niveles (ver LevelPack). Se ejecuta en la fase process-classes de Maven.
+ * 
+ * Uso: LevelCompiler <directorio con los .txt> <directorio de salida>
+ * 
+ * Los niveles se ordenan por nombre de fichero (level01.txt, level02.txt...).
+ * Cada linea es una fila del muro y cada carácter una celda; las lineas que
+ * empiezan por ; son comentarios y las vacías se ignoran. Las filas que
+ * faltan hasta el fondo del muro quedan vacías.
+ * 
+ *    .  vacío
+ *    w r y b m g c o  ladrillo normal (blanco, rojo, amarillo, azul, magenta, verde, cian, naranja)
+ *    S  ladrillo plateado (2 golpes)
+ *    #  ladrillo dorado (indestructible)
+ * 
+ * @author Alex
+ */
+public class LevelCompiler {
+	/** Log */
+	private static final Logger logger = LoggerFactory.getLogger(LevelCompiler.class);
+	
+	/** Rejilla de los niveles (la del muro de InGameState) */
+	public static final int COLS = 16, ROWS = 18;
+	
+	/** Caracteres de los ladrillos normales y sus colores (RGBA) */
+	private static final String NORMAL = "wrybmgco";
+	private static final int[] NORMAL_COLORS = {
+		0xF0F0F0FF, 0xFF3030FF, 0xFFFF30FF, 0x3070FFFF, 0xFF30FFFF, 0x30FF30FF, 0x30FFFFFF, 0xFF8030FF };
+	/** Color de los ladrillos plateados y dorados */
+	private static final int SILVER = 0xC0C0C0FF, GOLD = 0xD4AF37FF;
+	/** Golpes de los ladrillos plateados */
+	private static final int SILVER_HITS = 2;
+	
+	/** Niveles compilados */
+	private final ArrayList<byte[]> types = new ArrayList<byte[]>();
+	private final ArrayList<byte[]> hits = new ArrayList<byte[]>();
+	private final ArrayList<int[]> colors = new ArrayList<int[]>();
+	
+	/**
+	 * Compila un muro en texto
+	 * 
+	 * @param file Fichero del muro
+	 * @throws IOException Si el fichero no es válido
+	 */
+	public void add(File file) throws IOException {
+		byte[] levelTypes = new byte[COLS * ROWS];
+		byte[] levelHits = new byte[COLS * ROWS];
+		int[] levelColors = new int[COLS * ROWS];
+		int remaining = 0;
+		
+		BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+		try {
+			String line;
+			int lineNumber = 0;
+			int row = 0;
+			
+			while ((line = in.readLine()) != null) {
+				lineNumber++;
+				
+				line = line.trim();
+				
+				if (line.length() == 0 || line.startsWith(";")) {
+					continue;
+				}
+				
+				if (row == ROWS || line.length() != COLS) {
+					throw new IOException(file.getName()+":"+lineNumber+": se esperaban "+ROWS+" filas de "+COLS+" celdas como máximo");
+				}
+				
+				for (int col=0;col<COLS;col++) {
+					int cell = row * COLS + col;
+					char c = line.charAt(col);
+					int normal = NORMAL.indexOf(c);
+					
+					if (normal >= 0) {
+						levelTypes[cell] = BrickField.TYPE_NORMAL;
+						levelHits[cell] = 1;
+						levelColors[cell] = NORMAL_COLORS[normal];
+						remaining++;
+					}
+					else if (c == 'S') {
+						levelTypes[cell] = BrickField.TYPE_SILVER;
+						levelHits[cell] = SILVER_HITS;
+						levelColors[cell] = SILVER;
+						remaining++;
+					}
+					else if (c == '#') {
+						levelTypes[cell] = BrickField.TYPE_GOLD;
+						levelHits[cell] = 1;
+						levelColors[cell] = GOLD;
+					}
+					else if (c != '.') {
+						throw new IOException(file.getName()+":"+lineNumber+": celda desconocida '"+c+"'");
+					}
+				}
+				
+				row++;
+			}
+		}
+		finally {
+			in.close();
+		}
+		
+		// Sin ladrillos que romper el nivel se daría por completado nada más empezar
+		if (remaining == 0) {
+			throw new IOException(file.getName()+": el nivel no tiene ladrillos que romper");
+		}
+		
+		types.add(levelTypes);
+		hits.add(levelHits);
+		colors.add(levelColors);
+	}
+	
+	/**
+	 * Compila todos los muros de un directorio, ordenados por nombre
+	 * 
+	 * @param dir Directorio con los .txt
+	 * @throws IOException
+	 */
+	public void addDirectory(File dir) throws IOException {
+		File[] files = dir.listFiles();
+		
+		if (files == null) {
+			throw new IOException("No existe el directorio "+dir);
+		}
+		
+		Arrays.sort(files);
+		
+		for (int i=0;i<files.length;i++) {
+			if (files[i].isFile() && files[i].getName().toLowerCase().endsWith(".txt")) {
+				add(files[i]);
+			}
+		}
+	}
+	
+	/**
+	 * Escribe el paquete con los niveles compilados
+	 * 
+	 * @param file Fichero de salida
+	 * @throws IOException
+	 */
+	public void write(File file) throws IOException {
+		if (file.getParentFile() != null) {
+			file.getParentFile().mkdirs();
+		}
+		
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+		try {
+			LevelPack.write(out, COLS, ROWS, types, hits, colors);
+		}
+		finally {
+			out.close();
+		}
+		
+		logger.info(types.size()+" niveles -> "+file.length()+" bytes");
+	}
+	
+	/**
+	 * @param args Directorio de los muros y directorio de salida
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Uso: LevelCompiler <directorio con los .txt> <directorio de salida>");
+			System.exit(1);
+		}
+		
+		LevelCompiler compiler = new LevelCompiler();
+		compiler.addDirectory(new File(args[0]));
+		compiler.write(new File(args[1], LevelPack.REF));
+	}
+}
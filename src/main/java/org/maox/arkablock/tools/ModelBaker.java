@@ -0,0 +1,161 @@
+package org.maox.arkablock.tools;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.maox.arkablock.assets.BakedMesh;
+import org.maox.arkablock.assets.MeshData;
+import org.maox.arkablock.assets.ObjParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Herramienta de compilación que convierte los modelos OBJ en modelos
+ * precocinados (.mdl, ver BakedMesh) para que el juego no tenga que leer
+ * texto al arrancar. Se ejecuta en la fase process-classes de Maven.
+ * 
+ * Uso: ModelBaker <jar o directorio con los OBJ> <directorio de salida>
+ * 
+ * Cada modelo se escribe con la misma ruta que tenía dentro del origen
+ * (obj/vaus.obj -> salida/obj/vaus.mdl).
+ * 
+ * @author Alex
+ */
+public class ModelBaker {
+	/** Log */
+	private static final Logger logger = LoggerFactory.getLogger(ModelBaker.class);
+	
+	/** Directorio de salida */
+	private final File output;
+	
+	/**
+	 * @param output Directorio de salida
+	 */
+	public ModelBaker(File output) {
+		this.output = output;
+	}
+	
+	/**
+	 * Convierte todos los OBJ de un jar
+	 * 
+	 * @param jar Fichero jar (o zip)
+	 * @return Número de modelos convertidos
+	 * @throws IOException
+	 */
+	public int bakeJar(File jar) throws IOException {
+		ZipFile zip = new ZipFile(jar);
+		int count = 0;
+		
+		try {
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				
+				if (!entry.isDirectory() && entry.getName().endsWith(".obj")) {
+					InputStream in = zip.getInputStream(entry);
+					try {
+						bake(entry.getName(), in);
+					}
+					finally {
+						in.close();
+					}
+					count++;
+				}
+			}
+		}
+		finally {
+			zip.close();
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Convierte todos los OBJ de un directorio (recursivamente)
+	 * 
+	 * @param dir Directorio raiz
+	 * @param prefix Ruta relativa del directorio ("" para la raiz)
+	 * @return Número de modelos convertidos
+	 * @throws IOException
+	 */
+	public int bakeDirectory(File dir, String prefix) throws IOException {
+		File[] files = dir.listFiles();
+		int count = 0;
+		
+		if (files == null) {
+			return 0;
+		}
+		
+		for (int i=0;i<files.length;i++) {
+			File file = files[i];
+			
+			if (file.isDirectory()) {
+				count += bakeDirectory(file, prefix + file.getName() + "/");
+			}
+			else if (file.getName().endsWith(".obj")) {
+				InputStream in = new FileInputStream(file);
+				try {
+					bake(prefix + file.getName(), in);
+				}
+				finally {
+					in.close();
+				}
+				count++;
+			}
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Convierte un modelo
+	 * 
+	 * @param ref Ruta del OBJ dentro del origen
+	 * @param in Contenido del OBJ
+	 * @throws IOException
+	 */
+	public void bake(String ref, InputStream in) throws IOException {
+		MeshData mesh = ObjParser.parse(in);
+		File file = new File(output, BakedMesh.bakedRef(ref));
+		
+		if (file.getParentFile() != null) {
+			file.getParentFile().mkdirs();
+		}
+		
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+		int unique;
+		try {
+			unique = BakedMesh.write(mesh, out);
+		}
+		finally {
+			out.close();
+		}
+		
+		logger.info(ref+": "+mesh.getVertexCount()+" vértices, "+unique+" sin repetir -> "+file.length()+" bytes");
+	}
+	
+	/**
+	 * @param args Origen (jar o directorio) y directorio de salida
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Uso: ModelBaker <jar o directorio con los OBJ> <directorio de salida>");
+			System.exit(1);
+		}
+		
+		File source = new File(args[0]);
+		ModelBaker baker = new ModelBaker(new File(args[1]));
+		
+		int count = source.isDirectory() ? baker.bakeDirectory(source, "") : baker.bakeJar(source);
+		logger.info(count+" modelos precocinados en "+args[1]);
+	}
+}